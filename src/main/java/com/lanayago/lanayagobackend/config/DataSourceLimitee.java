@@ -0,0 +1,95 @@
+package com.lanayago.lanayagobackend.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * DataSource dont le nombre de connexions empruntées simultanément est borné par un sémaphore.
+ *
+ * Avec des threads virtuels le nombre de requêtes concurrentes n'est plus limité par Tomcat : des
+ * milliers de threads attendraient dans le pool Hikari. Ici, avec autant de permis que de connexions
+ * dans le pool, l'attente se fait sur le sémaphore, où un thread virtuel bloqué ne coûte presque rien,
+ * et Hikari n'est sollicité que lorsqu'une connexion est libre.
+ *
+ * L'attente reste bornée : une requête qui n'a pas de connexion au bout du délai échoue, alors qu'en
+ * threads plateforme elle aurait attendu sans limite dans la file de Tomcat avant d'atteindre le pool.
+ */
+public class DataSourceLimitee extends DelegatingDataSource {
+
+    private final Semaphore permis;
+    private final long attenteMaxNs;
+
+    public DataSourceLimitee(DataSource cible, int connexionsMax, Duration attenteMax) {
+        super(cible);
+        this.permis = new Semaphore(connexionsMax, true);
+        this.attenteMaxNs = attenteMax.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquerir();
+        try {
+            return liberantALaFermeture(obtainTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permis.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquerir();
+        try {
+            return liberantALaFermeture(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permis.release();
+            throw e;
+        }
+    }
+
+    public int connexionsEnAttente() {
+        return permis.getQueueLength();
+    }
+
+    private void acquerir() throws SQLException {
+        try {
+            if (!permis.tryAcquire(attenteMaxNs, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Aucune connexion disponible après " + Duration.ofNanos(attenteMaxNs).toSeconds() + " s ("
+                                + permis.getQueueLength() + " requêtes en attente)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Attente d'une connexion interrompue", e);
+        }
+    }
+
+    /**
+     * Le permis est rendu une seule fois, au premier close() de la connexion
+     */
+    private Connection liberantALaFermeture(Connection connexion) {
+        AtomicBoolean liberee = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, methode, arguments) -> {
+                    try {
+                        return methode.invoke(connexion, arguments);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if (methode.getName().equals("close") && liberee.compareAndSet(false, true)) {
+                            permis.release();
+                        }
+                    }
+                });
+    }
+}
@@ -1,7 +1,10 @@
 package com.lanayago.lanayagobackend.config;
 
+import com.lanayago.lanayagobackend.security.HachageMotsDePasseBorne;
 import com.lanayago.lanayagobackend.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -14,7 +17,6 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -32,12 +34,22 @@ public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final UserDetailsService userDetailsService;
 
+    // 0 : la moitié des cœurs, pour laisser du CPU aux autres endpoints pendant une rafale de connexions
+    @Value("${lanayago.auth.hachage.threads:0}")
+    private int threadsHachage;
+
+    @Value("${lanayago.auth.hachage.taille-file:64}")
+    private int tailleFileHachage;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(auth -> auth
+                        // Reprise des réponses asynchrones (SSE, streaming) déjà autorisées à la requête initiale
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // Endpoints publics
                         .requestMatchers(
                                 "/api/auth/**",
@@ -93,8 +105,9 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public HachageMotsDePasseBorne passwordEncoder() {
+        int threads = threadsHachage > 0 ? threadsHachage : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new HachageMotsDePasseBorne(new BCryptPasswordEncoder(), threads, tailleFileHachage);
     }
 
     @Bean
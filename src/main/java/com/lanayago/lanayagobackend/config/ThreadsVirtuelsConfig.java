@@ -0,0 +1,45 @@
+package com.lanayago.lanayagobackend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * Mode threads virtuels, activé par spring.threads.virtual.enabled : Tomcat, @Async et @Scheduled
+ * s'exécutent alors sur des threads virtuels (configuration Spring Boot).
+ *
+ * Le pilote MySQL (Connector/J 9.x) et HikariCP n'utilisent plus de blocs synchronized autour des
+ * entrées/sorties : un thread virtuel en attente de la base libère son thread porteur. Le hachage
+ * BCrypt reste sur son pool de threads plateforme, c'est du calcul pur.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class ThreadsVirtuelsConfig {
+
+    @Bean
+    static BeanPostProcessor limiteurConnexions(Environment environment) {
+        Duration attenteMaxConfiguree = environment.getProperty("lanayago.datasource.attente-max", Duration.class);
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    // Par défaut le même délai qu'en threads plateforme : seul l'endroit de l'attente change
+                    Duration attenteMax = attenteMaxConfiguree != null
+                            ? attenteMaxConfiguree : Duration.ofMillis(hikari.getConnectionTimeout());
+                    log.info("Threads virtuels : accès à la base limité à {} connexions simultanées, attente max {}",
+                            hikari.getMaximumPoolSize(), attenteMax);
+                    return new DataSourceLimitee(hikari, hikari.getMaximumPoolSize(), attenteMax);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -4,8 +4,16 @@ import com.lanayago.lanayagobackend.dto.reponse.AdminDashboardDTO;
 import com.lanayago.lanayagobackend.dto.reponse.ConducteurProfileDTO;
 import com.lanayago.lanayagobackend.dto.reponse.CourseResponse;
 import com.lanayago.lanayagobackend.dto.reponse.EnginResponse;
+import com.lanayago.lanayagobackend.dto.reponse.PageCurseur;
+import com.lanayago.lanayagobackend.entity.enums.Roles;
+import com.lanayago.lanayagobackend.entity.enums.StatutConducteur;
 import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.StatutEngin;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
 import com.lanayago.lanayagobackend.service.AdminService;
+import com.lanayago.lanayagobackend.service.ExportCoursesService;
+import com.lanayago.lanayagobackend.service.ExportCoursesService.FormatExport;
+import com.lanayago.lanayagobackend.util.CodecTrace;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,10 +23,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +43,7 @@ import java.util.Map;
 public class AdminController {
 
     private final AdminService adminService;
+    private final ExportCoursesService exportCoursesService;
 
     // ==================== DASHBOARD & STATISTIQUES ====================
 
@@ -74,12 +88,94 @@ public class AdminController {
         return ResponseEntity.ok(adminService.getStatistiquesDetaillees());
     }
 
+    @PostMapping("/statistiques/reconstruire")
+    @Operation(
+            summary = "Reconstruire les cumuls statistiques",
+            description = "Recalcule les cumuls horaires et journaliers des courses terminées et annulées depuis l'historique",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Cumuls reconstruits avec succès"),
+            @ApiResponse(responseCode = "401", description = "Non authentifié"),
+            @ApiResponse(responseCode = "403", description = "Accès refusé")
+    })
+    public ResponseEntity<Void> reconstruireAgregats() {
+        adminService.reconstruireAgregats();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/monitoring/authentification")
+    @Operation(
+            summary = "Métriques de l'authentification",
+            description = "Occupation du pool de hachage des mots de passe, requêtes refusées en 429 et état du limiteur de tentatives",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Métriques récupérées avec succès",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(responseCode = "401", description = "Non authentifié"),
+            @ApiResponse(responseCode = "403", description = "Accès refusé")
+    })
+    public ResponseEntity<Map<String, Object>> getMetriquesAuthentification() {
+        return ResponseEntity.ok(adminService.getMetriquesAuthentification());
+    }
+
+    @GetMapping("/monitoring/evenements")
+    @Operation(
+            summary = "Métriques des événements de course",
+            description = "Événements en attente dans l'outbox, événements relayés, échecs des abonnés, état de la file de notifications " +
+                    "courses en attente expirées, abonnés au flux des courses et abonnés lents déconnectés",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Métriques récupérées avec succès",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(responseCode = "401", description = "Non authentifié"),
+            @ApiResponse(responseCode = "403", description = "Accès refusé")
+    })
+    public ResponseEntity<Map<String, Object>> getMetriquesEvenements() {
+        return ResponseEntity.ok(adminService.getMetriquesEvenements());
+    }
+
+    @PostMapping("/evenements/rejouer")
+    @Operation(
+            summary = "Rejouer les événements de course",
+            description = "Relaie de nouveau aux abonnés internes qui l'acceptent (expiration des courses en attente) les " +
+                    "événements de course créés depuis la date donnée, dans leur ordre d'origine. Ni notification, ni dispatch, " +
+                    "ni état courant des conducteurs (course en cours, compteur, présence, flux) ne sont rejoués. " +
+                    "Limité à la durée de rétention de l'outbox.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Rejeu lancé ; nombre d'événements rejoués",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(responseCode = "401", description = "Non authentifié"),
+            @ApiResponse(responseCode = "403", description = "Accès refusé")
+    })
+    public ResponseEntity<Map<String, Object>> rejouerEvenements(
+            @Parameter(description = "Événements créés à partir de (ISO 8601)", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime depuis,
+            @Parameter(description = "Limiter le rejeu à une course")
+            @RequestParam(required = false) Long courseId) {
+        return ResponseEntity.ok(Map.of("evenements", adminService.rejouerEvenementsCourses(depuis, courseId)));
+    }
+
     // ==================== GESTION DES CONDUCTEURS ====================
 
     @GetMapping("/conducteurs")
     @Operation(
-            summary = "Liste de tous les conducteurs",
-            description = "Récupère la liste complète de tous les conducteurs inscrits sur la plateforme",
+            summary = "Liste paginée des conducteurs",
+            description = "Récupère les conducteurs du plus récent au plus ancien, page par page. " +
+                    "Pour la page suivante, renvoyer le curseurSuivant reçu",
             security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
@@ -91,8 +187,11 @@ public class AdminController {
             @ApiResponse(responseCode = "401", description = "Non authentifié"),
             @ApiResponse(responseCode = "403", description = "Accès refusé")
     })
-    public ResponseEntity<List<ConducteurProfileDTO>> getAllConducteurs() {
-        return ResponseEntity.ok(adminService.getAllConducteurs());
+    public ResponseEntity<PageCurseur<ConducteurProfileDTO>> getAllConducteurs(
+            @Parameter(description = "Filtrer par statut") @RequestParam(required = false) StatutConducteur statut,
+            @Parameter(description = "Curseur renvoyé par la page précédente") @RequestParam(required = false) Long curseur,
+            @Parameter(description = "Taille de la page") @RequestParam(required = false) Integer taille) {
+        return ResponseEntity.ok(adminService.getAllConducteurs(statut, curseur, taille));
     }
 
     @GetMapping("/conducteurs/en-attente")
@@ -231,8 +330,9 @@ public class AdminController {
 
     @GetMapping("/courses")
     @Operation(
-            summary = "Liste de toutes les courses",
-            description = "Récupère la liste complète de toutes les courses sur la plateforme",
+            summary = "Liste paginée des courses",
+            description = "Récupère les courses de la plus récente à la plus ancienne, page par page. " +
+                    "Pour la page suivante, renvoyer le curseurSuivant reçu",
             security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
@@ -243,14 +343,59 @@ public class AdminController {
             ),
             @ApiResponse(responseCode = "401", description = "Non authentifié")
     })
-    public ResponseEntity<List<CourseResponse>> getAllCourses() {
-        return ResponseEntity.ok(adminService.getAllCourses());
+    public ResponseEntity<PageCurseur<CourseResponse>> getAllCourses(
+            @Parameter(description = "Filtrer par statut") @RequestParam(required = false) StatutCourse statut,
+            @Parameter(description = "Filtrer par type de course") @RequestParam(required = false) TypeCourse typeCourse,
+            @Parameter(description = "Créées à partir de (ISO 8601)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime depuis,
+            @Parameter(description = "Créées avant (ISO 8601)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime jusqua,
+            @Parameter(description = "Curseur renvoyé par la page précédente") @RequestParam(required = false) Long curseur,
+            @Parameter(description = "Taille de la page") @RequestParam(required = false) Integer taille) {
+        return ResponseEntity.ok(adminService.getAllCourses(statut, typeCourse, depuis, jusqua, curseur, taille));
+    }
+
+    @GetMapping("/courses/export")
+    @Operation(
+            summary = "Exporter les courses",
+            description = "Exporte toutes les courses correspondant aux filtres en CSV ou NDJSON (une course JSON par ligne). " +
+                    "Les lignes sont écrites au fil de la lecture, sans limite de volume",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Export en cours de transmission",
+                    content = {
+                            @Content(mediaType = "text/csv"),
+                            @Content(mediaType = "application/x-ndjson")
+                    }
+            ),
+            @ApiResponse(responseCode = "401", description = "Non authentifié"),
+            @ApiResponse(responseCode = "403", description = "Accès refusé")
+    })
+    public ResponseEntity<StreamingResponseBody> exporterCourses(
+            @Parameter(description = "Format de l'export") @RequestParam(defaultValue = "CSV") FormatExport format,
+            @Parameter(description = "Filtrer par statut") @RequestParam(required = false) StatutCourse statut,
+            @Parameter(description = "Filtrer par type de course") @RequestParam(required = false) TypeCourse typeCourse,
+            @Parameter(description = "Créées à partir de (ISO 8601)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime depuis,
+            @Parameter(description = "Créées avant (ISO 8601)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime jusqua) {
+        StreamingResponseBody corps = sortie ->
+                exportCoursesService.exporter(statut, typeCourse, depuis, jusqua, format, sortie);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getTypeMime() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"courses." + format.getExtension() + "\"")
+                .body(corps);
     }
 
     @GetMapping("/courses/statut/{statut}")
     @Operation(
             summary = "Courses par statut",
-            description = "Récupère la liste des courses filtrées par statut",
+            description = "Récupère les courses d'un statut, page par page",
             security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
@@ -261,9 +406,11 @@ public class AdminController {
             ),
             @ApiResponse(responseCode = "401", description = "Non authentifié")
     })
-    public ResponseEntity<List<CourseResponse>> getCoursesByStatut(
-            @Parameter(description = "Statut de la course") @PathVariable StatutCourse statut) {
-        return ResponseEntity.ok(adminService.getCoursesByStatut(statut));
+    public ResponseEntity<PageCurseur<CourseResponse>> getCoursesByStatut(
+            @Parameter(description = "Statut de la course") @PathVariable StatutCourse statut,
+            @Parameter(description = "Curseur renvoyé par la page précédente") @RequestParam(required = false) Long curseur,
+            @Parameter(description = "Taille de la page") @RequestParam(required = false) Integer taille) {
+        return ResponseEntity.ok(adminService.getCoursesByStatut(statut, curseur, taille));
     }
 
     @GetMapping("/courses/{id}")
@@ -285,6 +432,26 @@ public class AdminController {
         return ResponseEntity.ok(adminService.getCourseDetails(id));
     }
 
+    @GetMapping("/courses/{id}/trace")
+    @Operation(
+            summary = "Trace GPS d'une course (Admin)",
+            description = "Positions successives du conducteur pendant la course, pour l'examen des litiges. " +
+                    "L'horodatage est en millisecondes depuis l'epoch.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Trace récupérée",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(responseCode = "404", description = "Course non trouvée")
+    })
+    public ResponseEntity<List<CodecTrace.Point>> getTraceCourse(
+            @Parameter(description = "ID de la course") @PathVariable Long id) {
+        return ResponseEntity.ok(adminService.getTraceCourse(id));
+    }
+
     @DeleteMapping("/courses/{id}/annuler")
     @Operation(
             summary = "Annuler une course (Admin)",
@@ -307,8 +474,9 @@ public class AdminController {
 
     @GetMapping("/utilisateurs")
     @Operation(
-            summary = "Liste de tous les utilisateurs",
-            description = "Récupère la liste complète de tous les utilisateurs de la plateforme",
+            summary = "Liste paginée des utilisateurs",
+            description = "Récupère les utilisateurs du plus récent au plus ancien, page par page. " +
+                    "Pour la page suivante, renvoyer le curseurSuivant reçu",
             security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
@@ -319,8 +487,12 @@ public class AdminController {
             ),
             @ApiResponse(responseCode = "401", description = "Non authentifié")
     })
-    public ResponseEntity<List<Map<String, Object>>> getAllUsers() {
-        return ResponseEntity.ok(adminService.getAllUsers());
+    public ResponseEntity<PageCurseur<Map<String, Object>>> getAllUsers(
+            @Parameter(description = "Filtrer par rôle") @RequestParam(required = false) Roles role,
+            @Parameter(description = "Filtrer par état du compte") @RequestParam(required = false) Boolean actif,
+            @Parameter(description = "Curseur renvoyé par la page précédente") @RequestParam(required = false) Long curseur,
+            @Parameter(description = "Taille de la page") @RequestParam(required = false) Integer taille) {
+        return ResponseEntity.ok(adminService.getAllUsers(role, actif, curseur, taille));
     }
 
     @PutMapping("/utilisateurs/{id}/desactiver")
@@ -359,8 +531,9 @@ public class AdminController {
 
     @GetMapping("/engins")
     @Operation(
-            summary = "Liste de tous les engins",
-            description = "Récupère la liste complète de tous les engins enregistrés sur la plateforme",
+            summary = "Liste paginée des engins",
+            description = "Récupère les engins du plus récent au plus ancien, page par page. " +
+                    "Pour la page suivante, renvoyer le curseurSuivant reçu",
             security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
@@ -371,7 +544,10 @@ public class AdminController {
             ),
             @ApiResponse(responseCode = "401", description = "Non authentifié")
     })
-    public ResponseEntity<List<EnginResponse>> getAllEngins() {
-        return ResponseEntity.ok(adminService.getAllEngins());
+    public ResponseEntity<PageCurseur<EnginResponse>> getAllEngins(
+            @Parameter(description = "Filtrer par statut") @RequestParam(required = false) StatutEngin statut,
+            @Parameter(description = "Curseur renvoyé par la page précédente") @RequestParam(required = false) Long curseur,
+            @Parameter(description = "Taille de la page") @RequestParam(required = false) Integer taille) {
+        return ResponseEntity.ok(adminService.getAllEngins(statut, curseur, taille));
     }
 }
\ No newline at end of file
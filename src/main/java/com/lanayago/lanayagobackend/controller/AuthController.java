@@ -2,6 +2,7 @@ package com.lanayago.lanayagobackend.controller;
 
 import com.lanayago.lanayagobackend.dto.reponse.AuthResponse;
 import com.lanayago.lanayagobackend.dto.request.LoginRequest;
+import com.lanayago.lanayagobackend.dto.request.RefreshTokenRequest;
 import com.lanayago.lanayagobackend.dto.request.RegisterRequest;
 import com.lanayago.lanayagobackend.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,6 +13,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -99,16 +101,22 @@ public class AuthController {
                     responseCode = "400",
                     description = "Données invalides (email déjà utilisé, téléphone déjà utilisé, etc.)",
                     content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Trop de tentatives pour cette adresse IP ou cet email, ou serveur saturé",
+                    content = @Content(mediaType = "application/json")
             )
     })
-    public ResponseEntity<AuthResponse> register(@Valid @RequestBody RegisterRequest request) {
-        return ResponseEntity.ok(authService.register(request));
+    public ResponseEntity<AuthResponse> register(@Valid @RequestBody RegisterRequest request,
+                                                 HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(authService.register(request, httpRequest.getRemoteAddr()));
     }
 
     @PostMapping("/login")
     @Operation(
             summary = "Connexion d'un utilisateur",
-            description = "Authentifie un utilisateur et retourne un token JWT valide pour 24 heures",
+            description = "Authentifie un utilisateur et retourne un token JWT valide pour 24 heures, accompagné d'un jeton de renouvellement",
             requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "Identifiants de connexion",
                     required = true,
@@ -139,6 +147,8 @@ public class AuthController {
                                     value = """
                                             {
                                               "token": "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9...",
+                                              "type": "Bearer",
+                                              "refreshToken": "q3Jx9Vw1...",
                                               "id": 1,
                                               "email": "jean.kouame@example.com",
                                               "nom": "Kouame",
@@ -154,10 +164,66 @@ public class AuthController {
                     responseCode = "401",
                     description = "Email ou mot de passe incorrect",
                     content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Trop de tentatives pour cette adresse IP ou cet email, ou serveur saturé",
+                    content = @Content(mediaType = "application/json")
+            )
+    })
+    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest request,
+                                              HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(authService.login(request, httpRequest.getRemoteAddr()));
+    }
+
+    @PostMapping("/refresh")
+    @Operation(
+            summary = "Renouveler le token JWT",
+            description = """
+                    Échange un jeton de renouvellement contre un nouveau token JWT et un nouveau jeton de renouvellement.
+                    Le jeton présenté ne peut servir qu'une fois : sa réutilisation révoque toute la session.
+                    Les jetons de renouvellement sont valides 7 jours.
+                    """,
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Jeton de renouvellement reçu à la connexion ou au dernier renouvellement",
+                    required = true,
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = RefreshTokenRequest.class),
+                            examples = @ExampleObject(
+                                    name = "Exemple de renouvellement",
+                                    value = """
+                                            {
+                                              "refreshToken": "q3Jx9Vw1..."
+                                            }
+                                            """
+                            )
+                    )
+            )
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Token renouvelé",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AuthResponse.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Jeton de renouvellement invalide, expiré ou déjà utilisé",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Trop de tentatives pour cette adresse IP",
+                    content = @Content(mediaType = "application/json")
             )
     })
-    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest request) {
-        return ResponseEntity.ok(authService.login(request));
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshTokenRequest request,
+                                                HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(authService.refresh(request, httpRequest.getRemoteAddr()));
     }
 
     @GetMapping("/me")
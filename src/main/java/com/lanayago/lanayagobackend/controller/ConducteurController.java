@@ -2,7 +2,11 @@ package com.lanayago.lanayagobackend.controller;
 
 import com.lanayago.lanayagobackend.dto.reponse.ConducteurProfileDTO;
 import com.lanayago.lanayagobackend.dto.reponse.CourseResponse;
+import com.lanayago.lanayagobackend.security.JwtAuthenticationFilter;
 import com.lanayago.lanayagobackend.service.ConducteurService;
+import com.lanayago.lanayagobackend.service.IngestionPositions;
+import com.lanayago.lanayagobackend.util.CodecPositions;
+import io.jsonwebtoken.Claims;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -10,11 +14,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -75,7 +82,8 @@ public class ConducteurController {
     @PutMapping("/disponibilite")
     @Operation(
             summary = "Changer la disponibilité",
-            description = "Met à jour le statut de disponibilité du conducteur pour recevoir des courses",
+            description = "Met à jour le statut de disponibilité du conducteur pour recevoir des courses. " +
+                    "Un conducteur disponible n'est sollicité que s'il a envoyé une position récemment.",
             security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
@@ -147,4 +155,50 @@ public class ConducteurController {
         conducteurService.updatePosition(latitude, longitude);
         return ResponseEntity.ok().build();
     }
+
+    @PostMapping(value = "/positions", consumes = {CodecPositions.TYPE_MEDIA, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(
+            summary = "Envoyer un lot de positions GPS",
+            description = "Positions accumulées par l'application, en enregistrements binaires de 16 octets big-endian : " +
+                    "horodatage du fix (int64, ms depuis l'epoch), latitude et longitude (int32, 1e-7 degré). " +
+                    "Les fixes trop anciens, datés dans le futur ou hors coordonnées valides sont écartés.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Lot traité : nombre de positions acceptées et écartées",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(responseCode = "400", description = "Corps mal formé"),
+            @ApiResponse(responseCode = "401", description = "Non authentifié"),
+            @ApiResponse(responseCode = "413", description = "Lot trop volumineux")
+    })
+    public ResponseEntity<IngestionPositions.Bilan> enregistrerPositions(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(conducteurService.enregistrerPositions(request.getInputStream(), request.getContentLengthLong()));
+    }
+
+    @PostMapping(value = "/positions/flux", consumes = {CodecPositions.TYPE_MEDIA, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(
+            summary = "Flux continu de positions GPS",
+            description = "Requête longue en transfert chunked : chaque enregistrement de 16 octets (même format que /positions) " +
+                    "est traité dès sa réception. La réponse est envoyée à la fermeture du flux par l'application, ou quand " +
+                    "le serveur le clôt : à l'expiration du jeton ou après la durée maximale d'un flux. L'application en " +
+                    "ouvre alors un nouveau.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Flux terminé : nombre de positions acceptées et écartées",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(responseCode = "400", description = "Enregistrement tronqué"),
+            @ApiResponse(responseCode = "401", description = "Non authentifié ou session révoquée pendant le flux")
+    })
+    public ResponseEntity<IngestionPositions.Bilan> fluxPositions(HttpServletRequest request) throws IOException {
+        Claims claims = (Claims) request.getAttribute(JwtAuthenticationFilter.ATTRIBUT_CLAIMS);
+        return ResponseEntity.ok(conducteurService.enregistrerFluxPositions(request.getInputStream(),
+                claims != null ? claims.getIssuedAt() : null, claims != null ? claims.getExpiration() : null));
+    }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.lanayago.lanayagobackend.controller;
 import com.lanayago.lanayagobackend.dto.CourseDTO;
 import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
 import com.lanayago.lanayagobackend.service.CourseService;
+import com.lanayago.lanayagobackend.util.CodecTrace;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,9 +14,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -90,6 +93,26 @@ public class CourseController {
         return ResponseEntity.ok(courseService.getCourseById(id));
     }
 
+    @GetMapping("/{id}/trace")
+    @Operation(
+            summary = "Trace GPS d'une course",
+            description = "Positions successives du conducteur depuis l'acceptation de la course, dans l'ordre chronologique. " +
+                    "L'horodatage est en millisecondes depuis l'epoch, les coordonnées au 1e-5 degré près.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Trace récupérée",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(responseCode = "404", description = "Course non trouvée"),
+            @ApiResponse(responseCode = "403", description = "Accès non autorisé")
+    })
+    public ResponseEntity<List<CodecTrace.Point>> getTrace(@PathVariable Long id) {
+        return ResponseEntity.ok(courseService.getTrace(id));
+    }
+
     @GetMapping("/disponibles")
     @PreAuthorize("hasRole('CONDUCTEUR')")
     @Operation(
@@ -110,6 +133,52 @@ public class CourseController {
         return ResponseEntity.ok(courseService.getCoursesDisponibles());
     }
 
+    @GetMapping("/disponibles/proximite")
+    @PreAuthorize("hasRole('CONDUCTEUR')")
+    @Operation(
+            summary = "Courses disponibles à proximité",
+            description = "Liste paginée des courses en attente dont le départ est dans un rayon autour de la position donnée",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Liste récupérée avec succès",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(responseCode = "401", description = "Non authentifié"),
+            @ApiResponse(responseCode = "403", description = "Réservé aux conducteurs")
+    })
+    public ResponseEntity<List<CourseDTO.CourseResponse>> getCoursesDisponiblesProches(
+            @RequestParam Double latitude,
+            @RequestParam Double longitude,
+            @RequestParam(defaultValue = "5") double rayonKm,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int taille) {
+        return ResponseEntity.ok(courseService.getCoursesDisponiblesProches(latitude, longitude, rayonKm, page, taille));
+    }
+
+    @GetMapping(value = "/disponibles/flux", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('CONDUCTEUR')")
+    @Operation(
+            summary = "Flux des courses disponibles",
+            description = "Flux Server-Sent Events des courses proches de la dernière position du conducteur : " +
+                    "événements CREEE (nouvelle course), ACCEPTEE (course prise) et ANNULEE",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Flux ouvert",
+                    content = @Content(mediaType = "text/event-stream")
+            ),
+            @ApiResponse(responseCode = "401", description = "Non authentifié"),
+            @ApiResponse(responseCode = "403", description = "Réservé aux conducteurs")
+    })
+    public SseEmitter fluxCoursesDisponibles() {
+        return courseService.abonnerFluxCourses();
+    }
+
     @PutMapping("/{id}/accepter")
     @PreAuthorize("hasRole('CONDUCTEUR')")
     @Operation(
@@ -127,7 +196,7 @@ public class CourseController {
                     )
             ),
             @ApiResponse(responseCode = "404", description = "Course non trouvée"),
-            @ApiResponse(responseCode = "400", description = "Course déjà acceptée"),
+            @ApiResponse(responseCode = "409", description = "Course déjà prise par un autre conducteur"),
             @ApiResponse(responseCode = "403", description = "Conducteur non approuvé")
     })
     public ResponseEntity<CourseDTO.CourseResponse> accepterCourse(@PathVariable Long id) {
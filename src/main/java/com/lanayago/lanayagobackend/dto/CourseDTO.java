@@ -60,6 +60,7 @@ public class CourseDTO {
         private String adresseDepart;
         private String adresseArrivee;
         private Double distanceKm;
+        private Double distanceReelleKm;
         private Double montantEstime;
         private Double montantFinal;
         private StatutCourse statut;
@@ -0,0 +1,18 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+
+/**
+ * Nombre et montant des courses d'un type et d'un statut pour une heure, lus lors de la
+ * reconstruction des cumuls
+ */
+public record CumulHoraireCourses(
+        TypeCourse typeCourse,
+        Integer annee,
+        Integer mois,
+        Integer jour,
+        Integer heure,
+        Long nombre,
+        Double montant
+) {
+}
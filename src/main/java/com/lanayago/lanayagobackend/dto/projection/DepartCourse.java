@@ -0,0 +1,7 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+/**
+ * Coordonnées de départ d'une course, pour le calcul de sa cellule geohash
+ */
+public record DepartCourse(Long id, Double latitude, Double longitude) {
+}
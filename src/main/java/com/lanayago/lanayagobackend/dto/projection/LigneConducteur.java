@@ -0,0 +1,27 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+import com.lanayago.lanayagobackend.entity.enums.Roles;
+import com.lanayago.lanayagobackend.entity.enums.StatutConducteur;
+
+/**
+ * Profil d'un conducteur et de son engin actuel, colonnes nulles s'il n'en a pas
+ */
+public record LigneConducteur(
+        Long id,
+        String nom,
+        String prenom,
+        String email,
+        String telephone,
+        Roles role,
+        String numPermis,
+        String photoPermis,
+        StatutConducteur statut,
+        Double noteGlobale,
+        Integer nombreCourses,
+        Long enginId,
+        String enginMarque,
+        String enginModele,
+        String enginCouleur,
+        String enginMatricule
+) {
+}
@@ -0,0 +1,22 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+
+import java.time.LocalDateTime;
+
+/**
+ * Colonnes d'une course affichées dans les listes, sans participants
+ */
+public record LigneCourse(
+        Long id,
+        TypeCourse typeCourse,
+        String adresseDepart,
+        String adresseArrivee,
+        Double distanceKm,
+        Double montantEstime,
+        Double montantFinal,
+        StatutCourse statut,
+        LocalDateTime dateCreation
+) {
+}
@@ -0,0 +1,42 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+
+import java.time.LocalDateTime;
+
+/**
+ * Course avec son client, son conducteur et son engin, lus en une seule requête.
+ * Les colonnes du conducteur et de l'engin sont nulles tant que la course n'est pas attribuée.
+ */
+public record LigneCourseDetaillee(
+        Long id,
+        TypeCourse typeCourse,
+        String adresseDepart,
+        String adresseArrivee,
+        Double distanceKm,
+        Double distanceReelleKm,
+        Double montantEstime,
+        Double montantFinal,
+        StatutCourse statut,
+        LocalDateTime dateCreation,
+        LocalDateTime dateDebut,
+        LocalDateTime dateFin,
+        String descriptionColis,
+        Integer nombrePassagers,
+        Long clientId,
+        String clientNom,
+        String clientPrenom,
+        String clientTelephone,
+        Long conducteurId,
+        String conducteurNom,
+        String conducteurPrenom,
+        String conducteurTelephone,
+        Double conducteurNoteGlobale,
+        Long enginId,
+        String enginMarque,
+        String enginModele,
+        String enginCouleur,
+        String enginMatricule
+) {
+}
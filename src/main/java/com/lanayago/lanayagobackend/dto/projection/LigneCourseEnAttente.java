@@ -0,0 +1,24 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+
+import java.time.LocalDateTime;
+
+/**
+ * Colonnes d'une course en attente nécessaires à son expiration : échéance et événement d'annulation
+ */
+public record LigneCourseEnAttente(
+        Long id,
+        TypeCourse typeCourse,
+        Long clientId,
+        String adresseDepart,
+        String adresseArrivee,
+        Double latitudeDepart,
+        Double longitudeDepart,
+        Double distanceKm,
+        Double montantEstime,
+        Integer nombrePassagers,
+        Double poidsColis,
+        LocalDateTime dateCreation
+) {
+}
@@ -0,0 +1,33 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+import com.lanayago.lanayagobackend.entity.enums.StatutEngin;
+import com.lanayago.lanayagobackend.entity.enums.TypeEngin;
+import com.lanayago.lanayagobackend.entity.enums.TypeMoto;
+import com.lanayago.lanayagobackend.entity.enums.TypeVehicule;
+
+/**
+ * Engin et son propriétaire. Les colonnes propres aux motos ou aux voitures
+ * sont nulles pour l'autre type d'engin.
+ */
+public record LigneEngin(
+        Long id,
+        TypeEngin typeEngin,
+        String marque,
+        String modele,
+        String couleur,
+        String matricule,
+        Integer annee,
+        String photoEngin,
+        StatutEngin statut,
+        boolean active,
+        Long proprietaireId,
+        String proprietaireNom,
+        String proprietairePrenom,
+        String proprietaireTelephone,
+        Integer cylindree,
+        TypeMoto typeMoto,
+        TypeVehicule typeVehicule,
+        Integer nombrePlaces,
+        Double capaciteChargement
+) {
+}
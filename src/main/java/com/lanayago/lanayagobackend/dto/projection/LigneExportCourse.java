@@ -0,0 +1,26 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ligne d'export d'une course : valeurs à plat, aucune entité n'est chargée dans le contexte de persistance
+ */
+public record LigneExportCourse(
+        Long id,
+        TypeCourse typeCourse,
+        StatutCourse statut,
+        Long clientId,
+        Long conducteurId,
+        String adresseDepart,
+        String adresseArrivee,
+        Double distanceKm,
+        Double montantEstime,
+        Double montantFinal,
+        LocalDateTime dateCreation,
+        LocalDateTime dateDebut,
+        LocalDateTime dateFin
+) {
+}
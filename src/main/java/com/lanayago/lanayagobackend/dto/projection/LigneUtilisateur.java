@@ -0,0 +1,17 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+import com.lanayago.lanayagobackend.entity.enums.Roles;
+
+import java.time.LocalDateTime;
+
+public record LigneUtilisateur(
+        Long id,
+        String nom,
+        String prenom,
+        String email,
+        String telephone,
+        Roles role,
+        boolean actif,
+        LocalDateTime createdAt
+) {
+}
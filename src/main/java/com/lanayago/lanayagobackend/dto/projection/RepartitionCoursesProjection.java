@@ -0,0 +1,10 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+
+public interface RepartitionCoursesProjection {
+    TypeCourse getTypeCourse();
+    StatutCourse getStatut();
+    Long getNombre();
+}
@@ -0,0 +1,12 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Désactivation récente d'un compte, relue par chaque instance pour refuser ses JWT
+ */
+public record RevocationUtilisateur(
+        Long id,
+        LocalDateTime dateRevocation
+) {
+}
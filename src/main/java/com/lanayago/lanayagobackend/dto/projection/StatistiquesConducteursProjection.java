@@ -0,0 +1,7 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+public interface StatistiquesConducteursProjection {
+    Long getTotal();
+    Long getApprouves();
+    Long getEnAttente();
+}
@@ -0,0 +1,13 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+/**
+ * Agrégats du tableau de bord calculés en une seule requête sur la table des courses
+ */
+public interface StatistiquesCoursesProjection {
+    Long getTotal();
+    Long getEnAttente();
+    Long getEnCours();
+    Long getTerminees();
+    Long getRecentes();
+    Double getRevenusMois();
+}
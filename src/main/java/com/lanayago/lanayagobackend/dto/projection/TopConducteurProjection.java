@@ -0,0 +1,9 @@
+package com.lanayago.lanayagobackend.dto.projection;
+
+public interface TopConducteurProjection {
+    Long getId();
+    String getNom();
+    String getPrenom();
+    Integer getNombreCourses();
+    Double getNoteGlobale();
+}
@@ -14,6 +14,8 @@ public class AdminDashboardDTO {
     private Long totalConducteurs;
     private Long conducteursApprouves;
     private Long conducteursEnAttente;
+    private Long conducteursEnLigne;
+    private Long conducteursDisponibles; // Disponibles, libres et en ligne
 
     // Statistiques courses
     private Long totalCourses;
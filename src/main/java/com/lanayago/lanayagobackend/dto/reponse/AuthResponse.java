@@ -11,6 +11,7 @@ import lombok.NoArgsConstructor;
 public class AuthResponse {
     private String token;
     private String type = "Bearer";
+    private String refreshToken;
     private Long id;
     private String email;
     private String nom;
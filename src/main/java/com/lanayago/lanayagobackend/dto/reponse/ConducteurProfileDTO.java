@@ -21,6 +21,7 @@ public class ConducteurProfileDTO {
     private StatutConducteur statut;
     private Double noteGlobale;
     private Integer nombreCourses;
+    private Boolean disponible;
     private EnginSimpleDTO enginActuel;
 
     @Data
@@ -0,0 +1,21 @@
+package com.lanayago.lanayagobackend.dto.reponse;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Page d'une liste parcourue par curseur : la page suivante s'obtient en renvoyant
+ * curseurSuivant, absent lorsque la liste est épuisée.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PageCurseur<T> {
+
+    private List<T> elements;
+    private Long curseurSuivant;
+    private boolean suivante;
+}
@@ -0,0 +1,15 @@
+package com.lanayago.lanayagobackend.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RefreshTokenRequest {
+
+    @NotBlank(message = "Le jeton de renouvellement est obligatoire")
+    private String refreshToken;
+}
@@ -0,0 +1,51 @@
+package com.lanayago.lanayagobackend.entity;
+
+import com.lanayago.lanayagobackend.entity.enums.GranulariteAgregat;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cumul des courses terminées ou annulées par période (heure ou jour), type et statut.
+ * Tenu à jour à chaque transition, reconstructible depuis l'historique des courses.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "agregats_courses", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_agregats_periode",
+                columnNames = {"granularite", "debut_periode", "type_course", "statut"})
+})
+public class AgregatCourse {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private GranulariteAgregat granularite;
+
+    @Column(name = "debut_periode", nullable = false)
+    private LocalDateTime debutPeriode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type_course", nullable = false)
+    private TypeCourse typeCourse;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StatutCourse statut;
+
+    @Column(name = "nombre_courses", nullable = false)
+    private long nombreCourses;
+
+    @Column(name = "montant_total", nullable = false)
+    private double montantTotal;
+}
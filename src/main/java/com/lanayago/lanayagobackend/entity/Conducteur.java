@@ -15,7 +15,10 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "conducteurs")
+@Table(name = "conducteurs", indexes = {
+        @Index(name = "idx_conducteurs_nombre_courses", columnList = "nombre_courses"),
+        @Index(name = "idx_conducteurs_statut_id", columnList = "statut, id")
+})
 public class Conducteur extends User {
 
     @Column(length = 15, nullable = false, unique = true)
@@ -31,10 +34,14 @@ public class Conducteur extends User {
 
     private Integer nombreCourses = 0;
 
+    // Choix du conducteur, écrit en différé par PresenceConducteurs
+    @Column(nullable = false)
+    private boolean disponible = false;
+
     @OneToMany(mappedBy = "conducteur")
     private List<Course> courses = new ArrayList<>();
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "engin_actuel_id")
     private Engin enginActuel;
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.lanayago.lanayagobackend.entity;
 
 import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
 import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.util.GeoHash;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -14,7 +15,13 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "courses")
+@Table(name = "courses", indexes = {
+        @Index(name = "idx_courses_statut_geohash", columnList = "statut, geohash_depart, date_creation"),
+        @Index(name = "idx_courses_statut_id", columnList = "statut, id"),
+        @Index(name = "idx_courses_statut_date_creation", columnList = "statut, date_creation"),
+        @Index(name = "idx_courses_type_id", columnList = "type_course, id"),
+        @Index(name = "idx_courses_date_creation", columnList = "date_creation")
+})
 public class Course {
 
     @Id
@@ -25,15 +32,16 @@ public class Course {
     @Column(nullable = false)
     private TypeCourse typeCourse;
 
-    @ManyToOne
+    // Associations paresseuses : chaque requête de liste déclare ce qu'elle charge (@EntityGraph)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "client_id", nullable = false)
     private User client;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "conducteur_id")
     private Conducteur conducteur;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "engin_id")
     private Engin engin;
 
@@ -44,6 +52,10 @@ public class Course {
     private Double latitudeDepart;
     private Double longitudeDepart;
 
+    // Cellule geohash du départ, pour la recherche des courses proches par l'index
+    @Column(name = "geohash_depart", length = GeoHash.PRECISION_COURSES)
+    private String geohashDepart;
+
     @Column(nullable = false)
     private String adresseArrivee;
 
@@ -64,6 +76,10 @@ public class Course {
     private Double montantEstime;
     private Double montantFinal;
 
+    // Distance mesurée par le compteur kilométrique pendant la course, base du montant final
+    @Column(name = "distance_reelle_km")
+    private Double distanceReelleKm;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private StatutCourse statut = StatutCourse.EN_ATTENTE;
@@ -78,9 +94,18 @@ public class Course {
     @Column(name = "date_fin")
     private LocalDateTime dateFin;
 
-    @OneToOne(mappedBy = "course", cascade = CascadeType.ALL)
+    // Côté inverse : Hibernate le charge toujours, les requêtes de liste le joignent donc explicitement
+    @OneToOne(mappedBy = "course", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Evaluation evaluation;
 
     @Column(columnDefinition = "TEXT")
     private String noteClient; // Notes du client pour le conducteur
+
+    @PrePersist
+    @PreUpdate
+    void calculerGeohashDepart() {
+        geohashDepart = latitudeDepart != null && longitudeDepart != null
+                ? GeoHash.encoder(latitudeDepart, longitudeDepart, GeoHash.PRECISION_COURSES)
+                : null;
+    }
 }
\ No newline at end of file
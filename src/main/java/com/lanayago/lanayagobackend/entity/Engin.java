@@ -1,6 +1,7 @@
 package com.lanayago.lanayagobackend.entity;
 
 import com.lanayago.lanayagobackend.entity.enums.StatutEngin;
+import com.lanayago.lanayagobackend.entity.enums.TypeEngin;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,7 +11,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "engins")
+@Table(name = "engins", indexes = {
+        @Index(name = "idx_engins_statut_id", columnList = "statut, id")
+})
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "type_engin", discriminatorType = DiscriminatorType.STRING)
 public abstract class Engin {
@@ -19,6 +22,11 @@ public abstract class Engin {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Discriminateur en lecture seule, pour les projections ; renseigné par Hibernate à l'insertion
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type_engin", insertable = false, updatable = false)
+    private TypeEngin typeEngin;
+
     @Column(nullable = false)
     private String marque;
 
@@ -36,7 +44,7 @@ public abstract class Engin {
     @Column(columnDefinition = "TEXT")
     private String photoEngin; // URL ou chemin du fichier
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "proprietaire_id")
     private Propriotaire propriotaire;
 
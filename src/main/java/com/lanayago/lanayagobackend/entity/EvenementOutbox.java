@@ -0,0 +1,54 @@
+package com.lanayago.lanayagobackend.entity;
+
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Événement de course écrit dans la transaction qui l'a produit, puis relayé aux abonnés.
+ * Une date de publication nulle signifie que l'événement reste à relayer.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "outbox_courses", indexes = {
+        @Index(name = "idx_outbox_courses_publication", columnList = "date_publication, id"),
+        @Index(name = "idx_outbox_courses_course", columnList = "course_id"),
+        @Index(name = "idx_outbox_courses_creation", columnList = "date_creation")
+})
+public class EvenementOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Pas de clé étrangère : l'historique survit à la suppression de la course
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TypeEvenementCourse type;
+
+    // CourseEvenement sérialisé en JSON
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String contenu;
+
+    @CreationTimestamp
+    @Column(name = "date_creation")
+    private LocalDateTime dateCreation;
+
+    @Column(name = "date_publication")
+    private LocalDateTime datePublication;
+
+    // Attribué à la publication, croissant dans l'ordre des validations : chaque instance suit ce numéro
+    // pour diffuser l'événement à ses propres abonnés
+    @Column(name = "numero_publication", unique = true)
+    private Long numeroPublication;
+}
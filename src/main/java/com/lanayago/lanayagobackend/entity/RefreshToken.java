@@ -0,0 +1,50 @@
+package com.lanayago.lanayagobackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Jeton de renouvellement à usage unique. Seule l'empreinte SHA-256 du jeton est conservée.
+ * Les jetons issus d'une même connexion partagent une famille : la réutilisation d'un jeton
+ * déjà échangé révoque toute la famille.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_famille", columnList = "famille"),
+        @Index(name = "idx_refresh_tokens_expiration", columnList = "date_expiration"),
+        @Index(name = "idx_refresh_tokens_user", columnList = "user_id")
+})
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String empreinte;
+
+    @Column(nullable = false, length = 36)
+    private String famille;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User utilisateur;
+
+    @Column(nullable = false)
+    private boolean utilise = false;
+
+    @CreationTimestamp
+    @Column(name = "date_creation")
+    private LocalDateTime dateCreation;
+
+    @Column(name = "date_expiration", nullable = false)
+    private LocalDateTime dateExpiration;
+}
@@ -0,0 +1,42 @@
+package com.lanayago.lanayagobackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Portion de la trace GPS d'une course, encodée par {@link com.lanayago.lanayagobackend.util.CodecTrace}.
+ * Une ligne regroupe plusieurs dizaines de positions au lieu d'une ligne par position.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "segments_traces", indexes = {
+        @Index(name = "idx_segments_traces_course", columnList = "course_id, id")
+})
+public class SegmentTrace {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Pas de clé étrangère : les positions arrivent hors de la transaction de la course
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Column(name = "nombre_points", nullable = false)
+    private Integer nombrePoints;
+
+    @Column(nullable = false)
+    private LocalDateTime debut;
+
+    @Column(nullable = false)
+    private LocalDateTime fin;
+
+    @Column(nullable = false, columnDefinition = "BLOB")
+    private byte[] donnees;
+}
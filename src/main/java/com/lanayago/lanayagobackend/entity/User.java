@@ -13,7 +13,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_role_id", columnList = "role, id"),
+        @Index(name = "idx_users_date_revocation", columnList = "date_revocation")
+})
 @Inheritance(strategy = InheritanceType.JOINED)
 public class User {
     @Id
@@ -44,4 +47,8 @@ public class User {
     private Roles role;
 
     private boolean actif = true;
+
+    // Dernière désactivation : les JWT émis avant restent refusés, même après réactivation
+    @Column(name = "date_revocation")
+    private LocalDateTime dateRevocation;
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.lanayago.lanayagobackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ligne verrouillée en écriture par un traitement qui ne doit tourner que sur une instance à la fois.
+ * Le verrou est celui de la base : il vaut pour toutes les instances et tombe avec la transaction.
+ * Un traitement qui doit le garder hors transaction prend à la place un bail, à prolonger avant son
+ * expiration.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "verrous_traitements")
+public class VerrouTraitement {
+
+    @Id
+    @Column(length = 50)
+    private String nom;
+
+    // Instance détentrice du bail, libre une fois l'expiration passée
+    @Column(length = 64)
+    private String detenteur;
+
+    private LocalDateTime expiration;
+}
@@ -0,0 +1,6 @@
+package com.lanayago.lanayagobackend.entity.enums;
+
+public enum GranulariteAgregat {
+    HEURE,
+    JOUR
+}
@@ -0,0 +1,31 @@
+package com.lanayago.lanayagobackend.event;
+
+/**
+ * Consommateur des événements de course relayés depuis l'outbox.
+ * Appelé sur le thread du relais, dans l'ordre des événements de chaque course et hors transaction :
+ * un traitement long doit être confié à un autre thread. Un événement peut être reçu plusieurs fois
+ * (reprise après arrêt, rejeu demandé par un administrateur pour les abonnés qui l'acceptent).
+ */
+public interface AbonneEvenementsCourse {
+
+    void surEvenementCourse(CourseEvenement evenement);
+
+    /**
+     * Vrai pour un abonné que le rejeu d'événements anciens ne peut pas égarer. Faux par défaut : un
+     * rejeu rejoue aussi les transitions de courses terminées depuis, et un abonné qui tient l'état
+     * courant des conducteurs (course en cours, compteur, présence) ou qui prévient les utilisateurs
+     * le remplacerait par un état périmé.
+     */
+    default boolean accepteRejeu() {
+        return false;
+    }
+
+    /**
+     * Vrai par défaut : l'abonné tient un état propre à ce serveur et reçoit chaque événement sur toutes
+     * les instances, une fois publié. Faux pour un abonné dont l'effet ne doit se produire qu'une fois
+     * (notification, sollicitation des conducteurs) : seule l'instance qui détient le relais l'appelle.
+     */
+    default boolean parInstance() {
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package com.lanayago.lanayagobackend.event;
+
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+
+import java.time.LocalDateTime;
+
+/**
+ * Changement d'état d'une course, publié dans la transaction qui le produit.
+ * Instantané immuable : les abonnés ne manipulent jamais l'entité hors de sa session.
+ */
+public record CourseEvenement(
+        TypeEvenementCourse type,
+        Long courseId,
+        TypeCourse typeCourse,
+        StatutCourse statut,
+        Long clientId,
+        Long conducteurId,
+        String adresseDepart,
+        String adresseArrivee,
+        Double latitudeDepart,
+        Double longitudeDepart,
+        Double distanceKm,
+        Double montantEstime,
+        Integer nombrePassagers,
+        Double poidsColis,
+        LocalDateTime horodatage
+) {
+
+    public static CourseEvenement de(TypeEvenementCourse type, Course course) {
+        return new CourseEvenement(
+                type,
+                course.getId(),
+                course.getTypeCourse(),
+                course.getStatut(),
+                course.getClient() != null ? course.getClient().getId() : null,
+                course.getConducteur() != null ? course.getConducteur().getId() : null,
+                course.getAdresseDepart(),
+                course.getAdresseArrivee(),
+                course.getLatitudeDepart(),
+                course.getLongitudeDepart(),
+                course.getDistanceKm(),
+                course.getMontantEstime(),
+                course.getNombrePassagers(),
+                course.getPoidsColis(),
+                LocalDateTime.now()
+        );
+    }
+}
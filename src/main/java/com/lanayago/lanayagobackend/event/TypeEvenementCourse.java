@@ -0,0 +1,8 @@
+package com.lanayago.lanayagobackend.event;
+
+public enum TypeEvenementCourse {
+    CREEE,        // Nouvelle demande en attente d'un conducteur
+    ACCEPTEE,     // Un conducteur a pris la course
+    ANNULEE,      // Course annulée par le client, le conducteur ou un admin
+    STATUT_MODIFIE // Autre transition d'une course attribuée (arrivée au départ, en cours, terminée)
+}
@@ -0,0 +1,7 @@
+package com.lanayago.lanayagobackend.notification;
+
+public enum CanalNotification {
+    PUSH,   // Application mobile
+    SMS,    // Messages importants qui doivent arriver même application fermée
+    EMAIL
+}
@@ -0,0 +1,22 @@
+package com.lanayago.lanayagobackend.notification;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Expéditeur par défaut tant qu'aucun fournisseur n'est branché : les notifications sont journalisées
+ */
+@Slf4j
+@Component
+public class ExpediteurJournal implements ExpediteurNotifications {
+
+    @Override
+    public void envoyer(CanalNotification canal, List<Notification> lot) {
+        for (Notification notification : lot) {
+            log.info("Notification {} {} envoyée à l'utilisateur {} (course {}) : {}", canal, notification.type(),
+                    notification.destinataireId(), notification.courseId(), notification.message());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.lanayago.lanayagobackend.notification;
+
+import java.util.List;
+
+/**
+ * Point d'extension vers le fournisseur d'envoi (FCM, passerelle SMS, SMTP...).
+ *
+ * Appelé depuis le thread de la file de notifications, jamais depuis une requête HTTP. Tous les
+ * messages d'un lot partagent le même canal. Une exception fait rejouer le lot entier plus tard :
+ * l'envoi doit donc tolérer les doublons.
+ */
+public interface ExpediteurNotifications {
+
+    void envoyer(CanalNotification canal, List<Notification> lot) throws Exception;
+}
@@ -0,0 +1,21 @@
+package com.lanayago.lanayagobackend.notification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Message à délivrer à un utilisateur. Immuable : il peut être rejoué tel quel en cas d'échec d'envoi.
+ */
+public record Notification(
+        CanalNotification canal,
+        TypeNotification type,
+        Long destinataireId,
+        Long courseId,
+        String message,
+        LocalDateTime creeLe
+) {
+
+    public static Notification de(CanalNotification canal, TypeNotification type, Long destinataireId,
+                                  Long courseId, String message) {
+        return new Notification(canal, type, destinataireId, courseId, message, LocalDateTime.now());
+    }
+}
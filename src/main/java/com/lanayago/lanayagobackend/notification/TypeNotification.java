@@ -0,0 +1,12 @@
+package com.lanayago.lanayagobackend.notification;
+
+public enum TypeNotification {
+    NOUVELLE_COURSE,      // Offre de course envoyée à un conducteur
+    COURSE_ACCEPTEE,
+    ARRIVEE_DEPART,       // Le conducteur est au point de départ
+    COURSE_TERMINEE,
+    COURSE_ANNULEE,
+    COMPTE_APPROUVE,
+    COMPTE_SUSPENDU,
+    COMPTE_BLOQUE
+}
@@ -0,0 +1,53 @@
+package com.lanayago.lanayagobackend.repository;
+
+import com.lanayago.lanayagobackend.dto.projection.CumulHoraireCourses;
+import com.lanayago.lanayagobackend.entity.AgregatCourse;
+import com.lanayago.lanayagobackend.entity.enums.GranulariteAgregat;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AgregatCourseRepository extends JpaRepository<AgregatCourse, Long> {
+
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO agregats_courses " +
+            "(granularite, debut_periode, type_course, statut, nombre_courses, montant_total) " +
+            "VALUES (:granularite, :debutPeriode, :typeCourse, :statut, :nombre, :montant) " +
+            "ON DUPLICATE KEY UPDATE nombre_courses = nombre_courses + :nombre, montant_total = montant_total + :montant")
+    void incrementer(String granularite, LocalDateTime debutPeriode, String typeCourse, String statut,
+                     long nombre, double montant);
+
+    /**
+     * Courses terminées par heure de fin, lecture sans verrou pour la reconstruction des cumuls
+     */
+    @Query("SELECT new com.lanayago.lanayagobackend.dto.projection.CumulHoraireCourses(c.typeCourse, " +
+            "year(COALESCE(c.dateFin, c.dateCreation)), month(COALESCE(c.dateFin, c.dateCreation)), " +
+            "day(COALESCE(c.dateFin, c.dateCreation)), hour(COALESCE(c.dateFin, c.dateCreation)), " +
+            "COUNT(c), COALESCE(SUM(c.montantFinal), 0.0)) " +
+            "FROM Course c WHERE c.statut = 'TERMINEE' " +
+            "AND COALESCE(c.dateFin, c.dateCreation) IS NOT NULL " +
+            "GROUP BY c.typeCourse, year(COALESCE(c.dateFin, c.dateCreation)), month(COALESCE(c.dateFin, c.dateCreation)), " +
+            "day(COALESCE(c.dateFin, c.dateCreation)), hour(COALESCE(c.dateFin, c.dateCreation))")
+    List<CumulHoraireCourses> cumulerTermineesParHeure();
+
+    /**
+     * Courses annulées par heure de création : aucune date d'annulation n'est conservée
+     */
+    @Query("SELECT new com.lanayago.lanayagobackend.dto.projection.CumulHoraireCourses(c.typeCourse, " +
+            "year(c.dateCreation), month(c.dateCreation), day(c.dateCreation), hour(c.dateCreation), " +
+            "COUNT(c), COALESCE(SUM(c.montantFinal), 0.0)) " +
+            "FROM Course c WHERE c.statut = 'ANNULEE' " +
+            "AND c.dateCreation IS NOT NULL " +
+            "GROUP BY c.typeCourse, year(c.dateCreation), month(c.dateCreation), day(c.dateCreation), hour(c.dateCreation)")
+    List<CumulHoraireCourses> cumulerAnnuleesParHeure();
+
+    @Query("SELECT COALESCE(SUM(a.montantTotal), 0.0) FROM AgregatCourse a " +
+            "WHERE a.granularite = :granularite AND a.statut = :statut AND a.debutPeriode >= :depuis")
+    Double sommeMontants(GranulariteAgregat granularite, StatutCourse statut, LocalDateTime depuis);
+}
@@ -1,19 +1,67 @@
 package com.lanayago.lanayagobackend.repository;
 
+import com.lanayago.lanayagobackend.dto.projection.LigneConducteur;
+import com.lanayago.lanayagobackend.dto.projection.StatistiquesConducteursProjection;
+import com.lanayago.lanayagobackend.dto.projection.TopConducteurProjection;
 import com.lanayago.lanayagobackend.entity.Conducteur;
 import com.lanayago.lanayagobackend.entity.enums.StatutConducteur;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ConducteurRepository extends JpaRepository<Conducteur, Long> {
 
+    String SELECT_LIGNE_CONDUCTEUR = "SELECT new com.lanayago.lanayagobackend.dto.projection.LigneConducteur(" +
+            "c.id, c.nom, c.prenom, c.email, c.telephone, c.role, c.numPermis, c.photoPermis, c.statut, " +
+            "c.noteGlobale, c.nombreCourses, e.id, e.marque, e.modele, e.couleur, e.matricule) " +
+            "FROM Conducteur c LEFT JOIN c.enginActuel e ";
+
     Optional<Conducteur> findByEmail(String email);
 
-    List<Conducteur> findByStatut(StatutConducteur statut);
+    @Query("SELECT c.statut FROM Conducteur c WHERE c.id = :id")
+    Optional<StatutConducteur> findStatutById(Long id);
+
+    @Query(SELECT_LIGNE_CONDUCTEUR + "WHERE c.statut = :statut")
+    List<LigneConducteur> findByStatut(StatutConducteur statut);
+
+    /**
+     * Conducteurs avec leur engin actuel, chargés en une requête (dispatch hors transaction)
+     */
+    @EntityGraph(attributePaths = "enginActuel")
+    List<Conducteur> findByIdIn(Collection<Long> ids);
 
     boolean existsByNumPermis(String numPermis);
+
+    /**
+     * Conducteurs déclarés disponibles, pour reconstruire le registre de présence au démarrage
+     */
+    @Query("SELECT c.id FROM Conducteur c WHERE c.disponible = true AND c.actif = true AND c.statut = 'APPROUVE'")
+    List<Long> findIdsDisponibles();
+
+    // Colonne de la seule table conducteurs : pas de table temporaire d'héritage
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE conducteurs SET disponible = :disponible WHERE id IN :ids")
+    int mettreAJourDisponibilite(List<Long> ids, boolean disponible);
+
+    @Query(SELECT_LIGNE_CONDUCTEUR + "WHERE (:statut IS NULL OR c.statut = :statut) " +
+            "AND (:curseur IS NULL OR c.id < :curseur) " +
+            "ORDER BY c.id DESC")
+    List<LigneConducteur> findPage(StatutConducteur statut, Long curseur, Pageable pageable);
+
+    // ORDER BY nombre_courses DESC LIMIT 10, servi par idx_conducteurs_nombre_courses
+    List<TopConducteurProjection> findTop10ByOrderByNombreCoursesDesc();
+
+    @Query("SELECT COUNT(c) AS total, " +
+            "COALESCE(SUM(CASE WHEN c.statut = 'APPROUVE' THEN 1L ELSE 0L END), 0L) AS approuves, " +
+            "COALESCE(SUM(CASE WHEN c.statut = 'EN_ATTENTE' THEN 1L ELSE 0L END), 0L) AS enAttente " +
+            "FROM Conducteur c")
+    StatistiquesConducteursProjection calculerStatistiquesDashboard();
 }
\ No newline at end of file
@@ -1,26 +1,168 @@
 package com.lanayago.lanayagobackend.repository;
 
+import com.lanayago.lanayagobackend.dto.projection.LigneCourse;
+import com.lanayago.lanayagobackend.dto.projection.DepartCourse;
+import com.lanayago.lanayagobackend.dto.projection.LigneCourseEnAttente;
+import com.lanayago.lanayagobackend.dto.projection.LigneCourseDetaillee;
+import com.lanayago.lanayagobackend.dto.projection.RepartitionCoursesProjection;
+import com.lanayago.lanayagobackend.dto.projection.StatistiquesCoursesProjection;
+import com.lanayago.lanayagobackend.entity.Conducteur;
 import com.lanayago.lanayagobackend.entity.Course;
 import com.lanayago.lanayagobackend.entity.enums.   StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
 import com.lanayago.lanayagobackend.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CourseRepository extends JpaRepository<Course, Long> {
 
+    // Projections des listes : seules les colonnes affichées sont lues, aucune entité n'est chargée
+    String SELECT_LIGNE_COURSE = "SELECT new com.lanayago.lanayagobackend.dto.projection.LigneCourse(" +
+            "c.id, c.typeCourse, c.adresseDepart, c.adresseArrivee, c.distanceKm, c.montantEstime, " +
+            "c.montantFinal, c.statut, c.dateCreation) FROM Course c ";
+
+    String SELECT_LIGNE_COURSE_DETAILLEE = "SELECT new com.lanayago.lanayagobackend.dto.projection.LigneCourseDetaillee(" +
+            "c.id, c.typeCourse, c.adresseDepart, c.adresseArrivee, c.distanceKm, c.distanceReelleKm, c.montantEstime, " +
+            "c.montantFinal, c.statut, c.dateCreation, c.dateDebut, c.dateFin, c.descriptionColis, c.nombrePassagers, " +
+            "cl.id, cl.nom, cl.prenom, cl.telephone, " +
+            "co.id, co.nom, co.prenom, co.telephone, co.noteGlobale, " +
+            "e.id, e.marque, e.modele, e.couleur, e.matricule) " +
+            "FROM Course c JOIN c.client cl LEFT JOIN c.conducteur co LEFT JOIN c.engin e ";
+
+    String SELECT_LIGNE_COURSE_EN_ATTENTE = "SELECT new com.lanayago.lanayagobackend.dto.projection.LigneCourseEnAttente(" +
+            "c.id, c.typeCourse, c.client.id, c.adresseDepart, c.adresseArrivee, c.latitudeDepart, c.longitudeDepart, " +
+            "c.distanceKm, c.montantEstime, c.nombrePassagers, c.poidsColis, c.dateCreation) FROM Course c ";
+
+    @EntityGraph(attributePaths = "evaluation")
     List<Course> findByClient(User client);
 
+    @EntityGraph(attributePaths = "evaluation")
     List<Course> findByConducteur_Id(Long conducteurId);
 
-    List<Course> findByStatut(StatutCourse statut);
+    @Query(SELECT_LIGNE_COURSE + "WHERE c.conducteur.id = :conducteurId ORDER BY c.dateCreation DESC")
+    List<LigneCourse> findLignesByConducteurId(Long conducteurId);
+
+    /**
+     * Course avec ses participants, chargés par jointure pour l'affichage
+     */
+    @EntityGraph(attributePaths = {"client", "conducteur", "engin", "evaluation"})
+    Optional<Course> findAvecParticipantsById(Long id);
+
+    /**
+     * Course avec tout ce qu'affiche la fiche détaillée de l'administration
+     */
+    @EntityGraph(attributePaths = {"client", "conducteur", "conducteur.enginActuel",
+            "engin", "engin.propriotaire", "evaluation"})
+    Optional<Course> findDetailsById(Long id);
+
+    /**
+     * Page admin parcourue par id décroissant : le curseur est le dernier id de la page précédente,
+     * chaque page est un parcours d'index borné quelle que soit sa profondeur
+     */
+    @Query(SELECT_LIGNE_COURSE + "WHERE (:statut IS NULL OR c.statut = :statut) " +
+            "AND (:typeCourse IS NULL OR c.typeCourse = :typeCourse) " +
+            "AND (:depuis IS NULL OR c.dateCreation >= :depuis) " +
+            "AND (:jusqua IS NULL OR c.dateCreation < :jusqua) " +
+            "AND (:curseur IS NULL OR c.id < :curseur) " +
+            "ORDER BY c.id DESC")
+    List<LigneCourse> findPage(StatutCourse statut, TypeCourse typeCourse,
+                               LocalDateTime depuis, LocalDateTime jusqua,
+                               Long curseur, Pageable pageable);
+
+    /**
+     * Course attribuée au conducteur et pas encore terminée, la plus récente en premier
+     */
+    @Query("SELECT c.id FROM Course c WHERE c.conducteur.id = :conducteurId " +
+            "AND c.statut IN ('ACCEPTEE', 'EN_ROUTE_DEPART', 'ARRIVEE_DEPART', 'EN_COURS') ORDER BY c.id DESC")
+    List<Long> findIdsCoursesActives(Long conducteurId, Pageable lot);
+
+    @Query("SELECT DISTINCT c.conducteur.id FROM Course c " +
+            "WHERE c.statut IN ('ACCEPTEE', 'EN_ROUTE_DEPART', 'ARRIVEE_DEPART', 'EN_COURS')")
+    List<Long> findIdsConducteursOccupes();
+
+    /**
+     * Courses en attente créées avant la limite, les plus anciennes d'abord (idx_courses_statut_date_creation)
+     */
+    @Query("SELECT c.id FROM Course c WHERE c.statut = 'EN_ATTENTE' AND c.dateCreation < :limite " +
+            "AND c.typeCourse = :typeCourse ORDER BY c.dateCreation ASC")
+    List<Long> findIdsEnAttenteCreesAvant(TypeCourse typeCourse, LocalDateTime limite, Pageable lot);
+
+    @Query(SELECT_LIGNE_COURSE_EN_ATTENTE + "WHERE c.statut = 'EN_ATTENTE' AND c.dateCreation >= :depuis")
+    List<LigneCourseEnAttente> findLignesEnAttenteDepuis(LocalDateTime depuis);
+
+    @Query(SELECT_LIGNE_COURSE_EN_ATTENTE + "WHERE c.id IN :ids")
+    List<LigneCourseEnAttente> findLignesEnAttenteByIdIn(Collection<Long> ids);
+
+    /**
+     * Verrouille celles des courses encore en attente : une acceptation concurrente attend la fin
+     * de l'expiration, puis échoue sur le statut
+     */
+    @Query(nativeQuery = true, value = "SELECT id FROM courses WHERE id IN :ids AND statut = 'EN_ATTENTE' FOR UPDATE")
+    List<Long> verrouillerEnAttente(Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Course c SET c.statut = 'ANNULEE' WHERE c.id IN :ids")
+    int annulerParIds(Collection<Long> ids);
+
+    /**
+     * Courses géolocalisées créées avant la colonne geohash_depart, par id croissant à partir du curseur
+     */
+    @Query("SELECT new com.lanayago.lanayagobackend.dto.projection.DepartCourse(c.id, c.latitudeDepart, c.longitudeDepart) " +
+            "FROM Course c WHERE c.geohashDepart IS NULL AND c.latitudeDepart IS NOT NULL " +
+            "AND c.longitudeDepart IS NOT NULL AND c.id > :curseur ORDER BY c.id")
+    List<DepartCourse> findDepartsSansGeohash(Long curseur, Pageable lot);
+
+    @Modifying
+    @Query("UPDATE Course c SET c.geohashDepart = :geohash WHERE c.id IN :ids")
+    int definirGeohashDepart(String geohash, Collection<Long> ids);
+
+    @Query(SELECT_LIGNE_COURSE_DETAILLEE + "WHERE c.statut = 'EN_ATTENTE' ORDER BY c.dateCreation ASC")
+    List<LigneCourseDetaillee> findCoursesDisponibles();
+
+    /**
+     * Courses d'un statut dont le départ est dans une zone : parcours d'index sur (statut, geohash_depart)
+     */
+    @Query(SELECT_LIGNE_COURSE_DETAILLEE + "WHERE c.statut = :statut AND c.geohashDepart IN :cellules " +
+            "AND c.latitudeDepart BETWEEN :latMin AND :latMax " +
+            "AND c.longitudeDepart BETWEEN :lonMin AND :lonMax " +
+            "ORDER BY c.dateCreation ASC, c.id ASC")
+    List<LigneCourseDetaillee> findByStatutDansZone(StatutCourse statut, Collection<String> cellules,
+                                                    double latMin, double latMax, double lonMin, double lonMax,
+                                                    Pageable pageable);
+
+    @Query(SELECT_LIGNE_COURSE_DETAILLEE + "WHERE cl.id = :userId OR co.id = :userId ORDER BY c.dateCreation DESC")
+    List<LigneCourseDetaillee> findByUserId(Long userId);
+
+    /**
+     * Prise atomique d'une course : retourne 1 pour l'unique gagnant, 0 si la course n'est plus dans le statut attendu
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Course c SET c.conducteur = :conducteur, c.statut = :nouveauStatut " +
+            "WHERE c.id = :courseId AND c.statut = :statutAttendu")
+    int attribuerConducteur(Long courseId, Conducteur conducteur,
+                            StatutCourse statutAttendu, StatutCourse nouveauStatut);
 
-    @Query("SELECT c FROM Course c WHERE c.statut = 'EN_ATTENTE' ORDER BY c.dateCreation ASC")
-    List<Course> findCoursesDisponibles();
+    @Query("SELECT COUNT(c) AS total, " +
+            "COALESCE(SUM(CASE WHEN c.statut = 'EN_ATTENTE' THEN 1L ELSE 0L END), 0L) AS enAttente, " +
+            "COALESCE(SUM(CASE WHEN c.statut = 'EN_COURS' THEN 1L ELSE 0L END), 0L) AS enCours, " +
+            "COALESCE(SUM(CASE WHEN c.statut = 'TERMINEE' THEN 1L ELSE 0L END), 0L) AS terminees, " +
+            "COALESCE(SUM(CASE WHEN c.dateCreation > :debutPeriode THEN 1L ELSE 0L END), 0L) AS recentes, " +
+            "COALESCE(SUM(CASE WHEN c.dateFin > :debutMois AND c.montantFinal IS NOT NULL " +
+            "THEN c.montantFinal ELSE 0.0 END), 0.0) AS revenusMois " +
+            "FROM Course c")
+    StatistiquesCoursesProjection calculerStatistiquesDashboard(LocalDateTime debutPeriode, LocalDateTime debutMois);
 
-    @Query("SELECT c FROM Course c WHERE c.client.id = :userId OR c.conducteur.id = :userId ORDER BY c.dateCreation DESC")
-    List<Course> findByUserId(Long userId);
+    @Query("SELECT c.typeCourse AS typeCourse, c.statut AS statut, COUNT(c) AS nombre " +
+            "FROM Course c GROUP BY c.typeCourse, c.statut")
+    List<RepartitionCoursesProjection> compterParTypeEtStatut();
 }
\ No newline at end of file
@@ -1,9 +1,11 @@
 package com.lanayago.lanayagobackend.repository;
 
+import com.lanayago.lanayagobackend.dto.projection.LigneEngin;
 import com.lanayago.lanayagobackend.entity.Engin;
-import com.lanayago.lanayagobackend.entity.Propriotaire;
 import com.lanayago.lanayagobackend.entity.enums.StatutEngin;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,9 +13,24 @@ import java.util.List;
 @Repository
 public interface EnginRepository extends JpaRepository<Engin, Long> {
 
-    List<Engin> findByPropriotaire(Propriotaire proprietaire);
+    // Table unique : les colonnes des motos et des voitures sont lues sur la même ligne, nulles pour l'autre type
+    String SELECT_LIGNE_ENGIN = "SELECT new com.lanayago.lanayagobackend.dto.projection.LigneEngin(" +
+            "e.id, e.typeEngin, e.marque, e.modele, e.couleur, e.matricule, e.annee, e.photoEngin, e.statut, e.active, " +
+            "p.id, p.nom, p.prenom, p.telephone, " +
+            "TREAT(e AS Moto).cylindree, TREAT(e AS Moto).typeMoto, " +
+            "TREAT(e AS Voiture).typeVehicule, TREAT(e AS Voiture).nombrePlaces, TREAT(e AS Voiture).capaciteChargement) " +
+            "FROM Engin e JOIN e.propriotaire p ";
 
-    List<Engin> findByStatut(StatutEngin statut);
+    @Query(SELECT_LIGNE_ENGIN + "WHERE p.id = :proprietaireId")
+    List<LigneEngin> findLignesByProprietaireId(Long proprietaireId);
+
+    @Query(SELECT_LIGNE_ENGIN + "WHERE e.statut = :statut AND e.active = true")
+    List<LigneEngin> findLignesActivesByStatut(StatutEngin statut);
 
     boolean existsByMatricule(String matricule);
+
+    @Query(SELECT_LIGNE_ENGIN + "WHERE (:statut IS NULL OR e.statut = :statut) " +
+            "AND (:curseur IS NULL OR e.id < :curseur) " +
+            "ORDER BY e.id DESC")
+    List<LigneEngin> findPage(StatutEngin statut, Long curseur, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.lanayago.lanayagobackend.repository;
+
+import com.lanayago.lanayagobackend.entity.EvenementOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EvenementOutboxRepository extends JpaRepository<EvenementOutbox, Long> {
+
+    @Query("SELECT e FROM EvenementOutbox e WHERE e.datePublication IS NULL ORDER BY e.id")
+    List<EvenementOutbox> findARelayer(Pageable lot);
+
+    @Query("SELECT COUNT(e) FROM EvenementOutbox e WHERE e.datePublication IS NULL")
+    long countARelayer();
+
+    @Query("SELECT COALESCE(MAX(e.numeroPublication), 0) FROM EvenementOutbox e")
+    long maxNumeroPublication();
+
+    @Modifying
+    @Query("UPDATE EvenementOutbox e SET e.datePublication = :date, e.numeroPublication = :numero " +
+            "WHERE e.id = :id AND e.datePublication IS NULL")
+    int marquerPublie(Long id, LocalDateTime date, long numero);
+
+    @Query("SELECT e FROM EvenementOutbox e WHERE e.numeroPublication > :apres ORDER BY e.numeroPublication")
+    List<EvenementOutbox> findPubliesApres(long apres, Pageable lot);
+
+    @Query("""
+            SELECT e FROM EvenementOutbox e
+            WHERE e.dateCreation >= :depuis AND (:courseId IS NULL OR e.courseId = :courseId) AND e.id > :apresId
+            ORDER BY e.id
+            """)
+    List<EvenementOutbox> findPourRejeu(LocalDateTime depuis, Long courseId, Long apresId, Pageable lot);
+
+    @Query("""
+            SELECT COUNT(e) FROM EvenementOutbox e
+            WHERE e.dateCreation >= :depuis AND (:courseId IS NULL OR e.courseId = :courseId)
+            """)
+    long countPourRejeu(LocalDateTime depuis, Long courseId);
+
+    @Query("SELECT e.id FROM EvenementOutbox e WHERE e.datePublication IS NOT NULL AND e.dateCreation < :avant")
+    List<Long> findIdsPubliesAvant(LocalDateTime avant, Pageable lot);
+
+    @Modifying
+    @Query("DELETE FROM EvenementOutbox e WHERE e.id IN :ids")
+    int deleteByIdIn(List<Long> ids);
+}
@@ -0,0 +1,41 @@
+package com.lanayago.lanayagobackend.repository;
+
+import com.lanayago.lanayagobackend.entity.RefreshToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    @Query("SELECT r FROM RefreshToken r JOIN FETCH r.utilisateur WHERE r.empreinte = :empreinte")
+    Optional<RefreshToken> findByEmpreinte(String empreinte);
+
+    /**
+     * Marque le jeton comme échangé s'il ne l'était pas encore ; 0 signifie qu'il a déjà servi
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.utilise = true WHERE r.id = :id AND r.utilise = false")
+    int marquerUtilise(Long id);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.famille = :famille")
+    int deleteByFamille(String famille);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.utilisateur.id = :userId")
+    int deleteByUtilisateurId(Long userId);
+
+    @Query("SELECT r.id FROM RefreshToken r WHERE r.dateExpiration < :maintenant")
+    List<Long> findIdsExpires(LocalDateTime maintenant, Pageable lot);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.id IN :ids")
+    int deleteByIdIn(List<Long> ids);
+}
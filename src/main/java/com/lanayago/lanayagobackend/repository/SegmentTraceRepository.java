@@ -0,0 +1,15 @@
+package com.lanayago.lanayagobackend.repository;
+
+import com.lanayago.lanayagobackend.entity.SegmentTrace;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SegmentTraceRepository extends JpaRepository<SegmentTrace, Long> {
+
+    @Query("SELECT s.donnees FROM SegmentTrace s WHERE s.courseId = :courseId ORDER BY s.id")
+    List<byte[]> findDonneesByCourseId(Long courseId);
+}
@@ -1,9 +1,17 @@
 package com.lanayago.lanayagobackend.repository;
 
+import com.lanayago.lanayagobackend.dto.projection.LigneUtilisateur;
+import com.lanayago.lanayagobackend.dto.projection.RevocationUtilisateur;
 import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.Roles;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +22,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
 
     boolean existsByTelephone(String telephone);
+
+    @Query("SELECT new com.lanayago.lanayagobackend.dto.projection.RevocationUtilisateur(u.id, u.dateRevocation) " +
+            "FROM User u WHERE u.dateRevocation >= :depuis")
+    List<RevocationUtilisateur> findRevocationsDepuis(LocalDateTime depuis);
+
+    /**
+     * Comptes désactivés avant que la date de révocation ne soit enregistrée
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.dateRevocation = :date WHERE u.actif = false AND u.dateRevocation IS NULL")
+    int daterRevocationsManquantes(LocalDateTime date);
+
+    @Query("SELECT new com.lanayago.lanayagobackend.dto.projection.LigneUtilisateur(" +
+            "u.id, u.nom, u.prenom, u.email, u.telephone, u.role, u.actif, u.createdAt) " +
+            "FROM User u WHERE (:role IS NULL OR u.role = :role) " +
+            "AND (:actif IS NULL OR u.actif = :actif) " +
+            "AND (:curseur IS NULL OR u.id < :curseur) " +
+            "ORDER BY u.id DESC")
+    List<LigneUtilisateur> findPage(Roles role, Boolean actif, Long curseur, Pageable pageable);
 }
\ No newline at end of file
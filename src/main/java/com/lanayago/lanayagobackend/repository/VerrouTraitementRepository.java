@@ -0,0 +1,44 @@
+package com.lanayago.lanayagobackend.repository;
+
+import com.lanayago.lanayagobackend.entity.VerrouTraitement;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface VerrouTraitementRepository extends JpaRepository<VerrouTraitement, String> {
+
+    /**
+     * À appeler hors de la transaction qui verrouille : deux instances qui créent la même ligne
+     * ne se bloquent pas l'une l'autre
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT IGNORE INTO verrous_traitements (nom) VALUES (:nom)")
+    void creerSiAbsent(String nom);
+
+    /**
+     * SELECT ... FOR UPDATE : attend que la transaction qui tient la ligne se termine
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM VerrouTraitement v WHERE v.nom = :nom")
+    Optional<VerrouTraitement> verrouiller(String nom);
+
+    /**
+     * Prend le bail s'il est libre ou expiré, ou le prolonge s'il est déjà détenu : 1 si l'instance le tient
+     * jusqu'à l'expiration donnée. La ligne reste verrouillée jusqu'à la fin de la transaction.
+     */
+    @Modifying
+    @Query("UPDATE VerrouTraitement v SET v.detenteur = :detenteur, v.expiration = :expiration " +
+            "WHERE v.nom = :nom AND (v.detenteur = :detenteur OR v.expiration IS NULL OR v.expiration < :maintenant)")
+    int prendreBail(String nom, String detenteur, LocalDateTime maintenant, LocalDateTime expiration);
+
+    @Modifying
+    @Query("UPDATE VerrouTraitement v SET v.expiration = NULL WHERE v.nom = :nom AND v.detenteur = :detenteur")
+    int libererBail(String nom, String detenteur);
+}
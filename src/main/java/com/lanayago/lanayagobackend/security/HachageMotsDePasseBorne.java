@@ -0,0 +1,110 @@
+package com.lanayago.lanayagobackend.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exécute le hachage et la vérification des mots de passe sur un pool dédié et borné.
+ *
+ * BCrypt est volontairement coûteux : une rafale de connexions exécutée sur les threads Tomcat
+ * priverait de CPU tous les autres endpoints. Ici au plus {@code nombreThreads} hachages tournent
+ * en même temps, au plus {@code tailleFile} attendent, et au-delà la requête est refusée
+ * immédiatement en 429.
+ */
+@Slf4j
+public class HachageMotsDePasseBorne implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegue;
+    private final ThreadPoolExecutor executeur;
+
+    private final LongAdder termines = new LongAdder();
+    private final LongAdder rejetes = new LongAdder();
+    private final LongAdder dureeTotaleNs = new LongAdder();
+
+    public HachageMotsDePasseBorne(PasswordEncoder delegue, int nombreThreads, int tailleFile) {
+        this.delegue = delegue;
+        this.executeur = new ThreadPoolExecutor(nombreThreads, nombreThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(tailleFile),
+                Thread.ofPlatform().name("hachage-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence motDePasse) {
+        return executer(() -> delegue.encode(motDePasse));
+    }
+
+    @Override
+    public boolean matches(CharSequence motDePasse, String empreinte) {
+        return executer(() -> delegue.matches(motDePasse, empreinte));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String empreinte) {
+        return delegue.upgradeEncoding(empreinte);
+    }
+
+    public Map<String, Object> metriques() {
+        long nombreTermines = termines.sum();
+        Map<String, Object> metriques = new LinkedHashMap<>();
+        metriques.put("threads", executeur.getMaximumPoolSize());
+        metriques.put("enCours", executeur.getActiveCount());
+        metriques.put("enAttente", executeur.getQueue().size());
+        metriques.put("capaciteFile", executeur.getQueue().size() + executeur.getQueue().remainingCapacity());
+        metriques.put("termines", nombreTermines);
+        metriques.put("rejetes", rejetes.sum());
+        metriques.put("dureeMoyenneMs", nombreTermines == 0 ? 0.0 : dureeTotaleNs.sum() / 1_000_000.0 / nombreTermines);
+        return metriques;
+    }
+
+    @Override
+    public void close() {
+        executeur.shutdownNow();
+    }
+
+    private <T> T executer(Callable<T> calcul) {
+        Future<T> resultat;
+        try {
+            resultat = executeur.submit(() -> {
+                long debut = System.nanoTime();
+                try {
+                    return calcul.call();
+                } finally {
+                    dureeTotaleNs.add(System.nanoTime() - debut);
+                    termines.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejetes.increment();
+            log.warn("File de hachage des mots de passe saturée ({} en attente) : requête refusée", executeur.getQueue().size());
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Trop de connexions simultanées, réessayez dans quelques instants");
+        }
+
+        try {
+            return resultat.get();
+        } catch (InterruptedException e) {
+            resultat.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Hachage du mot de passe interrompu", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
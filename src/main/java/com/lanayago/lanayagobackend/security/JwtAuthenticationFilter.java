@@ -1,5 +1,7 @@
 package com.lanayago.lanayagobackend.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,8 +22,14 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    /**
+     * Claims vérifiés du jeton de la requête, pour les traitements longs qui doivent revérifier la session
+     */
+    public static final String ATTRIBUT_CLAIMS = JwtAuthenticationFilter.class.getName() + ".claims";
+
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final RevocationsUtilisateurs revocationsUtilisateurs;
 
     @Override
     protected void doFilterInternal(
@@ -38,12 +46,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         final String jwt = authHeader.substring(7);
-        final String userEmail = jwtUtil.extractUsername(jwt);
 
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            Claims claims;
+            try {
+                // Unique vérification de signature de la requête
+                claims = jwtUtil.extractAllClaims(jwt);
+            } catch (JwtException | IllegalArgumentException e) {
+                // Token invalide ou expiré : la requête continue sans authentification
+                filterChain.doFilter(request, response);
+                return;
+            }
+
+            UserDetails userDetails = jwtUtil.extraireUtilisateur(claims);
+
+            if (userDetails == null) {
+                // Token émis avant l'ajout des claims d'identité : ancienne vérification en base
+                userDetails = chargerDepuisLaBase(claims);
+            } else if (revocationsUtilisateurs.estRevoque(((UtilisateurConnecte) userDetails).id(), claims.getIssuedAt())) {
+                userDetails = null;
+            }
 
-            if (jwtUtil.isTokenValid(jwt, userDetails)) {
+            if (userDetails != null && userDetails.isEnabled()) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -51,9 +75,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+                request.setAttribute(ATTRIBUT_CLAIMS, claims);
             }
         }
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private UserDetails chargerDepuisLaBase(Claims claims) {
+        if (claims.getSubject() == null) {
+            return null;
+        }
+
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(claims.getSubject());
+        if (!jwtUtil.isTokenValid(claims, userDetails)) {
+            return null;
+        }
+        return userDetails instanceof UtilisateurConnecte utilisateur ? utilisateur.sansMotDePasse() : userDetails;
+    }
+}
@@ -1,29 +1,63 @@
 package com.lanayago.lanayagobackend.security;
 
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.Roles;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.DecodingException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
+@Slf4j
 @Component
 public class JwtUtil {
 
+    // Claims portant l'identité : le filtre authentifie la requête sans relire la base
+    static final String CLAIM_UID = "uid";
+    static final String CLAIM_ROLE = "role";
+    static final String CLAIM_ACTIF = "actif";
+
     @Value("${spring.security.jwt.secret-key}")
     private String secretKey;
 
     @Value("${spring.security.jwt.expiration}")
     private long jwtExpiration;
 
+    // Claims déjà vérifiés, indexés par l'empreinte SHA-256 du token ; 0 désactive le cache
+    @Value("${lanayago.jwt.cache-verifications.taille-max:10000}")
+    private int tailleMaxCache;
+
+    private final Map<String, Claims> verifications = new ConcurrentHashMap<>();
+
+    // Clé et parseur construits une seule fois : le secret ne change pas pendant la vie de l'application
+    private Key signInKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void initialiser() {
+        signInKey = Keys.hmacShaKeyFor(octetsDuSecret());
+        parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -33,6 +67,36 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_UID, user.getId());
+        claims.put(CLAIM_ROLE, user.getRole().name());
+        claims.put(CLAIM_ACTIF, user.isActif());
+
+        return Jwts
+                .builder()
+                .setClaims(claims)
+                .setSubject(user.getEmail())
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
+                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /**
+     * Principal reconstruit depuis des claims vérifiés, ou null pour un token émis avant l'ajout des claims d'identité
+     */
+    public UtilisateurConnecte extraireUtilisateur(Claims claims) {
+        Number uid = claims.get(CLAIM_UID, Number.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        Boolean actif = claims.get(CLAIM_ACTIF, Boolean.class);
+
+        if (uid == null || role == null || actif == null) {
+            return null;
+        }
+        return new UtilisateurConnecte(uid.longValue(), claims.getSubject(), null, Roles.valueOf(role), actif);
+    }
+
     public String generateToken(UserDetails userDetails) {
         return generateToken(new HashMap<>(), userDetails);
     }
@@ -57,29 +121,89 @@ public class JwtUtil {
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(extractAllClaims(token), userDetails);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Variante sans nouveau parsing pour des claims déjà vérifiés par {@link #extractAllClaims(String)}
+     */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return userDetails.getUsername().equals(claims.getSubject()) && !isTokenExpired(claims);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private boolean isTokenExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Vérifie la signature et l'expiration ; lève une JwtException si le token est invalide
+     */
+    public Claims extractAllClaims(String token) {
+        if (tailleMaxCache <= 0) {
+            return parser.parseClaimsJws(token).getBody();
+        }
+
+        String empreinte = empreinte(token);
+        Claims claims = verifications.get(empreinte);
+        if (claims != null) {
+            if (!isTokenExpired(claims)) {
+                return claims;
+            }
+            // Expiré depuis sa mise en cache : le parseur lève l'ExpiredJwtException attendue
+            verifications.remove(empreinte);
+        }
+
+        claims = parser.parseClaimsJws(token).getBody();
+        mettreEnCache(empreinte, claims);
+        return claims;
+    }
+
+    private void mettreEnCache(String empreinte, Claims claims) {
+        if (verifications.size() >= tailleMaxCache) {
+            verifications.values().removeIf(this::isTokenExpired);
+
+            // Uniquement des tokens encore valides : les plus proches de l'expiration sortent d'abord,
+            // un dixième de la borne à la fois pour ne pas retrier à chaque insertion
+            int enTrop = verifications.size() - tailleMaxCache + Math.max(tailleMaxCache / 10, 1);
+            if (enTrop > 0) {
+                verifications.entrySet().stream()
+                        .sorted(Comparator.comparing((Map.Entry<String, Claims> e) -> expiration(e.getValue())))
+                        .limit(enTrop)
+                        .map(Map.Entry::getKey)
+                        .toList()
+                        .forEach(verifications::remove);
+            }
+        }
+        verifications.put(empreinte, claims);
+    }
+
+    private static long expiration(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null ? expiration.getTime() : Long.MAX_VALUE;
+    }
+
+    private byte[] octetsDuSecret() {
+        try {
+            return Decoders.BASE64.decode(secretKey);
+        } catch (DecodingException e) {
+            // Secret saisi en clair (cas de la valeur par défaut) : ses octets UTF-8 servent de clé
+            log.warn("spring.security.jwt.secret-key n'est pas du Base64 valide : ses octets UTF-8 servent de clé HMAC. " +
+                    "Fournir JWT_SECRET encodé en Base64 (au moins 32 octets) en production");
+            return secretKey.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String empreinte(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
     }
 
     private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signInKey;
     }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.lanayago.lanayagobackend.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Seaux à jetons par adresse IP et par email devant les opérations qui hachent un mot de passe.
+ *
+ * Chaque tentative consomme un jeton du seau de l'IP puis de celui de l'email ; les seaux se
+ * rechargent en continu. Le seuil par IP reste large (plusieurs utilisateurs derrière le NAT d'un
+ * opérateur mobile), celui par email freine le test d'une liste de mots de passe sur un compte.
+ */
+@Slf4j
+@Component
+public class LimiteurTentatives {
+
+    private final Map<String, Seau> seauxIp = new ConcurrentHashMap<>();
+    private final Map<String, Seau> seauxEmail = new ConcurrentHashMap<>();
+
+    private final LongAdder rejetsIp = new LongAdder();
+    private final LongAdder rejetsEmail = new LongAdder();
+
+    private final double capaciteIp;
+    private final double rechargeIpParNs;
+    private final double capaciteEmail;
+    private final double rechargeEmailParNs;
+
+    public LimiteurTentatives(@Value("${lanayago.auth.limite.par-ip.capacite:60}") int capaciteIp,
+                              @Value("${lanayago.auth.limite.par-ip.par-minute:60}") int parMinuteIp,
+                              @Value("${lanayago.auth.limite.par-email.capacite:5}") int capaciteEmail,
+                              @Value("${lanayago.auth.limite.par-email.par-minute:5}") int parMinuteEmail) {
+        this.capaciteIp = capaciteIp;
+        this.rechargeIpParNs = parMinuteIp / 60e9;
+        this.capaciteEmail = capaciteEmail;
+        this.rechargeEmailParNs = parMinuteEmail / 60e9;
+    }
+
+    /**
+     * Lève une 429 si l'IP ou l'email a épuisé ses tentatives
+     */
+    public void verifier(String adresseIp, String email) {
+        long maintenant = System.nanoTime();
+
+        if (adresseIp != null && !seau(seauxIp, adresseIp, capaciteIp).consommer(capaciteIp, rechargeIpParNs, maintenant)) {
+            rejetsIp.increment();
+            log.warn("Trop de tentatives d'authentification depuis {}", adresseIp);
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Trop de tentatives, réessayez plus tard");
+        }
+
+        if (email != null) {
+            String cle = email.trim().toLowerCase(Locale.ROOT);
+            if (!seau(seauxEmail, cle, capaciteEmail).consommer(capaciteEmail, rechargeEmailParNs, maintenant)) {
+                rejetsEmail.increment();
+                log.warn("Trop de tentatives d'authentification pour {}", cle);
+                throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Trop de tentatives, réessayez plus tard");
+            }
+        }
+    }
+
+    public Map<String, Object> metriques() {
+        Map<String, Object> metriques = new LinkedHashMap<>();
+        metriques.put("seauxIp", seauxIp.size());
+        metriques.put("seauxEmail", seauxEmail.size());
+        metriques.put("rejetsIp", rejetsIp.sum());
+        metriques.put("rejetsEmail", rejetsEmail.sum());
+        return metriques;
+    }
+
+    /**
+     * Un seau redevenu plein équivaut à un seau absent : on le retire pour borner la mémoire
+     */
+    @Scheduled(fixedDelayString = "PT1M")
+    void purger() {
+        long maintenant = System.nanoTime();
+        seauxIp.values().removeIf(seau -> seau.estPlein(capaciteIp, rechargeIpParNs, maintenant));
+        seauxEmail.values().removeIf(seau -> seau.estPlein(capaciteEmail, rechargeEmailParNs, maintenant));
+    }
+
+    private static Seau seau(Map<String, Seau> seaux, String cle, double capacite) {
+        return seaux.computeIfAbsent(cle, c -> new Seau(capacite, System.nanoTime()));
+    }
+
+    private static final class Seau {
+
+        private double jetons;
+        private long derniereRecharge;
+
+        Seau(double jetons, long maintenant) {
+            this.jetons = jetons;
+            this.derniereRecharge = maintenant;
+        }
+
+        synchronized boolean consommer(double capacite, double rechargeParNs, long maintenant) {
+            recharger(capacite, rechargeParNs, maintenant);
+            if (jetons < 1) {
+                return false;
+            }
+            jetons--;
+            return true;
+        }
+
+        synchronized boolean estPlein(double capacite, double rechargeParNs, long maintenant) {
+            recharger(capacite, rechargeParNs, maintenant);
+            return jetons >= capacite;
+        }
+
+        private void recharger(double capacite, double rechargeParNs, long maintenant) {
+            if (maintenant > derniereRecharge) {
+                jetons = Math.min(capacite, jetons + (maintenant - derniereRecharge) * rechargeParNs);
+                derniereRecharge = maintenant;
+            }
+        }
+    }
+}
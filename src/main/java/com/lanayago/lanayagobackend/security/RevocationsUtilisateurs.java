@@ -0,0 +1,107 @@
+package com.lanayago.lanayagobackend.security;
+
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Comptes désactivés dont les JWT déjà émis doivent être refusés.
+ *
+ * La date de révocation est enregistrée sur le compte et n'est jamais effacée : un token émis avant
+ * reste refusé après une réactivation. Chaque instance en garde une copie en mémoire, relue en base
+ * à intervalle régulier pour les désactivations faites ailleurs. Une entrée n'est utile que pendant
+ * la durée de vie d'un token : elle est ensuite purgée, ce qui borne la taille du cache au nombre
+ * de comptes désactivés sur cette période.
+ */
+@Slf4j
+@Component
+public class RevocationsUtilisateurs {
+
+    private final ConcurrentHashMap<Long, Long> revocations = new ConcurrentHashMap<>();
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long dureeVieTokenMs;
+
+    public RevocationsUtilisateurs(UserRepository userRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${spring.security.jwt.expiration}") long dureeVieTokenMs) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.dureeVieTokenMs = dureeVieTokenMs;
+    }
+
+    /**
+     * Les comptes désactivés avant l'enregistrement des dates de révocation sont datés du démarrage
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void charger() {
+        Integer datees = transactionTemplate.execute(tx -> userRepository.daterRevocationsManquantes(LocalDateTime.now()));
+        rafraichir();
+        log.info("{} comptes désactivés chargés dans le cache de révocation ({} datés au démarrage)",
+                revocations.size(), datees);
+    }
+
+    /**
+     * Désactivations faites sur une autre instance : prises en compte ici au plus tard à cet intervalle
+     */
+    @Scheduled(fixedDelayString = "${lanayago.auth.revocations.rafraichissement:PT5S}",
+            initialDelayString = "${lanayago.auth.revocations.rafraichissement:PT5S}")
+    void rafraichir() {
+        LocalDateTime depuis = LocalDateTime.now().minusNanos(dureeVieTokenMs * 1_000_000);
+        userRepository.findRevocationsDepuis(depuis)
+                .forEach(revocation -> enregistrer(revocation.id(), revocation.dateRevocation()));
+        purger();
+    }
+
+    /**
+     * À appeler dans la transaction qui désactive le compte : la date est écrite avec lui et l'instance
+     * refuse ses tokens dès la validation
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revoquer(User user) {
+        LocalDateTime revoqueLe = LocalDateTime.now();
+        user.setDateRevocation(revoqueLe);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                purger();
+                enregistrer(user.getId(), revoqueLe);
+            }
+        });
+    }
+
+    public boolean estRevoque(Long userId, Date emisLe) {
+        Long revoqueLe = revocations.get(userId);
+        // iat est à la seconde près : un token émis dans la seconde de la révocation est refusé
+        return revoqueLe != null && (emisLe == null || emisLe.getTime() <= revoqueLe);
+    }
+
+    public int taille() {
+        return revocations.size();
+    }
+
+    private void enregistrer(Long userId, LocalDateTime revoqueLe) {
+        revocations.merge(userId, revoqueLe.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), Math::max);
+    }
+
+    private void purger() {
+        long limite = System.currentTimeMillis() - dureeVieTokenMs;
+        revocations.values().removeIf(revoqueLe -> revoqueLe < limite);
+    }
+}
@@ -0,0 +1,47 @@
+package com.lanayago.lanayagobackend.security;
+
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.Roles;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal des requêtes authentifiées. Construit depuis les claims du JWT,
+ * il porte l'id de l'utilisateur sans relire la table users ; le mot de passe n'est
+ * renseigné que pendant la vérification du login.
+ */
+public record UtilisateurConnecte(Long id, String email, String motDePasse, Roles role, boolean actif)
+        implements UserDetails {
+
+    public static UtilisateurConnecte de(User user) {
+        return new UtilisateurConnecte(user.getId(), user.getEmail(), user.getPassword(), user.getRole(), user.isActif());
+    }
+
+    public UtilisateurConnecte sansMotDePasse() {
+        return new UtilisateurConnecte(id, email, null, role, actif);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    @Override
+    public String getPassword() {
+        return motDePasse;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return actif;
+    }
+}
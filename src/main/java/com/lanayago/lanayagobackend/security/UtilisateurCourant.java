@@ -0,0 +1,92 @@
+package com.lanayago.lanayagobackend.security;
+
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Utilisateur de la requête en cours, partagé par tous les services.
+ *
+ * L'id vient directement des claims du JWT. L'entité n'est chargée qu'au premier besoin puis
+ * conservée dans les attributs de la requête : plusieurs services ou plusieurs contrôles
+ * d'autorisation dans la même requête ne relisent pas la table users.
+ */
+@Component
+@RequiredArgsConstructor
+public class UtilisateurCourant {
+
+    private static final String ATTRIBUT = UtilisateurCourant.class.getName();
+
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+
+    /**
+     * Id de l'utilisateur connecté, sans requête SQL pour un principal issu du JWT
+     */
+    public Long id() {
+        if (principal() instanceof UtilisateurConnecte utilisateur) {
+            return utilisateur.id();
+        }
+        return utilisateur().getId();
+    }
+
+    public User utilisateur() {
+        RequestAttributes attributs = RequestContextHolder.getRequestAttributes();
+        if (attributs != null
+                && attributs.getAttribute(ATTRIBUT, RequestAttributes.SCOPE_REQUEST) instanceof User utilisateur
+                && utilisable(utilisateur)) {
+            return utilisateur;
+        }
+
+        User utilisateur = charger();
+        if (attributs != null) {
+            attributs.setAttribute(ATTRIBUT, utilisateur, RequestAttributes.SCOPE_REQUEST);
+        }
+        return utilisateur;
+    }
+
+    public Conducteur conducteur() {
+        if (!(utilisateur() instanceof Conducteur conducteur)) {
+            throw new RuntimeException("L'utilisateur n'est pas un conducteur");
+        }
+        return conducteur;
+    }
+
+    /**
+     * Sans open-in-view, une transaction ouverte après le chargement ne gère pas l'entité mise en
+     * cache : elle est relue pour que ses associations paresseuses restent accessibles
+     */
+    private boolean utilisable(User utilisateur) {
+        return !TransactionSynchronizationManager.isActualTransactionActive() || entityManager.contains(utilisateur);
+    }
+
+    private User charger() {
+        Object principal = principal();
+
+        if (principal instanceof UtilisateurConnecte utilisateur) {
+            return userRepository.findById(utilisateur.id())
+                    .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé"));
+        }
+
+        // Principal construit hors du filtre JWT : seul l'email est connu
+        return userRepository.findByEmail(((UserDetails) principal).getUsername())
+                .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé"));
+    }
+
+    private Object principal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserDetails)) {
+            throw new RuntimeException("Utilisateur non authentifié");
+        }
+        return authentication.getPrincipal();
+    }
+}
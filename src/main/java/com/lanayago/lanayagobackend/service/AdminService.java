@@ -4,11 +4,31 @@ import com.lanayago.lanayagobackend.dto.reponse.AdminDashboardDTO;
 import com.lanayago.lanayagobackend.dto.reponse.ConducteurProfileDTO;
 import com.lanayago.lanayagobackend.dto.reponse.CourseResponse;
 import com.lanayago.lanayagobackend.dto.reponse.EnginResponse;
+import com.lanayago.lanayagobackend.dto.reponse.PageCurseur;
+import com.lanayago.lanayagobackend.dto.projection.LigneConducteur;
+import com.lanayago.lanayagobackend.dto.projection.LigneCourse;
+import com.lanayago.lanayagobackend.dto.projection.LigneEngin;
+import com.lanayago.lanayagobackend.dto.projection.LigneUtilisateur;
+import com.lanayago.lanayagobackend.dto.projection.StatistiquesConducteursProjection;
+import com.lanayago.lanayagobackend.dto.projection.StatistiquesCoursesProjection;
 import com.lanayago.lanayagobackend.entity.*;
 import com.lanayago.lanayagobackend.entity.enums.StatutConducteur;
+import com.lanayago.lanayagobackend.entity.enums.Roles;
 import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.StatutEngin;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
 import com.lanayago.lanayagobackend.repository.*;
+import com.lanayago.lanayagobackend.security.HachageMotsDePasseBorne;
+import com.lanayago.lanayagobackend.security.LimiteurTentatives;
+import com.lanayago.lanayagobackend.security.RevocationsUtilisateurs;
+import com.lanayago.lanayagobackend.util.CodecTrace;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,6 +37,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,6 +48,26 @@ public class AdminService {
     private final ConducteurRepository conducteurRepository;
     private final CourseRepository courseRepository;
     private final EnginRepository enginRepository;
+    private final IndexGeoConducteurs indexGeoConducteurs;
+    private final PresenceConducteurs presenceConducteurs;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AgregatsCoursesService agregatsCoursesService;
+    private final StatistiquesService statistiquesService;
+    private final FluxCoursesService fluxCoursesService;
+    private final RevocationsUtilisateurs revocationsUtilisateurs;
+    private final RefreshTokenService refreshTokenService;
+    private final HachageMotsDePasseBorne hachageMotsDePasse;
+    private final LimiteurTentatives limiteurTentatives;
+    private final NotificationService notificationService;
+    private final OutboxCoursesService outboxCoursesService;
+    private final ExpirationCourses expirationCourses;
+    private final TracesCoursesService tracesCoursesService;
+
+    @Value("${lanayago.admin.taille-page-defaut:50}")
+    private int taillePageDefaut;
+
+    @Value("${lanayago.admin.taille-page-max:200}")
+    private int taillePageMax;
 
     /**
      * Tableau de bord administrateur avec statistiques globales
@@ -35,59 +76,40 @@ public class AdminService {
         AdminDashboardDTO dashboard = new AdminDashboardDTO();
 
         // Statistiques utilisateurs
-        long totalUsers = userRepository.count();
-        long totalConducteurs = conducteurRepository.count();
-        long conducteursApprouves = conducteurRepository.findByStatut(StatutConducteur.APPROUVE).size();
-        long conducteursEnAttente = conducteurRepository.findByStatut(StatutConducteur.EN_ATTENTE).size();
-
-        dashboard.setTotalUtilisateurs(totalUsers);
-        dashboard.setTotalConducteurs(totalConducteurs);
-        dashboard.setConducteursApprouves(conducteursApprouves);
-        dashboard.setConducteursEnAttente(conducteursEnAttente);
-
-        // Statistiques courses
-        long totalCourses = courseRepository.count();
-        long coursesEnAttente = courseRepository.findByStatut(StatutCourse.EN_ATTENTE).size();
-        long coursesEnCours = courseRepository.findByStatut(StatutCourse.EN_COURS).size();
-        long coursesTerminees = courseRepository.findByStatut(StatutCourse.TERMINEE).size();
-
-        dashboard.setTotalCourses(totalCourses);
-        dashboard.setCoursesEnAttente(coursesEnAttente);
-        dashboard.setCoursesEnCours(coursesEnCours);
-        dashboard.setCoursesTerminees(coursesTerminees);
+        StatistiquesConducteursProjection conducteurs = conducteurRepository.calculerStatistiquesDashboard();
 
-        // Statistiques engins
-        long totalEngins = enginRepository.count();
-        dashboard.setTotalEngins(totalEngins);
+        dashboard.setTotalUtilisateurs(userRepository.count());
+        dashboard.setTotalConducteurs(conducteurs.getTotal());
+        dashboard.setConducteursApprouves(conducteurs.getApprouves());
+        dashboard.setConducteursEnAttente(conducteurs.getEnAttente());
+        dashboard.setConducteursEnLigne((long) presenceConducteurs.nombreEnLigne());
+        dashboard.setConducteursDisponibles((long) presenceConducteurs.nombreSollicitables());
 
-        // Revenus du mois
+        // Statistiques courses, revenus du mois et évolution sur 30 jours : un seul parcours agrégé
         LocalDateTime debutMois = LocalDateTime.now().withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
-        double revenusMois = courseRepository.findAll().stream()
-                .filter(c -> c.getDateFin() != null && c.getDateFin().isAfter(debutMois))
-                .filter(c -> c.getMontantFinal() != null)
-                .mapToDouble(Course::getMontantFinal)
-                .sum();
-
-        dashboard.setRevenusMois(revenusMois);
-
-        // Évolution des courses (30 derniers jours)
         LocalDateTime debutPeriode = LocalDateTime.now().minus(30, ChronoUnit.DAYS);
-        long coursesRecentes = courseRepository.findAll().stream()
-                .filter(c -> c.getDateCreation().isAfter(debutPeriode))
-                .count();
+        StatistiquesCoursesProjection courses = courseRepository.calculerStatistiquesDashboard(debutPeriode, debutMois);
 
-        dashboard.setCoursesRecentes(coursesRecentes);
+        dashboard.setTotalCourses(courses.getTotal());
+        dashboard.setCoursesEnAttente(courses.getEnAttente());
+        dashboard.setCoursesEnCours(courses.getEnCours());
+        dashboard.setCoursesTerminees(courses.getTerminees());
+        dashboard.setCoursesRecentes(courses.getRecentes());
+        dashboard.setRevenusMois(courses.getRevenusMois());
+
+        // Statistiques engins
+        dashboard.setTotalEngins(enginRepository.count());
 
         return dashboard;
     }
 
     /**
-     * Gestion des conducteurs - Liste de tous les conducteurs
+     * Gestion des conducteurs - Liste paginée des conducteurs, du plus récent au plus ancien
      */
-    public List<ConducteurProfileDTO> getAllConducteurs() {
-        return conducteurRepository.findAll().stream()
-                .map(this::convertConducteurToDTO)
-                .collect(Collectors.toList());
+    public PageCurseur<ConducteurProfileDTO> getAllConducteurs(StatutConducteur statut, Long curseur, Integer taille) {
+        int tailleEffective = tailleEffective(taille);
+        return paginer(conducteurRepository.findPage(statut, curseur, limite(tailleEffective)),
+                tailleEffective, LigneConducteur::id, this::convertConducteurToDTO);
     }
 
     /**
@@ -102,6 +124,7 @@ public class AdminService {
     /**
      * Gestion des conducteurs - Détails d'un conducteur
      */
+    @Transactional(readOnly = true)
     public ConducteurProfileDTO getConducteurById(Long id) {
         Conducteur conducteur = conducteurRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Conducteur non trouvé"));
@@ -123,7 +146,7 @@ public class AdminService {
         conducteur.setStatut(StatutConducteur.APPROUVE);
         Conducteur updated = conducteurRepository.save(conducteur);
 
-        // TODO: Envoyer notification au conducteur
+        notificationService.notifierStatutConducteur(conducteurId, StatutConducteur.APPROUVE, null);
         return convertConducteurToDTO(updated);
     }
 
@@ -137,8 +160,10 @@ public class AdminService {
 
         conducteur.setStatut(StatutConducteur.SUSPENDU);
         Conducteur updated = conducteurRepository.save(conducteur);
+        indexGeoConducteurs.retirer(conducteurId);
+        presenceConducteurs.retirer(conducteurId);
 
-        // TODO: Envoyer notification au conducteur avec le motif
+        notificationService.notifierStatutConducteur(conducteurId, StatutConducteur.SUSPENDU, motif);
         return convertConducteurToDTO(updated);
     }
 
@@ -152,9 +177,13 @@ public class AdminService {
 
         conducteur.setStatut(StatutConducteur.BLOQUE);
         conducteur.setActif(false);
+        revocationsUtilisateurs.revoquer(conducteur);
         Conducteur updated = conducteurRepository.save(conducteur);
+        indexGeoConducteurs.retirer(conducteurId);
+        presenceConducteurs.retirer(conducteurId);
+        refreshTokenService.revoquerTout(conducteurId);
 
-        // TODO: Envoyer notification au conducteur avec le motif
+        notificationService.notifierStatutConducteur(conducteurId, StatutConducteur.BLOQUE, motif);
         return convertConducteurToDTO(updated);
     }
 
@@ -178,28 +207,28 @@ public class AdminService {
     }
 
     /**
-     * Gestion des courses - Liste de toutes les courses
+     * Gestion des courses - Liste paginée des courses, de la plus récente à la plus ancienne
      */
-    public List<CourseResponse> getAllCourses() {
-        return courseRepository.findAll().stream()
-                .map(this::convertCourseToDTO)
-                .collect(Collectors.toList());
+    public PageCurseur<CourseResponse> getAllCourses(StatutCourse statut, TypeCourse typeCourse,
+                                                     LocalDateTime depuis, LocalDateTime jusqua,
+                                                     Long curseur, Integer taille) {
+        int tailleEffective = tailleEffective(taille);
+        return paginer(courseRepository.findPage(statut, typeCourse, depuis, jusqua, curseur, limite(tailleEffective)),
+                tailleEffective, LigneCourse::id, this::convertCourseToDTO);
     }
 
     /**
      * Gestion des courses - Courses par statut
      */
-    public List<CourseResponse> getCoursesByStatut(StatutCourse statut) {
-        return courseRepository.findByStatut(statut).stream()
-                .map(this::convertCourseToDTO)
-                .collect(Collectors.toList());
+    public PageCurseur<CourseResponse> getCoursesByStatut(StatutCourse statut, Long curseur, Integer taille) {
+        return getAllCourses(statut, null, null, null, curseur, taille);
     }
 
     /**
      * Gestion des courses - Détails d'une course
      */
     public Map<String, Object> getCourseDetails(Long courseId) {
-        Course course = courseRepository.findById(courseId)
+        Course course = courseRepository.findDetailsById(courseId)
                 .orElseThrow(() -> new RuntimeException("Course non trouvée"));
 
         Map<String, Object> details = new HashMap<>();
@@ -215,7 +244,7 @@ public class AdminService {
         }
 
         if (course.getEvaluation() != null) {
-            details.put("evaluation", course.getEvaluation());
+            details.put("evaluation", convertEvaluationToDTO(course.getEvaluation()));
         }
 
         return details;
@@ -233,95 +262,79 @@ public class AdminService {
             throw new RuntimeException("Impossible d'annuler une course terminée");
         }
 
+        StatutCourse ancienStatut = course.getStatut();
         course.setStatut(StatutCourse.ANNULEE);
         course.setNoteClient(motif);
         courseRepository.save(course);
 
-        // TODO: Notifier le client et le conducteur
+        if (ancienStatut != StatutCourse.ANNULEE) {
+            agregatsCoursesService.enregistrerTransition(course, ancienStatut);
+            // Le client et le conducteur sont notifiés par NotificationService à la validation
+            eventPublisher.publishEvent(CourseEvenement.de(TypeEvenementCourse.ANNULEE, course));
+        }
+    }
+
+    /**
+     * Trace GPS d'une course, pour l'examen des litiges
+     */
+    public List<CodecTrace.Point> getTraceCourse(Long id) {
+        if (!courseRepository.existsById(id)) {
+            throw new RuntimeException("Course non trouvée");
+        }
+        return tracesCoursesService.lire(id);
     }
 
     /**
      * Statistiques détaillées
      */
     public Map<String, Object> getStatistiquesDetaillees() {
-        Map<String, Object> stats = new HashMap<>();
-
-        // Statistiques par type de course
-        Map<String, Long> coursesByType = new HashMap<>();
-        coursesByType.put("LIVRAISON_MOTO", courseRepository.findAll().stream()
-                .filter(c -> c.getTypeCourse().name().equals("LIVRAISON_MOTO"))
-                .count());
-        coursesByType.put("TRANSPORT_PERSONNE", courseRepository.findAll().stream()
-                .filter(c -> c.getTypeCourse().name().equals("TRANSPORT_PERSONNE"))
-                .count());
-        coursesByType.put("TRANSPORT_MARCHANDISE", courseRepository.findAll().stream()
-                .filter(c -> c.getTypeCourse().name().equals("TRANSPORT_MARCHANDISE"))
-                .count());
-
-        stats.put("coursesParType", coursesByType);
-
-        // Top 10 conducteurs
-        List<Map<String, Object>> topConducteurs = conducteurRepository.findAll().stream()
-                .sorted((c1, c2) -> Integer.compare(c2.getNombreCourses(), c1.getNombreCourses()))
-                .limit(10)
-                .map(c -> {
-                    Map<String, Object> conducteurStats = new HashMap<>();
-                    conducteurStats.put("id", c.getId());
-                    conducteurStats.put("nom", c.getNom() + " " + c.getPrenom());
-                    conducteurStats.put("nombreCourses", c.getNombreCourses());
-                    conducteurStats.put("noteGlobale", c.getNoteGlobale());
-                    return conducteurStats;
-                })
-                .collect(Collectors.toList());
-
-        stats.put("topConducteurs", topConducteurs);
-
-        // Revenus par période
-        LocalDateTime debutSemaine = LocalDateTime.now().minus(7, ChronoUnit.DAYS);
-        LocalDateTime debutMois = LocalDateTime.now().withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
-
-        double revenusSemaine = courseRepository.findAll().stream()
-                .filter(c -> c.getDateFin() != null && c.getDateFin().isAfter(debutSemaine))
-                .filter(c -> c.getMontantFinal() != null)
-                .mapToDouble(Course::getMontantFinal)
-                .sum();
-
-        double revenusMois = courseRepository.findAll().stream()
-                .filter(c -> c.getDateFin() != null && c.getDateFin().isAfter(debutMois))
-                .filter(c -> c.getMontantFinal() != null)
-                .mapToDouble(Course::getMontantFinal)
-                .sum();
-
-        Map<String, Double> revenus = new HashMap<>();
-        revenus.put("semaine", revenusSemaine);
-        revenus.put("mois", revenusMois);
-
-        stats.put("revenus", revenus);
-
-        // Taux de complétion des courses
-        long totalCourses = courseRepository.count();
-        long coursesTerminees = courseRepository.findByStatut(StatutCourse.TERMINEE).size();
-        long coursesAnnulees = courseRepository.findByStatut(StatutCourse.ANNULEE).size();
+        return statistiquesService.getStatistiquesDetaillees();
+    }
 
-        double tauxCompletion = totalCourses > 0 ? (coursesTerminees * 100.0 / totalCourses) : 0;
-        double tauxAnnulation = totalCourses > 0 ? (coursesAnnulees * 100.0 / totalCourses) : 0;
+    /**
+     * Reconstruire les cumuls statistiques depuis l'historique des courses
+     */
+    public void reconstruireAgregats() {
+        agregatsCoursesService.reconstruire();
+    }
 
-        Map<String, Double> taux = new HashMap<>();
-        taux.put("completion", tauxCompletion);
-        taux.put("annulation", tauxAnnulation);
+    /**
+     * Métriques de l'authentification : file de hachage des mots de passe et limiteur de tentatives
+     */
+    public Map<String, Object> getMetriquesAuthentification() {
+        Map<String, Object> metriques = new HashMap<>();
+        metriques.put("hachage", hachageMotsDePasse.metriques());
+        metriques.put("limiteur", limiteurTentatives.metriques());
+        metriques.put("revocations", revocationsUtilisateurs.taille());
+        return metriques;
+    }
 
-        stats.put("taux", taux);
+    /**
+     * État du relais des événements de course, de la file de notifications et du flux SSE des courses
+     */
+    public Map<String, Object> getMetriquesEvenements() {
+        Map<String, Object> metriques = new HashMap<>();
+        metriques.put("outbox", outboxCoursesService.metriques());
+        metriques.put("notifications", notificationService.metriques());
+        metriques.put("expirationCourses", expirationCourses.metriques());
+        metriques.put("fluxCourses", fluxCoursesService.metriques());
+        return metriques;
+    }
 
-        return stats;
+    /**
+     * Relaie de nouveau aux abonnés les événements de course créés depuis la date donnée
+     */
+    public long rejouerEvenementsCourses(LocalDateTime depuis, Long courseId) {
+        return outboxCoursesService.rejouer(depuis, courseId);
     }
 
     /**
-     * Gestion des utilisateurs - Liste de tous les utilisateurs
+     * Gestion des utilisateurs - Liste paginée des utilisateurs
      */
-    public List<Map<String, Object>> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(this::convertUserToDTO)
-                .collect(Collectors.toList());
+    public PageCurseur<Map<String, Object>> getAllUsers(Roles role, Boolean actif, Long curseur, Integer taille) {
+        int tailleEffective = tailleEffective(taille);
+        return paginer(userRepository.findPage(role, actif, curseur, limite(tailleEffective)),
+                tailleEffective, LigneUtilisateur::id, this::convertUserToDTO);
     }
 
     /**
@@ -333,7 +346,11 @@ public class AdminService {
                 .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé"));
 
         user.setActif(false);
+        revocationsUtilisateurs.revoquer(user);
         userRepository.save(user);
+        indexGeoConducteurs.retirer(userId);
+        presenceConducteurs.retirer(userId);
+        refreshTokenService.revoquerTout(userId);
     }
 
     /**
@@ -344,17 +361,44 @@ public class AdminService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé"));
 
+        // La date de révocation reste : les tokens émis avant la désactivation demeurent refusés
         user.setActif(true);
         userRepository.save(user);
     }
 
     /**
-     * Gestion des engins - Liste de tous les engins
+     * Gestion des engins - Liste paginée des engins
      */
-    public List<EnginResponse> getAllEngins() {
-        return enginRepository.findAll().stream()
-                .map(this::convertEnginToDTO)
-                .collect(Collectors.toList());
+    public PageCurseur<EnginResponse> getAllEngins(StatutEngin statut, Long curseur, Integer taille) {
+        int tailleEffective = tailleEffective(taille);
+        return paginer(enginRepository.findPage(statut, curseur, limite(tailleEffective)),
+                tailleEffective, LigneEngin::id, this::convertEnginToDTO);
+    }
+
+    // ==================== Pagination par curseur ====================
+
+    private int tailleEffective(Integer taille) {
+        if (taille == null || taille <= 0) {
+            return taillePageDefaut;
+        }
+        return Math.min(taille, taillePageMax);
+    }
+
+    /**
+     * Une ligne de plus que la page est lue pour savoir s'il existe une page suivante sans COUNT
+     */
+    private static Pageable limite(int taille) {
+        return PageRequest.of(0, taille + 1);
+    }
+
+    private static <E, D> PageCurseur<D> paginer(List<E> resultats, int taille,
+                                                  Function<E, Long> identifiant, Function<E, D> conversion) {
+        boolean suivante = resultats.size() > taille;
+        List<E> page = suivante ? resultats.subList(0, taille) : resultats;
+        Long curseurSuivant = suivante ? identifiant.apply(page.get(page.size() - 1)) : null;
+
+        return new PageCurseur<>(page.stream().map(conversion).collect(Collectors.toList()),
+                curseurSuivant, suivante);
     }
 
     // ==================== Méthodes de conversion ====================
@@ -372,6 +416,7 @@ public class AdminService {
         dto.setStatut(conducteur.getStatut());
         dto.setNoteGlobale(conducteur.getNoteGlobale());
         dto.setNombreCourses(conducteur.getNombreCourses());
+        dto.setDisponible(presenceConducteurs.estDisponible(conducteur.getId()));
 
         if (conducteur.getEnginActuel() != null) {
             ConducteurProfileDTO.EnginSimpleDTO enginDTO = new ConducteurProfileDTO.EnginSimpleDTO();
@@ -386,6 +431,44 @@ public class AdminService {
         return dto;
     }
 
+    private ConducteurProfileDTO convertConducteurToDTO(LigneConducteur conducteur) {
+        ConducteurProfileDTO dto = new ConducteurProfileDTO();
+        dto.setId(conducteur.id());
+        dto.setNom(conducteur.nom());
+        dto.setPrenom(conducteur.prenom());
+        dto.setEmail(conducteur.email());
+        dto.setTelephone(conducteur.telephone());
+        dto.setRole(conducteur.role());
+        dto.setNumPermis(conducteur.numPermis());
+        dto.setPhotoPermis(conducteur.photoPermis());
+        dto.setStatut(conducteur.statut());
+        dto.setNoteGlobale(conducteur.noteGlobale());
+        dto.setNombreCourses(conducteur.nombreCourses());
+        dto.setDisponible(presenceConducteurs.estDisponible(conducteur.id()));
+
+        if (conducteur.enginId() != null) {
+            dto.setEnginActuel(new ConducteurProfileDTO.EnginSimpleDTO(conducteur.enginId(), conducteur.enginMarque(),
+                    conducteur.enginModele(), conducteur.enginCouleur(), conducteur.enginMatricule()));
+        }
+
+        return dto;
+    }
+
+    private CourseResponse convertCourseToDTO(LigneCourse course) {
+        CourseResponse response = new CourseResponse();
+        response.setId(course.id());
+        response.setTypeCourse(course.typeCourse());
+        response.setAdresseDepart(course.adresseDepart());
+        response.setAdresseArrivee(course.adresseArrivee());
+        response.setDistanceKm(course.distanceKm());
+        response.setMontantEstime(course.montantEstime());
+        response.setMontantFinal(course.montantFinal());
+        response.setStatut(course.statut());
+        response.setDateCreation(course.dateCreation().toString());
+
+        return response;
+    }
+
     private CourseResponse convertCourseToDTO(Course course) {
         CourseResponse response = new CourseResponse();
         response.setId(course.getId());
@@ -401,6 +484,20 @@ public class AdminService {
         return response;
     }
 
+    private Map<String, Object> convertUserToDTO(LigneUtilisateur user) {
+        Map<String, Object> userMap = new HashMap<>();
+        userMap.put("id", user.id());
+        userMap.put("nom", user.nom());
+        userMap.put("prenom", user.prenom());
+        userMap.put("email", user.email());
+        userMap.put("telephone", user.telephone());
+        userMap.put("role", user.role());
+        userMap.put("actif", user.actif());
+        userMap.put("createdAt", user.createdAt());
+
+        return userMap;
+    }
+
     private Map<String, Object> convertUserToDTO(User user) {
         Map<String, Object> userMap = new HashMap<>();
         userMap.put("id", user.getId());
@@ -415,6 +512,34 @@ public class AdminService {
         return userMap;
     }
 
+    private Map<String, Object> convertEvaluationToDTO(Evaluation evaluation) {
+        Map<String, Object> evaluationMap = new HashMap<>();
+        evaluationMap.put("id", evaluation.getId());
+        evaluationMap.put("note", evaluation.getNote());
+        evaluationMap.put("commentaire", evaluation.getCommentaire());
+        evaluationMap.put("dateEvaluation", evaluation.getDateEvaluation());
+        evaluationMap.put("evaluateurId", evaluation.getEvaluateur() != null ? evaluation.getEvaluateur().getId() : null);
+        evaluationMap.put("evalueId", evaluation.getEvalue() != null ? evaluation.getEvalue().getId() : null);
+
+        return evaluationMap;
+    }
+
+    private EnginResponse convertEnginToDTO(LigneEngin engin) {
+        EnginResponse response = new EnginResponse();
+        response.setId(engin.id());
+        response.setMarque(engin.marque());
+        response.setModele(engin.modele());
+        response.setCouleur(engin.couleur());
+        response.setMatricule(engin.matricule());
+        response.setAnnee(engin.annee());
+        response.setStatut(engin.statut());
+        response.setActive(engin.active());
+        response.setProprietaire(new EnginResponse.ProprietaireDTO(engin.proprietaireId(),
+                engin.proprietaireNom(), engin.proprietairePrenom(), engin.proprietaireTelephone()));
+
+        return response;
+    }
+
     private EnginResponse convertEnginToDTO(Engin engin) {
         EnginResponse response = new EnginResponse();
         response.setId(engin.getId());
@@ -0,0 +1,194 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.dto.projection.CumulHoraireCourses;
+import com.lanayago.lanayagobackend.entity.AgregatCourse;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.enums.GranulariteAgregat;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.repository.AgregatCourseRepository;
+import com.lanayago.lanayagobackend.repository.VerrouTraitementRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tables de cumul horaires et journalières des courses terminées et annulées.
+ * Les statistiques admin lisent ces cumuls au lieu de reparcourir toutes les courses.
+ *
+ * Une course n'est comptée qu'en entrant dans un état final depuis un état non final. Les
+ * incréments ne prennent que leurs lignes de cumul, toujours dans le même ordre (heures puis jours,
+ * par date croissante) ; la reconstruction corrige les écarts ligne par ligne dans cet ordre et
+ * ne bloque jamais une transition pendant la lecture de l'historique.
+ */
+@Slf4j
+@Service
+public class AgregatsCoursesService {
+
+    static final String VERROU_RECONSTRUCTION = "agregats_courses";
+
+    // Écart de montant en deçà duquel deux sommes de flottants sont tenues pour égales
+    private static final double ECART_MONTANT_NEGLIGEABLE = 0.001;
+
+    private static final Comparator<Periode> ORDRE_DES_LIGNES = Comparator
+            .comparing(Periode::granularite)
+            .thenComparing(Periode::debut)
+            .thenComparing(Periode::typeCourse)
+            .thenComparing(Periode::statut);
+
+    private final AgregatCourseRepository agregatCourseRepository;
+    private final VerrouTraitementRepository verrouTraitementRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate transactionInstantane;
+
+    public AgregatsCoursesService(AgregatCourseRepository agregatCourseRepository,
+                                  VerrouTraitementRepository verrouTraitementRepository,
+                                  TransactionTemplate transactionTemplate) {
+        this.agregatCourseRepository = agregatCourseRepository;
+        this.verrouTraitementRepository = verrouTraitementRepository;
+        this.transactionTemplate = transactionTemplate;
+        // InnoDB en REPEATABLE READ : l'historique et les cumuls sont lus dans le même instantané
+        this.transactionInstantane = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionInstantane.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Cumuls absents au premier démarrage après leur introduction : reconstruits une fois depuis l'historique
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void initialiser() {
+        try {
+            if (agregatCourseRepository.count() == 0) {
+                reconstruire();
+            }
+        } catch (RuntimeException e) {
+            log.error("Échec de la construction initiale des cumuls de courses", e);
+        }
+    }
+
+    /**
+     * À appeler dans la transaction qui change le statut de la course, avec son statut précédent
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enregistrerTransition(Course course, StatutCourse ancienStatut) {
+        if (!estFinal(course.getStatut()) || estFinal(ancienStatut)) {
+            return;
+        }
+
+        LocalDateTime reference = course.getStatut() == StatutCourse.TERMINEE && course.getDateFin() != null
+                ? course.getDateFin()
+                : course.getDateCreation() != null ? course.getDateCreation() : LocalDateTime.now();
+        double montant = course.getMontantFinal() != null ? course.getMontantFinal() : 0.0;
+
+        incrementer(GranulariteAgregat.HEURE, reference.truncatedTo(ChronoUnit.HOURS), course, montant);
+        incrementer(GranulariteAgregat.JOUR, reference.truncatedTo(ChronoUnit.DAYS), course, montant);
+    }
+
+    /**
+     * Courses en attente annulées ensemble, datées par leur création : une incrémentation par période
+     * et par type au lieu d'une par course
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enregistrerAnnulations(TypeCourse typeCourse, Collection<LocalDateTime> datesCreation) {
+        Map<LocalDateTime, Long> parHeure = new TreeMap<>();
+        Map<LocalDateTime, Long> parJour = new TreeMap<>();
+        for (LocalDateTime date : datesCreation) {
+            LocalDateTime reference = date != null ? date : LocalDateTime.now();
+            parHeure.merge(reference.truncatedTo(ChronoUnit.HOURS), 1L, Long::sum);
+            parJour.merge(reference.truncatedTo(ChronoUnit.DAYS), 1L, Long::sum);
+        }
+
+        parHeure.forEach((debut, nombre) -> agregatCourseRepository.incrementer(GranulariteAgregat.HEURE.name(), debut,
+                typeCourse.name(), StatutCourse.ANNULEE.name(), nombre, 0.0));
+        parJour.forEach((debut, nombre) -> agregatCourseRepository.incrementer(GranulariteAgregat.JOUR.name(), debut,
+                typeCourse.name(), StatutCourse.ANNULEE.name(), nombre, 0.0));
+    }
+
+    /**
+     * Recalcule tous les cumuls depuis l'historique des courses et corrige les lignes qui s'en écartent.
+     *
+     * L'historique et les cumuls sont lus dans un même instantané, sans verrou : une transition validée
+     * avant est dans les deux, une transition validée après dans aucun, et l'écart entre les deux ne
+     * dépend que des dérives à corriger. Il est ajouté aux lignes par incrément, comme une transition,
+     * ce qui préserve les incréments validés depuis l'instantané. Une ligne de la base, verrouillée
+     * avant l'instantané, empêche deux instances d'appliquer la même correction.
+     */
+    public void reconstruire() {
+        transactionTemplate.executeWithoutResult(tx -> verrouTraitementRepository.creerSiAbsent(VERROU_RECONSTRUCTION));
+
+        int corrigees = transactionInstantane.execute(tx -> {
+            verrouTraitementRepository.verrouiller(VERROU_RECONSTRUCTION).orElseThrow();
+
+            // Cumuls attendus d'après l'historique, diminués ensuite des cumuls enregistrés
+            Map<Periode, AgregatCourse> ecarts = new TreeMap<>(ORDRE_DES_LIGNES);
+            agregatCourseRepository.cumulerTermineesParHeure()
+                    .forEach(c -> cumuler(ecarts, c, StatutCourse.TERMINEE));
+            agregatCourseRepository.cumulerAnnuleesParHeure()
+                    .forEach(c -> cumuler(ecarts, c, StatutCourse.ANNULEE));
+            for (AgregatCourse actuelle : agregatCourseRepository.findAll()) {
+                Periode periode = new Periode(actuelle.getGranularite(), actuelle.getDebutPeriode(),
+                        actuelle.getTypeCourse(), actuelle.getStatut());
+                AgregatCourse ecart = ecarts.computeIfAbsent(periode, p -> new AgregatCourse(
+                        null, p.granularite(), p.debut(), p.typeCourse(), p.statut(), 0, 0.0));
+                ecart.setNombreCourses(ecart.getNombreCourses() - actuelle.getNombreCourses());
+                ecart.setMontantTotal(ecart.getMontantTotal() - actuelle.getMontantTotal());
+            }
+
+            int lignes = 0;
+            for (AgregatCourse ecart : ecarts.values()) {
+                if (ecart.getNombreCourses() != 0 || Math.abs(ecart.getMontantTotal()) > ECART_MONTANT_NEGLIGEABLE) {
+                    agregatCourseRepository.incrementer(ecart.getGranularite().name(), ecart.getDebutPeriode(),
+                            ecart.getTypeCourse().name(), ecart.getStatut().name(),
+                            ecart.getNombreCourses(), ecart.getMontantTotal());
+                    lignes++;
+                }
+            }
+            return lignes;
+        });
+        log.info("Cumuls des courses reconstruits : {} lignes corrigées", corrigees);
+    }
+
+    public double revenusDepuis(LocalDateTime depuis, GranulariteAgregat granularite) {
+        return agregatCourseRepository.sommeMontants(granularite, StatutCourse.TERMINEE, depuis);
+    }
+
+    private record Periode(GranulariteAgregat granularite, LocalDateTime debut, TypeCourse typeCourse, StatutCourse statut) {
+    }
+
+    /**
+     * Ajoute un cumul horaire à sa ligne horaire et à celle de son jour
+     */
+    private static void cumuler(Map<Periode, AgregatCourse> cumuls, CumulHoraireCourses cumul, StatutCourse statut) {
+        LocalDateTime heure = LocalDateTime.of(cumul.annee(), cumul.mois(), cumul.jour(), cumul.heure(), 0);
+        for (Periode periode : List.of(
+                new Periode(GranulariteAgregat.HEURE, heure, cumul.typeCourse(), statut),
+                new Periode(GranulariteAgregat.JOUR, heure.truncatedTo(ChronoUnit.DAYS), cumul.typeCourse(), statut))) {
+            AgregatCourse ligne = cumuls.computeIfAbsent(periode, p -> new AgregatCourse(
+                    null, p.granularite(), p.debut(), p.typeCourse(), p.statut(), 0, 0.0));
+            ligne.setNombreCourses(ligne.getNombreCourses() + cumul.nombre());
+            ligne.setMontantTotal(ligne.getMontantTotal() + cumul.montant());
+        }
+    }
+
+    private static boolean estFinal(StatutCourse statut) {
+        return statut == StatutCourse.TERMINEE || statut == StatutCourse.ANNULEE;
+    }
+
+    private void incrementer(GranulariteAgregat granularite, LocalDateTime debutPeriode, Course course, double montant) {
+        agregatCourseRepository.incrementer(granularite.name(), debutPeriode,
+                course.getTypeCourse().name(), course.getStatut().name(), 1, montant);
+    }
+}
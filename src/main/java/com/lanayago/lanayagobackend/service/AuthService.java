@@ -2,6 +2,7 @@ package com.lanayago.lanayagobackend.service;
 
 import com.lanayago.lanayagobackend.dto.reponse.AuthResponse;
 import com.lanayago.lanayagobackend.dto.request.LoginRequest;
+import com.lanayago.lanayagobackend.dto.request.RefreshTokenRequest;
 import com.lanayago.lanayagobackend.dto.request.RegisterRequest;
 import com.lanayago.lanayagobackend.entity.*;
 import com.lanayago.lanayagobackend.entity.enums.Roles;
@@ -9,16 +10,14 @@ import com.lanayago.lanayagobackend.entity.enums.StatutConducteur;
 import com.lanayago.lanayagobackend.repository.ConducteurRepository;
 import com.lanayago.lanayagobackend.repository.UserRepository;
 import com.lanayago.lanayagobackend.security.JwtUtil;
+import com.lanayago.lanayagobackend.security.LimiteurTentatives;
+import com.lanayago.lanayagobackend.security.UtilisateurCourant;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import static org.springframework.security.core.userdetails.User.builder;
+import org.springframework.transaction.support.TransactionTemplate;
 
 
 @Service
@@ -30,9 +29,33 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
+    private final RefreshTokenService refreshTokenService;
+    private final LimiteurTentatives limiteurTentatives;
+    private final UtilisateurCourant utilisateurCourant;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Le mot de passe est haché avant d'ouvrir la transaction : une rafale d'inscriptions attend son tour
+     * dans la file BCrypt sans immobiliser de connexion du pool
+     */
+    public AuthResponse register(RegisterRequest request, String adresseIp) {
+        limiteurTentatives.verifier(adresseIp, request.getEmail());
+
+        if (request.getRole() == Roles.CONDUCTEUR
+                && (request.getNumPermis() == null || request.getNumPermis().isEmpty())) {
+            throw new RuntimeException("Le numéro de permis est obligatoire pour un conducteur");
+        }
+
+        String motDePasse = passwordEncoder.encode(request.getPassword());
+
+        // Générer le token JWT et ouvrir une famille de jetons de renouvellement
+        return transactionTemplate.execute(tx -> {
+            User user = creerUtilisateur(request, motDePasse);
+            return construireReponse(user, refreshTokenService.emettre(user));
+        });
+    }
 
-    @Transactional
-    public AuthResponse register(RegisterRequest request) {
+    private User creerUtilisateur(RegisterRequest request, String motDePasse) {
         // Vérifier si l'email existe déjà
         if (userRepository.existsByEmail(request.getEmail())) {
             throw new RuntimeException("Un utilisateur avec cet email existe déjà");
@@ -42,14 +65,8 @@ public class AuthService {
             throw new RuntimeException("Un utilisateur avec ce numéro de téléphone existe déjà");
         }
 
-        User user;
-
         // Créer l'utilisateur selon le rôle
         if (request.getRole() == Roles.CONDUCTEUR) {
-            if (request.getNumPermis() == null || request.getNumPermis().isEmpty()) {
-                throw new RuntimeException("Le numéro de permis est obligatoire pour un conducteur");
-            }
-
             if (conducteurRepository.existsByNumPermis(request.getNumPermis())) {
                 throw new RuntimeException("Un conducteur avec ce numéro de permis existe déjà");
             }
@@ -58,60 +75,42 @@ public class AuthService {
             conducteur.setNom(request.getNom());
             conducteur.setPrenom(request.getPrenom());
             conducteur.setEmail(request.getEmail());
-            conducteur.setPassword(passwordEncoder.encode(request.getPassword()));
+            conducteur.setPassword(motDePasse);
             conducteur.setTelephone(request.getTelephone());
             conducteur.setRole(Roles.CONDUCTEUR);
             conducteur.setNumPermis(request.getNumPermis());
             conducteur.setPhotoPermis(request.getPhotoPermis());
             conducteur.setStatut(StatutConducteur.EN_ATTENTE);
 
-            user = conducteurRepository.save(conducteur);
+            return conducteurRepository.save(conducteur);
         } else if (request.getRole() == Roles.PROPRIETAIRE) {
             Propriotaire proprietaire = new Propriotaire();
             proprietaire.setNom(request.getNom());
             proprietaire.setPrenom(request.getPrenom());
             proprietaire.setEmail(request.getEmail());
-            proprietaire.setPassword(passwordEncoder.encode(request.getPassword()));
+            proprietaire.setPassword(motDePasse);
             proprietaire.setTelephone(request.getTelephone());
             proprietaire.setRole(Roles.PROPRIETAIRE);
 
-            user = userRepository.save(proprietaire);
+            return userRepository.save(proprietaire);
         } else {
             // Client simple
-            user = new User();
+            User user = new User();
             user.setNom(request.getNom());
             user.setPrenom(request.getPrenom());
             user.setEmail(request.getEmail());
-            user.setPassword(passwordEncoder.encode(request.getPassword()));
+            user.setPassword(motDePasse);
             user.setTelephone(request.getTelephone());
             user.setRole(request.getRole() != null ? request.getRole() : Roles.CLIENT);
 
-            user = userRepository.save(user);
+            return userRepository.save(user);
         }
-
-        // Générer le token JWT
-        var userDetails = builder()
-                .username(user.getEmail())
-                .password(user.getPassword())
-                .authorities("ROLE_" + user.getRole().name())
-                .build();
-
-        String token = jwtUtil.generateToken(userDetails);
-
-        // Créer la réponse
-        AuthResponse response = new AuthResponse();
-        response.setToken(token);
-        response.setId(user.getId());
-        response.setEmail(user.getEmail());
-        response.setNom(user.getNom());
-        response.setPrenom(user.getPrenom());
-        response.setTelephone(user.getTelephone());
-        response.setRole(user.getRole());
-
-        return response;
     }
 
-    public AuthResponse login(LoginRequest request) {
+    public AuthResponse login(LoginRequest request, String adresseIp) {
+        // Avant toute vérification BCrypt : une rafale est refusée sans consommer de CPU
+        limiteurTentatives.verifier(adresseIp, request.getEmail());
+
         // Authentifier l'utilisateur
         authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
@@ -124,18 +123,25 @@ public class AuthService {
         var user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé"));
 
-        // Générer le token
-        var userDetails = builder()
-                .username(user.getEmail())
-                .password(user.getPassword())
-                .authorities("ROLE_" + user.getRole().name())
-                .build();
+        // Générer le token et ouvrir une famille de jetons de renouvellement
+        return construireReponse(user, refreshTokenService.emettre(user));
+    }
+
+    /**
+     * Renouvelle le JWT sans repasser par le mot de passe : le jeton présenté est remplacé par un nouveau.
+     * Soumis au seau de l'IP comme la connexion : des jetons devinés en rafale sont refusés avant la base.
+     */
+    public AuthResponse refresh(RefreshTokenRequest request, String adresseIp) {
+        limiteurTentatives.verifier(adresseIp, null);
 
-        String token = jwtUtil.generateToken(userDetails);
+        RefreshTokenService.Rotation rotation = refreshTokenService.echanger(request.getRefreshToken());
+        return construireReponse(rotation.utilisateur(), rotation.refreshToken());
+    }
 
-        // Créer la réponse
+    private AuthResponse construireReponse(User user, String refreshToken) {
         AuthResponse response = new AuthResponse();
-        response.setToken(token);
+        response.setToken(jwtUtil.generateToken(user));
+        response.setRefreshToken(refreshToken);
         response.setId(user.getId());
         response.setEmail(user.getEmail());
         response.setNom(user.getNom());
@@ -147,10 +153,6 @@ public class AuthService {
     }
 
     public User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = ((UserDetails) authentication.getPrincipal()).getUsername();
-
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé"));
+        return utilisateurCourant.utilisateur();
     }
 }
\ No newline at end of file
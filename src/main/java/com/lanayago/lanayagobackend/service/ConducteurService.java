@@ -1,23 +1,31 @@
 package com.lanayago.lanayagobackend.service;
 
 import com.lanayago.lanayagobackend.dto.reponse.ConducteurProfileDTO;
+import com.lanayago.lanayagobackend.dto.projection.LigneCourse;
 import com.lanayago.lanayagobackend.dto.reponse.CourseResponse;
 import com.lanayago.lanayagobackend.entity.Conducteur;
 import com.lanayago.lanayagobackend.entity.Course;
-import com.lanayago.lanayagobackend.entity.User;
 import com.lanayago.lanayagobackend.entity.enums.StatutConducteur;
 import com.lanayago.lanayagobackend.repository.ConducteurRepository;
 import com.lanayago.lanayagobackend.repository.CourseRepository;
-import com.lanayago.lanayagobackend.repository.UserRepository;
+import com.lanayago.lanayagobackend.security.RevocationsUtilisateurs;
+import com.lanayago.lanayagobackend.security.UtilisateurCourant;
+import com.lanayago.lanayagobackend.util.CodecPositions;
+import com.lanayago.lanayagobackend.util.CodecTrace;
+import com.lanayago.lanayagobackend.util.GeoUtils;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,29 +37,30 @@ public class ConducteurService {
 
     private final ConducteurRepository conducteurRepository;
     private final CourseRepository courseRepository;
-    private final UserRepository userRepository;
+    private final UtilisateurCourant utilisateurCourant;
+    private final IngestionPositions ingestionPositions;
+    private final PresenceConducteurs presenceConducteurs;
+    private final RevocationsUtilisateurs revocationsUtilisateurs;
 
-    private Conducteur getCurrentConducteur() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = ((UserDetails) authentication.getPrincipal()).getUsername();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé"));
+    @Value("${lanayago.positions.lot-max:1000}")
+    private int tailleLotMax;
 
-        if (!(user instanceof Conducteur)) {
-            throw new RuntimeException("L'utilisateur n'est pas un conducteur");
-        }
+    @Value("${lanayago.positions.flux.verification-statut:PT1M}")
+    private Duration verificationStatutFlux;
 
-        return (Conducteur) user;
-    }
+    // Un flux occupe un thread de requête : il est clos au plus tard après cette durée
+    @Value("${lanayago.positions.flux.duree-max:PT15M}")
+    private Duration dureeMaxFlux;
 
+    @Transactional(readOnly = true)
     public ConducteurProfileDTO getProfile() {
-        Conducteur conducteur = getCurrentConducteur();
+        Conducteur conducteur = utilisateurCourant.conducteur();
         return convertToProfileDTO(conducteur);
     }
 
     @Transactional
     public ConducteurProfileDTO updateProfile(ConducteurProfileDTO profileDTO) {
-        Conducteur conducteur = getCurrentConducteur();
+        Conducteur conducteur = utilisateurCourant.conducteur();
 
         conducteur.setNom(profileDTO.getNom());
         conducteur.setPrenom(profileDTO.getPrenom());
@@ -62,23 +71,24 @@ public class ConducteurService {
         return convertToProfileDTO(updatedConducteur);
     }
 
-    @Transactional
+    /**
+     * Le choix est pris en compte immédiatement par le dispatch et écrit en base en différé
+     */
+    @Transactional(readOnly = true)
     public ConducteurProfileDTO updateDisponibilite(boolean disponible) {
-        Conducteur conducteur = getCurrentConducteur();
+        Conducteur conducteur = utilisateurCourant.conducteur();
 
         if (conducteur.getStatut() != StatutConducteur.APPROUVE) {
             throw new RuntimeException("Votre compte n'est pas encore approuvé");
         }
 
-        // Logique de disponibilité peut être gérée via le statut de l'engin
-        // ou un champ dédié si nécessaire
-
+        presenceConducteurs.definirDisponibilite(conducteur.getId(), disponible);
         return convertToProfileDTO(conducteur);
     }
 
     public List<CourseResponse> getMesCourses() {
-        Conducteur conducteur = getCurrentConducteur();
-        List<Course> courses = courseRepository.findByConducteur_Id(conducteur.getId());
+        Conducteur conducteur = utilisateurCourant.conducteur();
+        List<LigneCourse> courses = courseRepository.findLignesByConducteurId(conducteur.getId());
 
         return courses.stream()
                 .map(this::convertToCourseResponse)
@@ -86,7 +96,7 @@ public class ConducteurService {
     }
 
     public Map<String, Object> getStatistiques() {
-        Conducteur conducteur = getCurrentConducteur();
+        Conducteur conducteur = utilisateurCourant.conducteur();
 
         Map<String, Object> stats = new HashMap<>();
         stats.put("nombreCoursesTotal", conducteur.getNombreCourses());
@@ -112,14 +122,102 @@ public class ConducteurService {
         return stats;
     }
 
-    @Transactional
+    /**
+     * Les positions ne sont pas écrites en base : index spatial, trace et compteur restent en mémoire
+     */
     public void updatePosition(Double latitude, Double longitude) {
-        Conducteur conducteur = getCurrentConducteur();
-        // Logique de mise à jour de position
-        // Peut être stockée dans une table dédiée ou en cache (Redis)
-        // Pour l'instant, juste un log
-        System.out.println("Position du conducteur " + conducteur.getId() +
-                " mise à jour: " + latitude + ", " + longitude);
+        if (!GeoUtils.coordonneesValides(latitude, longitude)) {
+            throw new RuntimeException("Coordonnées invalides");
+        }
+
+        ingestionPositions.ingerer(conducteurApprouve(),
+                new CodecTrace.Point(System.currentTimeMillis(), latitude, longitude));
+    }
+
+    /**
+     * Lot de positions au format {@link CodecPositions}, horodatées par le téléphone. Le corps n'est
+     * lu que jusqu'à la taille maximale d'un lot : refusé sur sa longueur annoncée, sinon au premier
+     * octet en trop d'un corps chunked.
+     */
+    public IngestionPositions.Bilan enregistrerPositions(InputStream entree, long longueurAnnoncee) throws IOException {
+        int tailleMax = tailleLotMax * CodecPositions.TAILLE_ENREGISTREMENT;
+        if (longueurAnnoncee > tailleMax) {
+            throw lotTropVolumineux();
+        }
+        byte[] corps = entree.readNBytes(tailleMax + 1);
+        if (corps.length > tailleMax) {
+            throw lotTropVolumineux();
+        }
+
+        List<CodecTrace.Point> points;
+        try {
+            points = CodecPositions.decoder(corps);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return ingestionPositions.ingererLot(conducteurApprouve(), points);
+    }
+
+    /**
+     * Flux continu de positions au format {@link CodecPositions}, traitées au fil de l'arrivée.
+     * Le statut du conducteur et la révocation de sa session sont revérifiés périodiquement : une
+     * suspension coupe le flux. Le flux est clos à l'expiration du jeton ou après la durée maximale ;
+     * l'application en ouvre un nouveau avec un jeton à jour.
+     */
+    public IngestionPositions.Bilan enregistrerFluxPositions(InputStream entree, Date jetonEmisLe, Date jetonExpireLe)
+            throws IOException {
+        Long conducteurId = conducteurApprouve();
+        long fin = System.currentTimeMillis() + dureeMaxFlux.toMillis();
+        if (jetonExpireLe != null) {
+            fin = Math.min(fin, jetonExpireLe.getTime());
+        }
+        long prochaineVerification = System.currentTimeMillis() + verificationStatutFlux.toMillis();
+        CodecPositions.Lecteur lecteur = new CodecPositions.Lecteur(entree);
+        int acceptees = 0;
+        int rejetees = 0;
+
+        try {
+            CodecTrace.Point point;
+            while ((point = lecteur.suivant()) != null) {
+                long maintenant = System.currentTimeMillis();
+                if (maintenant >= fin) {
+                    break;
+                }
+                if (maintenant >= prochaineVerification) {
+                    if (revocationsUtilisateurs.estRevoque(conducteurId, jetonEmisLe)) {
+                        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Session révoquée");
+                    }
+                    conducteurApprouve();
+                    prochaineVerification = maintenant + verificationStatutFlux.toMillis();
+                }
+                if (ingestionPositions.ingerer(conducteurId, point)) {
+                    acceptees++;
+                } else {
+                    rejetees++;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return new IngestionPositions.Bilan(acceptees, rejetees);
+    }
+
+    private ResponseStatusException lotTropVolumineux() {
+        return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Au plus " + tailleLotMax + " positions par lot");
+    }
+
+    /**
+     * Identifiant du conducteur connecté, après lecture de son seul statut
+     */
+    private Long conducteurApprouve() {
+        Long conducteurId = utilisateurCourant.id();
+        StatutConducteur statut = conducteurRepository.findStatutById(conducteurId)
+                .orElseThrow(() -> new RuntimeException("Conducteur non trouvé"));
+
+        if (statut != StatutConducteur.APPROUVE) {
+            throw new RuntimeException("Votre compte n'est pas encore approuvé");
+        }
+        return conducteurId;
     }
 
     private ConducteurProfileDTO convertToProfileDTO(Conducteur conducteur) {
@@ -135,6 +233,7 @@ public class ConducteurService {
         dto.setStatut(conducteur.getStatut());
         dto.setNoteGlobale(conducteur.getNoteGlobale());
         dto.setNombreCourses(conducteur.getNombreCourses());
+        dto.setDisponible(presenceConducteurs.estDisponible(conducteur.getId()));
 
         if (conducteur.getEnginActuel() != null) {
             ConducteurProfileDTO.EnginSimpleDTO enginDTO = new ConducteurProfileDTO.EnginSimpleDTO();
@@ -149,17 +248,17 @@ public class ConducteurService {
         return dto;
     }
 
-    private CourseResponse convertToCourseResponse(Course course) {
+    private CourseResponse convertToCourseResponse(LigneCourse course) {
         CourseResponse response = new CourseResponse();
-        response.setId(course.getId());
-        response.setTypeCourse(course.getTypeCourse());
-        response.setAdresseDepart(course.getAdresseDepart());
-        response.setAdresseArrivee(course.getAdresseArrivee());
-        response.setDistanceKm(course.getDistanceKm());
-        response.setMontantEstime(course.getMontantEstime());
-        response.setMontantFinal(course.getMontantFinal());
-        response.setStatut(course.getStatut());
-        response.setDateCreation(course.getDateCreation().toString());
+        response.setId(course.id());
+        response.setTypeCourse(course.typeCourse());
+        response.setAdresseDepart(course.adresseDepart());
+        response.setAdresseArrivee(course.adresseArrivee());
+        response.setDistanceKm(course.distanceKm());
+        response.setMontantEstime(course.montantEstime());
+        response.setMontantFinal(course.montantFinal());
+        response.setStatut(course.statut());
+        response.setDateCreation(course.dateCreation().toString());
 
         return response;
     }
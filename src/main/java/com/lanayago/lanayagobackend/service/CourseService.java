@@ -1,23 +1,33 @@
 package com.lanayago.lanayagobackend.service;
 
 import com.lanayago.lanayagobackend.dto.CourseDTO;
+import com.lanayago.lanayagobackend.dto.projection.LigneCourseDetaillee;
 import com.lanayago.lanayagobackend.entity.*;
 import com.lanayago.lanayagobackend.entity.enums.StatutConducteur;
 import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
 import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
 import com.lanayago.lanayagobackend.repository.ConducteurRepository;
 import com.lanayago.lanayagobackend.repository.CourseRepository;
-import com.lanayago.lanayagobackend.repository.UserRepository;
+import com.lanayago.lanayagobackend.security.UtilisateurCourant;
+import com.lanayago.lanayagobackend.util.CodecTrace;
+import com.lanayago.lanayagobackend.util.GeoHash;
+import com.lanayago.lanayagobackend.util.GeoUtils;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,19 +35,23 @@ import java.util.stream.Collectors;
 public class CourseService {
 
     private final CourseRepository courseRepository;
-    private final UserRepository userRepository;
     private final ConducteurRepository conducteurRepository;
+    private final UtilisateurCourant utilisateurCourant;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FluxCoursesService fluxCoursesService;
+    private final AgregatsCoursesService agregatsCoursesService;
+    private final TracesCoursesService tracesCoursesService;
+    private final OdometreCourses odometreCourses;
 
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = ((UserDetails) authentication.getPrincipal()).getUsername();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé"));
-    }
+    @Value("${lanayago.geo.rayon-max-km:50}")
+    private double rayonMaxKm;
+
+    @Value("${lanayago.courses.taille-page-max:100}")
+    private int taillePageMax;
 
     @Transactional
     public CourseDTO.CourseResponse createCourse(CourseDTO.CourseRequest request) {
-        User client = getCurrentUser();
+        User client = utilisateurCourant.utilisateur();
 
         Course course = new Course();
         course.setTypeCourse(request.getTypeCourse());
@@ -53,8 +67,8 @@ public class CourseService {
         course.setNombrePassagers(request.getNombrePassagers());
         course.setNoteClient(request.getNoteClient());
 
-        // Calculer la distance (formule simplifiée Haversine)
-        double distance = calculateDistance(
+        // Calculer la distance à vol d'oiseau (formule de Haversine)
+        double distance = GeoUtils.distanceKm(
                 request.getLatitudeDepart(),
                 request.getLongitudeDepart(),
                 request.getLatitudeArrivee(),
@@ -70,88 +84,163 @@ public class CourseService {
         course.setStatut(StatutCourse.EN_ATTENTE);
 
         Course savedCourse = courseRepository.save(course);
+        eventPublisher.publishEvent(CourseEvenement.de(TypeEvenementCourse.CREEE, savedCourse));
         return convertToResponse(savedCourse);
     }
 
     public List<CourseDTO.CourseResponse> getUserCourses() {
-        User user = getCurrentUser();
-        List<Course> courses = courseRepository.findByUserId(user.getId());
+        List<LigneCourseDetaillee> courses = courseRepository.findByUserId(utilisateurCourant.id());
         return courses.stream()
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
     }
 
     public CourseDTO.CourseResponse getCourseById(Long id) {
-        Course course = courseRepository.findById(id)
+        Course course = courseRepository.findAvecParticipantsById(id)
                 .orElseThrow(() -> new RuntimeException("Course non trouvée"));
 
-        User currentUser = getCurrentUser();
-        if (!course.getClient().getId().equals(currentUser.getId()) &&
-                (course.getConducteur() == null || !course.getConducteur().getId().equals(currentUser.getId()))) {
+        Long currentUserId = utilisateurCourant.id();
+        if (!course.getClient().getId().equals(currentUserId) &&
+                (course.getConducteur() == null || !course.getConducteur().getId().equals(currentUserId))) {
             throw new RuntimeException("Accès non autorisé à cette course");
         }
 
         return convertToResponse(course);
     }
 
+    /**
+     * Trace GPS de la course, réservée au client et au conducteur
+     */
+    public List<CodecTrace.Point> getTrace(Long id) {
+        Course course = courseRepository.findAvecParticipantsById(id)
+                .orElseThrow(() -> new RuntimeException("Course non trouvée"));
+
+        Long currentUserId = utilisateurCourant.id();
+        if (!course.getClient().getId().equals(currentUserId) &&
+                (course.getConducteur() == null || !course.getConducteur().getId().equals(currentUserId))) {
+            throw new RuntimeException("Accès non autorisé à cette course");
+        }
+
+        return tracesCoursesService.lire(id);
+    }
+
     public List<CourseDTO.CourseResponse> getCoursesDisponibles() {
         return courseRepository.findCoursesDisponibles().stream()
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
     }
 
-    @Transactional
-    public CourseDTO.CourseResponse accepterCourse(Long courseId) {
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new RuntimeException("Course non trouvée"));
+    /**
+     * Courses en attente dans un rayon autour du conducteur, page par page, les plus anciennes d'abord
+     */
+    public List<CourseDTO.CourseResponse> getCoursesDisponiblesProches(Double latitude, Double longitude,
+                                                                      double rayonKm, int page, int taille) {
+        if (!GeoUtils.coordonneesValides(latitude, longitude)) {
+            throw new RuntimeException("Coordonnées invalides");
+        }
 
-        if (course.getStatut() != StatutCourse.EN_ATTENTE) {
-            throw new RuntimeException("Cette course n'est plus disponible");
+        double rayon = Math.min(Math.max(rayonKm, 0.1), rayonMaxKm);
+        double deltaLat = GeoUtils.degresLatitude(rayon);
+        double deltaLon = GeoUtils.degresLongitude(rayon, latitude);
+        double latMin = latitude - deltaLat;
+        double latMax = latitude + deltaLat;
+        double lonMin = longitude - deltaLon;
+        double lonMax = longitude + deltaLon;
+
+        var cellules = GeoHash.cellulesCouvrantes(latMin, lonMin, latMax, lonMax, GeoHash.PRECISION_COURSES);
+        var pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(taille, 1), taillePageMax));
+
+        return courseRepository.findByStatutDansZone(StatutCourse.EN_ATTENTE, cellules,
+                        latMin, latMax, lonMin, lonMax, pageable).stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+    }
+
+    public SseEmitter abonnerFluxCourses() {
+        User currentUser = utilisateurCourant.utilisateur();
+        if (!(currentUser instanceof Conducteur conducteur)) {
+            throw new RuntimeException("Seuls les conducteurs peuvent suivre les courses disponibles");
         }
 
-        User currentUser = getCurrentUser();
-        if (!(currentUser instanceof Conducteur)) {
+        return fluxCoursesService.abonner(conducteur.getId());
+    }
+
+    @Transactional
+    public CourseDTO.CourseResponse accepterCourse(Long courseId) {
+        User currentUser = utilisateurCourant.utilisateur();
+        if (!(currentUser instanceof Conducteur conducteur)) {
             throw new RuntimeException("Seuls les conducteurs peuvent accepter des courses");
         }
 
-        Conducteur conducteur = (Conducteur) currentUser;
         if (conducteur.getStatut() != StatutConducteur.APPROUVE) {
             throw new RuntimeException("Votre compte conducteur n'est pas encore approuvé");
         }
 
-        course.setConducteur(conducteur);
-        course.setStatut(StatutCourse.ACCEPTEE);
+        // UPDATE conditionnel : un seul conducteur peut faire passer la course de EN_ATTENTE à ACCEPTEE
+        int modifiees = courseRepository.attribuerConducteur(
+                courseId, conducteur, StatutCourse.EN_ATTENTE, StatutCourse.ACCEPTEE);
 
-        Course savedCourse = courseRepository.save(course);
+        if (modifiees == 0) {
+            if (!courseRepository.existsById(courseId)) {
+                throw new RuntimeException("Course non trouvée");
+            }
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Cette course n'est plus disponible");
+        }
+
+        Course savedCourse = courseRepository.findAvecParticipantsById(courseId)
+                .orElseThrow(() -> new RuntimeException("Course non trouvée"));
+        eventPublisher.publishEvent(CourseEvenement.de(TypeEvenementCourse.ACCEPTEE, savedCourse));
         return convertToResponse(savedCourse);
     }
 
     @Transactional
     public CourseDTO.CourseResponse updateStatut(Long courseId, StatutCourse nouveauStatut) {
-        Course course = courseRepository.findById(courseId)
+        Course course = courseRepository.findAvecParticipantsById(courseId)
                 .orElseThrow(() -> new RuntimeException("Course non trouvée"));
 
-        User currentUser = getCurrentUser();
+        Long currentUserId = utilisateurCourant.id();
 
         // Vérifier les autorisations
-        boolean isClient = course.getClient().getId().equals(currentUser.getId());
+        boolean isClient = course.getClient().getId().equals(currentUserId);
         boolean isConducteur = course.getConducteur() != null &&
-                course.getConducteur().getId().equals(currentUser.getId());
+                course.getConducteur().getId().equals(currentUserId);
 
         if (!isClient && !isConducteur) {
             throw new RuntimeException("Accès non autorisé");
         }
 
+        // Une course terminée ou annulée est figée : elle n'est facturée et comptée qu'une fois
+        if ((course.getStatut() == StatutCourse.TERMINEE || course.getStatut() == StatutCourse.ANNULEE)
+                && course.getStatut() != nouveauStatut) {
+            throw new RuntimeException("Impossible de modifier une course terminée ou annulée");
+        }
+
+        // Sans conducteur attribué, la course ne peut qu'attendre ou être annulée
+        if (course.getConducteur() == null
+                && nouveauStatut != StatutCourse.EN_ATTENTE && nouveauStatut != StatutCourse.ANNULEE) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Aucun conducteur n'est attribué à cette course");
+        }
+
         // Gestion des transitions de statut
         if (nouveauStatut == StatutCourse.EN_COURS && course.getStatut() == StatutCourse.ARRIVEE_DEPART) {
             course.setDateDebut(LocalDateTime.now());
+            odometreCourses.demarrer(course.getConducteur().getId(), course.getId());
         } else if (nouveauStatut == StatutCourse.TERMINEE && course.getStatut() == StatutCourse.EN_COURS) {
             course.setDateFin(LocalDateTime.now());
-            course.setMontantFinal(course.getMontantEstime());
+            finaliserMontant(course);
         }
 
+        StatutCourse ancienStatut = course.getStatut();
         course.setStatut(nouveauStatut);
         Course savedCourse = courseRepository.save(course);
+
+        agregatsCoursesService.enregistrerTransition(savedCourse, ancienStatut);
+
+        if (nouveauStatut == StatutCourse.ANNULEE) {
+            eventPublisher.publishEvent(CourseEvenement.de(TypeEvenementCourse.ANNULEE, savedCourse));
+        } else if (ancienStatut != nouveauStatut) {
+            eventPublisher.publishEvent(CourseEvenement.de(TypeEvenementCourse.STATUT_MODIFIE, savedCourse));
+        }
         return convertToResponse(savedCourse);
     }
 
@@ -160,10 +249,10 @@ public class CourseService {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new RuntimeException("Course non trouvée"));
 
-        User currentUser = getCurrentUser();
+        Long currentUserId = utilisateurCourant.id();
 
-        if (!course.getClient().getId().equals(currentUser.getId()) &&
-                (course.getConducteur() == null || !course.getConducteur().getId().equals(currentUser.getId()))) {
+        if (!course.getClient().getId().equals(currentUserId) &&
+                (course.getConducteur() == null || !course.getConducteur().getId().equals(currentUserId))) {
             throw new RuntimeException("Accès non autorisé");
         }
 
@@ -171,25 +260,38 @@ public class CourseService {
             throw new RuntimeException("Impossible d'annuler une course en cours ou terminée");
         }
 
+        if (course.getStatut() == StatutCourse.ANNULEE) {
+            return;
+        }
+
+        StatutCourse ancienStatut = course.getStatut();
         course.setStatut(StatutCourse.ANNULEE);
         courseRepository.save(course);
+        agregatsCoursesService.enregistrerTransition(course, ancienStatut);
+        eventPublisher.publishEvent(CourseEvenement.de(TypeEvenementCourse.ANNULEE, course));
     }
 
     // Méthodes utilitaires
 
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Rayon de la Terre en km
-
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    /**
+     * Montant final calculé sur la distance réellement parcourue ; l'estimation à vol d'oiseau
+     * ne sert que si aucune position exploitable n'a été reçue pendant la course
+     */
+    private void finaliserMontant(Course course) {
+        Optional<OdometreCourses.Releve> releve = odometreCourses.terminer(course);
+        if (releve.isEmpty()) {
+            course.setMontantFinal(course.getMontantEstime());
+            return;
+        }
 
-        return R * c;
+        double distance = releve.get().distanceKm();
+        course.setDistanceReelleKm(distance);
+        double montant = getTarifBase(course.getTypeCourse()) + distance * getTarifParKm(course.getTypeCourse());
+        // Positions trop espacées ou distance bien en deçà de l'estimation : au moins le montant estimé
+        if (!releve.get().fiable() && course.getMontantEstime() != null) {
+            montant = Math.max(montant, course.getMontantEstime());
+        }
+        course.setMontantFinal(montant);
     }
 
     private double getTarifBase(@NotNull(message = "Le type de course est obligatoire") TypeCourse typeCourse) {
@@ -208,6 +310,39 @@ public class CourseService {
         };
     }
 
+    private CourseDTO.CourseResponse convertToResponse(LigneCourseDetaillee ligne) {
+        CourseDTO.CourseResponse response = new CourseDTO.CourseResponse();
+        response.setId(ligne.id());
+        response.setTypeCourse(ligne.typeCourse());
+        response.setAdresseDepart(ligne.adresseDepart());
+        response.setAdresseArrivee(ligne.adresseArrivee());
+        response.setDistanceKm(ligne.distanceKm());
+        response.setDistanceReelleKm(ligne.distanceReelleKm());
+        response.setMontantEstime(ligne.montantEstime());
+        response.setMontantFinal(ligne.montantFinal());
+        response.setStatut(ligne.statut());
+        response.setDateCreation(ligne.dateCreation());
+        response.setDateDebut(ligne.dateDebut());
+        response.setDateFin(ligne.dateFin());
+        response.setDescriptionColis(ligne.descriptionColis());
+        response.setNombrePassagers(ligne.nombrePassagers());
+
+        response.setClient(new CourseDTO.UserDTO(ligne.clientId(), ligne.clientNom(),
+                ligne.clientPrenom(), ligne.clientTelephone(), null));
+
+        if (ligne.conducteurId() != null) {
+            response.setConducteur(new CourseDTO.UserDTO(ligne.conducteurId(), ligne.conducteurNom(),
+                    ligne.conducteurPrenom(), ligne.conducteurTelephone(), ligne.conducteurNoteGlobale()));
+        }
+
+        if (ligne.enginId() != null) {
+            response.setEngin(new CourseDTO.EnginDTO(ligne.enginId(), ligne.enginMarque(),
+                    ligne.enginModele(), ligne.enginCouleur(), ligne.enginMatricule()));
+        }
+
+        return response;
+    }
+
     private CourseDTO.CourseResponse convertToResponse(Course course) {
         CourseDTO.CourseResponse response = new CourseDTO.CourseResponse();
         response.setId(course.getId());
@@ -215,6 +350,7 @@ public class CourseService {
         response.setAdresseDepart(course.getAdresseDepart());
         response.setAdresseArrivee(course.getAdresseArrivee());
         response.setDistanceKm(course.getDistanceKm());
+        response.setDistanceReelleKm(course.getDistanceReelleKm());
         response.setMontantEstime(course.getMontantEstime());
         response.setMontantFinal(course.getMontantFinal());
         response.setStatut(course.getStatut());
@@ -0,0 +1,231 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.Engin;
+import com.lanayago.lanayagobackend.entity.Moto;
+import com.lanayago.lanayagobackend.entity.Voiture;
+import com.lanayago.lanayagobackend.entity.enums.StatutConducteur;
+import com.lanayago.lanayagobackend.entity.enums.StatutEngin;
+import com.lanayago.lanayagobackend.entity.enums.TypeVehicule;
+import com.lanayago.lanayagobackend.event.AbonneEvenementsCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.repository.ConducteurRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Moteur de dispatch : dès qu'une course est créée, les conducteurs proches et compatibles
+ * sont classés puis sollicités par vagues successives, chaque vague expirant après un délai.
+ * Le dispatch s'arrête dès que la course est acceptée ou annulée.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DispatchService implements AbonneEvenementsCourse {
+
+    private final IndexGeoConducteurs indexGeoConducteurs;
+    private final PresenceConducteurs presenceConducteurs;
+    private final ConducteurRepository conducteurRepository;
+    private final NotificationService notificationService;
+
+    @Value("${lanayago.dispatch.rayon-km:5}")
+    private double rayonKm;
+
+    @Value("${lanayago.dispatch.nombre-candidats:20}")
+    private int nombreCandidats;
+
+    @Value("${lanayago.dispatch.taille-vague:3}")
+    private int tailleVague;
+
+    @Value("${lanayago.dispatch.delai-offre:PT15S}")
+    private Duration delaiOffre;
+
+    @Value("${lanayago.dispatch.vitesse-moyenne-kmh:25}")
+    private double vitesseMoyenneKmh;
+
+    // Minutes d'ETA compensées par une étoile de note
+    @Value("${lanayago.dispatch.poids-note:1.0}")
+    private double poidsNote;
+
+    private final Map<Long, Dispatch> dispatchsEnCours = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService planificateur = Executors.newScheduledThreadPool(2,
+            Thread.ofPlatform().name("dispatch-", 0).daemon().factory());
+
+    record Candidat(Long conducteurId, double distanceKm, double score) {
+    }
+
+    private static final class Dispatch {
+        private final CourseEvenement course;
+        // Vide jusqu'au classement, fait sur le planificateur
+        private List<Candidat> candidats = List.of();
+        private int prochain;
+        private volatile ScheduledFuture<?> tache;
+
+        private Dispatch(CourseEvenement course) {
+            this.course = course;
+        }
+
+        private synchronized void classer(List<Candidat> candidats) {
+            this.candidats = candidats;
+        }
+
+        private synchronized List<Candidat> prochaineVague(int taille) {
+            int fin = Math.min(prochain + taille, candidats.size());
+            List<Candidat> vague = candidats.subList(prochain, fin);
+            prochain = fin;
+            return vague;
+        }
+    }
+
+    /**
+     * Une course n'est proposée que par une instance : l'acceptation ou l'annulation relayée ensuite
+     * arrête le dispatch là où il a démarré
+     */
+    @Override
+    public boolean parInstance() {
+        return false;
+    }
+
+    @Override
+    public void surEvenementCourse(CourseEvenement evenement) {
+        switch (evenement.type()) {
+            case CREEE -> {
+                // Enregistré avant d'être planifié : une acceptation relayée entre-temps le retire et
+                // demarrer abandonne. Un événement relayé une seconde fois ne relance pas un dispatch en cours.
+                Dispatch dispatch = new Dispatch(evenement);
+                if (dispatchsEnCours.putIfAbsent(evenement.courseId(), dispatch) == null) {
+                    planificateur.execute(() -> demarrer(dispatch));
+                }
+            }
+            case ACCEPTEE, ANNULEE -> arreter(evenement.courseId());
+        }
+    }
+
+    public boolean estEnCours(Long courseId) {
+        return dispatchsEnCours.containsKey(courseId);
+    }
+
+    private void demarrer(Dispatch dispatch) {
+        CourseEvenement course = dispatch.course;
+        try {
+            if (dispatchsEnCours.get(course.courseId()) != dispatch) {
+                return;
+            }
+
+            List<Candidat> candidats = classerCandidats(course);
+            if (candidats.isEmpty()) {
+                dispatchsEnCours.remove(course.courseId(), dispatch);
+                log.info("Aucun conducteur compatible à moins de {} km pour la course {}", rayonKm, course.courseId());
+                return;
+            }
+
+            dispatch.classer(candidats);
+            envoyerVague(dispatch);
+        } catch (Exception e) {
+            dispatchsEnCours.remove(course.courseId(), dispatch);
+            log.error("Échec du dispatch de la course {}", course.courseId(), e);
+        }
+    }
+
+    List<Candidat> classerCandidats(CourseEvenement course) {
+        if (course.latitudeDepart() == null || course.longitudeDepart() == null) {
+            return List.of();
+        }
+
+        // Seuls les conducteurs disponibles, libres et en ligne comptent parmi les plus proches
+        Map<Long, IndexGeoConducteurs.ConducteurProche> proches = indexGeoConducteurs
+                .rechercherPlusProches(course.latitudeDepart(), course.longitudeDepart(),
+                        rayonKm, nombreCandidats, presenceConducteurs::estSollicitable)
+                .stream()
+                .collect(Collectors.toMap(IndexGeoConducteurs.ConducteurProche::conducteurId, Function.identity()));
+
+        if (proches.isEmpty()) {
+            return List.of();
+        }
+
+        return conducteurRepository.findByIdIn(proches.keySet()).stream()
+                .filter(c -> c.isActif() && c.getStatut() == StatutConducteur.APPROUVE)
+                .filter(c -> enginCompatible(course, c.getEnginActuel()))
+                .map(c -> {
+                    double distance = proches.get(c.getId()).distanceKm();
+                    return new Candidat(c.getId(), distance, score(distance, c));
+                })
+                .sorted(Comparator.comparingDouble(Candidat::score))
+                .toList();
+    }
+
+    private void envoyerVague(Dispatch dispatch) {
+        Long courseId = dispatch.course.courseId();
+        if (dispatchsEnCours.get(courseId) != dispatch) {
+            return;
+        }
+
+        List<Candidat> vague = dispatch.prochaineVague(tailleVague);
+        if (vague.isEmpty()) {
+            dispatchsEnCours.remove(courseId, dispatch);
+            log.info("Course {} : aucun des {} conducteurs sollicités n'a accepté",
+                    courseId, dispatch.candidats.size());
+            return;
+        }
+
+        vague.forEach(c -> notificationService.notifierNouvelleCourse(c.conducteurId(), courseId));
+        dispatch.tache = planificateur.schedule(() -> envoyerVague(dispatch),
+                delaiOffre.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void arreter(Long courseId) {
+        Dispatch dispatch = dispatchsEnCours.remove(courseId);
+        if (dispatch != null && dispatch.tache != null) {
+            dispatch.tache.cancel(false);
+        }
+    }
+
+    /**
+     * Plus le score est bas, mieux le candidat est placé : ETA en minutes, moins un bonus par étoile
+     */
+    private double score(double distanceKm, Conducteur conducteur) {
+        double etaMinutes = distanceKm / vitesseMoyenneKmh * 60;
+        double note = conducteur.getNoteGlobale() != null ? conducteur.getNoteGlobale() : 0.0;
+        return etaMinutes - poidsNote * note;
+    }
+
+    static boolean enginCompatible(CourseEvenement course, Engin engin) {
+        // L'occupation du conducteur est suivie par PresenceConducteurs : seul un engin hors service est écarté
+        if (engin == null || !engin.isActive()
+                || engin.getStatut() == StatutEngin.MAINTENANCE || engin.getStatut() == StatutEngin.INDISPONIBLE) {
+            return false;
+        }
+
+        return switch (course.typeCourse()) {
+            case LIVRAISON_MOTO -> engin instanceof Moto;
+            case TRANSPORT_PERSONNE -> engin instanceof Voiture voiture
+                    && (course.nombrePassagers() == null || voiture.getNombrePlaces() == null
+                    || voiture.getNombrePlaces() >= course.nombrePassagers());
+            case TRANSPORT_MARCHANDISE -> engin instanceof Voiture voiture
+                    && voiture.getTypeVehicule() != TypeVehicule.PERSONNEL
+                    && (course.poidsColis() == null || voiture.getCapaciteChargement() == null
+                    || voiture.getCapaciteChargement() >= course.poidsColis());
+        };
+    }
+
+    @PreDestroy
+    void arreterPlanificateur() {
+        planificateur.shutdownNow();
+    }
+}
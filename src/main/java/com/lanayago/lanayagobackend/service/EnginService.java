@@ -1,5 +1,6 @@
 package com.lanayago.lanayagobackend.service;
 
+import com.lanayago.lanayagobackend.dto.projection.LigneEngin;
 import com.lanayago.lanayagobackend.dto.reponse.*;
 import com.lanayago.lanayagobackend.dto.request.EnginRequest;
 import com.lanayago.lanayagobackend.entity.*;
@@ -7,11 +8,8 @@ import com.lanayago.lanayagobackend.entity.enums.StatutEngin;
 import com.lanayago.lanayagobackend.entity.enums.TypeEngin;
 import com.lanayago.lanayagobackend.repository.ConducteurRepository;
 import com.lanayago.lanayagobackend.repository.EnginRepository;
-import com.lanayago.lanayagobackend.repository.UserRepository;
+import com.lanayago.lanayagobackend.security.UtilisateurCourant;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,19 +21,12 @@ import java.util.stream.Collectors;
 public class EnginService {
 
     private final EnginRepository enginRepository;
-    private final UserRepository userRepository;
+    private final UtilisateurCourant utilisateurCourant;
     private final ConducteurRepository conducteurRepository;
 
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = ((UserDetails) authentication.getPrincipal()).getUsername();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé"));
-    }
-
     @Transactional
     public EnginResponse createEngin(EnginRequest request) {
-        User currentUser = getCurrentUser();
+        User currentUser = utilisateurCourant.utilisateur();
 
         if (!(currentUser instanceof Propriotaire)) {
             throw new RuntimeException("Seuls les propriétaires peuvent créer des engins");
@@ -82,25 +73,25 @@ public class EnginService {
     }
 
     public List<EnginResponse> getMesEngins() {
-        User currentUser = getCurrentUser();
+        User currentUser = utilisateurCourant.utilisateur();
 
         if (!(currentUser instanceof Propriotaire)) {
             throw new RuntimeException("Seuls les propriétaires peuvent consulter leurs engins");
         }
 
-        Propriotaire proprietaire = (Propriotaire) currentUser;
-        List<Engin> engins = enginRepository.findByPropriotaire(proprietaire);
+        List<LigneEngin> engins = enginRepository.findLignesByProprietaireId(currentUser.getId());
 
         return engins.stream()
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public EnginResponse getEnginById(Long id) {
         Engin engin = enginRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Engin non trouvé"));
 
-        User currentUser = getCurrentUser();
+        User currentUser = utilisateurCourant.utilisateur();
 
         if (!(currentUser instanceof Propriotaire) ||
                 !engin.getPropriotaire().getId().equals(currentUser.getId())) {
@@ -115,7 +106,7 @@ public class EnginService {
         Engin engin = enginRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Engin non trouvé"));
 
-        User currentUser = getCurrentUser();
+        User currentUser = utilisateurCourant.utilisateur();
 
         if (!(currentUser instanceof Propriotaire) ||
                 !engin.getPropriotaire().getId().equals(currentUser.getId())) {
@@ -155,7 +146,7 @@ public class EnginService {
         Engin engin = enginRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Engin non trouvé"));
 
-        User currentUser = getCurrentUser();
+        User currentUser = utilisateurCourant.utilisateur();
 
         if (!(currentUser instanceof Propriotaire) ||
                 !engin.getPropriotaire().getId().equals(currentUser.getId())) {
@@ -173,7 +164,7 @@ public class EnginService {
         Engin engin = enginRepository.findById(enginId)
                 .orElseThrow(() -> new RuntimeException("Engin non trouvé"));
 
-        User currentUser = getCurrentUser();
+        User currentUser = utilisateurCourant.utilisateur();
 
         if (!(currentUser instanceof Propriotaire) ||
                 !engin.getPropriotaire().getId().equals(currentUser.getId())) {
@@ -195,7 +186,7 @@ public class EnginService {
         Engin engin = enginRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Engin non trouvé"));
 
-        User currentUser = getCurrentUser();
+        User currentUser = utilisateurCourant.utilisateur();
 
         if (!(currentUser instanceof Propriotaire) ||
                 !engin.getPropriotaire().getId().equals(currentUser.getId())) {
@@ -209,14 +200,40 @@ public class EnginService {
     }
 
     public List<EnginResponse> getEnginsDisponibles() {
-        List<Engin> engins = enginRepository.findByStatut(StatutEngin.DISPONIBLE);
+        List<LigneEngin> engins = enginRepository.findLignesActivesByStatut(StatutEngin.DISPONIBLE);
 
         return engins.stream()
-                .filter(Engin::isActive)
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
     }
 
+    private EnginResponse convertToResponse(LigneEngin engin) {
+        EnginResponse response = new EnginResponse();
+        response.setId(engin.id());
+        response.setTypeEngin(engin.typeEngin());
+        response.setMarque(engin.marque());
+        response.setModele(engin.modele());
+        response.setCouleur(engin.couleur());
+        response.setMatricule(engin.matricule());
+        response.setAnnee(engin.annee());
+        response.setPhotoEngin(engin.photoEngin());
+        response.setStatut(engin.statut());
+        response.setActive(engin.active());
+
+        // Propriétaire
+        response.setProprietaire(new EnginResponse.ProprietaireDTO(engin.proprietaireId(),
+                engin.proprietaireNom(), engin.proprietairePrenom(), engin.proprietaireTelephone()));
+
+        // Spécifique au type d'engin
+        response.setCylindree(engin.cylindree());
+        response.setTypeMoto(engin.typeMoto());
+        response.setTypeVehicule(engin.typeVehicule());
+        response.setNombrePlaces(engin.nombrePlaces());
+        response.setCapaciteChargement(engin.capaciteChargement());
+
+        return response;
+    }
+
     private EnginResponse convertToResponse(Engin engin) {
         EnginResponse response = new EnginResponse();
         response.setId(engin.getId());
@@ -0,0 +1,273 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.dto.projection.LigneCourseEnAttente;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.event.AbonneEvenementsCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import com.lanayago.lanayagobackend.util.RoueTemporelle;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Annulation des courses restées EN_ATTENTE au-delà d'un délai propre à chaque type de course.
+ *
+ * Chaque course créée est rangée dans une {@link RoueTemporelle} à son échéance et en sort dès
+ * qu'elle est acceptée ou annulée. Un balayage périodique de l'index (statut, date_creation)
+ * rattrape les échéances que la roue n'a pas vues : redémarrage, événement relayé par une autre
+ * instance. Les courses échues passent à ANNULEE par lots, un UPDATE par lot, avec leur
+ * événement d'annulation et leurs cumuls.
+ */
+@Slf4j
+@Service
+public class ExpirationCourses implements AbonneEvenementsCourse {
+
+    private final CourseRepository courseRepository;
+    private final AgregatsCoursesService agregatsCoursesService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<TypeCourse, Duration> delais = new EnumMap<>(TypeCourse.class);
+    private final Duration intervalleBalayage;
+    private final int tailleLot;
+    private final long dureeCaseMs;
+    private final RoueTemporelle<Long> roue;
+
+    // Échéance de chaque course en attente connue de cette instance
+    private final Map<Long, Long> echeances = new ConcurrentHashMap<>();
+
+    private final LongAdder expirees = new LongAdder();
+
+    private final ScheduledExecutorService planificateur = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("expiration-courses").daemon().factory());
+
+    public ExpirationCourses(CourseRepository courseRepository,
+                             AgregatsCoursesService agregatsCoursesService,
+                             ApplicationEventPublisher eventPublisher,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${lanayago.courses.expiration.livraison-moto:PT15M}") Duration delaiLivraisonMoto,
+                             @Value("${lanayago.courses.expiration.transport-personne:PT10M}") Duration delaiTransportPersonne,
+                             @Value("${lanayago.courses.expiration.transport-marchandise:PT1H}") Duration delaiTransportMarchandise,
+                             @Value("${lanayago.courses.expiration.balayage:PT5M}") Duration intervalleBalayage,
+                             @Value("${lanayago.courses.expiration.taille-lot:200}") int tailleLot,
+                             @Value("${lanayago.courses.expiration.roue.duree-case:PT1S}") Duration dureeCase,
+                             @Value("${lanayago.courses.expiration.roue.nombre-cases:1024}") int nombreCases) {
+        this.courseRepository = courseRepository;
+        this.agregatsCoursesService = agregatsCoursesService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.delais.put(TypeCourse.LIVRAISON_MOTO, delaiLivraisonMoto);
+        this.delais.put(TypeCourse.TRANSPORT_PERSONNE, delaiTransportPersonne);
+        this.delais.put(TypeCourse.TRANSPORT_MARCHANDISE, delaiTransportMarchandise);
+        this.intervalleBalayage = intervalleBalayage;
+        this.tailleLot = tailleLot;
+        this.roue = new RoueTemporelle<>(dureeCase, nombreCases, System.currentTimeMillis());
+        this.dureeCaseMs = dureeCase.toMillis();
+    }
+
+    @PostConstruct
+    void demarrer() {
+        planificateur.scheduleAtFixedRate(this::avancer, dureeCaseMs, dureeCaseMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reprise au démarrage, une fois l'outbox prête à recevoir les événements d'annulation :
+     * les courses échues pendant l'arrêt sont annulées, les autres rangées dans la roue
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void reprendre() {
+        planificateur.execute(() -> {
+            balayer();
+            charger();
+        });
+        planificateur.scheduleWithFixedDelay(this::balayer, intervalleBalayage.toMillis(),
+                intervalleBalayage.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Une création rejouée ne fait que replacer l'échéance : l'annulation revérifie le statut sous verrou
+     */
+    @Override
+    public boolean accepteRejeu() {
+        return true;
+    }
+
+    @Override
+    public void surEvenementCourse(CourseEvenement evenement) {
+        switch (evenement.type()) {
+            case CREEE -> planifier(evenement.courseId(), evenement.typeCourse(), evenement.horodatage());
+            case ACCEPTEE, ANNULEE -> echeances.remove(evenement.courseId());
+            default -> {
+            }
+        }
+    }
+
+    private void planifier(Long courseId, TypeCourse typeCourse, LocalDateTime dateCreation) {
+        long echeance = instant(dateCreation) + delais.get(typeCourse).toMillis();
+        if (echeances.put(courseId, echeance) == null) {
+            roue.planifier(courseId, echeance);
+        }
+    }
+
+    /**
+     * Courses en attente encore dans leur délai, après un redémarrage
+     */
+    private void charger() {
+        try {
+            LocalDateTime depuis = LocalDateTime.now().minus(Collections.max(delais.values()));
+            List<LigneCourseEnAttente> lignes = courseRepository.findLignesEnAttenteDepuis(depuis);
+            lignes.forEach(l -> planifier(l.id(), l.typeCourse(), l.dateCreation()));
+            log.info("{} courses en attente rangées dans la roue d'expiration", lignes.size());
+        } catch (RuntimeException e) {
+            log.error("Échec du chargement des courses en attente", e);
+        }
+    }
+
+    void avancer() {
+        try {
+            long maintenant = System.currentTimeMillis();
+            List<Long> echues = new ArrayList<>();
+            roue.avancer(maintenant, courseId -> {
+                Long echeance = echeances.get(courseId);
+                if (echeance == null) {
+                    return;
+                }
+                if (echeance > maintenant) {
+                    // Planifiée plus d'un tour à l'avance : la case revient au tour suivant
+                    roue.planifier(courseId, echeance);
+                } else {
+                    echues.add(courseId);
+                }
+            });
+
+            for (int debut = 0; debut < echues.size(); debut += tailleLot) {
+                expirer(echues.subList(debut, Math.min(debut + tailleLot, echues.size())));
+            }
+        } catch (RuntimeException e) {
+            // Une exception non rattrapée arrêterait la planification : plus aucune course n'expirerait
+            log.error("Erreur inattendue dans la roue d'expiration des courses", e);
+        }
+    }
+
+    /**
+     * Annule, type par type, les courses en attente créées avant leur délai ; retourne leur nombre
+     */
+    int balayer() {
+        int total = 0;
+        try {
+            for (Map.Entry<TypeCourse, Duration> delai : delais.entrySet()) {
+                LocalDateTime limite = LocalDateTime.now().minus(delai.getValue());
+                List<Long> ids;
+                do {
+                    ids = courseRepository.findIdsEnAttenteCreesAvant(delai.getKey(), limite, PageRequest.of(0, tailleLot));
+                    int annulees = expirer(ids);
+                    total += annulees;
+                    if (annulees == 0) {
+                        break;
+                    }
+                } while (ids.size() == tailleLot);
+            }
+        } catch (RuntimeException e) {
+            log.error("Échec du balayage des courses en attente", e);
+        }
+        if (total > 0) {
+            log.info("Balayage : {} courses en attente expirées", total);
+        }
+        return total;
+    }
+
+    /**
+     * Annule en une transaction celles des courses encore en attente, un UPDATE pour tout le lot
+     */
+    int expirer(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        Integer annulees = transactionTemplate.execute(tx -> {
+            List<Long> verrouillees = courseRepository.verrouillerEnAttente(ids);
+            if (verrouillees.isEmpty()) {
+                return 0;
+            }
+
+            List<LigneCourseEnAttente> lignes = courseRepository.findLignesEnAttenteByIdIn(verrouillees);
+            courseRepository.annulerParIds(verrouillees);
+
+            Map<TypeCourse, List<LocalDateTime>> parType = lignes.stream().collect(Collectors.groupingBy(
+                    LigneCourseEnAttente::typeCourse, () -> new EnumMap<>(TypeCourse.class),
+                    Collectors.mapping(LigneCourseEnAttente::dateCreation, Collectors.toList())));
+            parType.forEach(agregatsCoursesService::enregistrerAnnulations);
+
+            LocalDateTime maintenant = LocalDateTime.now();
+            lignes.forEach(ligne -> eventPublisher.publishEvent(annulation(ligne, maintenant)));
+            return lignes.size();
+        });
+
+        ids.forEach(echeances::remove);
+        expirees.add(annulees);
+        return annulees;
+    }
+
+    public Map<String, Object> metriques() {
+        Map<String, Object> metriques = new HashMap<>();
+        metriques.put("enAttente", echeances.size());
+        metriques.put("expirees", expirees.sum());
+        return metriques;
+    }
+
+    private static CourseEvenement annulation(LigneCourseEnAttente ligne, LocalDateTime horodatage) {
+        return new CourseEvenement(
+                TypeEvenementCourse.ANNULEE,
+                ligne.id(),
+                ligne.typeCourse(),
+                StatutCourse.ANNULEE,
+                ligne.clientId(),
+                null,
+                ligne.adresseDepart(),
+                ligne.adresseArrivee(),
+                ligne.latitudeDepart(),
+                ligne.longitudeDepart(),
+                ligne.distanceKm(),
+                ligne.montantEstime(),
+                ligne.nombrePassagers(),
+                ligne.poidsColis(),
+                horodatage
+        );
+    }
+
+    private static long instant(LocalDateTime date) {
+        return (date != null ? date : LocalDateTime.now()).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @PreDestroy
+    void fermer() {
+        planificateur.shutdownNow();
+    }
+}
@@ -0,0 +1,186 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lanayago.lanayagobackend.dto.projection.LigneExportCourse;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Export intégral des courses, écrit ligne à ligne dans la réponse.
+ *
+ * Les lignes sont lues par un curseur JDBC en avant seulement et projetées à plat :
+ * la mémoire consommée ne dépend pas du nombre de courses exportées.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportCoursesService {
+
+    private static final String REQUETE = "SELECT new com.lanayago.lanayagobackend.dto.projection.LigneExportCourse(" +
+            "c.id, c.typeCourse, c.statut, c.client.id, c.conducteur.id, c.adresseDepart, c.adresseArrivee, " +
+            "c.distanceKm, c.montantEstime, c.montantFinal, c.dateCreation, c.dateDebut, c.dateFin) " +
+            "FROM Course c " +
+            "WHERE (:statut IS NULL OR c.statut = :statut) " +
+            "AND (:typeCourse IS NULL OR c.typeCourse = :typeCourse) " +
+            "AND (:depuis IS NULL OR c.dateCreation >= :depuis) " +
+            "AND (:jusqua IS NULL OR c.dateCreation < :jusqua) " +
+            "ORDER BY c.id";
+
+    private static final String ENTETE_CSV = "id,typeCourse,statut,clientId,conducteurId,adresseDepart," +
+            "adresseArrivee,distanceKm,montantEstime,montantFinal,dateCreation,dateDebut,dateFin";
+
+    // Lignes écrites entre deux vidages du tampon vers le client
+    private static final int LIGNES_PAR_ENVOI = 500;
+
+    public enum FormatExport {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String typeMime;
+        private final String extension;
+
+        FormatExport(String typeMime, String extension) {
+            this.typeMime = typeMime;
+            this.extension = extension;
+        }
+
+        public String getTypeMime() {
+            return typeMime;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    // Integer.MIN_VALUE : le pilote MySQL transmet les lignes une à une au lieu de charger tout le résultat
+    @Value("${lanayago.export.taille-lot-jdbc:-2147483648}")
+    private int tailleLotJdbc;
+
+    /**
+     * Écrit toutes les courses correspondant aux filtres. La transaction reste ouverte pendant
+     * toute l'écriture : la méthode doit être appelée depuis le thread qui écrit la réponse.
+     */
+    @Transactional(readOnly = true)
+    public long exporter(StatutCourse statut, TypeCourse typeCourse,
+                         LocalDateTime depuis, LocalDateTime jusqua,
+                         FormatExport format, OutputStream sortie) throws IOException {
+        TypedQuery<LigneExportCourse> requete = entityManager.createQuery(REQUETE, LigneExportCourse.class)
+                .setParameter("statut", statut)
+                .setParameter("typeCourse", typeCourse)
+                .setParameter("depuis", depuis)
+                .setParameter("jusqua", jusqua)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, tailleLotJdbc)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8));
+        long nombre = 0;
+
+        if (format == FormatExport.CSV) {
+            writer.write(ENTETE_CSV);
+            writer.write('\n');
+        }
+
+        try (Stream<LigneExportCourse> lignes = requete.getResultStream()) {
+            Iterator<LigneExportCourse> iterateur = lignes.iterator();
+            while (iterateur.hasNext()) {
+                LigneExportCourse ligne = iterateur.next();
+                if (format == FormatExport.CSV) {
+                    ecrireCsv(writer, ligne);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(ligne));
+                    writer.write('\n');
+                }
+
+                if (++nombre % LIGNES_PAR_ENVOI == 0) {
+                    writer.flush();
+                }
+            }
+        }
+
+        writer.flush();
+        log.info("Export {} de {} courses terminé", format, nombre);
+        return nombre;
+    }
+
+    private void ecrireCsv(Writer writer, LigneExportCourse ligne) throws IOException {
+        writer.write(String.valueOf(ligne.id()));
+        writer.write(',');
+        writer.write(valeurCsv(ligne.typeCourse()));
+        writer.write(',');
+        writer.write(valeurCsv(ligne.statut()));
+        writer.write(',');
+        writer.write(valeurCsv(ligne.clientId()));
+        writer.write(',');
+        writer.write(valeurCsv(ligne.conducteurId()));
+        writer.write(',');
+        writer.write(valeurCsv(ligne.adresseDepart()));
+        writer.write(',');
+        writer.write(valeurCsv(ligne.adresseArrivee()));
+        writer.write(',');
+        writer.write(valeurCsv(ligne.distanceKm()));
+        writer.write(',');
+        writer.write(valeurCsv(ligne.montantEstime()));
+        writer.write(',');
+        writer.write(valeurCsv(ligne.montantFinal()));
+        writer.write(',');
+        writer.write(valeurCsv(ligne.dateCreation()));
+        writer.write(',');
+        writer.write(valeurCsv(ligne.dateDebut()));
+        writer.write(',');
+        writer.write(valeurCsv(ligne.dateFin()));
+        writer.write('\n');
+    }
+
+    /**
+     * Échappement RFC 4180 : guillemets autour des valeurs contenant un séparateur, guillemets doublés.
+     * Un texte saisi qui commence comme une formule (=, +, -, @, tabulation, retour chariot) est préfixé
+     * d'une apostrophe pour que le tableur l'affiche au lieu de l'évaluer ; les nombres restent intacts.
+     */
+    static String valeurCsv(Object valeur) {
+        if (valeur == null) {
+            return "";
+        }
+
+        String texte = valeur.toString();
+        if (valeur instanceof CharSequence && commeUneFormule(texte)) {
+            texte = "'" + texte;
+        }
+        if (texte.indexOf(',') < 0 && texte.indexOf('"') < 0 && texte.indexOf('\n') < 0 && texte.indexOf('\r') < 0) {
+            return texte;
+        }
+        return '"' + texte.replace("\"", "\"\"") + '"';
+    }
+
+    private static boolean commeUneFormule(String texte) {
+        if (texte.isEmpty()) {
+            return false;
+        }
+        char premier = texte.charAt(0);
+        return premier == '=' || premier == '+' || premier == '-' || premier == '@' || premier == '\t' || premier == '\r';
+    }
+}
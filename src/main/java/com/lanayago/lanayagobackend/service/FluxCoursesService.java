@@ -0,0 +1,253 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.event.AbonneEvenementsCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Flux SSE des courses disponibles : chaque conducteur abonné reçoit uniquement les événements
+ * (nouvelle course, course prise, course annulée) dont le point de départ est proche de sa dernière position.
+ * Chaque abonné a sa file bornée et son propre envoi : un client lent est déconnecté, les autres ne l'attendent pas.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FluxCoursesService implements AbonneEvenementsCourse {
+
+    private final IndexGeoConducteurs indexGeoConducteurs;
+
+    @Value("${lanayago.flux.rayon-km:5}")
+    private double rayonKm;
+
+    @Value("${lanayago.flux.destinataires-max:200}")
+    private int destinatairesMax;
+
+    @Value("${lanayago.flux.delai-connexion:PT30M}")
+    private Duration delaiConnexion;
+
+    // Événements en attente par abonné ; au-delà, l'abonné est déconnecté et se reconnectera
+    @Value("${lanayago.flux.file-max:64}")
+    private int fileMax;
+
+    @Value("${lanayago.flux.delai-envoi:PT10S}")
+    private Duration delaiEnvoi;
+
+    private final Map<Long, Abonnement> abonnes = new ConcurrentHashMap<>();
+    private final LongAdder deconnexionsLents = new LongAdder();
+
+    // Les envois se font hors du thread qui valide la transaction : un client lent ne ralentit pas l'API
+    private final ScheduledExecutorService diffuseur = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("flux-courses").daemon().factory());
+
+    // Un thread virtuel par file en cours d'envoi : une écriture bloquée n'immobilise que son abonné
+    private final ExecutorService envois = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("flux-courses-envoi-", 0).factory());
+
+    /**
+     * Connexion d'un conducteur : ses événements en attente, vidés par un seul envoi à la fois
+     */
+    private final class Abonnement {
+        final Long conducteurId;
+        final SseEmitter emitter;
+        final BlockingQueue<SseEmitter.SseEventBuilder> file = new ArrayBlockingQueue<>(fileMax);
+        final AtomicBoolean enEnvoi = new AtomicBoolean();
+        // Début de l'écriture en cours, 0 hors écriture
+        volatile long envoiDepuisNs;
+
+        Abonnement(Long conducteurId, SseEmitter emitter) {
+            this.conducteurId = conducteurId;
+            this.emitter = emitter;
+        }
+    }
+
+    public record EvenementFlux(
+            TypeEvenementCourse type,
+            Long courseId,
+            TypeCourse typeCourse,
+            String adresseDepart,
+            String adresseArrivee,
+            Double latitudeDepart,
+            Double longitudeDepart,
+            Double distanceKm,
+            Double montantEstime,
+            double distanceConducteurKm
+    ) {
+    }
+
+    public SseEmitter abonner(Long conducteurId) {
+        return abonner(conducteurId, new SseEmitter(delaiConnexion.toMillis()));
+    }
+
+    SseEmitter abonner(Long conducteurId, SseEmitter emitter) {
+        Abonnement abonnement = new Abonnement(conducteurId, emitter);
+        emitter.onCompletion(() -> abonnes.remove(conducteurId, abonnement));
+        emitter.onTimeout(() -> abonnes.remove(conducteurId, abonnement));
+        emitter.onError(e -> abonnes.remove(conducteurId, abonnement));
+
+        Abonnement precedent = abonnes.put(conducteurId, abonnement);
+        if (precedent != null) {
+            // Fermeture hors du thread de la requête : elle attend la fin d'une écriture éventuellement bloquée
+            envois.execute(precedent.emitter::complete);
+        }
+        return emitter;
+    }
+
+    public int nombreAbonnes() {
+        return abonnes.size();
+    }
+
+    public Map<String, Object> metriques() {
+        Map<String, Object> metriques = new HashMap<>();
+        metriques.put("abonnes", abonnes.size());
+        metriques.put("deconnexionsLents", deconnexionsLents.sum());
+        return metriques;
+    }
+
+    @Override
+    public void surEvenementCourse(CourseEvenement evenement) {
+        // Le flux ne suit que l'apparition et la disparition des courses disponibles
+        if (evenement.type() == TypeEvenementCourse.STATUT_MODIFIE) {
+            return;
+        }
+        if (abonnes.isEmpty() || evenement.latitudeDepart() == null || evenement.longitudeDepart() == null) {
+            return;
+        }
+        diffuseur.execute(() -> diffuser(evenement));
+    }
+
+    private void diffuser(CourseEvenement evenement) {
+        List<IndexGeoConducteurs.ConducteurProche> destinataires = indexGeoConducteurs.rechercherPlusProches(
+                evenement.latitudeDepart(), evenement.longitudeDepart(),
+                rayonKm, destinatairesMax, abonnes::containsKey);
+
+        for (IndexGeoConducteurs.ConducteurProche destinataire : destinataires) {
+            Abonnement abonnement = abonnes.get(destinataire.conducteurId());
+            if (abonnement == null) {
+                continue;
+            }
+
+            EvenementFlux donnees = new EvenementFlux(
+                    evenement.type(),
+                    evenement.courseId(),
+                    evenement.typeCourse(),
+                    evenement.adresseDepart(),
+                    evenement.adresseArrivee(),
+                    evenement.latitudeDepart(),
+                    evenement.longitudeDepart(),
+                    evenement.distanceKm(),
+                    evenement.montantEstime(),
+                    destinataire.distanceKm()
+            );
+
+            publier(abonnement, SseEmitter.event()
+                    .name(evenement.type().name())
+                    .id(String.valueOf(evenement.courseId()))
+                    .data(donnees));
+        }
+    }
+
+    /**
+     * Commentaire SSE périodique pour que les proxies ne coupent pas les connexions inactives,
+     * et déconnexion des abonnés dont l'écriture en cours dépasse le délai d'envoi
+     */
+    @PostConstruct
+    void demarrerBattements() {
+        diffuseur.scheduleAtFixedRate(() -> {
+            verifierEnvois();
+            abonnes.values().forEach(abonnement -> publier(abonnement, SseEmitter.event().comment("ping")));
+        }, 25, 25, TimeUnit.SECONDS);
+    }
+
+    void verifierEnvois() {
+        long limite = System.nanoTime() - delaiEnvoi.toNanos();
+        abonnes.values().forEach(abonnement -> {
+            long depuis = abonnement.envoiDepuisNs;
+            if (depuis != 0 && depuis - limite < 0) {
+                deconnecterLent(abonnement, "envoi bloqué depuis plus de " + delaiEnvoi.toSeconds() + " s");
+            }
+        });
+    }
+
+    private void publier(Abonnement abonnement, SseEmitter.SseEventBuilder evenement) {
+        if (!abonnement.file.offer(evenement)) {
+            deconnecterLent(abonnement, "file pleine");
+            return;
+        }
+        if (abonnement.enEnvoi.compareAndSet(false, true)) {
+            envois.execute(() -> vider(abonnement));
+        }
+    }
+
+    /**
+     * Envoie la file d'un abonné jusqu'à la vider ; un seul appel actif par abonné grâce à enEnvoi
+     */
+    private void vider(Abonnement abonnement) {
+        do {
+            SseEmitter.SseEventBuilder evenement;
+            while ((evenement = abonnement.file.poll()) != null) {
+                if (!envoyer(abonnement, evenement)) {
+                    abonnement.file.clear();
+                    break;
+                }
+            }
+            abonnement.enEnvoi.set(false);
+            // Événement publié entre le dernier poll et la remise à false : on reprend la main si personne ne l'a fait
+        } while (!abonnement.file.isEmpty() && abonnement.enEnvoi.compareAndSet(false, true));
+    }
+
+    private boolean envoyer(Abonnement abonnement, SseEmitter.SseEventBuilder evenement) {
+        abonnement.envoiDepuisNs = System.nanoTime();
+        try {
+            abonnement.emitter.send(evenement);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Flux du conducteur {} fermé : {}", abonnement.conducteurId, e.getMessage());
+            abonnes.remove(abonnement.conducteurId, abonnement);
+            abonnement.emitter.completeWithError(e);
+            return false;
+        } finally {
+            abonnement.envoiDepuisNs = 0;
+        }
+    }
+
+    private void deconnecterLent(Abonnement abonnement, String raison) {
+        if (abonnes.remove(abonnement.conducteurId, abonnement)) {
+            deconnexionsLents.increment();
+            log.debug("Flux du conducteur {} coupé : {}", abonnement.conducteurId, raison);
+            abonnement.file.clear();
+            // complete() attend la fin de l'écriture bloquée : le diffuseur ne doit pas l'attendre
+            envois.execute(abonnement.emitter::complete);
+        }
+    }
+
+    @PreDestroy
+    void fermer() {
+        diffuseur.shutdownNow();
+        envois.shutdownNow();
+        abonnes.values().forEach(abonnement -> abonnement.emitter.complete());
+        abonnes.clear();
+    }
+}
@@ -0,0 +1,227 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.util.GeoUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Index spatial en mémoire de la dernière position connue de chaque conducteur approuvé.
+ *
+ * Les positions sont rangées dans une grille de cellules de {@link #TAILLE_CELLULE_DEG} degrés.
+ * Chaque cellule est un ensemble concurrent : une mise à jour ne verrouille que les cellules
+ * quittée et rejointe, jamais l'index entier, et aucune position n'est écrite en base.
+ * Les positions trop anciennes sont purgées périodiquement ; la grille fait le tour de l'antiméridien.
+ */
+@Component
+public class IndexGeoConducteurs {
+
+    // ~1,1 km en latitude : une recherche à 5 km parcourt une centaine de cellules
+    static final double TAILLE_CELLULE_DEG = 0.01;
+
+    private static final long LARGEUR_GRILLE = 100_000L;
+    private static final long COLONNES = Math.round(360 / TAILLE_CELLULE_DEG);
+
+    private final ConcurrentHashMap<Long, PositionConducteur> positions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Long>> cellules = new ConcurrentHashMap<>();
+
+    private final long ageMaxPositionMs;
+    private final double rayonMaxKm;
+
+    public IndexGeoConducteurs(
+            @Value("${lanayago.geo.age-max-position:PT2M}") Duration ageMaxPosition,
+            @Value("${lanayago.geo.rayon-max-km:50}") double rayonMaxKm) {
+        this.ageMaxPositionMs = ageMaxPosition.toMillis();
+        this.rayonMaxKm = rayonMaxKm;
+    }
+
+    public record PositionConducteur(Long conducteurId, double latitude, double longitude,
+                                     long cellule, long horodatage) {
+    }
+
+    public record ConducteurProche(Long conducteurId, double latitude, double longitude, double distanceKm) {
+    }
+
+    /**
+     * Enregistre la dernière position d'un conducteur
+     */
+    public void mettreAJour(Long conducteurId, double latitude, double longitude) {
+        long cellule = cellule(latitude, longitude);
+        PositionConducteur nouvelle = new PositionConducteur(
+                conducteurId, latitude, longitude, cellule, System.currentTimeMillis());
+        PositionConducteur ancienne = positions.put(conducteurId, nouvelle);
+
+        if (ancienne == null || ancienne.cellule() != cellule) {
+            ajouterDansCellule(cellule, conducteurId);
+            if (ancienne != null) {
+                retirerDeCellule(ancienne.cellule(), conducteurId);
+            }
+        }
+    }
+
+    /**
+     * Retire un conducteur de l'index (suspension, blocage, déconnexion)
+     */
+    public void retirer(Long conducteurId) {
+        PositionConducteur ancienne = positions.remove(conducteurId);
+        if (ancienne != null) {
+            retirerDeCellule(ancienne.cellule(), conducteurId);
+        }
+    }
+
+    public Optional<PositionConducteur> getPosition(Long conducteurId) {
+        PositionConducteur position = positions.get(conducteurId);
+        return estRecente(position, System.currentTimeMillis()) ? Optional.of(position) : Optional.empty();
+    }
+
+    public int taille() {
+        return positions.size();
+    }
+
+    /**
+     * Retire les positions plus anciennes que l'âge maximal (conducteurs déconnectés sans prévenir)
+     * et les entrées de cellule orphelines laissées par des mises à jour concurrentes
+     *
+     * @return nombre de positions retirées
+     */
+    @Scheduled(fixedDelayString = "${lanayago.geo.purge:PT1M}", initialDelayString = "${lanayago.geo.purge:PT1M}")
+    public int purgerPerimees() {
+        long maintenant = System.currentTimeMillis();
+        int retirees = 0;
+        for (PositionConducteur position : positions.values()) {
+            // remove(clé, valeur) : une position reçue entre-temps n'est pas retirée
+            if (!estRecente(position, maintenant) && positions.remove(position.conducteurId(), position)) {
+                retirerDeCellule(position.cellule(), position.conducteurId());
+                retirees++;
+            }
+        }
+        cellules.forEach((cle, membres) -> membres.forEach(conducteurId -> {
+            PositionConducteur position = positions.get(conducteurId);
+            if (position == null || position.cellule() != cle) {
+                retirerDeCellule(cle, conducteurId);
+                // Revenu dans cette cellule pendant la vérification : on le remet
+                PositionConducteur actuelle = positions.get(conducteurId);
+                if (actuelle != null && actuelle.cellule() == cle) {
+                    ajouterDansCellule(cle, conducteurId);
+                }
+            }
+        }));
+        return retirees;
+    }
+
+    /**
+     * Les k conducteurs les plus proches dans un rayon donné, triés par distance croissante.
+     * Le filtre permet d'exclure les conducteurs indisponibles.
+     */
+    public List<ConducteurProche> rechercherPlusProches(double latitude, double longitude,
+                                                        double rayonKm, int k,
+                                                        Predicate<Long> filtre) {
+        if (k <= 0) {
+            return List.of();
+        }
+
+        double rayon = Math.min(rayonKm, rayonMaxKm);
+        double deltaLat = GeoUtils.degresLatitude(rayon);
+        double deltaLon = GeoUtils.degresLongitude(rayon, latitude);
+
+        long latMin = indexLatitude(latitude - deltaLat);
+        long latMax = indexLatitude(latitude + deltaLat);
+        // Colonnes non repliées : le parcours passe l'antiméridien, ou fait le tour complet près des pôles
+        long lonMin = (long) Math.floor((longitude - deltaLon + 180) / TAILLE_CELLULE_DEG);
+        long lonMax = (long) Math.floor((longitude + deltaLon + 180) / TAILLE_CELLULE_DEG);
+        if (lonMax - lonMin >= COLONNES) {
+            lonMin = 0;
+            lonMax = COLONNES - 1;
+        }
+
+        long maintenant = System.currentTimeMillis();
+
+        // Tas max borné à k éléments : la tête est le candidat le plus éloigné retenu
+        PriorityQueue<ConducteurProche> meilleurs = new PriorityQueue<>(
+                k, Comparator.comparingDouble(ConducteurProche::distanceKm).reversed());
+
+        for (long latIdx = latMin; latIdx <= latMax; latIdx++) {
+            for (long lonIdx = lonMin; lonIdx <= lonMax; lonIdx++) {
+                long cle = latIdx * LARGEUR_GRILLE + Math.floorMod(lonIdx, COLONNES);
+                Set<Long> membres = cellules.get(cle);
+                if (membres == null) {
+                    continue;
+                }
+
+                for (Long conducteurId : membres) {
+                    PositionConducteur position = positions.get(conducteurId);
+                    // Une entrée peut être périmée le temps d'un changement de cellule
+                    if (position == null || position.cellule() != cle || !estRecente(position, maintenant)) {
+                        continue;
+                    }
+
+                    double distance = GeoUtils.distanceKm(latitude, longitude,
+                            position.latitude(), position.longitude());
+                    if (distance > rayon) {
+                        continue;
+                    }
+                    if (meilleurs.size() == k && distance >= meilleurs.peek().distanceKm()) {
+                        continue;
+                    }
+                    if (filtre != null && !filtre.test(conducteurId)) {
+                        continue;
+                    }
+
+                    meilleurs.offer(new ConducteurProche(conducteurId,
+                            position.latitude(), position.longitude(), distance));
+                    if (meilleurs.size() > k) {
+                        meilleurs.poll();
+                    }
+                }
+            }
+        }
+
+        List<ConducteurProche> resultat = new ArrayList<>(meilleurs);
+        resultat.sort(Comparator.comparingDouble(ConducteurProche::distanceKm));
+        return resultat;
+    }
+
+    // ==================== Méthodes utilitaires ====================
+
+    private boolean estRecente(PositionConducteur position, long maintenant) {
+        return position != null && maintenant - position.horodatage() <= ageMaxPositionMs;
+    }
+
+    private void ajouterDansCellule(long cellule, Long conducteurId) {
+        cellules.compute(cellule, (cle, membres) -> {
+            Set<Long> ensemble = membres != null ? membres : ConcurrentHashMap.newKeySet();
+            ensemble.add(conducteurId);
+            return ensemble;
+        });
+    }
+
+    private void retirerDeCellule(long cellule, Long conducteurId) {
+        cellules.computeIfPresent(cellule, (cle, membres) -> {
+            membres.remove(conducteurId);
+            return membres.isEmpty() ? null : membres;
+        });
+    }
+
+    static long cellule(double latitude, double longitude) {
+        return indexLatitude(latitude) * LARGEUR_GRILLE + indexLongitude(longitude);
+    }
+
+    private static long indexLatitude(double latitude) {
+        return (long) Math.floor((Math.max(-90, Math.min(90, latitude)) + 90) / TAILLE_CELLULE_DEG);
+    }
+
+    // 180° et -180° tombent dans la même colonne
+    private static long indexLongitude(double longitude) {
+        return Math.floorMod((long) Math.floor((longitude + 180) / TAILLE_CELLULE_DEG), COLONNES);
+    }
+}
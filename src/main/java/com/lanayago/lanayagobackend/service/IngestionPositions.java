@@ -0,0 +1,88 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.util.CodecTrace;
+import com.lanayago.lanayagobackend.util.GeoUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Point d'entrée unique des positions conducteur, reçues une à une ou par lots : présence, index
+ * spatial, trace de la course et compteur kilométrique. Aucune transaction n'est ouverte et rien n'est
+ * écrit en base de façon synchrone.
+ */
+@Service
+@RequiredArgsConstructor
+public class IngestionPositions {
+
+    private final IndexGeoConducteurs indexGeoConducteurs;
+    private final TracesCoursesService tracesCoursesService;
+    private final OdometreCourses odometreCourses;
+    private final PresenceConducteurs presenceConducteurs;
+
+    // Fix plus ancien : resté trop longtemps dans le téléphone pour servir au dispatch ou à la facturation
+    @Value("${lanayago.positions.age-max:PT10M}")
+    private Duration ageMax;
+
+    // Tolérance sur l'avance de l'horloge du téléphone
+    @Value("${lanayago.positions.avance-max:PT1M}")
+    private Duration avanceMax;
+
+    public record Bilan(int acceptees, int rejetees) {
+    }
+
+    /**
+     * Enregistre un fix ; faux s'il est écarté (coordonnées invalides, horodatage hors fenêtre)
+     */
+    public boolean ingerer(Long conducteurId, CodecTrace.Point point) {
+        if (!estValide(point, System.currentTimeMillis())) {
+            return false;
+        }
+        presenceConducteurs.signalerPresence(conducteurId);
+        indexGeoConducteurs.mettreAJour(conducteurId, point.latitude(), point.longitude());
+        suivre(conducteurId, point);
+        return true;
+    }
+
+    /**
+     * Enregistre un lot de fixes dans l'ordre chronologique ; l'index spatial ne reçoit que le plus récent
+     */
+    public Bilan ingererLot(Long conducteurId, List<CodecTrace.Point> points) {
+        long maintenant = System.currentTimeMillis();
+        List<CodecTrace.Point> valides = new ArrayList<>(points.size());
+        for (CodecTrace.Point point : points) {
+            if (estValide(point, maintenant)) {
+                valides.add(point);
+            }
+        }
+        if (valides.isEmpty()) {
+            return new Bilan(0, points.size());
+        }
+
+        valides.sort(Comparator.comparingLong(CodecTrace.Point::horodatage));
+        for (CodecTrace.Point point : valides) {
+            suivre(conducteurId, point);
+        }
+
+        CodecTrace.Point dernier = valides.get(valides.size() - 1);
+        presenceConducteurs.signalerPresence(conducteurId);
+        indexGeoConducteurs.mettreAJour(conducteurId, dernier.latitude(), dernier.longitude());
+        return new Bilan(valides.size(), points.size() - valides.size());
+    }
+
+    private void suivre(Long conducteurId, CodecTrace.Point point) {
+        tracesCoursesService.enregistrer(conducteurId, point.horodatage(), point.latitude(), point.longitude());
+        odometreCourses.enregistrer(conducteurId, point.horodatage(), point.latitude(), point.longitude());
+    }
+
+    private boolean estValide(CodecTrace.Point point, long maintenant) {
+        return GeoUtils.coordonneesValides(point.latitude(), point.longitude())
+                && point.horodatage() >= maintenant - ageMax.toMillis()
+                && point.horodatage() <= maintenant + avanceMax.toMillis();
+    }
+}
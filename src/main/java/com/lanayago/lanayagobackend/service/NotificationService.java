@@ -1,31 +1,269 @@
 package com.lanayago.lanayagobackend.service;
 
+import com.lanayago.lanayagobackend.entity.enums.StatutConducteur;
+import com.lanayago.lanayagobackend.event.AbonneEvenementsCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.notification.CanalNotification;
+import com.lanayago.lanayagobackend.notification.ExpediteurNotifications;
+import com.lanayago.lanayagobackend.notification.Notification;
+import com.lanayago.lanayagobackend.notification.TypeNotification;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * File d'envoi des notifications.
+ *
+ * Les appelants déposent un message dans une file bornée sans jamais attendre : si la file est
+ * pleine le message est abandonné plutôt que de bloquer une transition de course. Un thread dédié
+ * vide la file par lots regroupés par canal et les confie à l'{@link ExpediteurNotifications}.
+ * Un lot en échec est rejoué avec un délai qui double à chaque tentative.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class NotificationService {
+public class NotificationService implements AbonneEvenementsCourse {
+
+    private final ExpediteurNotifications expediteur;
+
+    @Value("${lanayago.notifications.taille-file:10000}")
+    private int tailleFile;
+
+    @Value("${lanayago.notifications.taille-lot:100}")
+    private int tailleLot;
+
+    @Value("${lanayago.notifications.delai-lot:PT0.2S}")
+    private Duration delaiLot;
+
+    @Value("${lanayago.notifications.tentatives-max:5}")
+    private int tentativesMax;
+
+    @Value("${lanayago.notifications.delai-reprise:PT1S}")
+    private Duration delaiReprise;
+
+    @Value("${lanayago.notifications.delai-reprise-max:PT1M}")
+    private Duration delaiRepriseMax;
+
+    private BlockingQueue<Envoi> file;
+
+    private final ScheduledExecutorService expedition = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("notifications").daemon().factory());
+
+    private final LongAdder envoyees = new LongAdder();
+    private final LongAdder reprises = new LongAdder();
+    private final LongAdder abandonnees = new LongAdder();
+
+    private record Envoi(Notification notification, int tentative) {
+    }
+
+    @PostConstruct
+    void demarrer() {
+        file = new ArrayBlockingQueue<>(tailleFile);
+        expedition.scheduleWithFixedDelay(this::vider, delaiLot.toMillis(), delaiLot.toMillis(), TimeUnit.MILLISECONDS);
+    }
 
     public void notifierNouvelleCourse(Long conducteurId, Long courseId) {
-        log.info("Notification envoyée au conducteur {} pour la course {}", conducteurId, courseId);
-        // TODO: Implémenter l'envoi de notifications (FCM, SMS, Email, etc.)
+        soumettre(nouvelleCourse(conducteurId, courseId));
     }
 
     public void notifierCourseAcceptee(Long clientId, Long courseId) {
-        log.info("Notification envoyée au client {} - course {} acceptée", clientId, courseId);
-        // TODO: Implémenter l'envoi de notifications
+        soumettre(courseAcceptee(clientId, courseId));
     }
 
     public void notifierArriveeDepart(Long clientId, Long courseId) {
-        log.info("Notification envoyée au client {} - conducteur arrivé pour la course {}", clientId, courseId);
-        // TODO: Implémenter l'envoi de notifications
+        soumettre(arriveeDepart(clientId, courseId));
     }
 
     public void notifierCourseTerminee(Long clientId, Long courseId) {
-        log.info("Notification envoyée au client {} - course {} terminée", clientId, courseId);
-        // TODO: Implémenter l'envoi de notifications
+        soumettre(courseTerminee(clientId, courseId));
+    }
+
+    public void notifierCourseAnnulee(Long destinataireId, Long courseId) {
+        soumettre(courseAnnulee(destinataireId, courseId));
+    }
+
+    /**
+     * Changement de statut du compte conducteur, par SMS : un conducteur bloqué n'a plus de session ouverte
+     */
+    public void notifierStatutConducteur(Long conducteurId, StatutConducteur statut, String motif) {
+        switch (statut) {
+            case APPROUVE -> notifierCompte(conducteurId, TypeNotification.COMPTE_APPROUVE,
+                    "Votre compte conducteur a été approuvé", motif);
+            case SUSPENDU -> notifierCompte(conducteurId, TypeNotification.COMPTE_SUSPENDU,
+                    "Votre compte conducteur a été suspendu", motif);
+            case BLOQUE -> notifierCompte(conducteurId, TypeNotification.COMPTE_BLOQUE,
+                    "Votre compte conducteur a été bloqué", motif);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Un participant n'est prévenu qu'une fois, quel que soit le nombre d'instances
+     */
+    @Override
+    public boolean parInstance() {
+        return false;
+    }
+
+    /**
+     * Notifications des participants d'une course, une fois la transition validée en base
+     */
+    @Override
+    public void surEvenementCourse(CourseEvenement evenement) {
+        // Relayé depuis l'outbox, hors transaction : dépôt direct
+        switch (evenement.type()) {
+            case ACCEPTEE -> deposer(courseAcceptee(evenement.clientId(), evenement.courseId()));
+            case ANNULEE -> {
+                deposer(courseAnnulee(evenement.clientId(), evenement.courseId()));
+                deposer(courseAnnulee(evenement.conducteurId(), evenement.courseId()));
+            }
+            case STATUT_MODIFIE -> {
+                switch (evenement.statut()) {
+                    case ARRIVEE_DEPART -> deposer(arriveeDepart(evenement.clientId(), evenement.courseId()));
+                    case TERMINEE -> deposer(courseTerminee(evenement.clientId(), evenement.courseId()));
+                    default -> {
+                    }
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Dépose la notification sans bloquer. Dans une transaction, le dépôt attend la validation :
+     * une opération annulée ne notifie personne.
+     */
+    public void soumettre(Notification notification) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deposer(notification);
+                }
+            });
+        } else {
+            deposer(notification);
+        }
+    }
+
+    private static Notification nouvelleCourse(Long conducteurId, Long courseId) {
+        return Notification.de(CanalNotification.PUSH, TypeNotification.NOUVELLE_COURSE, conducteurId, courseId,
+                "Nouvelle course disponible près de vous");
+    }
+
+    private static Notification courseAcceptee(Long clientId, Long courseId) {
+        return Notification.de(CanalNotification.PUSH, TypeNotification.COURSE_ACCEPTEE, clientId, courseId,
+                "Un conducteur a accepté votre course");
+    }
+
+    private static Notification arriveeDepart(Long clientId, Long courseId) {
+        return Notification.de(CanalNotification.PUSH, TypeNotification.ARRIVEE_DEPART, clientId, courseId,
+                "Votre conducteur est arrivé au point de départ");
+    }
+
+    private static Notification courseTerminee(Long clientId, Long courseId) {
+        return Notification.de(CanalNotification.PUSH, TypeNotification.COURSE_TERMINEE, clientId, courseId,
+                "Votre course est terminée");
+    }
+
+    private static Notification courseAnnulee(Long destinataireId, Long courseId) {
+        return Notification.de(CanalNotification.PUSH, TypeNotification.COURSE_ANNULEE, destinataireId, courseId,
+                "La course a été annulée");
+    }
+
+    private void notifierCompte(Long conducteurId, TypeNotification type, String message, String motif) {
+        if (motif != null && !motif.isBlank()) {
+            message += " : " + motif;
+        }
+        soumettre(Notification.de(CanalNotification.SMS, type, conducteurId, null, message));
+    }
+
+    public Map<String, Object> metriques() {
+        Map<String, Object> metriques = new HashMap<>();
+        metriques.put("enAttente", file.size());
+        metriques.put("envoyees", envoyees.sum());
+        metriques.put("reprises", reprises.sum());
+        metriques.put("abandonnees", abandonnees.sum());
+        return metriques;
+    }
+
+    private void deposer(Notification notification) {
+        if (notification.destinataireId() != null) {
+            deposer(new Envoi(notification, 0));
+        }
+    }
+
+    private void deposer(Envoi envoi) {
+        if (!file.offer(envoi)) {
+            abandonnees.increment();
+            log.warn("File de notifications pleine : notification {} pour l'utilisateur {} abandonnée",
+                    envoi.notification().type(), envoi.notification().destinataireId());
+        }
+    }
+
+    private void vider() {
+        List<Envoi> lot = new ArrayList<>(tailleLot);
+        try {
+            while (file.drainTo(lot, tailleLot) > 0) {
+                Map<CanalNotification, List<Envoi>> parCanal = new EnumMap<>(CanalNotification.class);
+                for (Envoi envoi : lot) {
+                    parCanal.computeIfAbsent(envoi.notification().canal(), c -> new ArrayList<>()).add(envoi);
+                }
+                parCanal.forEach(this::expedier);
+                lot.clear();
+            }
+        } catch (RuntimeException e) {
+            // Une exception non rattrapée arrêterait la planification : la file ne serait plus jamais vidée
+            log.error("Erreur inattendue dans la file de notifications", e);
+        }
+    }
+
+    private void expedier(CanalNotification canal, List<Envoi> envois) {
+        try {
+            expediteur.envoyer(canal, envois.stream().map(Envoi::notification).toList());
+            envoyees.add(envois.size());
+        } catch (Exception e) {
+            log.warn("Échec de l'envoi de {} notifications {} : {}", envois.size(), canal, e.getMessage());
+            envois.forEach(this::reprendre);
+        }
+    }
+
+    private void reprendre(Envoi envoi) {
+        int tentative = envoi.tentative() + 1;
+        if (tentative >= tentativesMax) {
+            abandonnees.increment();
+            log.error("Notification {} pour l'utilisateur {} abandonnée après {} tentatives",
+                    envoi.notification().type(), envoi.notification().destinataireId(), tentative);
+            return;
+        }
+
+        long delai = Math.min(delaiReprise.toMillis() << Math.min(tentative - 1, 20), delaiRepriseMax.toMillis());
+        reprises.increment();
+        expedition.schedule(() -> deposer(new Envoi(envoi.notification(), tentative)), delai, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void fermer() {
+        expedition.shutdownNow();
     }
-}
\ No newline at end of file
+}
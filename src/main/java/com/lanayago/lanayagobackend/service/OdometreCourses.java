@@ -0,0 +1,243 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.event.AbonneEvenementsCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.util.CodecTrace;
+import com.lanayago.lanayagobackend.util.GeoUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compteur kilométrique des courses EN_COURS, alimenté par les positions du conducteur.
+ *
+ * Chaque course ne garde qu'un point d'ancrage et un cumul : la distance réelle est connue à la fin
+ * de la course sans relire la trace. Les positions incohérentes sont écartées : un déplacement plus
+ * rapide que la vitesse maximale est un saut GPS, un déplacement de quelques mètres est du bruit
+ * de mesure à l'arrêt. Le relevé n'est tenu pour fiable que si les positions couvrent la course sans
+ * trou et que la distance n'est pas très en deçà de l'estimation.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OdometreCourses implements AbonneEvenementsCourse {
+
+    private final TracesCoursesService tracesCoursesService;
+
+    @Value("${lanayago.odometre.vitesse-max-kmh:200}")
+    private double vitesseMaxKmh;
+
+    @Value("${lanayago.odometre.deplacement-min-m:10}")
+    private double deplacementMinM;
+
+    // Sauts consécutifs au-delà desquels la nouvelle position est tenue pour la bonne
+    @Value("${lanayago.odometre.rejets-avant-recalage:3}")
+    private int rejetsAvantRecalage;
+
+    // Plus long intervalle sans position, début et fin de course compris, pour un relevé fiable
+    @Value("${lanayago.odometre.ecart-max:PT2M}")
+    private Duration ecartMax;
+
+    // Distance mesurée minimale, en part de la distance estimée, pour un relevé fiable
+    @Value("${lanayago.odometre.ratio-min-estimation:0.7}")
+    private double ratioMinEstimation;
+
+    private final Map<Long, Compteur> compteurs = new ConcurrentHashMap<>();
+
+    /**
+     * Distance mesurée d'une course ; non fiable, elle ne suffit pas à la facturer
+     */
+    public record Releve(double distanceKm, boolean fiable) {
+    }
+
+    private final class Compteur {
+        private final Long courseId;
+        private boolean ancre;
+        private double latitude;
+        private double longitude;
+        private long horodatage;
+        private double distanceKm;
+        private int rejetsConsecutifs;
+        private int rejets;
+        // Positions reçues, comptées ou non : premier et dernier instant, plus long intervalle
+        private long premiere;
+        private long derniere;
+        private long ecartMaxMs;
+
+        private Compteur(Long courseId) {
+            this.courseId = courseId;
+        }
+
+        private synchronized void ajouter(long instant, double lat, double lon) {
+            if (derniere == 0) {
+                premiere = instant;
+                derniere = instant;
+            } else if (instant > derniere) {
+                ecartMaxMs = Math.max(ecartMaxMs, instant - derniere);
+                derniere = instant;
+            }
+
+            if (!ancre) {
+                ancrer(instant, lat, lon);
+                return;
+            }
+            if (instant <= horodatage) {
+                return;
+            }
+
+            double deplacementKm = GeoUtils.distanceKm(latitude, longitude, lat, lon);
+            if (deplacementKm * 1000 < deplacementMinM) {
+                return;
+            }
+
+            double heures = (instant - horodatage) / 3_600_000.0;
+            if (deplacementKm / heures > vitesseMaxKmh) {
+                rejets++;
+                if (++rejetsConsecutifs >= rejetsAvantRecalage) {
+                    // L'ancre elle-même était fausse ou le signal a été perdu : on repart de là sans compter le saut
+                    ancrer(instant, lat, lon);
+                }
+                return;
+            }
+
+            distanceKm += deplacementKm;
+            ancrer(instant, lat, lon);
+        }
+
+        private void ancrer(long instant, double lat, double lon) {
+            ancre = true;
+            latitude = lat;
+            longitude = lon;
+            horodatage = instant;
+            rejetsConsecutifs = 0;
+        }
+
+        private synchronized Optional<Releve> releve(long debut, long fin, Double distanceEstimeeKm) {
+            if (!ancre) {
+                return Optional.empty();
+            }
+            if (rejets > 0) {
+                log.info("Course {} : {} positions écartées par le compteur kilométrique", courseId, rejets);
+            }
+
+            long ecart = Math.max(ecartMaxMs, Math.max(premiere - debut, fin - derniere));
+            boolean couverte = ecart <= ecartMax.toMillis();
+            boolean plausible = distanceEstimeeKm == null || distanceKm >= ratioMinEstimation * distanceEstimeeKm;
+            if (!couverte || !plausible) {
+                log.info("Course {} : relevé de {} km non fiable (plus long intervalle sans position {} s, estimation {} km)",
+                        courseId, String.format("%.2f", distanceKm), ecart / 1000, distanceEstimeeKm);
+            }
+            return Optional.of(new Releve(distanceKm, couverte && plausible));
+        }
+    }
+
+    /**
+     * Démarre le compteur de la course dans la transaction qui la passe EN_COURS, sans attendre le
+     * relais de l'événement : aucune position reçue entre-temps n'est perdue. Retiré si la
+     * transaction est annulée ; un compteur déjà ouvert pour la course est conservé.
+     */
+    public void demarrer(Long conducteurId, Long courseId) {
+        Compteur compteur = compteurs.compute(conducteurId, (id, actuel) ->
+                actuel != null && actuel.courseId.equals(courseId) ? actuel : new Compteur(courseId));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        compteurs.remove(conducteurId, compteur);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Ajoute la position du conducteur au compteur de sa course en cours, s'il en a une
+     */
+    public void enregistrer(Long conducteurId, double latitude, double longitude) {
+        enregistrer(conducteurId, System.currentTimeMillis(), latitude, longitude);
+    }
+
+    public void enregistrer(Long conducteurId, long instant, double latitude, double longitude) {
+        Compteur compteur = compteurs.get(conducteurId);
+        if (compteur != null) {
+            compteur.ajouter(instant, latitude, longitude);
+        }
+    }
+
+    /**
+     * Distance parcourue depuis le début de la course, et libère son compteur.
+     * Sans compteur (serveur redémarré pendant la course), la distance est recalculée depuis la trace.
+     * Vide si aucune position exploitable n'a été reçue.
+     */
+    public Optional<Releve> terminer(Course course) {
+        Long conducteurId = course.getConducteur() != null ? course.getConducteur().getId() : null;
+        Compteur compteur = conducteurId != null ? compteurs.get(conducteurId) : null;
+
+        if (compteur != null && compteur.courseId.equals(course.getId())) {
+            compteurs.remove(conducteurId, compteur);
+        } else if (course.getDateDebut() != null) {
+            compteur = depuisLaTrace(course);
+        } else {
+            return Optional.empty();
+        }
+
+        long debut = instant(course.getDateDebut() != null ? course.getDateDebut() : LocalDateTime.now());
+        long fin = instant(course.getDateFin() != null ? course.getDateFin() : LocalDateTime.now());
+        return compteur.releve(debut, fin, course.getDistanceKm());
+    }
+
+    @Override
+    public void surEvenementCourse(CourseEvenement evenement) {
+        if (evenement.conducteurId() == null) {
+            return;
+        }
+
+        switch (evenement.type()) {
+            case STATUT_MODIFIE -> {
+                if (evenement.statut() == StatutCourse.EN_COURS) {
+                    // Déjà démarré par la transition sur ce serveur ; un événement rejoué ne le remet pas à zéro
+                    demarrer(evenement.conducteurId(), evenement.courseId());
+                } else if (evenement.statut() == StatutCourse.TERMINEE) {
+                    liberer(evenement);
+                }
+            }
+            case ANNULEE -> liberer(evenement);
+            default -> {
+            }
+        }
+    }
+
+    private void liberer(CourseEvenement evenement) {
+        compteurs.computeIfPresent(evenement.conducteurId(),
+                (conducteurId, compteur) -> compteur.courseId.equals(evenement.courseId()) ? null : compteur);
+    }
+
+    private Compteur depuisLaTrace(Course course) {
+        long debut = instant(course.getDateDebut());
+        Compteur compteur = new Compteur(course.getId());
+        for (CodecTrace.Point point : tracesCoursesService.lire(course.getId())) {
+            if (point.horodatage() >= debut) {
+                compteur.ajouter(point.horodatage(), point.latitude(), point.longitude());
+            }
+        }
+        return compteur;
+    }
+
+    private static long instant(LocalDateTime date) {
+        return date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,341 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lanayago.lanayagobackend.entity.EvenementOutbox;
+import com.lanayago.lanayagobackend.event.AbonneEvenementsCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.repository.EvenementOutboxRepository;
+import com.lanayago.lanayagobackend.repository.VerrouTraitementRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbox des événements de course.
+ *
+ * Chaque {@link CourseEvenement} publié est écrit dans la table outbox_courses par la transaction
+ * qui l'a produit : l'événement existe si et seulement si la transition a été validée. Un thread
+ * par instance relaie ensuite les événements, réveillé à chaque validation et repassant
+ * périodiquement pour reprendre ce qu'un arrêt du serveur aurait laissé en attente.
+ *
+ * Publication : l'instance qui détient le bail du relais, une seule à la fois, lit les événements non
+ * publiés par lots dans l'ordre des identifiants, les distribue aux abonnés dont l'effet ne doit se
+ * produire qu'une fois, puis les marque publiés avec un numéro croissant. Un bail perdu en cours de
+ * lot (instance arrêtée ou figée au-delà de son expiration) fait relayer le lot une seconde fois par
+ * la suivante.
+ *
+ * Diffusion : chaque instance, détentrice du bail ou non, suit les numéros de publication et
+ * distribue les événements publiés à ses abonnés par instance. Les numéros sont attribués et validés
+ * sous le verrou du bail : ils deviennent visibles dans l'ordre, sans trou à rattraper.
+ */
+@Slf4j
+@Service
+public class OutboxCoursesService {
+
+    static final String BAIL_RELAIS = "outbox_courses";
+
+    private final EvenementOutboxRepository evenementOutboxRepository;
+    private final VerrouTraitementRepository verrouTraitementRepository;
+    private final List<AbonneEvenementsCourse> abonnes;
+    private final List<AbonneEvenementsCourse> abonnesUniques;
+    private final List<AbonneEvenementsCourse> abonnesParInstance;
+    private final List<AbonneEvenementsCourse> abonnesRejeu;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${lanayago.evenements.relais.taille-lot:200}")
+    private int tailleLot;
+
+    @Value("${lanayago.evenements.relais.intervalle:PT5S}")
+    private Duration intervalle;
+
+    @Value("${lanayago.evenements.relais.bail:PT30S}")
+    private Duration dureeBail;
+
+    @Value("${lanayago.evenements.diffusion.intervalle:PT1S}")
+    private Duration intervalleDiffusion;
+
+    @Value("${lanayago.evenements.retention:P30D}")
+    private Duration retention;
+
+    @Value("${lanayago.evenements.purge.taille-lot:1000}")
+    private int tailleLotPurge;
+
+    private final ScheduledExecutorService relais = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("outbox-courses").daemon().factory());
+
+    // Évite d'empiler une tâche de relais par transaction validée pendant qu'un passage est prévu
+    private final AtomicBoolean reveilPrevu = new AtomicBoolean();
+
+    private final String instance = UUID.randomUUID().toString();
+
+    // Dernier numéro de publication distribué aux abonnés par instance ; écrit par le seul thread du relais
+    private volatile long dernierNumeroDiffuse;
+
+    private final LongAdder relayes = new LongAdder();
+    private final LongAdder diffuses = new LongAdder();
+    private final LongAdder echecsAbonnes = new LongAdder();
+
+    public OutboxCoursesService(EvenementOutboxRepository evenementOutboxRepository,
+                                VerrouTraitementRepository verrouTraitementRepository,
+                                List<AbonneEvenementsCourse> abonnes,
+                                ObjectMapper objectMapper,
+                                TransactionTemplate transactionTemplate) {
+        this.evenementOutboxRepository = evenementOutboxRepository;
+        this.verrouTraitementRepository = verrouTraitementRepository;
+        this.abonnes = abonnes;
+        this.abonnesUniques = abonnes.stream().filter(abonne -> !abonne.parInstance()).toList();
+        this.abonnesParInstance = abonnes.stream().filter(AbonneEvenementsCourse::parInstance).toList();
+        this.abonnesRejeu = abonnes.stream().filter(AbonneEvenementsCourse::accepteRejeu).toList();
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Les abonnés par instance reconstruisent leur état au démarrage : seuls les événements publiés
+     * ensuite leur sont distribués
+     */
+    @PostConstruct
+    void demarrer() {
+        transactionTemplate.executeWithoutResult(tx -> verrouTraitementRepository.creerSiAbsent(BAIL_RELAIS));
+        dernierNumeroDiffuse = evenementOutboxRepository.maxNumeroPublication();
+
+        relais.scheduleWithFixedDelay(this::relayer, intervalle.toMillis(), intervalle.toMillis(), TimeUnit.MILLISECONDS);
+        relais.scheduleWithFixedDelay(this::diffuser, intervalleDiffusion.toMillis(), intervalleDiffusion.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Écrit l'événement dans la transaction en cours, juste avant sa validation
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void enregistrer(CourseEvenement evenement) {
+        // La course est écrite (et verrouillée) avant l'insertion : deux transactions sur une même course
+        // obtiennent des identifiants d'outbox dans l'ordre de leurs validations
+        entityManager.flush();
+
+        EvenementOutbox ligne = new EvenementOutbox();
+        ligne.setCourseId(evenement.courseId());
+        ligne.setType(evenement.type());
+        ligne.setContenu(serialiser(evenement));
+        evenementOutboxRepository.save(ligne);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void reveiller(CourseEvenement evenement) {
+        if (reveilPrevu.compareAndSet(false, true)) {
+            relais.execute(() -> {
+                reveilPrevu.set(false);
+                relayer();
+            });
+        }
+    }
+
+    /**
+     * Relaie de nouveau aux abonnés les événements créés depuis la date donnée, dans leur ordre d'origine.
+     * Le rejeu passe par le thread du relais sans toucher aux dates de publication : il ne se mélange
+     * pas au relais courant et ne concerne que les abonnés de ce serveur qui l'acceptent explicitement :
+     * ni notification, ni dispatch, ni état courant des conducteurs (course en cours, compteur, présence,
+     * flux) ne sont rejoués.
+     */
+    public long rejouer(LocalDateTime depuis, Long courseId) {
+        long total = evenementOutboxRepository.countPourRejeu(depuis, courseId);
+        log.info("Rejeu de {} événements de course depuis {}{}", total, depuis,
+                courseId != null ? " pour la course " + courseId : "");
+        if (total > 0) {
+            relais.execute(() -> relayerDepuis(depuis, courseId));
+        }
+        return total;
+    }
+
+    /**
+     * Supprime les événements publiés au-delà de la durée de rétention, qui borne la fenêtre de rejeu
+     */
+    @Scheduled(fixedDelayString = "${lanayago.evenements.purge.intervalle:PT1H}",
+            initialDelayString = "${lanayago.evenements.purge.intervalle:PT1H}")
+    public int purger() {
+        LocalDateTime avant = LocalDateTime.now().minus(retention);
+        int total = 0;
+        int supprimes;
+        do {
+            supprimes = transactionTemplate.execute(tx -> {
+                List<Long> ids = evenementOutboxRepository.findIdsPubliesAvant(avant, PageRequest.of(0, tailleLotPurge));
+                return ids.isEmpty() ? 0 : evenementOutboxRepository.deleteByIdIn(ids);
+            });
+            total += supprimes;
+        } while (supprimes == tailleLotPurge);
+
+        if (total > 0) {
+            log.info("{} événements de course publiés supprimés de l'outbox", total);
+        }
+        return total;
+    }
+
+    public Map<String, Object> metriques() {
+        Map<String, Object> metriques = new HashMap<>();
+        metriques.put("enAttente", evenementOutboxRepository.countARelayer());
+        metriques.put("relayes", relayes.sum());
+        metriques.put("diffuses", diffuses.sum());
+        metriques.put("dernierNumeroDiffuse", dernierNumeroDiffuse);
+        metriques.put("echecsAbonnes", echecsAbonnes.sum());
+        metriques.put("abonnes", abonnes.size());
+        metriques.put("abonnesUniques", abonnesUniques.size());
+        metriques.put("abonnesRejeu", abonnesRejeu.size());
+        return metriques;
+    }
+
+    private void relayer() {
+        try {
+            if (prendreBail()) {
+                publier();
+            }
+        } catch (RuntimeException e) {
+            // Base indisponible : le lot non marqué sera relayé au prochain passage
+            log.error("Échec du relais des événements de course", e);
+        }
+        diffuser();
+    }
+
+    private void publier() {
+        List<EvenementOutbox> lot;
+        do {
+            lot = evenementOutboxRepository.findARelayer(PageRequest.of(0, tailleLot));
+            if (lot.isEmpty()) {
+                return;
+            }
+
+            lot.forEach(ligne -> distribuer(ligne, abonnesUniques));
+
+            List<EvenementOutbox> publies = lot;
+            boolean marques = transactionTemplate.execute(tx -> {
+                // Bail prolongé et ligne du bail verrouillée jusqu'à la validation des numéros
+                if (!prendreBailDansLaTransaction()) {
+                    return false;
+                }
+                LocalDateTime maintenant = LocalDateTime.now();
+                long numero = evenementOutboxRepository.maxNumeroPublication();
+                for (EvenementOutbox ligne : publies) {
+                    if (evenementOutboxRepository.marquerPublie(ligne.getId(), maintenant, numero + 1) == 1) {
+                        numero++;
+                    }
+                }
+                return true;
+            });
+            if (!marques) {
+                log.warn("Bail du relais perdu : le lot de {} événements sera relayé par l'instance qui le détient",
+                        lot.size());
+                return;
+            }
+            relayes.add(lot.size());
+            diffuser();
+        } while (lot.size() == tailleLot);
+    }
+
+    private void diffuser() {
+        try {
+            List<EvenementOutbox> lot;
+            do {
+                lot = evenementOutboxRepository.findPubliesApres(dernierNumeroDiffuse, PageRequest.of(0, tailleLot));
+                for (EvenementOutbox ligne : lot) {
+                    distribuer(ligne, abonnesParInstance);
+                    dernierNumeroDiffuse = ligne.getNumeroPublication();
+                }
+                diffuses.add(lot.size());
+            } while (lot.size() == tailleLot);
+        } catch (RuntimeException e) {
+            log.error("Échec de la diffusion des événements de course", e);
+        }
+    }
+
+    private boolean prendreBail() {
+        return Boolean.TRUE.equals(transactionTemplate.execute(tx -> prendreBailDansLaTransaction()));
+    }
+
+    private boolean prendreBailDansLaTransaction() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        return verrouTraitementRepository.prendreBail(BAIL_RELAIS, instance, maintenant, maintenant.plus(dureeBail)) == 1;
+    }
+
+    private void relayerDepuis(LocalDateTime depuis, Long courseId) {
+        try {
+            long dernierId = 0;
+            List<EvenementOutbox> lot;
+            do {
+                lot = evenementOutboxRepository.findPourRejeu(depuis, courseId, dernierId, PageRequest.of(0, tailleLot));
+                lot.forEach(ligne -> distribuer(ligne, abonnesRejeu));
+                if (!lot.isEmpty()) {
+                    dernierId = lot.get(lot.size() - 1).getId();
+                }
+            } while (lot.size() == tailleLot);
+        } catch (RuntimeException e) {
+            log.error("Échec du rejeu des événements de course", e);
+        }
+    }
+
+    private void distribuer(EvenementOutbox ligne, List<AbonneEvenementsCourse> destinataires) {
+        CourseEvenement evenement;
+        try {
+            evenement = objectMapper.readValue(ligne.getContenu(), CourseEvenement.class);
+        } catch (JsonProcessingException e) {
+            log.error("Événement {} de l'outbox illisible, ignoré", ligne.getId(), e);
+            return;
+        }
+
+        for (AbonneEvenementsCourse abonne : destinataires) {
+            try {
+                abonne.surEvenementCourse(evenement);
+            } catch (RuntimeException e) {
+                // Un abonné en échec ne prive pas les autres de l'événement ni ne bloque la file
+                echecsAbonnes.increment();
+                log.error("L'abonné {} a échoué sur l'événement {} de la course {}",
+                        abonne.getClass().getSimpleName(), evenement.type(), evenement.courseId(), e);
+            }
+        }
+    }
+
+    private String serialiser(CourseEvenement evenement) {
+        try {
+            return objectMapper.writeValueAsString(evenement);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Sérialisation de l'événement de course impossible", e);
+        }
+    }
+
+    /**
+     * Bail rendu à l'arrêt : une autre instance reprend le relais sans attendre son expiration
+     */
+    @PreDestroy
+    void fermer() {
+        relais.shutdownNow();
+        try {
+            transactionTemplate.executeWithoutResult(tx -> verrouTraitementRepository.libererBail(BAIL_RELAIS, instance));
+        } catch (RuntimeException e) {
+            log.warn("Bail du relais non rendu, repris à son expiration", e);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.event.AbonneEvenementsCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.repository.ConducteurRepository;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import com.lanayago.lanayagobackend.util.RoueTemporelle;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Registre en mémoire de la disponibilité des conducteurs, interrogé par le dispatch et le tableau
+ * de bord sans requête SQL.
+ *
+ * Un conducteur est sollicitable s'il s'est déclaré disponible, n'a pas de course en cours et a
+ * donné signe de vie récemment : chaque position reçue repousse son échéance de présence, et une
+ * {@link RoueTemporelle} le fait passer hors ligne quand elle est atteinte. Seul le choix du
+ * conducteur est écrit en base, par lots et en différé ; la présence repart de zéro au démarrage.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PresenceConducteurs implements AbonneEvenementsCourse {
+
+    private final ConducteurRepository conducteurRepository;
+    private final CourseRepository courseRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Sans position pendant ce délai, le conducteur est tenu pour hors ligne
+    @Value("${lanayago.presence.delai-expiration:PT2M}")
+    private Duration delaiExpiration;
+
+    @Value("${lanayago.presence.roue.duree-case:PT1S}")
+    private Duration dureeCase;
+
+    @Value("${lanayago.presence.roue.nombre-cases:512}")
+    private int nombreCases;
+
+    @Value("${lanayago.presence.ecriture.intervalle:PT10S}")
+    private Duration intervalleEcriture;
+
+    @Value("${lanayago.presence.ecriture.taille-lot:500}")
+    private int tailleLotEcriture;
+
+    /**
+     * echeance : fin de présence, 0 hors ligne ; planifie : une case de la roue contient le conducteur
+     */
+    private record Etat(boolean disponible, boolean occupe, long echeance, boolean planifie) {
+
+        private static final Etat ABSENT = new Etat(false, false, 0, false);
+
+        private boolean enLigne() {
+            return echeance != 0;
+        }
+
+        private boolean sollicitable() {
+            return disponible && !occupe && enLigne();
+        }
+
+        private Etat avecDisponible(boolean valeur) {
+            return new Etat(valeur, occupe, echeance, planifie);
+        }
+
+        private Etat avecOccupe(boolean valeur) {
+            return new Etat(disponible, valeur, echeance, planifie);
+        }
+
+        private Etat enLigneJusqua(long instant) {
+            return new Etat(disponible, occupe, instant, true);
+        }
+
+        private Etat horsLigne(boolean resteDansLaRoue) {
+            return new Etat(disponible, occupe, 0, resteDansLaRoue);
+        }
+    }
+
+    private final Map<Long, Etat> etats = new ConcurrentHashMap<>();
+
+    // Tenu à jour à chaque transition : lecture et comptage en O(1)
+    private final Set<Long> sollicitables = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger enLigne = new AtomicInteger();
+
+    // Dernier choix de chaque conducteur pas encore écrit en base
+    private final Map<Long, Boolean> aEcrire = new ConcurrentHashMap<>();
+
+    private RoueTemporelle<Long> roue;
+
+    private final ScheduledExecutorService horloge = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("presence").daemon().factory());
+
+    @PostConstruct
+    void demarrer() {
+        roue = new RoueTemporelle<>(dureeCase, nombreCases, System.currentTimeMillis());
+        horloge.scheduleAtFixedRate(this::avancer, dureeCase.toMillis(), dureeCase.toMillis(), TimeUnit.MILLISECONDS);
+        horloge.scheduleWithFixedDelay(this::ecrire, intervalleEcriture.toMillis(), intervalleEcriture.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reconstruit le registre depuis la base : choix des conducteurs et courses attribuées.
+     * Personne n'est en ligne avant sa première position. Lancé une fois le contexte prêt,
+     * hors de la création des beans : les transitions reçues entre-temps se cumulent avec le chargement.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void charger() {
+        List<Long> disponibles = conducteurRepository.findIdsDisponibles();
+        List<Long> occupes = courseRepository.findIdsConducteursOccupes();
+        disponibles.forEach(id -> modifier(id, false, etat -> etat.avecDisponible(true)));
+        occupes.forEach(id -> modifier(id, false, etat -> etat.avecOccupe(true)));
+        log.info("Registre de présence reconstruit : {} conducteurs disponibles, {} en course",
+                disponibles.size(), occupes.size());
+    }
+
+    /**
+     * Signe de vie du conducteur, à chaque position reçue
+     */
+    public void signalerPresence(Long conducteurId) {
+        long maintenant = System.currentTimeMillis();
+        Etat etat = etats.get(conducteurId);
+        // Échéance déjà repoussée pendant cette case : inutile de verrouiller l'entrée à chaque position
+        if (etat != null && etat.planifie()
+                && etat.echeance() - maintenant > delaiExpiration.toMillis() - dureeCase.toMillis()) {
+            return;
+        }
+        modifier(conducteurId, false, e -> e.enLigneJusqua(maintenant + delaiExpiration.toMillis()));
+    }
+
+    /**
+     * Choix du conducteur ; se déclarer disponible vaut signe de vie
+     */
+    public void definirDisponibilite(Long conducteurId, boolean disponible) {
+        long maintenant = System.currentTimeMillis();
+        modifier(conducteurId, false, etat -> {
+            if (etat.disponible() != disponible) {
+                aEcrire.put(conducteurId, disponible);
+            }
+            Etat nouveau = etat.avecDisponible(disponible);
+            return disponible ? nouveau.enLigneJusqua(maintenant + delaiExpiration.toMillis()) : nouveau;
+        });
+    }
+
+    /**
+     * Retire un conducteur suspendu, bloqué ou désactivé : il devra se déclarer de nouveau disponible
+     */
+    public void retirer(Long conducteurId) {
+        modifier(conducteurId, false, etat -> {
+            if (etat.disponible()) {
+                aEcrire.put(conducteurId, false);
+            }
+            return etat.avecDisponible(false).horsLigne(etat.planifie());
+        });
+    }
+
+    @Override
+    public void surEvenementCourse(CourseEvenement evenement) {
+        if (evenement.conducteurId() == null) {
+            return;
+        }
+        switch (evenement.type()) {
+            case ACCEPTEE -> modifier(evenement.conducteurId(), false, etat -> etat.avecOccupe(true));
+            case ANNULEE -> modifier(evenement.conducteurId(), false, etat -> etat.avecOccupe(false));
+            case STATUT_MODIFIE -> {
+                if (evenement.statut() == StatutCourse.TERMINEE) {
+                    modifier(evenement.conducteurId(), false, etat -> etat.avecOccupe(false));
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Conducteur à solliciter pour une nouvelle course : disponible, libre et en ligne
+     */
+    public boolean estSollicitable(Long conducteurId) {
+        return sollicitables.contains(conducteurId);
+    }
+
+    public boolean estDisponible(Long conducteurId) {
+        Etat etat = etats.get(conducteurId);
+        return etat != null && etat.disponible();
+    }
+
+    public int nombreSollicitables() {
+        return sollicitables.size();
+    }
+
+    public int nombreEnLigne() {
+        return enLigne.get();
+    }
+
+    /**
+     * Applique une transition sous le verrou de l'entrée et met à jour les compteurs dans la foulée.
+     * sortieDeLaRoue : la roue vient de rendre le conducteur, il n'est plus dans aucune case.
+     */
+    private void modifier(Long conducteurId, boolean sortieDeLaRoue, UnaryOperator<Etat> transition) {
+        etats.compute(conducteurId, (id, actuel) -> {
+            Etat avant = actuel != null ? actuel : Etat.ABSENT;
+            Etat apres = transition.apply(avant);
+
+            if (avant.enLigne() != apres.enLigne()) {
+                enLigne.addAndGet(apres.enLigne() ? 1 : -1);
+            }
+            if (apres.sollicitable()) {
+                sollicitables.add(id);
+            } else {
+                sollicitables.remove(id);
+            }
+            if (apres.planifie() && (sortieDeLaRoue || !avant.planifie())) {
+                roue.planifier(id, apres.echeance());
+            }
+            return apres.equals(Etat.ABSENT) ? null : apres;
+        });
+    }
+
+    void avancer() {
+        try {
+            long maintenant = System.currentTimeMillis();
+            roue.avancer(maintenant, id -> modifier(id, true, etat ->
+                    etat.echeance() > maintenant ? etat.enLigneJusqua(etat.echeance()) : etat.horsLigne(false)));
+        } catch (RuntimeException e) {
+            // Une exception non rattrapée arrêterait la planification : plus personne ne passerait hors ligne
+            log.error("Erreur inattendue dans la roue de présence", e);
+        }
+    }
+
+    /**
+     * Écrit les choix en attente, un UPDATE par lot et par valeur
+     */
+    void ecrire() {
+        List<Long> disponibles = new ArrayList<>();
+        List<Long> indisponibles = new ArrayList<>();
+        aEcrire.forEach((id, disponible) -> {
+            // Un choix modifié entre-temps reste en file pour la prochaine écriture
+            if (aEcrire.remove(id, disponible)) {
+                (disponible ? disponibles : indisponibles).add(id);
+            }
+        });
+        ecrire(disponibles, true);
+        ecrire(indisponibles, false);
+    }
+
+    private void ecrire(List<Long> ids, boolean disponible) {
+        for (int debut = 0; debut < ids.size(); debut += tailleLotEcriture) {
+            List<Long> lot = ids.subList(debut, Math.min(debut + tailleLotEcriture, ids.size()));
+            try {
+                transactionTemplate.executeWithoutResult(tx ->
+                        conducteurRepository.mettreAJourDisponibilite(lot, disponible));
+            } catch (RuntimeException e) {
+                log.warn("Écriture de la disponibilité de {} conducteurs reportée : {}", lot.size(), e.getMessage());
+                lot.forEach(id -> aEcrire.putIfAbsent(id, disponible));
+            }
+        }
+    }
+
+    @PreDestroy
+    void fermer() {
+        horloge.shutdown();
+        try {
+            horloge.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Les choix restants sont écrits avant la fermeture de la base
+        ecrire();
+    }
+}
@@ -0,0 +1,69 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.dto.projection.DepartCourse;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import com.lanayago.lanayagobackend.util.GeoHash;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Cellule geohash des courses créées avant la colonne geohash_depart : sans elle, la recherche
+ * des courses proches par l'index ne les trouve pas. Calculée une fois au démarrage, par lots.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RattrapageGeohashCourses {
+
+    private final CourseRepository courseRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${lanayago.courses.geohash.taille-lot:1000}")
+    private int tailleLot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    void auDemarrage() {
+        try {
+            long completees = rattraper();
+            if (completees > 0) {
+                log.info("Cellule geohash calculée pour {} courses existantes", completees);
+            }
+        } catch (RuntimeException e) {
+            log.error("Échec du calcul des cellules geohash des courses existantes", e);
+        }
+    }
+
+    /**
+     * @return nombre de courses complétées
+     */
+    public long rattraper() {
+        long completees = 0;
+        long curseur = 0;
+        while (true) {
+            List<DepartCourse> lot = courseRepository.findDepartsSansGeohash(curseur, PageRequest.ofSize(tailleLot));
+            if (lot.isEmpty()) {
+                return completees;
+            }
+
+            // Un UPDATE par cellule du lot : les départs d'une même ville partagent peu de cellules
+            Map<String, List<Long>> parCellule = lot.stream().collect(Collectors.groupingBy(
+                    depart -> GeoHash.encoder(depart.latitude(), depart.longitude(), GeoHash.PRECISION_COURSES),
+                    Collectors.mapping(DepartCourse::id, Collectors.toList())));
+            transactionTemplate.executeWithoutResult(tx ->
+                    parCellule.forEach(courseRepository::definirGeohashDepart));
+
+            completees += lot.size();
+            curseur = lot.get(lot.size() - 1).id();
+        }
+    }
+}
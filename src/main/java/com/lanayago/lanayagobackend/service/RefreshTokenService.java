@@ -0,0 +1,143 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.entity.RefreshToken;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Jetons de renouvellement avec rotation : chaque échange invalide le jeton présenté et en émet un
+ * nouveau dans la même famille. Renouveler un JWT coûte une lecture indexée au lieu d'un hachage BCrypt.
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    private final SecureRandom aleatoire = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long dureeVieMs;
+    private final int tailleLotPurge;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${spring.security.jwt.refresh-expiration}") long dureeVieMs,
+                               @Value("${lanayago.auth.purge-refresh-tokens.taille-lot:1000}") int tailleLotPurge) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.dureeVieMs = dureeVieMs;
+        this.tailleLotPurge = tailleLotPurge;
+    }
+
+    /**
+     * Ouvre une nouvelle famille à la connexion ; retourne le jeton en clair, à transmettre une seule fois
+     */
+    @Transactional
+    public String emettre(User utilisateur) {
+        return emettre(utilisateur, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Échange un jeton contre un nouveau. Un jeton déjà échangé révèle un vol : toute la famille est révoquée.
+     */
+    @Transactional(noRollbackFor = ResponseStatusException.class)
+    public Rotation echanger(String jeton) {
+        RefreshToken refreshToken = refreshTokenRepository.findByEmpreinte(empreinte(jeton))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Jeton de renouvellement invalide"));
+
+        if (refreshToken.getDateExpiration().isBefore(LocalDateTime.now())) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Jeton de renouvellement expiré");
+        }
+
+        // Mise à jour conditionnelle : de deux échanges simultanés du même jeton, un seul l'emporte
+        if (refreshToken.isUtilise() || refreshTokenRepository.marquerUtilise(refreshToken.getId()) == 0) {
+            int revoques = refreshTokenRepository.deleteByFamille(refreshToken.getFamille());
+            log.warn("Réutilisation d'un jeton de renouvellement de l'utilisateur {} : {} jetons révoqués",
+                    refreshToken.getUtilisateur().getId(), revoques);
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Jeton de renouvellement déjà utilisé");
+        }
+
+        User utilisateur = refreshToken.getUtilisateur();
+        if (!utilisateur.isActif()) {
+            refreshTokenRepository.deleteByFamille(refreshToken.getFamille());
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Compte désactivé");
+        }
+
+        return new Rotation(utilisateur, emettre(utilisateur, refreshToken.getFamille()));
+    }
+
+    @Transactional
+    public void revoquerTout(Long userId) {
+        refreshTokenRepository.deleteByUtilisateurId(userId);
+    }
+
+    /**
+     * Supprime les jetons expirés par lots, chacun dans sa transaction, pour ne pas verrouiller la table
+     */
+    @Scheduled(fixedDelayString = "${lanayago.auth.purge-refresh-tokens.intervalle:PT1H}",
+            initialDelayString = "${lanayago.auth.purge-refresh-tokens.intervalle:PT1H}")
+    public int purgerExpires() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        int total = 0;
+        int supprimes;
+        do {
+            supprimes = transactionTemplate.execute(tx -> {
+                List<Long> ids = refreshTokenRepository.findIdsExpires(maintenant, PageRequest.of(0, tailleLotPurge));
+                return ids.isEmpty() ? 0 : refreshTokenRepository.deleteByIdIn(ids);
+            });
+            total += supprimes;
+        } while (supprimes == tailleLotPurge);
+
+        if (total > 0) {
+            log.info("{} jetons de renouvellement expirés supprimés", total);
+        }
+        return total;
+    }
+
+    private String emettre(User utilisateur, String famille) {
+        byte[] octets = new byte[32];
+        aleatoire.nextBytes(octets);
+        String jeton = Base64.getUrlEncoder().withoutPadding().encodeToString(octets);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setEmpreinte(empreinte(jeton));
+        refreshToken.setFamille(famille);
+        refreshToken.setUtilisateur(utilisateur);
+        refreshToken.setDateExpiration(LocalDateTime.now().plus(Duration.ofMillis(dureeVieMs)));
+        refreshTokenRepository.save(refreshToken);
+
+        return jeton;
+    }
+
+    private static String empreinte(String jeton) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(jeton.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    public record Rotation(User utilisateur, String refreshToken) {
+    }
+}
@@ -0,0 +1,95 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.dto.projection.RepartitionCoursesProjection;
+import com.lanayago.lanayagobackend.entity.enums.GranulariteAgregat;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.repository.ConducteurRepository;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Statistiques détaillées de la plateforme : un parcours groupé des courses, le top 10 par index
+ * et les revenus lus dans les cumuls, quel que soit le nombre de courses.
+ */
+@Service
+@RequiredArgsConstructor
+public class StatistiquesService {
+
+    private final CourseRepository courseRepository;
+    private final ConducteurRepository conducteurRepository;
+    private final AgregatsCoursesService agregatsCoursesService;
+
+    public Map<String, Object> getStatistiquesDetaillees() {
+        Map<String, Object> stats = new HashMap<>();
+
+        // Compteurs par type et statut, indexés par ordinal, remplis en un seul GROUP BY
+        long[][] compteurs = new long[TypeCourse.values().length][StatutCourse.values().length];
+        for (RepartitionCoursesProjection ligne : courseRepository.compterParTypeEtStatut()) {
+            compteurs[ligne.getTypeCourse().ordinal()][ligne.getStatut().ordinal()] = ligne.getNombre();
+        }
+
+        long totalCourses = 0;
+        long coursesTerminees = 0;
+        long coursesAnnulees = 0;
+        Map<String, Long> coursesByType = new HashMap<>();
+
+        for (TypeCourse type : TypeCourse.values()) {
+            long[] parStatut = compteurs[type.ordinal()];
+            long totalType = 0;
+            for (long nombre : parStatut) {
+                totalType += nombre;
+            }
+            coursesByType.put(type.name(), totalType);
+            totalCourses += totalType;
+            coursesTerminees += parStatut[StatutCourse.TERMINEE.ordinal()];
+            coursesAnnulees += parStatut[StatutCourse.ANNULEE.ordinal()];
+        }
+
+        stats.put("coursesParType", coursesByType);
+
+        // Top 10 conducteurs
+        List<Map<String, Object>> topConducteurs = conducteurRepository.findTop10ByOrderByNombreCoursesDesc().stream()
+                .map(c -> {
+                    Map<String, Object> conducteurStats = new HashMap<>();
+                    conducteurStats.put("id", c.getId());
+                    conducteurStats.put("nom", c.getNom() + " " + c.getPrenom());
+                    conducteurStats.put("nombreCourses", c.getNombreCourses());
+                    conducteurStats.put("noteGlobale", c.getNoteGlobale());
+                    return conducteurStats;
+                })
+                .collect(Collectors.toList());
+
+        stats.put("topConducteurs", topConducteurs);
+
+        // Revenus par période, lus dans les cumuls horaires et journaliers
+        LocalDateTime debutSemaine = LocalDateTime.now().minus(7, ChronoUnit.DAYS).truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime debutMois = LocalDateTime.now().withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
+
+        Map<String, Double> revenus = new HashMap<>();
+        revenus.put("semaine", agregatsCoursesService.revenusDepuis(debutSemaine, GranulariteAgregat.HEURE));
+        revenus.put("mois", agregatsCoursesService.revenusDepuis(debutMois, GranulariteAgregat.JOUR));
+
+        stats.put("revenus", revenus);
+
+        // Taux de complétion des courses
+        double tauxCompletion = totalCourses > 0 ? (coursesTerminees * 100.0 / totalCourses) : 0;
+        double tauxAnnulation = totalCourses > 0 ? (coursesAnnulees * 100.0 / totalCourses) : 0;
+
+        Map<String, Double> taux = new HashMap<>();
+        taux.put("completion", tauxCompletion);
+        taux.put("annulation", tauxAnnulation);
+
+        stats.put("taux", taux);
+
+        return stats;
+    }
+}
@@ -0,0 +1,255 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.entity.SegmentTrace;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.event.AbonneEvenementsCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import com.lanayago.lanayagobackend.repository.SegmentTraceRepository;
+import com.lanayago.lanayagobackend.util.CodecTrace;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traces GPS des courses en cours.
+ *
+ * Chaque position envoyée par un conducteur ayant une course attribuée est ajoutée au tampon mémoire
+ * de cette course. Un tampon plein, trop ancien ou celui d'une course qui se termine est compressé
+ * par {@link CodecTrace} et écrit en un seul segment. Un arrêt brutal du serveur perd au plus le
+ * contenu des tampons, soit quelques minutes de trace.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TracesCoursesService implements AbonneEvenementsCourse {
+
+    // Conducteur sans course attribuée : évite de reposer la question à chaque position
+    private static final long AUCUNE_COURSE = 0L;
+
+    private final SegmentTraceRepository segmentTraceRepository;
+    private final CourseRepository courseRepository;
+
+    @Value("${lanayago.traces.points-par-segment:120}")
+    private int pointsParSegment;
+
+    @Value("${lanayago.traces.age-max-tampon:PT2M}")
+    private Duration ageMaxTampon;
+
+    private final Map<Long, Long> coursesActives = new ConcurrentHashMap<>();
+    private final Map<Long, Tampon> tampons = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService ecriture = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("traces-courses").daemon().factory());
+
+    private static final class Tampon {
+        private List<CodecTrace.Point> points = new ArrayList<>();
+        // Retiré de la table : plus rien n'y est ajouté, l'appelant prend un nouveau tampon
+        private boolean retire;
+
+        private synchronized boolean ajouter(CodecTrace.Point point) {
+            if (retire) {
+                return false;
+            }
+            points.add(point);
+            return true;
+        }
+
+        private synchronized List<CodecTrace.Point> viderSiPlein(int capacite) {
+            return points.size() >= capacite ? vider() : null;
+        }
+
+        private synchronized List<CodecTrace.Point> vider() {
+            List<CodecTrace.Point> contenu = points;
+            points = new ArrayList<>();
+            return contenu;
+        }
+
+        private synchronized List<CodecTrace.Point> viderEtRetirer() {
+            retire = true;
+            return vider();
+        }
+
+        private synchronized boolean retirerSiVide() {
+            retire = points.isEmpty();
+            return retire;
+        }
+
+        private synchronized List<CodecTrace.Point> copie() {
+            return List.copyOf(points);
+        }
+
+        private synchronized boolean plusAncienQue(long limite) {
+            return !points.isEmpty() && points.get(0).horodatage() < limite;
+        }
+    }
+
+    @PostConstruct
+    void demarrer() {
+        long periode = Math.max(ageMaxTampon.toMillis() / 4, 1000);
+        ecriture.scheduleWithFixedDelay(this::ecrireTamponsAnciens, periode, periode, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ajoute la position à la trace de la course attribuée au conducteur, s'il en a une
+     */
+    public void enregistrer(Long conducteurId, double latitude, double longitude) {
+        enregistrer(conducteurId, System.currentTimeMillis(), latitude, longitude);
+    }
+
+    public void enregistrer(Long conducteurId, long instant, double latitude, double longitude) {
+        long courseId = courseActive(conducteurId);
+        if (courseId == AUCUNE_COURSE) {
+            return;
+        }
+
+        CodecTrace.Point point = new CodecTrace.Point(instant, latitude, longitude);
+        Tampon tampon;
+        do {
+            tampon = tampons.computeIfAbsent(courseId, id -> new Tampon());
+        } while (!tampon.ajouter(point));
+
+        List<CodecTrace.Point> plein = tampon.viderSiPlein(pointsParSegment);
+        if (plein != null) {
+            ecriture.execute(() -> ecrire(courseId, plein));
+        }
+    }
+
+    /**
+     * Course attribuée au conducteur, cherchée en base à sa première position. La requête se fait hors
+     * de la table : un computeIfAbsent la ferait sous le verrou partagé par les conducteurs de la même case.
+     */
+    private long courseActive(Long conducteurId) {
+        Long connue = coursesActives.get(conducteurId);
+        if (connue != null) {
+            return connue;
+        }
+        long trouvee = chercherCourseActive(conducteurId);
+        // Un événement d'acceptation reçu pendant la requête l'emporte sur la lecture
+        Long gagnante = coursesActives.putIfAbsent(conducteurId, trouvee);
+        return gagnante != null ? gagnante : trouvee;
+    }
+
+    /**
+     * Trace complète de la course : segments écrits puis positions encore en mémoire
+     */
+    public List<CodecTrace.Point> lire(Long courseId) {
+        List<CodecTrace.Point> points = new ArrayList<>();
+        for (byte[] donnees : segmentTraceRepository.findDonneesByCourseId(courseId)) {
+            CodecTrace.decoder(donnees, points);
+        }
+
+        Tampon tampon = tampons.get(courseId);
+        if (tampon != null) {
+            points.addAll(tampon.copie());
+        }
+        // Deux segments vidés presque simultanément peuvent être écrits dans le désordre
+        points.sort(Comparator.comparingLong(CodecTrace.Point::horodatage));
+        return points;
+    }
+
+    @Override
+    public void surEvenementCourse(CourseEvenement evenement) {
+        if (evenement.conducteurId() == null) {
+            return;
+        }
+
+        switch (evenement.type()) {
+            case ACCEPTEE -> coursesActives.put(evenement.conducteurId(), evenement.courseId());
+            case ANNULEE -> cloturer(evenement);
+            case STATUT_MODIFIE -> {
+                if (evenement.statut() == StatutCourse.TERMINEE) {
+                    cloturer(evenement);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void cloturer(CourseEvenement evenement) {
+        coursesActives.computeIfPresent(evenement.conducteurId(),
+                (conducteurId, courseId) -> courseId.equals(evenement.courseId()) ? AUCUNE_COURSE : courseId);
+
+        Tampon tampon = tampons.remove(evenement.courseId());
+        if (tampon != null) {
+            List<CodecTrace.Point> reste = tampon.viderEtRetirer();
+            ecriture.execute(() -> ecrire(evenement.courseId(), reste));
+        }
+    }
+
+    private long chercherCourseActive(Long conducteurId) {
+        List<Long> ids = courseRepository.findIdsCoursesActives(conducteurId, PageRequest.of(0, 1));
+        return ids.isEmpty() ? AUCUNE_COURSE : ids.get(0);
+    }
+
+    /**
+     * Écrit les tampons trop anciens ; un tampon resté vide depuis le passage précédent est retiré
+     * (course dont la fin n'a pas été reçue, conducteur à l'arrêt)
+     */
+    void ecrireTamponsAnciens() {
+        long limite = System.currentTimeMillis() - ageMaxTampon.toMillis();
+        tampons.forEach((courseId, tampon) -> {
+            if (tampon.plusAncienQue(limite)) {
+                ecrire(courseId, tampon.vider());
+            } else if (tampon.retirerSiVide()) {
+                tampons.remove(courseId, tampon);
+            }
+        });
+    }
+
+    boolean aUnTampon(Long courseId) {
+        return tampons.containsKey(courseId);
+    }
+
+    private void ecrire(Long courseId, List<CodecTrace.Point> points) {
+        if (points.isEmpty()) {
+            return;
+        }
+
+        try {
+            SegmentTrace segment = new SegmentTrace();
+            segment.setCourseId(courseId);
+            segment.setNombrePoints(points.size());
+            segment.setDebut(versDate(points.get(0).horodatage()));
+            segment.setFin(versDate(points.get(points.size() - 1).horodatage()));
+            segment.setDonnees(CodecTrace.encoder(points));
+            segmentTraceRepository.save(segment);
+        } catch (RuntimeException e) {
+            log.error("Segment de {} positions perdu pour la course {}", points.size(), courseId, e);
+        }
+    }
+
+    private static LocalDateTime versDate(long horodatage) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(horodatage), ZoneId.systemDefault());
+    }
+
+    @PreDestroy
+    void fermer() {
+        ecriture.shutdown();
+        try {
+            ecriture.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Les tampons restants sont écrits avant la fermeture de la base
+        tampons.forEach((courseId, tampon) -> ecrire(courseId, tampon.vider()));
+    }
+}
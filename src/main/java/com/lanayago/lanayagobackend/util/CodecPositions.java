@@ -0,0 +1,78 @@
+package com.lanayago.lanayagobackend.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Format binaire des lots de positions envoyés par l'application conducteur.
+ *
+ * Enregistrements de {@value #TAILLE_ENREGISTREMENT} octets, big-endian, mis bout à bout sans en-tête :
+ * horodatage du fix (int64, millisecondes depuis l'epoch), latitude puis longitude (int32, 1e-7 degré).
+ * Un fix coûte 16 octets contre une centaine pour une requête JSON.
+ */
+public final class CodecPositions {
+
+    public static final String TYPE_MEDIA = "application/vnd.lanayago.positions";
+
+    public static final int TAILLE_ENREGISTREMENT = 16;
+
+    private static final double PRECISION = 1e7;
+
+    private CodecPositions() {
+    }
+
+    public static List<CodecTrace.Point> decoder(byte[] donnees) {
+        if (donnees.length % TAILLE_ENREGISTREMENT != 0) {
+            throw new IllegalArgumentException("Le corps doit contenir des enregistrements de "
+                    + TAILLE_ENREGISTREMENT + " octets");
+        }
+
+        ByteBuffer tampon = ByteBuffer.wrap(donnees);
+        List<CodecTrace.Point> points = new ArrayList<>(donnees.length / TAILLE_ENREGISTREMENT);
+        while (tampon.hasRemaining()) {
+            points.add(new CodecTrace.Point(tampon.getLong(), tampon.getInt() / PRECISION, tampon.getInt() / PRECISION));
+        }
+        return points;
+    }
+
+    public static byte[] encoder(List<CodecTrace.Point> points) {
+        ByteBuffer tampon = ByteBuffer.allocate(points.size() * TAILLE_ENREGISTREMENT);
+        for (CodecTrace.Point point : points) {
+            tampon.putLong(point.horodatage());
+            tampon.putInt((int) Math.round(point.latitude() * PRECISION));
+            tampon.putInt((int) Math.round(point.longitude() * PRECISION));
+        }
+        return tampon.array();
+    }
+
+    /**
+     * Lecteur d'un flux d'enregistrements, pour traiter chaque fix dès son arrivée
+     */
+    public static final class Lecteur {
+        private final InputStream entree;
+        private final byte[] enregistrement = new byte[TAILLE_ENREGISTREMENT];
+        private final ByteBuffer tampon = ByteBuffer.wrap(enregistrement);
+
+        public Lecteur(InputStream entree) {
+            this.entree = entree;
+        }
+
+        /**
+         * Fix suivant, ou null à la fin du flux. Un enregistrement incomplet est une erreur.
+         */
+        public CodecTrace.Point suivant() throws IOException {
+            int lus = entree.readNBytes(enregistrement, 0, TAILLE_ENREGISTREMENT);
+            if (lus == 0) {
+                return null;
+            }
+            if (lus < TAILLE_ENREGISTREMENT) {
+                throw new IllegalArgumentException("Enregistrement de position tronqué en fin de flux");
+            }
+            tampon.clear();
+            return new CodecTrace.Point(tampon.getLong(), tampon.getInt() / PRECISION, tampon.getInt() / PRECISION);
+        }
+    }
+}
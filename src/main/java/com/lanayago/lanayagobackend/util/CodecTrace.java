@@ -0,0 +1,149 @@
+package com.lanayago.lanayagobackend.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodage compact d'une suite de points GPS en un segment binaire.
+ *
+ * Format : octet de version, nombre de points, puis pour chaque point trois entiers varint zigzag :
+ * <ul>
+ *     <li>horodatage en millisecondes : absolu pour le premier point, écart avec le précédent pour le second,
+ *     puis variation de cet écart (delta-of-delta), proche de zéro quand le conducteur émet à intervalle régulier ;</li>
+ *     <li>latitude et longitude en virgule fixe au 1e-5 degré (environ 1,1 m) : absolues pour le premier point,
+ *     puis écart avec le point précédent.</li>
+ * </ul>
+ * Un point émis toutes les quelques secondes coûte en général 4 à 6 octets, contre 24 en clair.
+ */
+public final class CodecTrace {
+
+    public static final int VERSION = 1;
+
+    private static final double PRECISION = 1e5;
+
+    /**
+     * Position horodatée en millisecondes depuis l'epoch
+     */
+    public record Point(long horodatage, double latitude, double longitude) {
+    }
+
+    private CodecTrace() {
+    }
+
+    public static byte[] encoder(List<Point> points) {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream(8 + points.size() * 6);
+        sortie.write(VERSION);
+        ecrireVarint(sortie, points.size());
+
+        long horodatagePrecedent = 0;
+        long ecartPrecedent = 0;
+        long latitudePrecedente = 0;
+        long longitudePrecedente = 0;
+
+        for (int i = 0; i < points.size(); i++) {
+            Point point = points.get(i);
+            long latitude = versFixe(point.latitude());
+            long longitude = versFixe(point.longitude());
+
+            if (i == 0) {
+                ecrireZigzag(sortie, point.horodatage());
+            } else {
+                long ecart = point.horodatage() - horodatagePrecedent;
+                ecrireZigzag(sortie, i == 1 ? ecart : ecart - ecartPrecedent);
+                ecartPrecedent = ecart;
+            }
+            ecrireZigzag(sortie, latitude - latitudePrecedente);
+            ecrireZigzag(sortie, longitude - longitudePrecedente);
+
+            horodatagePrecedent = point.horodatage();
+            latitudePrecedente = latitude;
+            longitudePrecedente = longitude;
+        }
+        return sortie.toByteArray();
+    }
+
+    public static List<Point> decoder(byte[] donnees) {
+        List<Point> points = new ArrayList<>();
+        decoder(donnees, points);
+        return points;
+    }
+
+    /**
+     * Décode le segment à la suite des points déjà présents dans la liste
+     */
+    public static void decoder(byte[] donnees, List<Point> points) {
+        Lecteur lecteur = new Lecteur(donnees);
+        int version = lecteur.octet();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Version de segment de trace inconnue : " + version);
+        }
+
+        long nombre = lecteur.varint();
+        long horodatage = 0;
+        long ecart = 0;
+        long latitude = 0;
+        long longitude = 0;
+
+        for (long i = 0; i < nombre; i++) {
+            if (i == 0) {
+                horodatage = lecteur.zigzag();
+            } else {
+                ecart = i == 1 ? lecteur.zigzag() : ecart + lecteur.zigzag();
+                horodatage += ecart;
+            }
+            latitude += lecteur.zigzag();
+            longitude += lecteur.zigzag();
+            points.add(new Point(horodatage, latitude / PRECISION, longitude / PRECISION));
+        }
+    }
+
+    private static long versFixe(double degres) {
+        return Math.round(degres * PRECISION);
+    }
+
+    private static void ecrireZigzag(ByteArrayOutputStream sortie, long valeur) {
+        ecrireVarint(sortie, (valeur << 1) ^ (valeur >> 63));
+    }
+
+    private static void ecrireVarint(ByteArrayOutputStream sortie, long valeur) {
+        while ((valeur & ~0x7FL) != 0) {
+            sortie.write((int) ((valeur & 0x7F) | 0x80));
+            valeur >>>= 7;
+        }
+        sortie.write((int) valeur);
+    }
+
+    private static final class Lecteur {
+        private final byte[] donnees;
+        private int position;
+
+        private Lecteur(byte[] donnees) {
+            this.donnees = donnees;
+        }
+
+        private int octet() {
+            if (position >= donnees.length) {
+                throw new IllegalArgumentException("Segment de trace tronqué");
+            }
+            return donnees[position++] & 0xFF;
+        }
+
+        private long varint() {
+            long valeur = 0;
+            for (int decalage = 0; decalage < 64; decalage += 7) {
+                int octet = octet();
+                valeur |= (long) (octet & 0x7F) << decalage;
+                if ((octet & 0x80) == 0) {
+                    return valeur;
+                }
+            }
+            throw new IllegalArgumentException("Varint invalide dans le segment de trace");
+        }
+
+        private long zigzag() {
+            long valeur = varint();
+            return (valeur >>> 1) ^ -(valeur & 1);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.lanayago.lanayagobackend.util;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Encodage geohash (base 32) utilisé pour indexer les points de départ des courses
+ */
+public final class GeoHash {
+
+    // ~4,9 km x 4,9 km à l'équateur
+    public static final int PRECISION_COURSES = 5;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private GeoHash() {
+    }
+
+    public static String encoder(double latitude, double longitude, int precision) {
+        double latMin = -90, latMax = 90;
+        double lonMin = -180, lonMax = 180;
+
+        StringBuilder hash = new StringBuilder(precision);
+        boolean bitLongitude = true;
+        int bit = 0;
+        int valeur = 0;
+
+        while (hash.length() < precision) {
+            if (bitLongitude) {
+                double milieu = (lonMin + lonMax) / 2;
+                if (longitude >= milieu) {
+                    valeur = (valeur << 1) | 1;
+                    lonMin = milieu;
+                } else {
+                    valeur = valeur << 1;
+                    lonMax = milieu;
+                }
+            } else {
+                double milieu = (latMin + latMax) / 2;
+                if (latitude >= milieu) {
+                    valeur = (valeur << 1) | 1;
+                    latMin = milieu;
+                } else {
+                    valeur = valeur << 1;
+                    latMax = milieu;
+                }
+            }
+            bitLongitude = !bitLongitude;
+
+            if (++bit == 5) {
+                hash.append(BASE32[valeur]);
+                bit = 0;
+                valeur = 0;
+            }
+        }
+
+        return hash.toString();
+    }
+
+    public static double hauteurCellule(int precision) {
+        return 180.0 / (1L << ((5 * precision) / 2));
+    }
+
+    public static double largeurCellule(int precision) {
+        return 360.0 / (1L << ((5 * precision + 1) / 2));
+    }
+
+    /**
+     * Cellules de la précision donnée qui intersectent le rectangle [latMin, latMax] x [lonMin, lonMax]
+     */
+    public static Set<String> cellulesCouvrantes(double latMin, double lonMin,
+                                                 double latMax, double lonMax, int precision) {
+        double pasLat = hauteurCellule(precision);
+        double pasLon = largeurCellule(precision);
+
+        // Un échantillon par pas de cellule, bornes incluses : chaque cellule touchée contient au moins un échantillon
+        Set<String> cellules = new LinkedHashSet<>();
+        for (double lat = latMin; ; lat = Math.min(lat + pasLat, latMax)) {
+            for (double lon = lonMin; ; lon = Math.min(lon + pasLon, lonMax)) {
+                cellules.add(encoder(lat, lon, precision));
+                if (lon >= lonMax) {
+                    break;
+                }
+            }
+            if (lat >= latMax) {
+                break;
+            }
+        }
+        return cellules;
+    }
+}
@@ -0,0 +1,46 @@
+package com.lanayago.lanayagobackend.util;
+
+public final class GeoUtils {
+
+    public static final double RAYON_TERRE_KM = 6371.0;
+
+    // Longueur approximative d'un degré de latitude
+    public static final double KM_PAR_DEGRE_LATITUDE = 111.32;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Distance orthodromique entre deux points (formule de Haversine), en km
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return RAYON_TERRE_KM * c;
+    }
+
+    /**
+     * Largeur en degrés de longitude d'une distance donnée à une latitude donnée
+     */
+    public static double degresLongitude(double distanceKm, double latitude) {
+        double cos = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        return distanceKm / (KM_PAR_DEGRE_LATITUDE * cos);
+    }
+
+    public static double degresLatitude(double distanceKm) {
+        return distanceKm / KM_PAR_DEGRE_LATITUDE;
+    }
+
+    public static boolean coordonneesValides(Double latitude, Double longitude) {
+        return latitude != null && longitude != null
+                && latitude >= -90 && latitude <= 90
+                && longitude >= -180 && longitude <= 180;
+    }
+}
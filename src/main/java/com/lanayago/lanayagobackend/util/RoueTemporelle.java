@@ -0,0 +1,86 @@
+package com.lanayago.lanayagobackend.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Roue temporelle hachée : les échéances sont rangées dans un anneau de cases d'une durée fixe,
+ * la case étant l'échéance modulo la taille de l'anneau. Planifier coûte O(1) quel que soit le
+ * nombre d'échéances, et chaque tic ne parcourt que la case qui vient d'échoir.
+ *
+ * La roue ne retient pas l'échéance exacte de ses clés : une clé planifiée plus d'un tour à l'avance,
+ * ou dont le propriétaire a repoussé l'échéance entre-temps, lui est rendue au passage de sa case.
+ * Le propriétaire vérifie l'échéance et replanifie si elle n'est pas atteinte ; repousser une
+ * échéance ne touche donc jamais la roue.
+ */
+public class RoueTemporelle<K> {
+
+    private final long dureeCaseMs;
+    private final Set<K>[] cases;
+
+    // Dernier tic dont la case est en cours de parcours ou parcourue : avancé avant de vider la case
+    private volatile long dernierTic;
+
+    @SuppressWarnings("unchecked")
+    public RoueTemporelle(Duration dureeCase, int nombreCases, long maintenant) {
+        if (dureeCase.toMillis() <= 0 || nombreCases <= 0) {
+            throw new IllegalArgumentException("Durée de case et nombre de cases doivent être positifs");
+        }
+        this.dureeCaseMs = dureeCase.toMillis();
+        this.cases = new Set[nombreCases];
+        for (int i = 0; i < nombreCases; i++) {
+            cases[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.dernierTic = maintenant / dureeCaseMs;
+    }
+
+    /**
+     * Range la clé dans la case de son échéance ; une échéance déjà passée échoit au prochain tic
+     */
+    public void planifier(K cle, long echeance) {
+        // Arrondi supérieur : la case n'échoit jamais avant l'échéance
+        long tic = Math.max(Math.floorDiv(echeance + dureeCaseMs - 1, dureeCaseMs), dernierTic + 1);
+        while (true) {
+            Set<K> casePlanifiee = cases[(int) Math.floorMod(tic, (long) cases.length)];
+            casePlanifiee.add(cle);
+
+            // Sans verrou : avancer() a pu entamer cette case entre la lecture de dernierTic et l'ajout.
+            // Si la clé y est encore, elle a peut-être échappé au parcours : elle passe au tic suivant.
+            long parcouru = dernierTic;
+            if (tic > parcouru || !casePlanifiee.remove(cle)) {
+                return;
+            }
+            tic = parcouru + 1;
+        }
+    }
+
+    /**
+     * Parcourt les cases échues jusqu'à l'instant donné et rend leurs clés, retirées de la roue.
+     * Appelé par un seul thread.
+     */
+    public synchronized void avancer(long maintenant, Consumer<K> echues) {
+        long cible = maintenant / dureeCaseMs;
+        // Après une longue pause, un tour complet suffit à vider toutes les cases
+        long debut = Math.max(dernierTic + 1, cible - cases.length + 1);
+
+        List<K> lot = new ArrayList<>();
+        for (long tic = debut; tic <= cible; tic++) {
+            // Annoncé avant le parcours : une planification concurrente sait que la case est entamée
+            dernierTic = tic;
+            Iterator<K> cles = cases[(int) Math.floorMod(tic, (long) cases.length)].iterator();
+            while (cles.hasNext()) {
+                lot.add(cles.next());
+                cles.remove();
+            }
+
+            // Case vidée avant de rendre ses clés : une clé replanifiée un tour plus loin n'y est pas relue
+            lot.forEach(echues);
+            lot.clear();
+        }
+    }
+}
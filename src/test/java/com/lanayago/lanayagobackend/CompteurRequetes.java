@@ -0,0 +1,105 @@
+package com.lanayago.lanayagobackend;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Requêtes SQL, entités chargées et transactions comptées sur le seul thread qui appelle
+ * {@link #mesurer(Runnable)} : les tâches de fond du contexte (relais de l'outbox, écriture de la
+ * présence, traces, expiration) partagent la SessionFactory et fausseraient ses statistiques globales.
+ * Inspecteur de requêtes (application-test.yml) et intégrateur (META-INF/services) pour Hibernate,
+ * écouteur de transactions pour Spring.
+ */
+@Component
+public class CompteurRequetes implements StatementInspector, Integrator, PostLoadEventListener,
+        TransactionExecutionListener {
+
+    private static final ThreadLocal<Mesure> MESURE = new ThreadLocal<>();
+
+    public static <E extends Exception> Mesure mesurer(Appel<E> appel) throws E {
+        Mesure mesure = new Mesure();
+        MESURE.set(mesure);
+        try {
+            appel.executer();
+        } finally {
+            MESURE.remove();
+        }
+        return mesure;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Mesure mesure = MESURE.get();
+        if (mesure != null) {
+            mesure.requetes++;
+        }
+        return sql;
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        Mesure mesure = MESURE.get();
+        if (mesure != null) {
+            mesure.chargements.merge(event.getEntity().getClass(), 1L, Long::sum);
+        }
+    }
+
+    @Override
+    public void beforeBegin(TransactionExecution transaction) {
+        Mesure mesure = MESURE.get();
+        if (mesure != null) {
+            mesure.transactions++;
+        }
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        sessionFactory.getServiceRegistry().requireService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_LOAD, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @FunctionalInterface
+    public interface Appel<E extends Exception> {
+        void executer() throws E;
+    }
+
+    public static class Mesure {
+        private long requetes;
+        private long transactions;
+        private final Map<Class<?>, Long> chargements = new HashMap<>();
+
+        public long requetes() {
+            return requetes;
+        }
+
+        public long transactions() {
+            return transactions;
+        }
+
+        public long chargements() {
+            return chargements.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long chargements(Class<?> entite) {
+            return chargements.getOrDefault(entite, 0L);
+        }
+    }
+}
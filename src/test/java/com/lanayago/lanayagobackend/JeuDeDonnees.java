@@ -0,0 +1,184 @@
+package com.lanayago.lanayagobackend;
+
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.Engin;
+import com.lanayago.lanayagobackend.entity.Moto;
+import com.lanayago.lanayagobackend.entity.Propriotaire;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.Roles;
+import com.lanayago.lanayagobackend.entity.enums.StatutConducteur;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import com.lanayago.lanayagobackend.repository.EnginRepository;
+import com.lanayago.lanayagobackend.repository.UserRepository;
+import com.lanayago.lanayagobackend.security.UtilisateurConnecte;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Jeu de données des tests d'intégration : client, conducteur approuvé, propriétaire et sa moto,
+ * courses. Portée prototype : chaque instance de classe de test reçoit le sien. Les emails, permis
+ * et matricules portent un suffixe aléatoire propre à l'instance, la base étant partagée entre les
+ * classes. {@link #nettoyer()} supprime tout ce que l'instance a enregistré, courses en premier.
+ */
+@Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+public class JeuDeDonnees {
+
+    private final UserRepository userRepository;
+    private final EnginRepository enginRepository;
+    private final CourseRepository courseRepository;
+
+    private final String suffixe = UUID.randomUUID().toString().substring(0, 8);
+    private int numero;
+
+    private final List<Long> utilisateurs = new ArrayList<>();
+    private final List<Long> engins = new ArrayList<>();
+    // Supprimés après leurs engins, eux-mêmes après les conducteurs qui les utilisent
+    private final List<Long> proprietaires = new ArrayList<>();
+    private final List<Long> courses = new ArrayList<>();
+
+    public JeuDeDonnees(UserRepository userRepository, EnginRepository enginRepository,
+                        CourseRepository courseRepository) {
+        this.userRepository = userRepository;
+        this.enginRepository = enginRepository;
+        this.courseRepository = courseRepository;
+    }
+
+    public User client() {
+        User client = new User();
+        client.setNom("Client");
+        client.setPrenom("Test");
+        client.setEmail("client-" + identifiant() + "@test.ci");
+        client.setPassword("x");
+        client.setRole(Roles.CLIENT);
+        return utilisateur(client);
+    }
+
+    /**
+     * Conducteur approuvé, sans engin
+     */
+    public Conducteur conducteur() {
+        return conducteur(null);
+    }
+
+    public Conducteur conducteur(Engin engin) {
+        Conducteur conducteur = nouveauConducteur();
+        conducteur.setEnginActuel(engin);
+        return utilisateur(conducteur);
+    }
+
+    /**
+     * Conducteur approuvé non enregistré ni supprimé par le jeu de données : insertions en masse
+     */
+    public Conducteur nouveauConducteur() {
+        String identifiant = identifiant();
+        Conducteur conducteur = new Conducteur();
+        conducteur.setNom("Conducteur");
+        conducteur.setPrenom("Test");
+        conducteur.setEmail("conducteur-" + identifiant + "@test.ci");
+        conducteur.setPassword("x");
+        conducteur.setRole(Roles.CONDUCTEUR);
+        conducteur.setNumPermis("P" + identifiant);
+        conducteur.setStatut(StatutConducteur.APPROUVE);
+        return conducteur;
+    }
+
+    public Propriotaire proprietaire() {
+        Propriotaire proprietaire = new Propriotaire();
+        proprietaire.setNom("Proprietaire");
+        proprietaire.setPrenom("Test");
+        proprietaire.setEmail("proprietaire-" + identifiant() + "@test.ci");
+        proprietaire.setPassword("x");
+        proprietaire.setRole(Roles.PROPRIETAIRE);
+        proprietaire = userRepository.save(proprietaire);
+        proprietaires.add(proprietaire.getId());
+        return proprietaire;
+    }
+
+    public Moto moto(Propriotaire proprietaire) {
+        Moto moto = new Moto();
+        moto.setMarque("Yamaha");
+        moto.setModele("Crypton");
+        moto.setCouleur("Rouge");
+        moto.setMatricule("M-" + identifiant());
+        moto.setCylindree(125);
+        moto.setPropriotaire(proprietaire);
+        moto = enginRepository.save(moto);
+        engins.add(moto.getId());
+        return moto;
+    }
+
+    /**
+     * Livraison moto du Plateau à Cocody, non enregistrée
+     */
+    public static Course nouvelleCourse(User client, Conducteur conducteur, StatutCourse statut) {
+        Course course = new Course();
+        course.setTypeCourse(TypeCourse.LIVRAISON_MOTO);
+        course.setClient(client);
+        course.setConducteur(conducteur);
+        course.setAdresseDepart("Plateau");
+        course.setAdresseArrivee("Cocody");
+        course.setStatut(statut);
+        return course;
+    }
+
+    public Course course(User client, Conducteur conducteur, StatutCourse statut) {
+        return enregistrer(nouvelleCourse(client, conducteur, statut));
+    }
+
+    /**
+     * Enregistre la course et la supprime au nettoyage
+     */
+    public Course enregistrer(Course course) {
+        course = courseRepository.save(course);
+        if (!courses.contains(course.getId())) {
+            courses.add(course.getId());
+        }
+        return course;
+    }
+
+    /**
+     * Authentifie l'utilisateur sur le thread courant, comme le ferait son JWT
+     */
+    public static void authentifier(User utilisateur) {
+        UtilisateurConnecte principal = UtilisateurConnecte.de(utilisateur).sansMotDePasse();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    /**
+     * Vide le contexte de sécurité puis supprime courses, clients et conducteurs, engins et
+     * propriétaires, dans cet ordre. Une ligne déjà supprimée par le test est ignorée.
+     */
+    public void nettoyer() {
+        SecurityContextHolder.clearContext();
+        courseRepository.deleteAllById(courses);
+        userRepository.deleteAllById(utilisateurs);
+        enginRepository.deleteAllById(engins);
+        userRepository.deleteAllById(proprietaires);
+        courses.clear();
+        utilisateurs.clear();
+        engins.clear();
+        proprietaires.clear();
+    }
+
+    private <T extends User> T utilisateur(T utilisateur) {
+        utilisateur = userRepository.save(utilisateur);
+        utilisateurs.add(utilisateur.getId());
+        return utilisateur;
+    }
+
+    private String identifiant() {
+        return suffixe + "-" + numero++;
+    }
+}
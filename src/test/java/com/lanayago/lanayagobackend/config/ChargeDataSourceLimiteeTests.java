@@ -0,0 +1,216 @@
+package com.lanayago.lanayagobackend.config;
+
+import com.lanayago.lanayagobackend.LanayagoBackendApplication;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.Roles;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import com.lanayago.lanayagobackend.security.JwtUtil;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Même charge HTTP de bout en bout contre l'application en threads plateforme (Tomcat, 200 threads)
+ * puis en threads virtuels (THREADS_VIRTUELS=true, donc {@link DataSourceLimitee}), avec le même pool et
+ * le même délai d'obtention d'une connexion dans les deux modes.
+ *
+ * Chaque requête traverse Tomcat, Spring Security (JWT), Spring MVC, une transaction Spring/Hibernate et
+ * une requête SQL, puis garde sa connexion {@link #DUREE_TRANSACTION} comme une transaction réelle.
+ * Les épinglages de threads virtuels (jdk.VirtualThreadPinned, sans seuil) sont relevés par JFR pendant
+ * la charge, avec la première frame applicative ou de bibliothèque de leur pile.
+ *
+ * Base du profil de test (H2 en mémoire) : les chiffres décrivent la file d'attente devant le pool, pas
+ * le pilote MySQL. Lancement : LANAYAGO_BENCH=true ./gradlew test --tests '*ChargeDataSourceLimiteeTests'
+ */
+@EnabledIfEnvironmentVariable(named = "LANAYAGO_BENCH", matches = "true")
+class ChargeDataSourceLimiteeTests {
+
+    private static final int REQUETES = 2_000;
+    private static final int CONNEXIONS = 5;
+    private static final Duration ATTENTE_MAX_CONNEXION = Duration.ofSeconds(5);
+    private static final Duration DUREE_TRANSACTION = Duration.ofMillis(20);
+
+    @TestConfiguration
+    static class Charge {
+
+        @Bean
+        ControleurCharge controleurCharge(TransactionTemplate transactionTemplate, CourseRepository courseRepository) {
+            return new ControleurCharge(transactionTemplate, courseRepository);
+        }
+    }
+
+    @RestController
+    static class ControleurCharge {
+
+        private final TransactionTemplate transactionTemplate;
+        private final CourseRepository courseRepository;
+
+        ControleurCharge(TransactionTemplate transactionTemplate, CourseRepository courseRepository) {
+            this.transactionTemplate = transactionTemplate;
+            this.courseRepository = courseRepository;
+        }
+
+        @GetMapping("/api/charge")
+        Long charger() {
+            return transactionTemplate.execute(tx -> {
+                long courses = courseRepository.count();
+                try {
+                    Thread.sleep(DUREE_TRANSACTION);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return courses;
+            });
+        }
+    }
+
+    private record Resultat(long reussies, long echecs, long p50Ms, long p99Ms, long maxMs, double secondes,
+                            int threadsPlateformeAvant, int threadsPlateformeMax, long epinglages, Map<String, Integer> sourcesEpinglage) {
+    }
+
+    @Test
+    void threadsPlateformeContreThreadsVirtuels() throws Exception {
+        Resultat plateforme = charger(false);
+        Resultat virtuels = charger(true);
+
+        System.out.printf("%d requêtes simultanées, %d connexions, attente max d'une connexion %d ms, transaction %d ms%n",
+                REQUETES, CONNEXIONS, ATTENTE_MAX_CONNEXION.toMillis(), DUREE_TRANSACTION.toMillis());
+        afficher("Threads plateforme", plateforme);
+        afficher("Threads virtuels", virtuels);
+
+        assertThat(plateforme.reussies() + plateforme.echecs()).isEqualTo(REQUETES);
+        assertThat(virtuels.reussies() + virtuels.echecs()).isEqualTo(REQUETES);
+    }
+
+    private static Resultat charger(boolean threadsVirtuels) throws Exception {
+        // En arguments de ligne de commande : ils priment sur application.yml, pas les propriétés par défaut
+        try (ConfigurableApplicationContext contexte = new SpringApplicationBuilder(LanayagoBackendApplication.class, Charge.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + threadsVirtuels,
+                        "--spring.datasource.hikari.maximum-pool-size=" + CONNEXIONS,
+                        "--spring.datasource.hikari.minimum-idle=" + CONNEXIONS,
+                        "--spring.datasource.hikari.connection-timeout=" + ATTENTE_MAX_CONNEXION.toMillis(),
+                        "--lanayago.datasource.attente-max=" + ATTENTE_MAX_CONNEXION)) {
+            int port = ((ServletWebServerApplicationContext) contexte).getWebServer().getPort();
+            URI adresse = URI.create("http://localhost:" + port + "/api/charge");
+            String jeton = contexte.getBean(JwtUtil.class).generateToken(utilisateur());
+
+            LongAdder epinglages = new LongAdder();
+            Map<String, Integer> sources = new ConcurrentHashMap<>();
+            try (RecordingStream enregistrement = new RecordingStream();
+                 var executeurClient = Executors.newVirtualThreadPerTaskExecutor();
+                 HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                         .executor(executeurClient).build()) {
+                enregistrement.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+                enregistrement.onEvent("jdk.VirtualThreadPinned", evenement -> {
+                    epinglages.increment();
+                    sources.merge(source(evenement.getStackTrace().getFrames()), 1, Integer::sum);
+                });
+                enregistrement.startAsync();
+
+                // Échauffement : compilation JIT, pool rempli
+                envoyer(client, adresse, jeton, 200, new long[200]);
+
+                var threads = ManagementFactory.getThreadMXBean();
+                threads.resetPeakThreadCount();
+                int threadsPlateformeAvant = threads.getThreadCount();
+                long[] latencesNs = new long[REQUETES];
+                long debut = System.nanoTime();
+                long reussies = envoyer(client, adresse, jeton, REQUETES, latencesNs);
+                double secondes = (System.nanoTime() - debut) / 1e9;
+                int threadsPlateformeMax = threads.getPeakThreadCount();
+                enregistrement.stop();
+
+                Arrays.sort(latencesNs);
+                return new Resultat(reussies, REQUETES - reussies, centile(latencesNs, 0.50), centile(latencesNs, 0.99),
+                        latencesNs[REQUETES - 1] / 1_000_000, secondes, threadsPlateformeAvant, threadsPlateformeMax,
+                        epinglages.sum(), sources);
+            }
+        }
+    }
+
+    /**
+     * Toutes les requêtes partent ensemble, chacune sur son thread virtuel côté client
+     */
+    private static long envoyer(HttpClient client, URI adresse, String jeton, int nombre, long[] latencesNs) {
+        HttpRequest requete = HttpRequest.newBuilder(adresse)
+                .header("Authorization", "Bearer " + jeton)
+                .timeout(Duration.ofMinutes(2))
+                .build();
+        LongAdder reussies = new LongAdder();
+        try (var executeur = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < nombre; i++) {
+                int indice = i;
+                executeur.execute(() -> {
+                    long envoi = System.nanoTime();
+                    try {
+                        if (client.send(requete, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                            reussies.increment();
+                        }
+                    } catch (Exception e) {
+                        // Compté en échec
+                    } finally {
+                        latencesNs[indice] = System.nanoTime() - envoi;
+                    }
+                });
+            }
+        }
+        return reussies.sum();
+    }
+
+    private static User utilisateur() {
+        User utilisateur = new User();
+        utilisateur.setId(Long.MAX_VALUE);
+        utilisateur.setEmail("charge@test.ci");
+        utilisateur.setRole(Roles.CLIENT);
+        return utilisateur;
+    }
+
+    /**
+     * Première frame hors JDK : le code qui tenait le moniteur ou la frame native
+     */
+    private static String source(List<RecordedFrame> frames) {
+        return frames.stream()
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                .filter(methode -> !methode.startsWith("java.") && !methode.startsWith("jdk.") && !methode.startsWith("sun."))
+                .findFirst()
+                .orElse(frames.isEmpty() ? "?" : frames.get(0).getMethod().getType().getName());
+    }
+
+    private static long centile(long[] triees, double rang) {
+        return triees[(int) Math.min(triees.length - 1, Math.round(rang * triees.length))] / 1_000_000;
+    }
+
+    private static void afficher(String mode, Resultat resultat) {
+        System.out.printf("%-18s : %d réussies, %d échecs, latence p50 %d ms, p99 %d ms, max %d ms, en %.1f s, "
+                        + "threads plateforme %d avant la charge, %d au plus, %d épinglages%n",
+                mode, resultat.reussies(), resultat.echecs(), resultat.p50Ms(), resultat.p99Ms(), resultat.maxMs(),
+                resultat.secondes(), resultat.threadsPlateformeAvant(), resultat.threadsPlateformeMax(),
+                resultat.epinglages());
+        resultat.sourcesEpinglage().forEach((source, nombre) -> System.out.printf("    %5d  %s%n", nombre, source));
+    }
+}
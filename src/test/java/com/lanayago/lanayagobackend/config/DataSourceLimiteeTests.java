@@ -0,0 +1,66 @@
+package com.lanayago.lanayagobackend.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DataSourceLimiteeTests {
+
+    @Test
+    void lAttenteSeFaitSurLeSemaphoreJusquALaFermeture() throws Exception {
+        DataSource cible = mock(DataSource.class);
+        Connection connexion = mock(Connection.class);
+        when(cible.getConnection()).thenReturn(connexion);
+        DataSourceLimitee dataSource = new DataSourceLimitee(cible, 1, Duration.ofSeconds(5));
+
+        Connection premiere = dataSource.getConnection();
+        try (var executeur = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<Connection> seconde = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return dataSource.getConnection();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executeur);
+
+            while (dataSource.connexionsEnAttente() == 0) {
+                Thread.onSpinWait();
+            }
+            assertThat(seconde).isNotDone();
+
+            premiere.close();
+            premiere.close();
+            seconde.get(5, TimeUnit.SECONDS).close();
+        }
+
+        verify(cible, times(2)).getConnection();
+        verify(connexion, times(3)).close();
+        // Un double close() n'a rendu qu'un permis : la source est de nouveau libre, et une seule fois
+        dataSource.getConnection();
+        assertThat(dataSource.connexionsEnAttente()).isZero();
+    }
+
+    @Test
+    void echecRapideApresLAttenteMaximale() throws Exception {
+        DataSource cible = mock(DataSource.class);
+        when(cible.getConnection()).thenReturn(mock(Connection.class));
+        DataSourceLimitee dataSource = new DataSourceLimitee(cible, 1, Duration.ofMillis(50));
+
+        dataSource.getConnection();
+
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+    }
+}
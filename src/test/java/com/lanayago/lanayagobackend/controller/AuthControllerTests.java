@@ -0,0 +1,72 @@
+package com.lanayago.lanayagobackend.controller;
+
+import com.lanayago.lanayagobackend.dto.request.LoginRequest;
+import com.lanayago.lanayagobackend.dto.request.RefreshTokenRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Seaux de tentatives par IP derrière un reverse proxy : le test se connecte depuis la boucle locale,
+ * proxy de confiance, et annonce l'adresse du client dans X-Forwarded-For
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "lanayago.auth.limite.par-ip.capacite=2",
+        "lanayago.auth.limite.par-ip.par-minute=1"
+})
+class AuthControllerTests {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void seauParAdresseDuClientDerriereLeProxy() {
+        assertThat(connecter("203.0.113.1")).isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(connecter("203.0.113.1")).isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(connecter("203.0.113.1")).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+
+        // Un autre client derrière le même proxy garde ses propres tentatives
+        assertThat(connecter("203.0.113.2")).isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void renouvellementSoumisAuSeauDeLIp() {
+        assertThat(renouveler("203.0.113.3")).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(renouveler("203.0.113.3")).isEqualTo(HttpStatus.UNAUTHORIZED);
+
+        // Jetons devinés en rafale : refusés avant toute recherche en base
+        assertThat(renouveler("203.0.113.3")).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    private HttpStatusCode renouveler(String adresseClient) {
+        RefreshTokenRequest jeton = new RefreshTokenRequest();
+        jeton.setRefreshToken(UUID.randomUUID().toString());
+
+        return restTemplate.postForEntity("/api/auth/refresh", new HttpEntity<>(jeton, entetes(adresseClient)), String.class)
+                .getStatusCode();
+    }
+
+    private HttpStatusCode connecter(String adresseClient) {
+        LoginRequest identifiants = new LoginRequest();
+        identifiants.setEmail("inconnu-" + UUID.randomUUID() + "@test.ci");
+        identifiants.setPassword("Password123!");
+
+        return restTemplate.postForEntity("/api/auth/login", new HttpEntity<>(identifiants, entetes(adresseClient)), String.class)
+                .getStatusCode();
+    }
+
+    private static HttpHeaders entetes(String adresseClient) {
+        HttpHeaders entetes = new HttpHeaders();
+        entetes.set("X-Forwarded-For", adresseClient);
+        return entetes;
+    }
+}
@@ -0,0 +1,47 @@
+package com.lanayago.lanayagobackend.notification;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Expéditeur en mémoire pour les tests : garde les lots reçus et peut simuler des pannes
+ */
+@Primary
+@Component
+public class ExpediteurNotificationsFactice implements ExpediteurNotifications {
+
+    public record Lot(CanalNotification canal, List<Notification> notifications) {
+    }
+
+    private final List<Lot> lots = new CopyOnWriteArrayList<>();
+    private final AtomicInteger echecsRestants = new AtomicInteger();
+
+    @Override
+    public void envoyer(CanalNotification canal, List<Notification> lot) {
+        if (echecsRestants.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+            throw new IllegalStateException("Fournisseur indisponible");
+        }
+        lots.add(new Lot(canal, List.copyOf(lot)));
+    }
+
+    public void echouer(int nombre) {
+        echecsRestants.set(nombre);
+    }
+
+    public List<Lot> lots() {
+        return lots;
+    }
+
+    public List<Notification> recues() {
+        return lots.stream().flatMap(lot -> lot.notifications().stream()).toList();
+    }
+
+    public void vider() {
+        lots.clear();
+        echecsRestants.set(0);
+    }
+}
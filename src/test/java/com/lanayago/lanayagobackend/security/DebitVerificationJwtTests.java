@@ -0,0 +1,61 @@
+package com.lanayago.lanayagobackend.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Débit de vérification des tokens sur un thread, sans base ni contexte Spring : clé et parseur
+ * reconstruits à chaque appel (ancien chemin), parseur partagé sans cache, puis cache des vérifications.
+ * Lancement : LANAYAGO_BENCH=true ./gradlew test --tests '*DebitVerificationJwtTests'
+ */
+@EnabledIfEnvironmentVariable(named = "LANAYAGO_BENCH", matches = "true")
+class DebitVerificationJwtTests {
+
+    private static final String SECRET = "bGFuYXlhZ28tdGVzdHMtc2VjcmV0LTMyLW9jdGV0cyEh";
+    private static final int UTILISATEURS = 1_000;
+    private static final int ECHAUFFEMENT = 50_000;
+    private static final int VERIFICATIONS = 300_000;
+
+    @Test
+    void debitAvecEtSansCache() {
+        JwtUtil sansCache = JwtUtilTests.jwtUtil(SECRET, 0);
+        JwtUtil avecCache = JwtUtilTests.jwtUtil(SECRET, 10_000);
+        List<String> tokens = LongStream.rangeClosed(1, UTILISATEURS)
+                .mapToObj(id -> sansCache.generateToken(JwtUtilTests.utilisateur(id)))
+                .toList();
+
+        double reconstruit = mesurer(tokens, token -> Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .build()
+                .parseClaimsJws(token));
+        double partage = mesurer(tokens, sansCache::extractAllClaims);
+        double cache = mesurer(tokens, avecCache::extractAllClaims);
+
+        System.out.printf("%d tokens, %d vérifications%n", UTILISATEURS, VERIFICATIONS);
+        System.out.printf("%-26s : %.0f vérifications/s%n", "clé et parseur par appel", reconstruit);
+        System.out.printf("%-26s : %.0f vérifications/s%n", "parseur partagé", partage);
+        System.out.printf("%-26s : %.0f vérifications/s%n", "cache des vérifications", cache);
+
+        assertThat(cache).isGreaterThan(partage);
+    }
+
+    private static double mesurer(List<String> tokens, Consumer<String> verification) {
+        for (int i = 0; i < ECHAUFFEMENT; i++) {
+            verification.accept(tokens.get(i % tokens.size()));
+        }
+        long debut = System.nanoTime();
+        for (int i = 0; i < VERIFICATIONS; i++) {
+            verification.accept(tokens.get(i % tokens.size()));
+        }
+        return VERIFICATIONS / ((System.nanoTime() - debut) / 1e9);
+    }
+}
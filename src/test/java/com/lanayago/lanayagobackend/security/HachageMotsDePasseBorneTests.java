@@ -0,0 +1,70 @@
+package com.lanayago.lanayagobackend.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HachageMotsDePasseBorneTests {
+
+    @Test
+    void verifieUnMotDePasseBCrypt() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        try (HachageMotsDePasseBorne hachage = new HachageMotsDePasseBorne(bcrypt, 1, 1)) {
+            String empreinte = hachage.encode("Password123!");
+
+            assertThat(hachage.matches("Password123!", empreinte)).isTrue();
+            assertThat(hachage.matches("autre", empreinte)).isFalse();
+            assertThat(hachage.metriques()).containsEntry("termines", 3L);
+        }
+    }
+
+    @Test
+    void refuseEn429QuandLaFileEstPleine() throws Exception {
+        CountDownLatch liberation = new CountDownLatch(1);
+        CountDownLatch demarre = new CountDownLatch(1);
+        PasswordEncoder lent = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence motDePasse) {
+                demarre.countDown();
+                try {
+                    liberation.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return motDePasse.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence motDePasse, String empreinte) {
+                return motDePasse.toString().equals(empreinte);
+            }
+        };
+
+        try (HachageMotsDePasseBorne hachage = new HachageMotsDePasseBorne(lent, 1, 1)) {
+            CompletableFuture<String> enCours = CompletableFuture.supplyAsync(() -> hachage.encode("a"));
+            assertThat(demarre.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<String> enAttente = CompletableFuture.supplyAsync(() -> hachage.encode("b"));
+            while (hachage.metriques().get("enAttente").equals(0)) {
+                Thread.onSpinWait();
+            }
+
+            assertThatThrownBy(() -> hachage.encode("c"))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+
+            liberation.countDown();
+            assertThat(enCours.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+            assertThat(enAttente.get(5, TimeUnit.SECONDS)).isEqualTo("b");
+            assertThat(hachage.metriques()).containsEntry("rejetes", 1L);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.lanayago.lanayagobackend.security;
+
+import com.lanayago.lanayagobackend.CompteurRequetes;
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.service.AdminService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class JwtAuthenticationFilterTests {
+
+    @Autowired
+    private JwtAuthenticationFilter filtre;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private RevocationsUtilisateurs revocationsUtilisateurs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private User client;
+
+    @BeforeEach
+    void preparer() {
+        client = donnees.client();
+    }
+
+    @AfterEach
+    void nettoyer() {
+        donnees.nettoyer();
+    }
+
+    @Test
+    void authentifieDepuisLesClaimsSansRequeteSql() throws Exception {
+        String token = jwtUtil.generateToken(client);
+        AtomicReference<Authentication> resultat = new AtomicReference<>();
+
+        CompteurRequetes.Mesure mesure = CompteurRequetes.mesurer(() -> resultat.set(filtrer(token)));
+
+        assertThat(mesure.requetes()).isZero();
+        Authentication authentification = resultat.get();
+        assertThat(authentification).isNotNull();
+        assertThat(authentification.getPrincipal()).isInstanceOfSatisfying(UtilisateurConnecte.class, principal -> {
+            assertThat(principal.id()).isEqualTo(client.getId());
+            assertThat(principal.getUsername()).isEqualTo(client.getEmail());
+            assertThat(principal.getPassword()).isNull();
+        });
+        assertThat(authentification.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_CLIENT");
+    }
+
+    @Test
+    void tokenRefuseDesLaDesactivationDuCompte() throws Exception {
+        String token = jwtUtil.generateToken(client);
+        assertThat(filtrer(token)).isNotNull();
+
+        adminService.desactiverUtilisateur(client.getId());
+        assertThat(filtrer(token)).isNull();
+
+        adminService.reactiverUtilisateur(client.getId());
+        // Émis avant la désactivation : toujours refusé, seul un nouveau token est accepté
+        assertThat(filtrer(token)).isNull();
+        // iat est à la seconde près : le nouveau token doit être émis dans une seconde ultérieure
+        Thread.sleep(1000);
+        assertThat(filtrer(jwtUtil.generateToken(client))).isNotNull();
+    }
+
+    @Test
+    void desactivationSurUneAutreInstancePriseEnCompteAuRafraichissement() throws Exception {
+        String token = jwtUtil.generateToken(client);
+        assertThat(filtrer(token)).isNotNull();
+
+        // Désactivation validée par une autre instance : seule la base la connaît
+        jdbcTemplate.update("UPDATE users SET actif = false, date_revocation = ? WHERE id = ?",
+                LocalDateTime.now(), client.getId());
+        revocationsUtilisateurs.rafraichir();
+
+        assertThat(filtrer(token)).isNull();
+    }
+
+    @Test
+    void tokenInvalideLaisseLaRequeteAnonyme() throws Exception {
+        String token = jwtUtil.generateToken(client);
+        String signatureAlteree = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThat(filtrer(signatureAlteree)).isNull();
+        assertThat(filtrer("pas-un-jwt")).isNull();
+    }
+
+    private Authentication filtrer(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+
+        MockHttpServletRequest requete = new MockHttpServletRequest("GET", "/api/courses/mes-courses");
+        requete.addHeader("Authorization", "Bearer " + token);
+        filtre.doFilter(requete, new MockHttpServletResponse(), new MockFilterChain());
+
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,80 @@
+package com.lanayago.lanayagobackend.security;
+
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.Roles;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilTests {
+
+    // 32 octets encodés en Base64
+    private static final String SECRET = "bGFuYXlhZ28tdGVzdHMtc2VjcmV0LTMyLW9jdGV0cyEh";
+
+    @Test
+    void cachePleinEvinceLesTokensLesPlusProchesDeLExpiration() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 10);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            // Durées de vie croissantes : le token 1 expire le premier
+            ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", i * 60_000L);
+            tokens.add(jwtUtil.generateToken(utilisateur(i)));
+        }
+        tokens.forEach(jwtUtil::extractAllClaims);
+
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", 3_600_000L);
+        jwtUtil.extractAllClaims(jwtUtil.generateToken(utilisateur(11)));
+
+        assertThat(sujetsEnCache(jwtUtil))
+                .hasSizeLessThanOrEqualTo(10)
+                .contains("u10@test.ci", "u11@test.ci")
+                .doesNotContain("u1@test.ci");
+    }
+
+    @Test
+    void tokenEnCacheRenvoieLesMemesClaims() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 10);
+        String token = jwtUtil.generateToken(utilisateur(1));
+
+        Claims premiere = jwtUtil.extractAllClaims(token);
+
+        assertThat(jwtUtil.extractAllClaims(token)).isSameAs(premiere);
+        assertThat(jwtUtil.extraireUtilisateur(premiere).id()).isEqualTo(1L);
+    }
+
+    @Test
+    void secretEnClairToujoursUtilisable() {
+        JwtUtil jwtUtil = jwtUtil("lanayago-secret-key-super-secure-2024-change-this-in-production-min-256-bits", 0);
+
+        assertThat(jwtUtil.extractUsername(jwtUtil.generateToken(utilisateur(1)))).isEqualTo("u1@test.ci");
+    }
+
+    static JwtUtil jwtUtil(String secret, int tailleMaxCache) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secretKey", secret);
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtUtil, "tailleMaxCache", tailleMaxCache);
+        jwtUtil.initialiser();
+        return jwtUtil;
+    }
+
+    static User utilisateur(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("u" + id + "@test.ci");
+        user.setRole(Roles.CLIENT);
+        return user;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> sujetsEnCache(JwtUtil jwtUtil) {
+        Map<String, Claims> verifications = (Map<String, Claims>) ReflectionTestUtils.getField(jwtUtil, "verifications");
+        return verifications.values().stream().map(Claims::getSubject).toList();
+    }
+}
@@ -0,0 +1,38 @@
+package com.lanayago.lanayagobackend.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LimiteurTentativesTests {
+
+    @Test
+    void emailBloqueApresSaCapacite() {
+        LimiteurTentatives limiteur = new LimiteurTentatives(100, 100, 3, 1);
+
+        for (int i = 0; i < 3; i++) {
+            limiteur.verifier("10.0.0.1", "jean@example.com");
+        }
+
+        assertThatThrownBy(() -> limiteur.verifier("10.0.0.2", "Jean@Example.com "))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+        assertThatCode(() -> limiteur.verifier("10.0.0.1", "fatou@example.com")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void ipBloqueeQuelQueSoitLEmail() {
+        LimiteurTentatives limiteur = new LimiteurTentatives(2, 1, 100, 100);
+
+        limiteur.verifier("10.0.0.1", "a@example.com");
+        limiteur.verifier("10.0.0.1", "b@example.com");
+
+        assertThatThrownBy(() -> limiteur.verifier("10.0.0.1", "c@example.com"))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThat(limiteur.metriques()).containsEntry("rejetsIp", 1L);
+    }
+}
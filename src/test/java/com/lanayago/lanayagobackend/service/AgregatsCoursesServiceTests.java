@@ -0,0 +1,218 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import com.lanayago.lanayagobackend.repository.VerrouTraitementRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class AgregatsCoursesServiceTests {
+
+    @Autowired
+    private AgregatsCoursesService agregatsCoursesService;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VerrouTraitementRepository verrouTraitementRepository;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private User client;
+    private Conducteur conducteur;
+
+    // Heure passée propre à chaque test : les cumuls des autres classes n'y tombent pas
+    private LocalDateTime heure;
+
+    @BeforeEach
+    void preparer() {
+        heure = LocalDateTime.of(2001, 1, 1, 0, 0).plusHours(ThreadLocalRandom.current().nextInt(24 * 365 * 10));
+        client = donnees.client();
+        conducteur = donnees.conducteur();
+    }
+
+    @AfterEach
+    void nettoyer() {
+        donnees.nettoyer();
+    }
+
+    @Test
+    void courseTermineeNeRepassePasEnCoursEtNEstCompteeQuUneFois() {
+        JeuDeDonnees.authentifier(conducteur);
+        Course course = creer(StatutCourse.EN_COURS, null, null);
+        LocalDateTime jour = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        long avant = nombre("JOUR", jour, StatutCourse.TERMINEE);
+
+        courseService.updateStatut(course.getId(), StatutCourse.TERMINEE);
+        assertThat(nombre("JOUR", jour, StatutCourse.TERMINEE)).isEqualTo(avant + 1);
+
+        assertThatThrownBy(() -> courseService.updateStatut(course.getId(), StatutCourse.EN_COURS))
+                .hasMessageContaining("terminée ou annulée");
+        // Requête renvoyée par l'application : sans effet
+        courseService.updateStatut(course.getId(), StatutCourse.TERMINEE);
+        assertThat(nombre("JOUR", jour, StatutCourse.TERMINEE)).isEqualTo(avant + 1);
+    }
+
+    @Test
+    void seulesLesEntreesDansUnEtatFinalSontComptees() {
+        Course course = creer(StatutCourse.TERMINEE, heure, 1000.0);
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            agregatsCoursesService.enregistrerTransition(course, StatutCourse.EN_COURS);
+            agregatsCoursesService.enregistrerTransition(course, StatutCourse.TERMINEE);
+            agregatsCoursesService.enregistrerTransition(course, StatutCourse.ANNULEE);
+        });
+
+        assertThat(nombre("HEURE", heure, StatutCourse.TERMINEE)).isEqualTo(1);
+        assertThat(montant("HEURE", heure, StatutCourse.TERMINEE)).isEqualTo(1000.0);
+    }
+
+    @Test
+    void reconstructionRetrouveLesCumulsDeLHistorique() {
+        Course premiere = creer(StatutCourse.TERMINEE, heure.plusMinutes(5), 1000.0);
+        Course seconde = creer(StatutCourse.TERMINEE, heure.plusMinutes(40), 500.0);
+        Course annulee = creer(StatutCourse.ANNULEE, null, null);
+        jdbcTemplate.update("UPDATE courses SET date_creation = ? WHERE id = ?", heure.plusMinutes(10), annulee.getId());
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            agregatsCoursesService.enregistrerTransition(premiere, StatutCourse.EN_COURS);
+            agregatsCoursesService.enregistrerTransition(seconde, StatutCourse.EN_COURS);
+        });
+        // Cumul faussé par un incrément en trop : la reconstruction le corrige
+        transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.update(
+                "UPDATE agregats_courses SET nombre_courses = nombre_courses + 5 WHERE debut_periode = ?", heure));
+
+        agregatsCoursesService.reconstruire();
+
+        assertThat(nombre("HEURE", heure, StatutCourse.TERMINEE)).isEqualTo(2);
+        assertThat(montant("HEURE", heure, StatutCourse.TERMINEE)).isEqualTo(1500.0);
+        assertThat(nombre("HEURE", heure, StatutCourse.ANNULEE)).isEqualTo(1);
+        assertThat(nombre("JOUR", heure.truncatedTo(ChronoUnit.DAYS), StatutCourse.TERMINEE)).isEqualTo(2);
+    }
+
+    @Test
+    void reconstructionNAttendPasLesTransitionsEnCours() throws Exception {
+        Course course = creer(StatutCourse.EN_COURS, null, null);
+        CountDownLatch incremente = new CountDownLatch(1);
+        CountDownLatch valider = new CountDownLatch(1);
+
+        CompletableFuture<Void> transition = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(tx -> {
+            Course terminee = courseRepository.findById(course.getId()).orElseThrow();
+            terminee.setStatut(StatutCourse.TERMINEE);
+            terminee.setDateFin(heure);
+            terminee.setMontantFinal(800.0);
+            courseRepository.save(terminee);
+            agregatsCoursesService.enregistrerTransition(terminee, StatutCourse.EN_COURS);
+            incremente.countDown();
+            attendre(valider);
+        }));
+
+        try {
+            assertThat(incremente.await(5, TimeUnit.SECONDS)).isTrue();
+            // Transition encore ouverte : ni dans l'historique ni dans les cumuls lus par la reconstruction
+            CompletableFuture.runAsync(agregatsCoursesService::reconstruire).get(5, TimeUnit.SECONDS);
+        } finally {
+            valider.countDown();
+        }
+        transition.get(5, TimeUnit.SECONDS);
+
+        // Validée après la reconstruction : son incrément est conservé, une seule fois
+        assertThat(nombre("HEURE", heure, StatutCourse.TERMINEE)).isEqualTo(1);
+        assertThat(montant("HEURE", heure, StatutCourse.TERMINEE)).isEqualTo(800.0);
+
+        agregatsCoursesService.reconstruire();
+        assertThat(nombre("HEURE", heure, StatutCourse.TERMINEE)).isEqualTo(1);
+    }
+
+    @Test
+    void reconstructionsSerialiseesParLeVerrouEnBase() throws Exception {
+        creer(StatutCourse.TERMINEE, heure, 300.0);
+        agregatsCoursesService.reconstruire();
+        CountDownLatch verrouille = new CountDownLatch(1);
+        CountDownLatch liberer = new CountDownLatch(1);
+
+        // Reconstruction d'une autre instance : elle tient la ligne de verrou jusqu'à sa validation
+        CompletableFuture<Void> autreInstance = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(tx -> {
+            verrouTraitementRepository.verrouiller(AgregatsCoursesService.VERROU_RECONSTRUCTION).orElseThrow();
+            verrouille.countDown();
+            attendre(liberer);
+        }));
+
+        CompletableFuture<Void> reconstruction;
+        try {
+            assertThat(verrouille.await(5, TimeUnit.SECONDS)).isTrue();
+            transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.update(
+                    "UPDATE agregats_courses SET nombre_courses = nombre_courses + 5 WHERE debut_periode = ?", heure));
+            reconstruction = CompletableFuture.runAsync(agregatsCoursesService::reconstruire);
+            Thread.sleep(300);
+            assertThat(reconstruction).isNotDone();
+        } finally {
+            liberer.countDown();
+        }
+        autreInstance.get(5, TimeUnit.SECONDS);
+        reconstruction.get(10, TimeUnit.SECONDS);
+
+        assertThat(nombre("HEURE", heure, StatutCourse.TERMINEE)).isEqualTo(1);
+        assertThat(montant("HEURE", heure, StatutCourse.TERMINEE)).isEqualTo(300.0);
+    }
+
+    private Course creer(StatutCourse statut, LocalDateTime dateFin, Double montantFinal) {
+        Course course = JeuDeDonnees.nouvelleCourse(client, conducteur, statut);
+        course.setDateFin(dateFin);
+        course.setMontantFinal(montantFinal);
+        return donnees.enregistrer(course);
+    }
+
+    private long nombre(String granularite, LocalDateTime debut, StatutCourse statut) {
+        Long nombre = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(nombre_courses), 0) FROM agregats_courses " +
+                        "WHERE granularite = ? AND debut_periode = ? AND type_course = 'LIVRAISON_MOTO' AND statut = ?",
+                Long.class, granularite, debut, statut.name());
+        return nombre != null ? nombre : 0;
+    }
+
+    private double montant(String granularite, LocalDateTime debut, StatutCourse statut) {
+        Double montant = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(montant_total), 0) FROM agregats_courses " +
+                        "WHERE granularite = ? AND debut_periode = ? AND type_course = 'LIVRAISON_MOTO' AND statut = ?",
+                Double.class, granularite, debut, statut.name());
+        return montant != null ? montant : 0;
+    }
+
+    private static void attendre(CountDownLatch signal) {
+        try {
+            signal.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
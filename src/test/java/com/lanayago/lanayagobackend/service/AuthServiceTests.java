@@ -0,0 +1,72 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.dto.reponse.AuthResponse;
+import com.lanayago.lanayagobackend.dto.request.RegisterRequest;
+import com.lanayago.lanayagobackend.entity.enums.Roles;
+import com.lanayago.lanayagobackend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest
+class AuthServiceTests {
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoSpyBean
+    private PasswordEncoder passwordEncoder;
+
+    private final List<Long> inscrits = new ArrayList<>();
+
+    @AfterEach
+    void nettoyer() {
+        inscrits.forEach(refreshTokenService::revoquerTout);
+        userRepository.deleteAllById(inscrits);
+    }
+
+    @Test
+    void inscriptionHacheLeMotDePasseHorsTransaction() {
+        List<Boolean> transactionPendantHachage = new ArrayList<>();
+        doAnswer(invocation -> {
+            transactionPendantHachage.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return invocation.callRealMethod();
+        }).when(passwordEncoder).encode(any());
+
+        long numero = ThreadLocalRandom.current().nextLong(10_000_000L, 100_000_000L);
+        RegisterRequest request = new RegisterRequest();
+        request.setNom("Client");
+        request.setPrenom("Test");
+        request.setEmail("inscription-" + numero + "@test.ci");
+        request.setPassword("Password123!");
+        request.setTelephone("0" + numero);
+        request.setRole(Roles.CLIENT);
+
+        AuthResponse reponse = authService.register(request, "127.0.0.1");
+        inscrits.add(reponse.getId());
+
+        // En attente dans la file BCrypt, la requête ne tient aucune connexion du pool
+        assertThat(transactionPendantHachage).containsExactly(false);
+        assertThat(reponse.getRefreshToken()).isNotBlank();
+        assertThat(passwordEncoder.matches("Password123!",
+                userRepository.findById(reponse.getId()).orElseThrow().getPassword())).isTrue();
+    }
+}
@@ -0,0 +1,115 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import com.lanayago.lanayagobackend.repository.EvenementOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Expiration en base : verrou, UPDATE par lot, événement et cumuls, balayage de rattrapage.
+ * Seules les courses de transport de marchandise expirent vite ici : les autres classes de test
+ * partagent la base et n'en créent pas
+ */
+@SpringBootTest(properties = {
+        "lanayago.courses.expiration.transport-marchandise=PT1S",
+        "lanayago.courses.expiration.balayage=PT1H"
+})
+class BalayageExpirationCoursesTests {
+
+    @Autowired
+    private ExpirationCourses expirationCourses;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EvenementOutboxRepository evenementOutboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private User client;
+
+    @BeforeEach
+    void preparer() {
+        client = donnees.client();
+    }
+
+    @AfterEach
+    void nettoyer() {
+        donnees.nettoyer();
+    }
+
+    @Test
+    void coursesEchuesAnnuleesUneSeuleFois() {
+        LocalDateTime debut = LocalDateTime.now().minusSeconds(1);
+        long annuleesAvant = annuleesDuJour();
+
+        Course premiere = creer();
+        Course seconde = creer();
+        // Acceptée en base avant son expiration : le verrou l'écarte
+        Course acceptee = creer();
+        acceptee.setStatut(StatutCourse.ACCEPTEE);
+        courseRepository.save(acceptee);
+
+        List<Long> ids = List.of(premiere.getId(), seconde.getId(), acceptee.getId());
+        assertThat(expirationCourses.expirer(ids)).isEqualTo(2);
+        assertThat(expirationCourses.expirer(ids)).isZero();
+
+        assertThat(statut(premiere)).isEqualTo(StatutCourse.ANNULEE);
+        assertThat(statut(seconde)).isEqualTo(StatutCourse.ANNULEE);
+        assertThat(statut(acceptee)).isEqualTo(StatutCourse.ACCEPTEE);
+        assertThat(annuleesDuJour()).isEqualTo(annuleesAvant + 2);
+        assertThat(evenementOutboxRepository.countPourRejeu(debut, premiere.getId())).isEqualTo(1);
+        assertThat(evenementOutboxRepository.countPourRejeu(debut, acceptee.getId())).isZero();
+    }
+
+    @Test
+    void balayageRattrapeLesEcheancesManquees() {
+        Course oubliee = creer();
+        Course recente = creer();
+        // Aucun événement de création reçu, course créée avant un redémarrage
+        jdbcTemplate.update("UPDATE courses SET date_creation = ? WHERE id = ?",
+                LocalDateTime.now().minusSeconds(10), oubliee.getId());
+
+        expirationCourses.balayer();
+
+        assertThat(statut(oubliee)).isEqualTo(StatutCourse.ANNULEE);
+        assertThat(statut(recente)).isEqualTo(StatutCourse.EN_ATTENTE);
+    }
+
+    private Course creer() {
+        Course course = JeuDeDonnees.nouvelleCourse(client, null, StatutCourse.EN_ATTENTE);
+        course.setTypeCourse(TypeCourse.TRANSPORT_MARCHANDISE);
+        course.setAdresseArrivee("Yopougon");
+        course.setPoidsColis(500.0);
+        return donnees.enregistrer(course);
+    }
+
+    private StatutCourse statut(Course course) {
+        return courseRepository.findById(course.getId()).orElseThrow().getStatut();
+    }
+
+    private long annuleesDuJour() {
+        Long nombre = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(nombre_courses), 0) FROM agregats_courses " +
+                "WHERE granularite = 'JOUR' AND type_course = 'TRANSPORT_MARCHANDISE' AND statut = 'ANNULEE'", Long.class);
+        return nombre != null ? nombre : 0;
+    }
+}
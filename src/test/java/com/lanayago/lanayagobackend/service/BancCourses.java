@@ -0,0 +1,102 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Outils des bancs d'essai sur la table des courses : courses factices insérées en JDBC par lots
+ * (types, statuts et dates répartis de façon déterministe, adresse de départ marquée pour la suppression)
+ * et mesure de la durée et de la mémoire allouée par appel
+ */
+final class BancCourses {
+
+    static final String MARQUE = "banc-essai";
+    private static final int TAILLE_LOT = 10_000;
+
+    private static final int REPETITIONS = 5;
+
+    record Mesure(double millisecondes, double megaOctetsAlloues) {
+
+        @Override
+        public String toString() {
+            return String.format("%8.1f ms, %8.2f Mo alloués", millisecondes, megaOctetsAlloues);
+        }
+    }
+
+    private BancCourses() {
+    }
+
+    /**
+     * Insère les courses d'indices [debut, fin), réparties entre les conducteurs donnés (aucun si la liste est vide)
+     */
+    static void inserer(JdbcTemplate jdbcTemplate, long clientId, List<Long> conducteurIds, int debut, int fin) {
+        TypeCourse[] types = TypeCourse.values();
+        StatutCourse[] statuts = StatutCourse.values();
+        LocalDateTime maintenant = LocalDateTime.now();
+
+        for (int lot = debut; lot < fin; lot += TAILLE_LOT) {
+            List<Object[]> lignes = new ArrayList<>(TAILLE_LOT);
+            for (int i = lot; i < Math.min(lot + TAILLE_LOT, fin); i++) {
+                StatutCourse statut = statuts[(i * 7) % statuts.length];
+                LocalDateTime creation = maintenant.minusHours(i % (24 * 90));
+                boolean terminee = statut == StatutCourse.TERMINEE;
+                lignes.add(new Object[]{
+                        types[i % types.length].name(),
+                        clientId,
+                        conducteurIds.isEmpty() ? null : conducteurIds.get(i % conducteurIds.size()),
+                        MARQUE,
+                        "Cocody",
+                        statut.name(),
+                        Timestamp.valueOf(creation),
+                        terminee ? Timestamp.valueOf(creation.plusMinutes(30)) : null,
+                        terminee ? 1000.0 + i % 5000 : null
+                });
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO courses (type_course, client_id, conducteur_id, adresse_depart, " +
+                    "adresse_arrivee, statut, date_creation, date_fin, montant_final) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", lignes);
+        }
+    }
+
+    static void supprimer(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("DELETE FROM courses WHERE adresse_depart = ?", MARQUE);
+    }
+
+    /**
+     * Moyenne sur quelques appels après un appel d'échauffement, mémoire allouée par le thread appelant
+     */
+    static Mesure mesurer(Runnable calcul) {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        calcul.run();
+
+        long alloueAvant = threads.getCurrentThreadAllocatedBytes();
+        long debut = System.nanoTime();
+        for (int i = 0; i < REPETITIONS; i++) {
+            calcul.run();
+        }
+        double millisecondes = (System.nanoTime() - debut) / 1e6 / REPETITIONS;
+        double megaOctets = (threads.getCurrentThreadAllocatedBytes() - alloueAvant) / 1e6 / REPETITIONS;
+        return new Mesure(millisecondes, megaOctets);
+    }
+
+    /**
+     * Paliers de taille de la table, le dernier remplacé par LANAYAGO_BENCH_COURSES s'il est défini
+     */
+    static int[] paliers(int... paliers) {
+        String valeur = System.getenv("LANAYAGO_BENCH_COURSES");
+        if (valeur == null) {
+            return paliers;
+        }
+        int maximum = Integer.parseInt(valeur);
+        return IntStream.concat(Arrays.stream(paliers).filter(p -> p < maximum), IntStream.of(maximum)).toArray();
+    }
+}
@@ -0,0 +1,103 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.repository.ConducteurRepository;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statistiques détaillées sur une table de courses croissante et 2 000 conducteurs : durée et mémoire
+ * allouée par appel du parcours groupé, et des anciens findAll() tant qu'ils tiennent dans le tas.
+ * LANAYAGO_BENCH_COURSES fixe le dernier palier.
+ * Lancement : LANAYAGO_BENCH=true ./gradlew test --tests '*ChargeStatistiquesTests'
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "LANAYAGO_BENCH", matches = "true")
+class ChargeStatistiquesTests {
+
+    private static final int CONDUCTEURS = 2_000;
+    // Au-delà, l'ancien calcul charge trop d'entités pour le tas par défaut des tests
+    private static final int MAX_ANCIEN_CALCUL = 100_000;
+
+    @Autowired
+    private StatistiquesService statistiquesService;
+
+    @Autowired
+    private ConducteurRepository conducteurRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private final List<Conducteur> conducteurs = new ArrayList<>();
+
+    @AfterEach
+    void nettoyer() {
+        BancCourses.supprimer(jdbcTemplate);
+        conducteurRepository.deleteAllInBatch(conducteurs);
+        donnees.nettoyer();
+    }
+
+    @Test
+    void dureeEtMemoireParPalier() {
+        User client = donnees.client();
+
+        for (int i = 0; i < CONDUCTEURS; i++) {
+            Conducteur conducteur = donnees.nouveauConducteur();
+            conducteur.setNombreCourses((i * 37) % 1_000);
+            conducteurs.add(conducteur);
+        }
+        conducteurRepository.saveAll(conducteurs);
+        List<Long> conducteurIds = conducteurs.stream().map(Conducteur::getId).toList();
+        long totalAvant = courseRepository.count();
+
+        int inserees = 0;
+        for (int palier : BancCourses.paliers(10_000, 100_000, 1_000_000)) {
+            BancCourses.inserer(jdbcTemplate, client.getId(), conducteurIds, inserees, palier);
+            inserees = palier;
+
+            System.out.printf("%,9d courses  groupé : %s%n", palier,
+                    BancCourses.mesurer(statistiquesService::getStatistiquesDetaillees));
+            if (palier <= MAX_ANCIEN_CALCUL) {
+                System.out.printf("%,9d courses  ancien : %s%n", palier, BancCourses.mesurer(this::ancienCalcul));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Long> parType = (Map<String, Long>) statistiquesService.getStatistiquesDetaillees().get("coursesParType");
+        assertThat(parType.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(totalAvant + inserees);
+    }
+
+    /**
+     * Calcul d'avant le parcours groupé : table des courses chargée une fois par type, conducteurs triés en mémoire
+     */
+    private void ancienCalcul() {
+        for (String type : List.of("LIVRAISON_MOTO", "TRANSPORT_PERSONNE", "TRANSPORT_MARCHANDISE")) {
+            courseRepository.findAll().stream()
+                    .filter(c -> c.getTypeCourse().name().equals(type))
+                    .count();
+        }
+        conducteurRepository.findAll().stream()
+                .sorted((c1, c2) -> Integer.compare(c2.getNombreCourses(), c1.getNombreCourses()))
+                .limit(10)
+                .toList();
+    }
+}
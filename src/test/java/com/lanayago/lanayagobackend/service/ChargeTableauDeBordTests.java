@@ -0,0 +1,104 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.dto.reponse.AdminDashboardDTO;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tableau de bord administrateur sur une table de courses croissante, jusqu'à 1 million de lignes :
+ * durée et mémoire allouée par appel du calcul agrégé, et de l'ancien calcul en mémoire tant qu'il tient
+ * dans le tas. LANAYAGO_BENCH_COURSES fixe le dernier palier.
+ * Lancement : LANAYAGO_BENCH=true ./gradlew test --tests '*ChargeTableauDeBordTests'
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "LANAYAGO_BENCH", matches = "true")
+class ChargeTableauDeBordTests {
+
+    // Au-delà, l'ancien calcul charge trop d'entités pour le tas par défaut des tests
+    private static final int MAX_ANCIEN_CALCUL = 100_000;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    @AfterEach
+    void nettoyer() {
+        BancCourses.supprimer(jdbcTemplate);
+        donnees.nettoyer();
+    }
+
+    @Test
+    void dureeEtMemoireParPalier() {
+        User client = donnees.client();
+        long totalAvant = courseRepository.count();
+
+        int inserees = 0;
+        for (int palier : BancCourses.paliers(10_000, 100_000, 1_000_000)) {
+            BancCourses.inserer(jdbcTemplate, client.getId(), List.of(), inserees, palier);
+            inserees = palier;
+
+            System.out.printf("%,9d courses  agrégé : %s%n", palier, BancCourses.mesurer(adminService::getDashboard));
+            if (palier <= MAX_ANCIEN_CALCUL) {
+                System.out.printf("%,9d courses  ancien : %s%n", palier, BancCourses.mesurer(this::ancienCalcul));
+            }
+        }
+
+        AdminDashboardDTO dashboard = adminService.getDashboard();
+        assertThat(dashboard.getTotalCourses()).isEqualTo(totalAvant + inserees);
+    }
+
+    /**
+     * Calcul d'avant les agrégats : listes par statut pour leur taille, table entière chargée deux fois
+     */
+    private void ancienCalcul() {
+        LocalDateTime debutMois = LocalDateTime.now().withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
+        LocalDateTime debutPeriode = LocalDateTime.now().minus(30, ChronoUnit.DAYS);
+
+        for (StatutCourse statut : List.of(StatutCourse.EN_ATTENTE, StatutCourse.EN_COURS, StatutCourse.TERMINEE)) {
+            transactionTemplate.executeWithoutResult(tx -> entityManager
+                    .createQuery("SELECT c FROM Course c WHERE c.statut = :statut", Course.class)
+                    .setParameter("statut", statut)
+                    .getResultList()
+                    .size());
+        }
+        courseRepository.findAll().stream()
+                .filter(c -> c.getDateFin() != null && c.getDateFin().isAfter(debutMois))
+                .filter(c -> c.getMontantFinal() != null)
+                .mapToDouble(Course::getMontantFinal)
+                .sum();
+        courseRepository.findAll().stream()
+                .filter(c -> c.getDateCreation().isAfter(debutPeriode))
+                .count();
+    }
+}
@@ -0,0 +1,190 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.CompteurRequetes;
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.dto.reponse.EnginResponse;
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.Engin;
+import com.lanayago.lanayagobackend.entity.Evaluation;
+import com.lanayago.lanayagobackend.entity.Propriotaire;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeEngin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Le nombre de requêtes SQL d'un endpoint de liste ne doit pas dépendre du nombre de lignes renvoyées.
+ * Requêtes comptées sur le thread du test, sans celles des tâches de fond
+ */
+@SpringBootTest
+class ChargementCoursesTests {
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private ConducteurService conducteurService;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private EnginService enginService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private User client;
+    private Propriotaire proprietaire;
+    private Conducteur conducteur;
+    private Engin engin;
+
+    @BeforeEach
+    void preparer() {
+        client = donnees.client();
+        proprietaire = donnees.proprietaire();
+        engin = donnees.moto(proprietaire);
+        conducteur = donnees.conducteur(engin);
+    }
+
+    @AfterEach
+    void nettoyer() {
+        donnees.nettoyer();
+    }
+
+    @Test
+    void coursesDuClientEnNombreDeRequetesConstant() {
+        authentifier(client, "CLIENT");
+
+        ajouterCourses(3, StatutCourse.TERMINEE);
+        assertThat(requetes(() -> assertThat(courseService.getUserCourses()).hasSize(3))).isEqualTo(2);
+
+        ajouterCourses(20, StatutCourse.TERMINEE);
+        assertThat(requetes(() -> assertThat(courseService.getUserCourses()).hasSize(23))).isEqualTo(2);
+    }
+
+    @Test
+    void coursesDuConducteurEnNombreDeRequetesConstant() {
+        authentifier(conducteur, "CONDUCTEUR");
+
+        ajouterCourses(3, StatutCourse.TERMINEE);
+        long petiteListe = requetes(() -> assertThat(conducteurService.getMesCourses()).hasSize(3));
+
+        ajouterCourses(20, StatutCourse.TERMINEE);
+        long grandeListe = requetes(() -> assertThat(conducteurService.getMesCourses()).hasSize(23));
+
+        assertThat(grandeListe).isEqualTo(petiteListe);
+    }
+
+    @Test
+    void coursesDisponiblesEnUneRequete() {
+        ajouterCourses(3, StatutCourse.EN_ATTENTE);
+        long petiteListe = requetes(courseService::getCoursesDisponibles);
+
+        ajouterCourses(20, StatutCourse.EN_ATTENTE);
+        long grandeListe = requetes(courseService::getCoursesDisponibles);
+
+        assertThat(petiteListe).isEqualTo(1);
+        assertThat(grandeListe).isEqualTo(1);
+    }
+
+    @Test
+    void listesAdminEnUneRequete() {
+        ajouterCourses(25, StatutCourse.TERMINEE);
+
+        assertThat(requetes(() -> adminService.getAllCourses(null, null, null, null, null, 20))).isEqualTo(1);
+        assertThat(requetes(() -> adminService.getAllConducteurs(null, null, 20))).isEqualTo(1);
+        assertThat(requetes(() -> adminService.getAllEngins(null, null, 20))).isEqualTo(1);
+    }
+
+    @Test
+    void listesLuesParProjectionSansEntites() {
+        ajouterCourses(5, StatutCourse.TERMINEE);
+        ajouterCourses(5, StatutCourse.EN_ATTENTE);
+
+        CompteurRequetes.Mesure mesure = CompteurRequetes.mesurer(() -> {
+            courseService.getCoursesDisponibles();
+            adminService.getAllCourses(null, null, null, null, null, 20);
+            adminService.getAllConducteurs(null, null, 20);
+            adminService.getAllEngins(null, null, 20);
+            adminService.getAllUsers(null, null, null, 20);
+            adminService.getConducteursEnAttente();
+        });
+
+        assertThat(mesure.chargements()).isZero();
+    }
+
+    @Test
+    void enginsDuProprietaireAvecLeursColonnesSpecifiques() {
+        authentifier(proprietaire, "PROPRIETAIRE");
+
+        List<EnginResponse> engins = new ArrayList<>();
+        assertThat(requetes(() -> engins.addAll(enginService.getMesEngins()))).isEqualTo(2);
+
+        assertThat(engins).singleElement().satisfies(reponse -> {
+            assertThat(reponse.getTypeEngin()).isEqualTo(TypeEngin.MOTO);
+            assertThat(reponse.getCylindree()).isEqualTo(125);
+            assertThat(reponse.getProprietaire().getId()).isEqualTo(proprietaire.getId());
+        });
+    }
+
+    private void ajouterCourses(int nombre, StatutCourse statut) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            for (int i = 0; i < nombre; i++) {
+                Course course = JeuDeDonnees.nouvelleCourse(client, null, statut);
+
+                if (statut != StatutCourse.EN_ATTENTE) {
+                    course.setConducteur(conducteur);
+                    course.setEngin(engin);
+
+                    // Une course sur deux évaluée : le côté inverse du OneToOne ne doit pas coûter de requête
+                    if (i % 2 == 0) {
+                        Evaluation evaluation = new Evaluation();
+                        evaluation.setCourse(course);
+                        evaluation.setEvaluateur(client);
+                        evaluation.setEvalue(conducteur);
+                        evaluation.setNote(5);
+                        course.setEvaluation(evaluation);
+                    }
+                }
+                donnees.enregistrer(course);
+            }
+        });
+    }
+
+    private long requetes(Runnable appel) {
+        // Chaque appel mesuré est une nouvelle requête HTTP : l'utilisateur connecté n'y est pas encore chargé
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        return CompteurRequetes.mesurer(appel::run).requetes();
+    }
+
+    private void authentifier(User utilisateur, String role) {
+        UserDetails principal = org.springframework.security.core.userdetails.User
+                .withUsername(utilisateur.getEmail())
+                .password(utilisateur.getPassword())
+                .roles(role)
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+}
@@ -0,0 +1,106 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class CourseServiceConcurrenceTests {
+
+    private static final int NOMBRE_CONDUCTEURS = 20;
+    private static final int NOMBRE_TENTATIVES = 300;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    @AfterEach
+    void nettoyer() {
+        donnees.nettoyer();
+    }
+
+    @Test
+    void unSeulConducteurRemporteLaCourse() throws Exception {
+        User client = donnees.client();
+        List<Conducteur> conducteurs = new ArrayList<>();
+        for (int i = 0; i < NOMBRE_CONDUCTEURS; i++) {
+            conducteurs.add(donnees.conducteur());
+        }
+        Course course = donnees.course(client, null, StatutCourse.EN_ATTENTE);
+
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        CountDownLatch depart = new CountDownLatch(1);
+        AtomicInteger gagnants = new AtomicInteger();
+        AtomicInteger perdants = new AtomicInteger();
+        List<Future<?>> tentatives = new ArrayList<>();
+
+        for (int i = 0; i < NOMBRE_TENTATIVES; i++) {
+            Conducteur conducteur = conducteurs.get(i % NOMBRE_CONDUCTEURS);
+            tentatives.add(pool.submit(() -> {
+                authentifier(conducteur);
+                try {
+                    depart.await();
+                    courseService.accepterCourse(course.getId());
+                    gagnants.incrementAndGet();
+                } catch (ResponseStatusException e) {
+                    if (e.getStatusCode() == HttpStatus.CONFLICT) {
+                        perdants.incrementAndGet();
+                    }
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+                return null;
+            }));
+        }
+
+        depart.countDown();
+        for (Future<?> tentative : tentatives) {
+            tentative.get();
+        }
+        pool.shutdown();
+
+        assertThat(gagnants.get()).isEqualTo(1);
+        assertThat(perdants.get()).isEqualTo(NOMBRE_TENTATIVES - 1);
+
+        Course finale = courseRepository.findById(course.getId()).orElseThrow();
+        assertThat(finale.getStatut()).isEqualTo(StatutCourse.ACCEPTEE);
+        assertThat(finale.getConducteur()).isNotNull();
+    }
+
+    private void authentifier(Conducteur conducteur) {
+        UserDetails principal = org.springframework.security.core.userdetails.User
+                .withUsername(conducteur.getEmail())
+                .password(conducteur.getPassword())
+                .roles("CONDUCTEUR")
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+}
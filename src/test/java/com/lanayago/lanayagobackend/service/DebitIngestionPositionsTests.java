@@ -0,0 +1,129 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
+import com.lanayago.lanayagobackend.repository.SegmentTraceRepository;
+import com.lanayago.lanayagobackend.util.CodecPositions;
+import com.lanayago.lanayagobackend.util.CodecTrace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mesure du débit d'ingestion des lots binaires sur un seul thread, donc par cœur :
+ * décodage du corps, index spatial, trace et compteur kilométrique. Un conducteur sur deux a une course en cours.
+ * Lancement : LANAYAGO_BENCH=true ./gradlew test --tests '*DebitIngestionPositionsTests'
+ */
+@SpringBootTest(properties = "lanayago.traces.points-par-segment=100000")
+@EnabledIfEnvironmentVariable(named = "LANAYAGO_BENCH", matches = "true")
+class DebitIngestionPositionsTests {
+
+    private static final int CONDUCTEURS = 2_000;
+    private static final int TAILLE_LOT = 100;
+
+    @Autowired
+    private IngestionPositions ingestionPositions;
+
+    @Autowired
+    private IndexGeoConducteurs indexGeoConducteurs;
+
+    @Autowired
+    private TracesCoursesService tracesCoursesService;
+
+    @Autowired
+    private OdometreCourses odometreCourses;
+
+    @Autowired
+    private SegmentTraceRepository segmentTraceRepository;
+
+    @Test
+    void positionsParSecondeEtParCoeur() {
+        List<byte[]> lots = preparerLots();
+        for (long conducteurId = 1; conducteurId <= CONDUCTEURS; conducteurId += 2) {
+            publier(conducteurId, TypeEvenementCourse.ACCEPTEE, StatutCourse.ACCEPTEE);
+            publier(conducteurId, TypeEvenementCourse.STATUT_MODIFIE, StatutCourse.EN_COURS);
+        }
+
+        // Échauffement : compilation JIT et recherche initiale de la course active de chaque conducteur
+        ingerer(lots, 5);
+
+        int tours = 20;
+        long debut = System.nanoTime();
+        long positions = ingerer(lots, tours);
+        double secondes = (System.nanoTime() - debut) / 1e9;
+
+        double debit = positions / secondes;
+        System.out.printf("Ingestion de %d positions en %.2f s : %.0f positions/s/cœur%n", positions, secondes, debit);
+
+        for (long conducteurId = 1; conducteurId <= CONDUCTEURS; conducteurId++) {
+            indexGeoConducteurs.retirer(-conducteurId);
+            if (conducteurId % 2 == 1) {
+                publier(conducteurId, TypeEvenementCourse.ANNULEE, StatutCourse.ANNULEE);
+            }
+        }
+        assertThat(debit).isPositive();
+    }
+
+    @AfterEach
+    void nettoyer() throws InterruptedException {
+        // Laisse le thread d'écriture terminer les segments des courses clôturées
+        Thread.sleep(2000);
+        segmentTraceRepository.deleteAll(segmentTraceRepository.findAll().stream()
+                .filter(segment -> segment.getCourseId() < 0).toList());
+    }
+
+    /**
+     * Course fictive d'identifiant négatif attribuée au conducteur d'identifiant négatif
+     */
+    private void publier(long numero, TypeEvenementCourse type, StatutCourse statut) {
+        Conducteur conducteur = new Conducteur();
+        conducteur.setId(-numero);
+        Course course = new Course();
+        course.setId(-numero);
+        course.setConducteur(conducteur);
+        course.setStatut(statut);
+        CourseEvenement evenement = CourseEvenement.de(type, course);
+        tracesCoursesService.surEvenementCourse(evenement);
+        odometreCourses.surEvenementCourse(evenement);
+    }
+
+    private long ingerer(List<byte[]> lots, int tours) {
+        long positions = 0;
+        for (int tour = 0; tour < tours; tour++) {
+            for (int i = 0; i < lots.size(); i++) {
+                Long conducteurId = -(long) (i % CONDUCTEURS + 1);
+                positions += ingestionPositions.ingererLot(conducteurId, CodecPositions.decoder(lots.get(i))).acceptees();
+            }
+        }
+        return positions;
+    }
+
+    private static List<byte[]> preparerLots() {
+        Random aleatoire = new Random(7);
+        long maintenant = System.currentTimeMillis();
+        List<byte[]> lots = new ArrayList<>();
+        for (int conducteur = 0; conducteur < CONDUCTEURS; conducteur++) {
+            double latitude = 5.2 + aleatoire.nextDouble() * 0.3;
+            double longitude = -4.2 + aleatoire.nextDouble() * 0.3;
+            List<CodecTrace.Point> points = new ArrayList<>(TAILLE_LOT);
+            for (int i = 0; i < TAILLE_LOT; i++) {
+                points.add(new CodecTrace.Point(maintenant - (TAILLE_LOT - i) * 1000L, latitude, longitude));
+                latitude += (aleatoire.nextDouble() - 0.5) * 0.0002;
+                longitude += (aleatoire.nextDouble() - 0.5) * 0.0002;
+            }
+            lots.add(CodecPositions.encoder(points));
+        }
+        return lots;
+    }
+}
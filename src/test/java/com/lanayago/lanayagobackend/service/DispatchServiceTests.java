@@ -0,0 +1,194 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.Engin;
+import com.lanayago.lanayagobackend.entity.Moto;
+import com.lanayago.lanayagobackend.entity.Voiture;
+import com.lanayago.lanayagobackend.entity.enums.StatutConducteur;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.StatutEngin;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
+import com.lanayago.lanayagobackend.repository.ConducteurRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Dispatch sans contexte Spring : index géographique réel, présence, base et notifications simulées
+ */
+class DispatchServiceTests {
+
+    // Départ au Plateau ; 0,009° de latitude ≈ 1 km
+    private static final double LATITUDE = 5.3200;
+    private static final double LONGITUDE = -4.0200;
+
+    private final IndexGeoConducteurs indexGeo = new IndexGeoConducteurs(Duration.ofMinutes(2), 50);
+    private final PresenceConducteurs presence = mock(PresenceConducteurs.class);
+    private final ConducteurRepository conducteurRepository = mock(ConducteurRepository.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final Map<Long, Conducteur> conducteurs = new HashMap<>();
+
+    private DispatchService dispatchService;
+
+    @BeforeEach
+    void preparer() {
+        dispatchService = new DispatchService(indexGeo, presence, conducteurRepository, notificationService);
+        ReflectionTestUtils.setField(dispatchService, "rayonKm", 5.0);
+        ReflectionTestUtils.setField(dispatchService, "nombreCandidats", 20);
+        ReflectionTestUtils.setField(dispatchService, "tailleVague", 2);
+        ReflectionTestUtils.setField(dispatchService, "delaiOffre", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(dispatchService, "vitesseMoyenneKmh", 25.0);
+        ReflectionTestUtils.setField(dispatchService, "poidsNote", 1.0);
+
+        when(presence.estSollicitable(anyLong())).thenReturn(true);
+        when(conducteurRepository.findByIdIn(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(conducteurs::get).toList();
+        });
+    }
+
+    @AfterEach
+    void nettoyer() {
+        dispatchService.arreterPlanificateur();
+    }
+
+    @Test
+    void candidatsHorsRayonOuNonSollicitablesEcartes() {
+        conducteur(1L, 1.0, 4.0, moto());
+        conducteur(2L, 4.5, 4.0, moto());
+        conducteur(3L, 8.0, 4.0, moto());
+        conducteur(4L, 2.0, 4.0, moto());
+        when(presence.estSollicitable(4L)).thenReturn(false);
+
+        assertThat(ids(dispatchService.classerCandidats(course(TypeCourse.LIVRAISON_MOTO, 1)))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void enginIncompatibleOuConducteurNonApprouveEcarte() {
+        conducteur(1L, 1.0, 4.0, moto());
+        conducteur(2L, 1.0, 4.0, voiture(4));
+        Moto enMaintenance = moto();
+        enMaintenance.setStatut(StatutEngin.MAINTENANCE);
+        conducteur(3L, 1.0, 4.0, enMaintenance);
+        conducteur(4L, 1.0, 4.0, moto()).setStatut(StatutConducteur.SUSPENDU);
+        conducteur(5L, 1.0, 4.0, voiture(2));
+        conducteur(6L, 1.0, 4.0, null);
+
+        assertThat(ids(dispatchService.classerCandidats(course(TypeCourse.LIVRAISON_MOTO, 1)))).containsExactly(1L);
+        // Trois passagers : la voiture de deux places est écartée
+        assertThat(ids(dispatchService.classerCandidats(course(TypeCourse.TRANSPORT_PERSONNE, 3)))).containsExactly(2L);
+    }
+
+    @Test
+    void classementParEtaCorrigeeParLaNote() {
+        // 1 km sans note : 2,4 min ; 2 km noté 5 : 4,8 - 5 = -0,2 ; 3 km noté 4 : 7,2 - 4 = 3,2
+        conducteur(1L, 1.0, 0.0, moto());
+        conducteur(2L, 2.0, 5.0, moto());
+        conducteur(3L, 3.0, 4.0, moto());
+
+        List<DispatchService.Candidat> candidats = dispatchService.classerCandidats(course(TypeCourse.LIVRAISON_MOTO, 1));
+        assertThat(ids(candidats)).containsExactly(2L, 1L, 3L);
+        assertThat(candidats.get(1).distanceKm()).isCloseTo(1.0, offset(0.05));
+    }
+
+    @Test
+    void premiereVagueEnvoyeeAuxMieuxPlaces() {
+        conducteur(1L, 1.0, 4.0, moto());
+        conducteur(2L, 2.0, 4.0, moto());
+        conducteur(3L, 3.0, 4.0, moto());
+
+        dispatchService.surEvenementCourse(course(TypeCourse.LIVRAISON_MOTO, 1));
+
+        verify(notificationService, timeout(2000)).notifierNouvelleCourse(1L, 42L);
+        verify(notificationService, timeout(2000)).notifierNouvelleCourse(2L, 42L);
+        verify(notificationService, after(200).never()).notifierNouvelleCourse(eq(3L), anyLong());
+        assertThat(dispatchService.estEnCours(42L)).isTrue();
+    }
+
+    @Test
+    void acceptationAvantLeDemarrageArreteLeDispatch() throws InterruptedException {
+        conducteur(1L, 1.0, 4.0, moto());
+        CountDownLatch classementCommence = new CountDownLatch(1);
+        CountDownLatch accepteeRelayee = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            classementCommence.countDown();
+            accepteeRelayee.await(5, TimeUnit.SECONDS);
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(conducteurs::get).toList();
+        }).when(conducteurRepository).findByIdIn(any());
+
+        CourseEvenement creee = course(TypeCourse.LIVRAISON_MOTO, 1);
+        dispatchService.surEvenementCourse(creee);
+        assertThat(dispatchService.estEnCours(42L)).isTrue();
+
+        // L'acceptation arrive pendant que le planificateur classe encore les candidats
+        assertThat(classementCommence.await(5, TimeUnit.SECONDS)).isTrue();
+        dispatchService.surEvenementCourse(evenement(TypeEvenementCourse.ACCEPTEE, creee));
+        accepteeRelayee.countDown();
+
+        verify(notificationService, after(300).never()).notifierNouvelleCourse(anyLong(), anyLong());
+        assertThat(dispatchService.estEnCours(42L)).isFalse();
+    }
+
+    private Conducteur conducteur(Long id, double distanceKm, double note, Engin engin) {
+        Conducteur conducteur = new Conducteur();
+        conducteur.setId(id);
+        conducteur.setStatut(StatutConducteur.APPROUVE);
+        conducteur.setNoteGlobale(note);
+        conducteur.setEnginActuel(engin);
+        conducteurs.put(id, conducteur);
+        indexGeo.mettreAJour(id, LATITUDE + distanceKm * 0.009, LONGITUDE);
+        return conducteur;
+    }
+
+    private static Moto moto() {
+        return new Moto();
+    }
+
+    private static Voiture voiture(int places) {
+        Voiture voiture = new Voiture();
+        voiture.setNombrePlaces(places);
+        return voiture;
+    }
+
+    private static CourseEvenement course(TypeCourse type, int passagers) {
+        return new CourseEvenement(TypeEvenementCourse.CREEE, 42L, type, StatutCourse.EN_ATTENTE, 7L, null,
+                "Plateau", "Cocody", LATITUDE, LONGITUDE, 3.0, 1500.0, passagers, null, LocalDateTime.now());
+    }
+
+    private static CourseEvenement evenement(TypeEvenementCourse type, CourseEvenement course) {
+        return new CourseEvenement(type, course.courseId(), course.typeCourse(), StatutCourse.ACCEPTEE,
+                course.clientId(), 1L, course.adresseDepart(), course.adresseArrivee(), course.latitudeDepart(),
+                course.longitudeDepart(), course.distanceKm(), course.montantEstime(), course.nombrePassagers(),
+                course.poidsColis(), LocalDateTime.now());
+    }
+
+    private static List<Long> ids(List<DispatchService.Candidat> candidats) {
+        return candidats.stream().map(DispatchService.Candidat::conducteurId).toList();
+    }
+}
@@ -0,0 +1,134 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.dto.projection.LigneCourseEnAttente;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Roue d'expiration sans contexte Spring : base, cumuls et publication simulés.
+ * Transport de marchandise échu en 1 s ; roue de 4 cases de 0,1 s, soit un tour de 0,4 s.
+ */
+class ExpirationCoursesTests {
+
+    private final CourseRepository courseRepository = mock(CourseRepository.class);
+    private final AgregatsCoursesService agregatsCoursesService = mock(AgregatsCoursesService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    // Courses acceptées en base sans que l'événement soit encore arrivé : le verrou les écarte
+    private final Set<Long> acceptees = ConcurrentHashMap.newKeySet();
+    private final Map<Long, LocalDateTime> creations = new ConcurrentHashMap<>();
+
+    private ExpirationCourses expirationCourses;
+
+    @BeforeEach
+    void preparer() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(courseRepository.verrouillerEnAttente(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().filter(id -> !acceptees.contains(id)).toList();
+        });
+        when(courseRepository.findLignesEnAttenteByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(this::ligne).toList();
+        });
+
+        expirationCourses = new ExpirationCourses(courseRepository, agregatsCoursesService, eventPublisher,
+                transactionTemplate, Duration.ofMinutes(15), Duration.ofMinutes(10), Duration.ofSeconds(1),
+                Duration.ofHours(1), 200, Duration.ofMillis(100), 4);
+        expirationCourses.demarrer();
+    }
+
+    @AfterEach
+    void nettoyer() {
+        expirationCourses.fermer();
+    }
+
+    @Test
+    void coursesEchuesAnnuleesParLaRoue() {
+        LocalDateTime creation = LocalDateTime.now();
+        creer(1L, TypeCourse.TRANSPORT_MARCHANDISE, creation);
+        creer(2L, TypeCourse.TRANSPORT_MARCHANDISE, creation);
+        creer(3L, TypeCourse.TRANSPORT_MARCHANDISE, creation);
+        creer(4L, TypeCourse.TRANSPORT_MARCHANDISE, creation);
+        creer(5L, TypeCourse.LIVRAISON_MOTO, creation);
+        acceptees.add(3L);
+        expirationCourses.surEvenementCourse(evenement(TypeEvenementCourse.ACCEPTEE, 4L, TypeCourse.TRANSPORT_MARCHANDISE, creation));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Long>> annulees = ArgumentCaptor.forClass(Collection.class);
+        verify(courseRepository, timeout(5000)).annulerParIds(annulees.capture());
+        assertThat(annulees.getValue()).containsExactlyInAnyOrder(1L, 2L);
+
+        ArgumentCaptor<CourseEvenement> evenements = ArgumentCaptor.forClass(CourseEvenement.class);
+        verify(eventPublisher, timeout(1000).times(2)).publishEvent(evenements.capture());
+        assertThat(evenements.getAllValues()).allSatisfy(e -> {
+            assertThat(e.type()).isEqualTo(TypeEvenementCourse.ANNULEE);
+            assertThat(e.statut()).isEqualTo(StatutCourse.ANNULEE);
+        }).extracting(CourseEvenement::courseId).containsExactlyInAnyOrder(1L, 2L);
+        verify(agregatsCoursesService).enregistrerAnnulations(TypeCourse.TRANSPORT_MARCHANDISE, List.of(creation, creation));
+
+        // La livraison moto, à 15 min, reste seule en attente ; rien n'est annulé deux fois
+        verify(courseRepository, after(500).times(1)).annulerParIds(anyCollection());
+        assertThat(expirationCourses.metriques())
+                .containsEntry("expirees", 2L)
+                .containsEntry("enAttente", 1);
+    }
+
+    @Test
+    void echeanceAuDelaDUnTourAttendueSurPlusieursTours() {
+        long debut = System.nanoTime();
+        creer(1L, TypeCourse.TRANSPORT_MARCHANDISE, LocalDateTime.now());
+
+        // Sa case passe toutes les 0,4 s : elle y est replacée jusqu'à l'échéance
+        verify(courseRepository, after(600).never()).verrouillerEnAttente(anyCollection());
+        verify(courseRepository, timeout(5000)).annulerParIds(eq(List.of(1L)));
+        assertThat(Duration.ofNanos(System.nanoTime() - debut)).isGreaterThanOrEqualTo(Duration.ofSeconds(1));
+    }
+
+    private void creer(Long id, TypeCourse type, LocalDateTime creation) {
+        creations.put(id, creation);
+        expirationCourses.surEvenementCourse(evenement(TypeEvenementCourse.CREEE, id, type, creation));
+    }
+
+    private static CourseEvenement evenement(TypeEvenementCourse type, Long id, TypeCourse typeCourse,
+                                             LocalDateTime horodatage) {
+        return new CourseEvenement(type, id, typeCourse, StatutCourse.EN_ATTENTE, 7L, null, "Plateau", "Yopougon",
+                null, null, null, null, null, 500.0, horodatage);
+    }
+
+    private LigneCourseEnAttente ligne(Long id) {
+        return new LigneCourseEnAttente(id, TypeCourse.TRANSPORT_MARCHANDISE, 7L, "Plateau", "Yopougon",
+                null, null, null, null, null, 500.0, creations.get(id));
+    }
+}
@@ -0,0 +1,120 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Taille de lot positive : la valeur de flux propre au pilote MySQL n'est pas acceptée par tous les pilotes
+@SpringBootTest(properties = "lanayago.export.taille-lot-jdbc=500")
+class ExportCoursesServiceTests {
+
+    @Autowired
+    private ExportCoursesService exportCoursesService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private User client;
+
+    // Heure passée propre à chaque test : le filtre de dates n'exporte que ses courses
+    private LocalDateTime heure;
+
+    @BeforeEach
+    void preparer() {
+        heure = LocalDateTime.of(2001, 1, 1, 0, 0).plusHours(ThreadLocalRandom.current().nextInt(24 * 365 * 10));
+
+        client = donnees.client();
+    }
+
+    @AfterEach
+    void nettoyer() {
+        donnees.nettoyer();
+    }
+
+    @Test
+    void valeursCsvEchappees() {
+        assertThat(ExportCoursesService.valeurCsv(null)).isEmpty();
+        assertThat(ExportCoursesService.valeurCsv("Cocody")).isEqualTo("Cocody");
+        assertThat(ExportCoursesService.valeurCsv("Rue 12, Plateau")).isEqualTo("\"Rue 12, Plateau\"");
+        assertThat(ExportCoursesService.valeurCsv("Le \"Grand\" marché")).isEqualTo("\"Le \"\"Grand\"\" marché\"");
+        assertThat(ExportCoursesService.valeurCsv("Ligne 1\nLigne 2")).isEqualTo("\"Ligne 1\nLigne 2\"");
+    }
+
+    @Test
+    void textesCommeDesFormulesNeutralises() {
+        assertThat(ExportCoursesService.valeurCsv("=1+1")).isEqualTo("'=1+1");
+        assertThat(ExportCoursesService.valeurCsv("+225 07 00 00 00")).isEqualTo("'+225 07 00 00 00");
+        assertThat(ExportCoursesService.valeurCsv("-2+3")).isEqualTo("'-2+3");
+        assertThat(ExportCoursesService.valeurCsv("@SUM(A1)")).isEqualTo("'@SUM(A1)");
+        assertThat(ExportCoursesService.valeurCsv("\tcmd")).isEqualTo("'\tcmd");
+        assertThat(ExportCoursesService.valeurCsv("\r=1")).isEqualTo("\"'\r=1\"");
+        assertThat(ExportCoursesService.valeurCsv("=HYPERLINK(\"http://x\",\"y\")"))
+                .isEqualTo("\"'=HYPERLINK(\"\"http://x\"\",\"\"y\"\")\"");
+        // Les nombres négatifs ne sont pas du texte saisi
+        assertThat(ExportCoursesService.valeurCsv(-4.02)).isEqualTo("-4.02");
+    }
+
+    @Test
+    void exportCsvFiltreParPeriode() throws Exception {
+        Course premiere = creer("=HYPERLINK(\"http://x\",\"y\")", TypeCourse.LIVRAISON_MOTO, 10);
+        Course seconde = creer("Rue 12, Plateau", TypeCourse.TRANSPORT_PERSONNE, 20);
+        creer("Hors période", TypeCourse.LIVRAISON_MOTO, 120);
+
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        long nombre = exportCoursesService.exporter(null, null, heure, heure.plusHours(1),
+                ExportCoursesService.FormatExport.CSV, sortie);
+
+        List<String> lignes = sortie.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(nombre).isEqualTo(2);
+        assertThat(lignes).hasSize(3);
+        assertThat(lignes.get(0)).startsWith("id,typeCourse,statut,clientId,conducteurId,adresseDepart,");
+        assertThat(lignes.get(1)).startsWith(premiere.getId() + ",LIVRAISON_MOTO,EN_ATTENTE," + client.getId()
+                + ",,\"'=HYPERLINK(\"\"http://x\"\",\"\"y\"\")\",Cocody,");
+        assertThat(lignes.get(2)).startsWith(seconde.getId() + ",TRANSPORT_PERSONNE,EN_ATTENTE," + client.getId()
+                + ",,\"Rue 12, Plateau\",Cocody,");
+    }
+
+    @Test
+    void exportNdjsonFiltreParType() throws Exception {
+        creer("Plateau", TypeCourse.LIVRAISON_MOTO, 10);
+        Course personne = creer("Treichville", TypeCourse.TRANSPORT_PERSONNE, 20);
+
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        long nombre = exportCoursesService.exporter(StatutCourse.EN_ATTENTE, TypeCourse.TRANSPORT_PERSONNE,
+                heure, heure.plusHours(1), ExportCoursesService.FormatExport.NDJSON, sortie);
+
+        List<String> lignes = sortie.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(nombre).isEqualTo(1);
+        assertThat(lignes).singleElement().satisfies(ligne -> assertThat(ligne)
+                .contains("\"id\":" + personne.getId())
+                .contains("\"adresseDepart\":\"Treichville\""));
+    }
+
+    private Course creer(String adresseDepart, TypeCourse type, int minutes) {
+        Course course = JeuDeDonnees.nouvelleCourse(client, null, StatutCourse.EN_ATTENTE);
+        course.setTypeCourse(type);
+        course.setAdresseDepart(adresseDepart);
+        course = donnees.enregistrer(course);
+        jdbcTemplate.update("UPDATE courses SET date_creation = ? WHERE id = ?", heure.plusMinutes(minutes), course.getId());
+        return course;
+    }
+}
@@ -0,0 +1,154 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import com.lanayago.lanayagobackend.util.GeoUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Montant final d'une course terminée, sur la distance relevée par le compteur kilométrique
+ */
+@SpringBootTest
+class FacturationCoursesTests {
+
+    private static final double LATITUDE = 5.3167;
+    private static final double LONGITUDE = -4.0333;
+
+    @Autowired
+    private OdometreCourses odometreCourses;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private Conducteur conducteur;
+    private Course course;
+
+    @BeforeEach
+    void preparer() {
+        conducteur = donnees.conducteur();
+
+        course = JeuDeDonnees.nouvelleCourse(donnees.client(), conducteur, StatutCourse.EN_COURS);
+        course.setDistanceKm(1.0);
+        course.setMontantEstime(600.0);
+        course.setDateDebut(LocalDateTime.now());
+        course = donnees.enregistrer(course);
+
+        odometreCourses.surEvenementCourse(CourseEvenement.de(TypeEvenementCourse.STATUT_MODIFIE, course));
+        JeuDeDonnees.authentifier(conducteur);
+    }
+
+    @AfterEach
+    void nettoyer() {
+        donnees.nettoyer();
+    }
+
+    @Test
+    void montantFinalSurLaDistanceReelle() {
+        long instant = System.currentTimeMillis();
+        // Trajet en L de 2 km alors que l'estimation à vol d'oiseau était de 1 km
+        for (int i = 0; i <= 10; i++) {
+            enregistrer(instant + i * 10_000L, LATITUDE + GeoUtils.degresLatitude(0.1 * i), LONGITUDE);
+        }
+        double latitudeFinale = LATITUDE + GeoUtils.degresLatitude(1.0);
+        for (int i = 1; i <= 10; i++) {
+            enregistrer(instant + (10 + i) * 10_000L, latitudeFinale,
+                    LONGITUDE + GeoUtils.degresLongitude(0.1 * i, latitudeFinale));
+        }
+
+        courseService.updateStatut(course.getId(), StatutCourse.TERMINEE);
+
+        Course terminee = courseRepository.findById(course.getId()).orElseThrow();
+        assertThat(terminee.getDistanceReelleKm()).isCloseTo(2.0, within(0.02));
+        assertThat(terminee.getMontantFinal()).isCloseTo(500.0 + terminee.getDistanceReelleKm() * 100.0, within(0.001));
+    }
+
+    @Test
+    void unePositionNeFacturePasMoinsQueLEstimation() {
+        enregistrer(System.currentTimeMillis(), LATITUDE, LONGITUDE);
+
+        courseService.updateStatut(course.getId(), StatutCourse.TERMINEE);
+
+        Course terminee = courseRepository.findById(course.getId()).orElseThrow();
+        assertThat(terminee.getDistanceReelleKm()).isZero();
+        assertThat(terminee.getMontantFinal()).isEqualTo(600.0);
+    }
+
+    @Test
+    void positionsInterrompuesEnCoursDeCourse() {
+        long maintenant = System.currentTimeMillis();
+        course.setDateDebut(LocalDateTime.now().minusMinutes(10));
+        course.setMontantEstime(900.0);
+        course = courseRepository.save(course);
+
+        // 1,2 km pendant les deux premières minutes, puis plus rien : application fermée
+        for (int i = 0; i <= 12; i++) {
+            enregistrer(maintenant - 600_000 + i * 10_000L, LATITUDE + GeoUtils.degresLatitude(0.1 * i), LONGITUDE);
+        }
+
+        courseService.updateStatut(course.getId(), StatutCourse.TERMINEE);
+
+        Course terminee = courseRepository.findById(course.getId()).orElseThrow();
+        assertThat(terminee.getDistanceReelleKm()).isCloseTo(1.2, within(0.02));
+        assertThat(terminee.getMontantFinal()).isEqualTo(900.0);
+    }
+
+    @Test
+    void compteurDemarreParLaTransitionSansAttendreLEvenement() {
+        odometreCourses.surEvenementCourse(CourseEvenement.de(TypeEvenementCourse.ANNULEE, course));
+        course.setStatut(StatutCourse.ARRIVEE_DEPART);
+        course.setDateDebut(null);
+        course = courseRepository.save(course);
+
+        courseService.updateStatut(course.getId(), StatutCourse.EN_COURS);
+        long instant = System.currentTimeMillis();
+        for (int i = 0; i <= 10; i++) {
+            enregistrer(instant + i * 10_000L, LATITUDE + GeoUtils.degresLatitude(0.1 * i), LONGITUDE);
+        }
+
+        Course enCours = courseRepository.findById(course.getId()).orElseThrow();
+        assertThat(odometreCourses.terminer(enCours)).hasValueSatisfying(releve ->
+                assertThat(releve.distanceKm()).isCloseTo(1.0, within(0.02)));
+    }
+
+    @Test
+    void courseSansConducteurNeDemarrePas() {
+        User client = donnees.client();
+        Course enAttente = donnees.course(client, null, StatutCourse.EN_ATTENTE);
+        JeuDeDonnees.authentifier(client);
+
+        for (StatutCourse statut : new StatutCourse[]{StatutCourse.ARRIVEE_DEPART, StatutCourse.EN_COURS, StatutCourse.TERMINEE}) {
+            assertThatThrownBy(() -> courseService.updateStatut(enAttente.getId(), statut))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        }
+        assertThat(courseRepository.findById(enAttente.getId()).orElseThrow().getStatut()).isEqualTo(StatutCourse.EN_ATTENTE);
+    }
+
+    private void enregistrer(long instant, double latitude, double longitude) {
+        odometreCourses.enregistrer(conducteur.getId(), instant, latitude, longitude);
+    }
+}
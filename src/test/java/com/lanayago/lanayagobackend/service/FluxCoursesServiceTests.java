@@ -0,0 +1,160 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Flux SSE sans contexte Spring : index géographique réel, émetteurs remplacés par des enregistreurs
+ */
+class FluxCoursesServiceTests {
+
+    // Départ au Plateau ; 0,009° de latitude ≈ 1 km
+    private static final double LATITUDE = 5.3200;
+    private static final double LONGITUDE = -4.0200;
+
+    private final IndexGeoConducteurs indexGeo = new IndexGeoConducteurs(Duration.ofMinutes(2), 50);
+    private FluxCoursesService fluxCoursesService;
+
+    @BeforeEach
+    void preparer() {
+        fluxCoursesService = new FluxCoursesService(indexGeo);
+        ReflectionTestUtils.setField(fluxCoursesService, "rayonKm", 5.0);
+        ReflectionTestUtils.setField(fluxCoursesService, "destinatairesMax", 200);
+        ReflectionTestUtils.setField(fluxCoursesService, "delaiConnexion", Duration.ofMinutes(30));
+        ReflectionTestUtils.setField(fluxCoursesService, "fileMax", 2);
+        ReflectionTestUtils.setField(fluxCoursesService, "delaiEnvoi", Duration.ofMillis(100));
+    }
+
+    @AfterEach
+    void nettoyer() {
+        fluxCoursesService.fermer();
+    }
+
+    @Test
+    void seulsLesAbonnesDansLeRayonRecoiventLEvenement() {
+        Enregistreur proche = abonner(1L, 1.0);
+        Enregistreur loin = abonner(2L, 8.0);
+
+        fluxCoursesService.surEvenementCourse(evenement(TypeEvenementCourse.CREEE, 10L));
+        // Changement de statut : hors du flux des courses disponibles
+        fluxCoursesService.surEvenementCourse(evenement(TypeEvenementCourse.STATUT_MODIFIE, 11L));
+        fluxCoursesService.surEvenementCourse(evenement(TypeEvenementCourse.ANNULEE, 10L));
+
+        attendre(() -> proche.recus.get() == 2);
+        assertThat(loin.recus).hasValue(0);
+        assertThat(fluxCoursesService.nombreAbonnes()).isEqualTo(2);
+    }
+
+    @Test
+    void abonneLentDeconnecteSansRetarderLesAutres() {
+        Enregistreur lent = abonner(1L, 1.0);
+        lent.blocage = new CountDownLatch(1);
+        Enregistreur rapide = abonner(2L, 2.0);
+
+        // Le premier événement bloque l'envoi du lent, deux remplissent sa file, le quatrième déborde.
+        // Le rapide vide la sienne entre deux publications, même sur une seule unité de calcul
+        for (long courseId = 1; courseId <= 5; courseId++) {
+            fluxCoursesService.surEvenementCourse(evenement(TypeEvenementCourse.CREEE, courseId));
+            int attendus = (int) courseId;
+            attendre(() -> rapide.recus.get() == attendus);
+        }
+
+        attendre(() -> fluxCoursesService.nombreAbonnes() == 1);
+        assertThat(fluxCoursesService.metriques()).containsEntry("deconnexionsLents", 1L);
+        lent.blocage.countDown();
+    }
+
+    @Test
+    void erreurDEnvoiRetireLAbonne() {
+        Enregistreur ferme = abonner(1L, 1.0);
+        ferme.erreur = new IOException("Broken pipe");
+
+        fluxCoursesService.surEvenementCourse(evenement(TypeEvenementCourse.CREEE, 10L));
+
+        attendre(() -> fluxCoursesService.nombreAbonnes() == 0);
+        assertThat(fluxCoursesService.metriques()).containsEntry("deconnexionsLents", 0L);
+    }
+
+    @Test
+    void envoiBloqueAuDelaDuDelaiDeconnecte() throws InterruptedException {
+        Enregistreur bloque = abonner(1L, 1.0);
+        bloque.blocage = new CountDownLatch(1);
+
+        fluxCoursesService.surEvenementCourse(evenement(TypeEvenementCourse.CREEE, 10L));
+        attendre(() -> bloque.enEnvoi);
+        fluxCoursesService.verifierEnvois();
+        assertThat(fluxCoursesService.nombreAbonnes()).isEqualTo(1);
+
+        Thread.sleep(150);
+        fluxCoursesService.verifierEnvois();
+
+        assertThat(fluxCoursesService.nombreAbonnes()).isZero();
+        bloque.blocage.countDown();
+    }
+
+    private Enregistreur abonner(Long conducteurId, double distanceKm) {
+        indexGeo.mettreAJour(conducteurId, LATITUDE + distanceKm * 0.009, LONGITUDE);
+        Enregistreur emitter = new Enregistreur();
+        fluxCoursesService.abonner(conducteurId, emitter);
+        return emitter;
+    }
+
+    private static CourseEvenement evenement(TypeEvenementCourse type, Long courseId) {
+        return new CourseEvenement(type, courseId, TypeCourse.LIVRAISON_MOTO, StatutCourse.EN_ATTENTE, 7L, null,
+                "Plateau", "Cocody", LATITUDE, LONGITUDE, 3.0, 1500.0, 1, null, LocalDateTime.now());
+    }
+
+    private static void attendre(BooleanSupplier condition) {
+        long limite = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > limite) {
+                throw new AssertionError("Condition non atteinte après 5 s");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Émetteur sans connexion : compte les envois, peut bloquer comme un client lent ou échouer comme un client parti
+     */
+    private static class Enregistreur extends SseEmitter {
+        final AtomicInteger recus = new AtomicInteger();
+        volatile CountDownLatch blocage;
+        volatile IOException erreur;
+        volatile boolean enEnvoi;
+
+        @Override
+        public void send(SseEventBuilder evenement) throws IOException {
+            if (erreur != null) {
+                throw erreur;
+            }
+            enEnvoi = true;
+            try {
+                if (blocage != null) {
+                    blocage.await(10, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            enEnvoi = false;
+            recus.incrementAndGet();
+        }
+    }
+}
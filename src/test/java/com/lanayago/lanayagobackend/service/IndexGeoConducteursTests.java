@@ -0,0 +1,89 @@
+package com.lanayago.lanayagobackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndexGeoConducteursTests {
+
+    // Plateau ; 0,009° de latitude ≈ 1 km
+    private static final double LATITUDE = 5.3200;
+    private static final double LONGITUDE = -4.0200;
+
+    private final IndexGeoConducteurs index = new IndexGeoConducteurs(Duration.ofMinutes(2), 50);
+
+    @Test
+    void kPlusProchesTriesParDistance() {
+        for (long id = 5; id >= 1; id--) {
+            index.mettreAJour(id, LATITUDE + id * 0.009, LONGITUDE);
+        }
+
+        assertThat(ids(index.rechercherPlusProches(LATITUDE, LONGITUDE, 10, 3, null))).containsExactly(1L, 2L, 3L);
+        assertThat(ids(index.rechercherPlusProches(LATITUDE, LONGITUDE, 10, 3, id -> id != 2L)))
+                .containsExactly(1L, 3L, 4L);
+    }
+
+    @Test
+    void rayonExclutLesConducteursDesCellulesParcouruesMaisTropLoin() {
+        index.mettreAJour(1L, LATITUDE + 0.009, LONGITUDE);
+        // Dans une cellule du carré parcouru, mais en diagonale à plus de 2,5 km
+        index.mettreAJour(2L, LATITUDE + 0.020, LONGITUDE + 0.020);
+
+        assertThat(ids(index.rechercherPlusProches(LATITUDE, LONGITUDE, 2.5, 10, null))).containsExactly(1L);
+    }
+
+    @Test
+    void conducteursDePartEtDAutreDUnBordDeCellule() {
+        double bord = 5.33;
+        index.mettreAJour(1L, bord + 1e-7, LONGITUDE);
+        index.mettreAJour(2L, bord - 1e-7, LONGITUDE);
+        assertThat(IndexGeoConducteurs.cellule(bord + 1e-7, LONGITUDE))
+                .isNotEqualTo(IndexGeoConducteurs.cellule(bord - 1e-7, LONGITUDE));
+
+        assertThat(ids(index.rechercherPlusProches(bord - 1e-7, LONGITUDE, 0.1, 10, null)))
+                .containsExactlyInAnyOrder(1L, 2L);
+        assertThat(ids(index.rechercherPlusProches(bord + 1e-7, LONGITUDE, 0.1, 10, null)))
+                .containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void rechercheAuDelaDeLAntimeridien() {
+        index.mettreAJour(1L, -17.0, -179.999);
+        index.mettreAJour(2L, -17.0, 179.998);
+        assertThat(IndexGeoConducteurs.cellule(0, 180)).isEqualTo(IndexGeoConducteurs.cellule(0, -180));
+
+        assertThat(ids(index.rechercherPlusProches(-17.0, 179.999, 1, 10, null))).containsExactly(2L, 1L);
+        assertThat(ids(index.rechercherPlusProches(-17.0, -179.998, 1, 10, null))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void changementDeCelluleNeLaissePasLAnciennePosition() {
+        index.mettreAJour(1L, LATITUDE, LONGITUDE);
+        index.mettreAJour(1L, LATITUDE + 0.1, LONGITUDE);
+
+        assertThat(index.rechercherPlusProches(LATITUDE, LONGITUDE, 1, 10, null)).isEmpty();
+        assertThat(ids(index.rechercherPlusProches(LATITUDE + 0.1, LONGITUDE, 1, 10, null))).containsExactly(1L);
+    }
+
+    @Test
+    void positionsPerimeesPurgees() throws InterruptedException {
+        IndexGeoConducteurs court = new IndexGeoConducteurs(Duration.ofMillis(50), 50);
+        court.mettreAJour(1L, LATITUDE, LONGITUDE);
+        court.mettreAJour(2L, LATITUDE, LONGITUDE);
+
+        Thread.sleep(100);
+        court.mettreAJour(2L, LATITUDE + 0.001, LONGITUDE);
+
+        assertThat(court.purgerPerimees()).isEqualTo(1);
+        assertThat(court.taille()).isEqualTo(1);
+        assertThat(court.getPosition(1L)).isEmpty();
+        assertThat(ids(court.rechercherPlusProches(LATITUDE, LONGITUDE, 1, 10, null))).containsExactly(2L);
+    }
+
+    private static List<Long> ids(List<IndexGeoConducteurs.ConducteurProche> conducteurs) {
+        return conducteurs.stream().map(IndexGeoConducteurs.ConducteurProche::conducteurId).toList();
+    }
+}
@@ -0,0 +1,160 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.CompteurRequetes;
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.enums.StatutConducteur;
+import com.lanayago.lanayagobackend.repository.ConducteurRepository;
+import com.lanayago.lanayagobackend.util.CodecPositions;
+import com.lanayago.lanayagobackend.util.CodecTrace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        // Statut et révocation revérifiés à chaque position du flux
+        "lanayago.positions.flux.verification-statut=PT0S",
+        "lanayago.positions.lot-max=100"
+})
+class IngestionPositionsTests {
+
+    @Autowired
+    private ConducteurService conducteurService;
+
+    @Autowired
+    private IndexGeoConducteurs indexGeoConducteurs;
+
+    @Autowired
+    private ConducteurRepository conducteurRepository;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private Conducteur conducteur;
+
+    @BeforeEach
+    void preparer() {
+        conducteur = donnees.conducteur();
+        JeuDeDonnees.authentifier(conducteur);
+    }
+
+    @AfterEach
+    void nettoyer() {
+        indexGeoConducteurs.retirer(conducteur.getId());
+        donnees.nettoyer();
+    }
+
+    @Test
+    void lotEnUneRequeteSansTransaction() throws Exception {
+        long maintenant = System.currentTimeMillis();
+        List<CodecTrace.Point> points = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            points.add(new CodecTrace.Point(maintenant - (50 - i) * 1000L, 5.3 + i * 0.001, -4.0));
+        }
+        // Fix resté une heure dans le téléphone et coordonnées impossibles
+        points.add(new CodecTrace.Point(maintenant - 3_600_000L, 5.3, -4.0));
+        points.add(new CodecTrace.Point(maintenant, 95.0, -4.0));
+
+        List<IngestionPositions.Bilan> bilans = new ArrayList<>();
+        CompteurRequetes.Mesure mesure = CompteurRequetes.mesurer(() -> bilans.add(envoyer(CodecPositions.encoder(points))));
+        IngestionPositions.Bilan bilan = bilans.getFirst();
+
+        assertThat(bilan).isEqualTo(new IngestionPositions.Bilan(50, 2));
+        // Lecture du statut, puis recherche unique de la course active du conducteur
+        assertThat(mesure.requetes()).isLessThanOrEqualTo(2);
+        assertThat(mesure.transactions()).isZero();
+        assertThat(indexGeoConducteurs.getPosition(conducteur.getId())).hasValueSatisfying(position ->
+                assertThat(position.latitude()).isEqualTo(5.349));
+    }
+
+    @Test
+    void fluxTraiteJusquALaFermeture() throws Exception {
+        long maintenant = System.currentTimeMillis();
+        byte[] donnees = CodecPositions.encoder(List.of(
+                new CodecTrace.Point(maintenant - 2000, 5.31, -4.03),
+                new CodecTrace.Point(maintenant - 1000, 5.32, -4.03)));
+
+        IngestionPositions.Bilan bilan = conducteurService.enregistrerFluxPositions(new ByteArrayInputStream(donnees), null, null);
+
+        assertThat(bilan).isEqualTo(new IngestionPositions.Bilan(2, 0));
+        assertThat(indexGeoConducteurs.getPosition(conducteur.getId())).hasValueSatisfying(position ->
+                assertThat(position.latitude()).isEqualTo(5.32));
+    }
+
+    @Test
+    void corpsMalFormeOuConducteurSuspenduRefuses() {
+        assertThatThrownBy(() -> envoyer(new byte[20]))
+                .isInstanceOf(ResponseStatusException.class);
+
+        conducteur.setStatut(StatutConducteur.SUSPENDU);
+        conducteurRepository.save(conducteur);
+        byte[] donnees = CodecPositions.encoder(List.of(new CodecTrace.Point(System.currentTimeMillis(), 5.3, -4.0)));
+        assertThatThrownBy(() -> envoyer(donnees))
+                .hasMessage("Votre compte n'est pas encore approuvé");
+    }
+
+    @Test
+    void lotTropVolumineuxRefuseAvantDEtreLu() {
+        InputStream illisible = new InputStream() {
+            @Override
+            public int read() {
+                throw new AssertionError("Corps lu malgré sa longueur annoncée");
+            }
+        };
+        assertThatThrownBy(() -> conducteurService.enregistrerPositions(illisible, 101L * CodecPositions.TAILLE_ENREGISTREMENT))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+
+        // Corps chunked sans longueur : la lecture s'arrête au premier octet en trop
+        long maintenant = System.currentTimeMillis();
+        List<CodecTrace.Point> points = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            points.add(new CodecTrace.Point(maintenant, 5.3, -4.0));
+        }
+        ByteArrayInputStream corps = new ByteArrayInputStream(CodecPositions.encoder(points));
+        assertThatThrownBy(() -> conducteurService.enregistrerPositions(corps, -1))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+        assertThat(corps.available()).isEqualTo((1000 - 100) * CodecPositions.TAILLE_ENREGISTREMENT - 1);
+    }
+
+    @Test
+    void fluxCloturePourJetonExpireOuSessionRevoquee() throws Exception {
+        long maintenant = System.currentTimeMillis();
+        byte[] donnees = CodecPositions.encoder(List.of(
+                new CodecTrace.Point(maintenant - 2000, 5.31, -4.03),
+                new CodecTrace.Point(maintenant - 1000, 5.32, -4.03)));
+
+        // Jeton expiré depuis l'ouverture du flux : plus aucune position acceptée
+        IngestionPositions.Bilan bilan = conducteurService.enregistrerFluxPositions(new ByteArrayInputStream(donnees),
+                new Date(maintenant - 60_000), new Date(maintenant - 1));
+        assertThat(bilan).isEqualTo(new IngestionPositions.Bilan(0, 0));
+
+        adminService.desactiverUtilisateur(conducteur.getId());
+        assertThatThrownBy(() -> conducteurService.enregistrerFluxPositions(new ByteArrayInputStream(donnees),
+                new Date(maintenant - 60_000), new Date(maintenant + 60_000)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED));
+    }
+
+    private IngestionPositions.Bilan envoyer(byte[] corps) throws IOException {
+        return conducteurService.enregistrerPositions(new ByteArrayInputStream(corps), corps.length);
+    }
+}
@@ -0,0 +1,171 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.entity.enums.StatutConducteur;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
+import com.lanayago.lanayagobackend.notification.CanalNotification;
+import com.lanayago.lanayagobackend.notification.ExpediteurNotificationsFactice;
+import com.lanayago.lanayagobackend.notification.Notification;
+import com.lanayago.lanayagobackend.notification.TypeNotification;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * File de notifications sans contexte Spring, sur l'expéditeur en mémoire
+ */
+class NotificationServiceTests {
+
+    private final ExpediteurNotificationsFactice expediteur = new ExpediteurNotificationsFactice();
+
+    private NotificationService notificationService;
+
+    @BeforeEach
+    void preparer() {
+        notificationService = new NotificationService(expediteur);
+        ReflectionTestUtils.setField(notificationService, "tailleFile", 10_000);
+        ReflectionTestUtils.setField(notificationService, "tailleLot", 100);
+        ReflectionTestUtils.setField(notificationService, "delaiLot", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(notificationService, "tentativesMax", 5);
+        ReflectionTestUtils.setField(notificationService, "delaiReprise", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(notificationService, "delaiRepriseMax", Duration.ofMinutes(1));
+        notificationService.demarrer();
+    }
+
+    @AfterEach
+    void nettoyer() {
+        notificationService.fermer();
+    }
+
+    @Test
+    void lotsRegroupesParCanal() {
+        for (long i = 1; i <= 5; i++) {
+            notificationService.notifierNouvelleCourse(i, 100L);
+        }
+        notificationService.notifierStatutConducteur(6L, StatutConducteur.SUSPENDU, "Documents expirés");
+
+        attendre(() -> expediteur.recues().size() == 6);
+
+        assertThat(expediteur.lots()).allSatisfy(lot -> assertThat(lot.notifications())
+                .extracting(Notification::canal).containsOnly(lot.canal()));
+        assertThat(expediteur.lots()).filteredOn(lot -> lot.canal() == CanalNotification.SMS)
+                .singleElement()
+                .satisfies(lot -> assertThat(lot.notifications().get(0).message()).endsWith(": Documents expirés"));
+    }
+
+    @Test
+    void envoiRejoueApresUnEchec() {
+        expediteur.echouer(2);
+
+        notificationService.notifierCourseAcceptee(7L, 100L);
+
+        attendre(() -> expediteur.recues().size() == 1);
+        assertThat(notificationService.metriques()).containsEntry("reprises", 2L);
+    }
+
+    @Test
+    void abandonneeApresLaDerniereTentative() {
+        expediteur.echouer(5);
+
+        notificationService.notifierCourseAcceptee(7L, 100L);
+
+        attendre(() -> notificationService.metriques().get("abandonnees").equals(1L));
+        assertThat(notificationService.metriques()).containsEntry("reprises", 4L);
+        assertThat(expediteur.recues()).isEmpty();
+    }
+
+    @Test
+    void transitionDeCourseNotifieLeClient() {
+        notificationService.surEvenementCourse(evenement(TypeEvenementCourse.STATUT_MODIFIE, StatutCourse.ARRIVEE_DEPART));
+        notificationService.surEvenementCourse(evenement(TypeEvenementCourse.STATUT_MODIFIE, StatutCourse.EN_COURS));
+
+        attendre(() -> !expediteur.recues().isEmpty());
+        assertThat(expediteur.recues()).singleElement().satisfies(notification -> {
+            assertThat(notification.type()).isEqualTo(TypeNotification.ARRIVEE_DEPART);
+            assertThat(notification.destinataireId()).isEqualTo(7L);
+        });
+    }
+
+    @Test
+    void annulationNotifieeAuxDeuxParticipants() {
+        notificationService.surEvenementCourse(evenement(TypeEvenementCourse.ANNULEE, StatutCourse.ANNULEE));
+
+        attendre(() -> expediteur.recues().size() == 2);
+        assertThat(expediteur.recues()).extracting(Notification::destinataireId).containsExactlyInAnyOrder(7L, 3L);
+        assertThat(expediteur.recues()).extracting(Notification::type).containsOnly(TypeNotification.COURSE_ANNULEE);
+    }
+
+    @Test
+    void approbationDuConducteurNotifieeParSms() {
+        notificationService.notifierStatutConducteur(3L, StatutConducteur.APPROUVE, null);
+
+        attendre(() -> !expediteur.recues().isEmpty());
+        assertThat(expediteur.lots()).singleElement().satisfies(lot -> {
+            assertThat(lot.canal()).isEqualTo(CanalNotification.SMS);
+            assertThat(lot.notifications().get(0).type()).isEqualTo(TypeNotification.COMPTE_APPROUVE);
+        });
+    }
+
+    @Test
+    void depotEnTransactionAttendLaValidation() throws InterruptedException {
+        TransactionSynchronization transaction = enTransaction(() -> notificationService.notifierCourseAcceptee(7L, 100L));
+
+        Thread.sleep(100);
+        assertThat(expediteur.recues()).isEmpty();
+
+        transaction.afterCommit();
+        attendre(() -> !expediteur.recues().isEmpty());
+        assertThat(expediteur.recues()).singleElement()
+                .satisfies(notification -> assertThat(notification.type()).isEqualTo(TypeNotification.COURSE_ACCEPTEE));
+    }
+
+    @Test
+    void transactionAnnuleeNeNotifiePersonne() throws InterruptedException {
+        TransactionSynchronization transaction = enTransaction(() -> notificationService.notifierCourseTerminee(7L, 100L));
+
+        transaction.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        Thread.sleep(100);
+        assertThat(expediteur.recues()).isEmpty();
+        assertThat(notificationService.metriques()).containsEntry("enAttente", 0);
+    }
+
+    /**
+     * Exécute l'action comme dans une transaction et retourne la synchronisation qu'elle a enregistrée
+     */
+    private static TransactionSynchronization enTransaction(Runnable action) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            return TransactionSynchronizationManager.getSynchronizations().getFirst();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static CourseEvenement evenement(TypeEvenementCourse type, StatutCourse statut) {
+        return new CourseEvenement(type, 100L, TypeCourse.LIVRAISON_MOTO, statut, 7L, 3L, "Plateau", "Cocody",
+                null, null, null, null, null, null, LocalDateTime.now());
+    }
+
+    private static void attendre(BooleanSupplier condition) {
+        long limite = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > limite) {
+                throw new AssertionError("Condition non atteinte après 5 s");
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
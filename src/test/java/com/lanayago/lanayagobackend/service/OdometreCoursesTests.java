@@ -0,0 +1,197 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
+import com.lanayago.lanayagobackend.util.CodecTrace;
+import com.lanayago.lanayagobackend.util.GeoUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compteur kilométrique sans contexte Spring : traces simulées
+ */
+class OdometreCoursesTests {
+
+    private static final double LATITUDE = 5.3167;
+    private static final double LONGITUDE = -4.0333;
+    private static final Long CONDUCTEUR_ID = 3L;
+    private static final Long COURSE_ID = 42L;
+
+    private final TracesCoursesService tracesCoursesService = mock(TracesCoursesService.class);
+
+    private OdometreCourses odometreCourses;
+    private Course course;
+
+    @BeforeEach
+    void preparer() {
+        odometreCourses = new OdometreCourses(tracesCoursesService);
+        ReflectionTestUtils.setField(odometreCourses, "vitesseMaxKmh", 200.0);
+        ReflectionTestUtils.setField(odometreCourses, "deplacementMinM", 10.0);
+        ReflectionTestUtils.setField(odometreCourses, "rejetsAvantRecalage", 3);
+        ReflectionTestUtils.setField(odometreCourses, "ecartMax", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(odometreCourses, "ratioMinEstimation", 0.7);
+
+        Conducteur conducteur = new Conducteur();
+        conducteur.setId(CONDUCTEUR_ID);
+        course = new Course();
+        course.setId(COURSE_ID);
+        course.setConducteur(conducteur);
+        course.setDistanceKm(1.0);
+        course.setStatut(StatutCourse.EN_COURS);
+
+        odometreCourses.demarrer(CONDUCTEUR_ID, COURSE_ID);
+    }
+
+    @Test
+    void sautsEtBruitIgnores() {
+        long instant = 1_700_000_000_000L;
+        double latitude = LATITUDE;
+
+        // 3 km vers le nord à 36 km/h : 100 m toutes les 10 s
+        for (int i = 0; i <= 30; i++) {
+            enregistrer(instant, latitude, LONGITUDE);
+            // Bruit à l'arrêt entre deux positions : quelques mètres
+            enregistrer(instant + 5_000, latitude + 0.00002, LONGITUDE + 0.00002);
+            // Saut GPS isolé à 20 km
+            if (i == 10) {
+                enregistrer(instant + 6_000, latitude + 0.18, LONGITUDE);
+            }
+            instant += 10_000;
+            latitude += GeoUtils.degresLatitude(0.1);
+        }
+
+        assertThat(odometreCourses.terminer(course)).hasValueSatisfying(releve ->
+                assertThat(releve.distanceKm()).isCloseTo(3.0, within(0.05)));
+    }
+
+    @Test
+    void trajetCouvertFiableAuDelaDeLEstimation() {
+        long instant = System.currentTimeMillis();
+        course.setDateDebut(date(instant));
+        // Trajet en L de 2 km alors que l'estimation à vol d'oiseau était de 1 km
+        for (int i = 0; i <= 10; i++) {
+            enregistrer(instant + i * 10_000L, LATITUDE + GeoUtils.degresLatitude(0.1 * i), LONGITUDE);
+        }
+        double latitudeFinale = LATITUDE + GeoUtils.degresLatitude(1.0);
+        for (int i = 1; i <= 10; i++) {
+            enregistrer(instant + (10 + i) * 10_000L, latitudeFinale,
+                    LONGITUDE + GeoUtils.degresLongitude(0.1 * i, latitudeFinale));
+        }
+        course.setDateFin(date(instant + 200_000L));
+
+        assertThat(odometreCourses.terminer(course)).hasValueSatisfying(releve -> {
+            assertThat(releve.distanceKm()).isCloseTo(2.0, within(0.02));
+            assertThat(releve.fiable()).isTrue();
+        });
+    }
+
+    @Test
+    void distanceTropFaibleDevantLEstimationNonFiable() {
+        long instant = System.currentTimeMillis();
+        course.setDateDebut(date(instant));
+        course.setDateFin(date(instant));
+        enregistrer(instant, LATITUDE, LONGITUDE);
+
+        assertThat(odometreCourses.terminer(course)).hasValueSatisfying(releve -> {
+            assertThat(releve.distanceKm()).isZero();
+            assertThat(releve.fiable()).isFalse();
+        });
+    }
+
+    @Test
+    void positionsInterrompuesEnCoursDeCourseNonFiable() {
+        long maintenant = System.currentTimeMillis();
+        course.setDateDebut(date(maintenant - 600_000));
+        course.setDateFin(date(maintenant));
+
+        // 1,2 km pendant les deux premières minutes, puis plus rien : application fermée
+        for (int i = 0; i <= 12; i++) {
+            enregistrer(maintenant - 600_000 + i * 10_000L, LATITUDE + GeoUtils.degresLatitude(0.1 * i), LONGITUDE);
+        }
+
+        assertThat(odometreCourses.terminer(course)).hasValueSatisfying(releve -> {
+            assertThat(releve.distanceKm()).isCloseTo(1.2, within(0.02));
+            assertThat(releve.fiable()).isFalse();
+        });
+    }
+
+    @Test
+    void evenementRejoueNeRemetPasLeCompteurAZero() {
+        long instant = System.currentTimeMillis();
+        for (int i = 0; i <= 10; i++) {
+            enregistrer(instant + i * 10_000L, LATITUDE + GeoUtils.degresLatitude(0.1 * i), LONGITUDE);
+        }
+
+        odometreCourses.surEvenementCourse(CourseEvenement.de(TypeEvenementCourse.STATUT_MODIFIE, course));
+
+        assertThat(odometreCourses.terminer(course)).hasValueSatisfying(releve ->
+                assertThat(releve.distanceKm()).isCloseTo(1.0, within(0.02)));
+    }
+
+    @Test
+    void compteurRetireSiLaTransactionEstAnnulee() {
+        odometreCourses.surEvenementCourse(CourseEvenement.de(TypeEvenementCourse.ANNULEE, course));
+        TransactionSynchronizationManager.initSynchronization();
+        odometreCourses.demarrer(CONDUCTEUR_ID, COURSE_ID);
+        List<TransactionSynchronization> synchronisations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronisations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        enregistrer(System.currentTimeMillis(), LATITUDE, LONGITUDE);
+
+        // Ni compteur ni date de début : rien à mesurer
+        assertThat(odometreCourses.terminer(course)).isEmpty();
+    }
+
+    @Test
+    void annulationLibereLeCompteur() {
+        enregistrer(System.currentTimeMillis(), LATITUDE, LONGITUDE);
+        odometreCourses.surEvenementCourse(CourseEvenement.de(TypeEvenementCourse.ANNULEE, course));
+
+        assertThat(odometreCourses.terminer(course)).isEmpty();
+    }
+
+    @Test
+    void sansCompteurDistanceRecalculeeDepuisLaTrace() {
+        odometreCourses.surEvenementCourse(CourseEvenement.de(TypeEvenementCourse.ANNULEE, course));
+        long debut = System.currentTimeMillis();
+        course.setDateDebut(date(debut));
+
+        // Serveur redémarré pendant la course : la trace commence avant le début, ce point-là n'est pas compté
+        List<CodecTrace.Point> trace = new ArrayList<>();
+        trace.add(new CodecTrace.Point(debut - 60_000, LATITUDE - GeoUtils.degresLatitude(0.5), LONGITUDE));
+        for (int i = 0; i <= 10; i++) {
+            trace.add(new CodecTrace.Point(debut + i * 10_000L, LATITUDE + GeoUtils.degresLatitude(0.1 * i), LONGITUDE));
+        }
+        when(tracesCoursesService.lire(COURSE_ID)).thenReturn(trace);
+
+        assertThat(odometreCourses.terminer(course)).hasValueSatisfying(releve ->
+                assertThat(releve.distanceKm()).isCloseTo(1.0, within(0.02)));
+    }
+
+    private void enregistrer(long instant, double latitude, double longitude) {
+        odometreCourses.enregistrer(CONDUCTEUR_ID, instant, latitude, longitude);
+    }
+
+    private static LocalDateTime date(long instant) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(instant), ZoneId.systemDefault());
+    }
+}
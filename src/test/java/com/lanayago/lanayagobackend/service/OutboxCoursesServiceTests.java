@@ -0,0 +1,317 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.entity.enums.TypeCourse;
+import com.lanayago.lanayagobackend.event.AbonneEvenementsCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
+import com.lanayago.lanayagobackend.repository.EvenementOutboxRepository;
+import com.lanayago.lanayagobackend.repository.SegmentTraceRepository;
+import com.lanayago.lanayagobackend.util.GeoUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest
+@Import(OutboxCoursesServiceTests.Configuration.class)
+class OutboxCoursesServiceTests {
+
+    @TestConfiguration
+    static class Configuration {
+
+        @Bean
+        AbonneEnregistreur abonneEnregistreur() {
+            return new AbonneEnregistreur(true, true);
+        }
+
+        @Bean
+        AbonneEnregistreur abonneSansRejeu() {
+            return new AbonneEnregistreur(false, true);
+        }
+
+        @Bean
+        AbonneEnregistreur abonneUnique() {
+            return new AbonneEnregistreur(false, false);
+        }
+    }
+
+    static class AbonneEnregistreur implements AbonneEvenementsCourse {
+
+        private final List<CourseEvenement> recus = new CopyOnWriteArrayList<>();
+        private final boolean accepteRejeu;
+        private final boolean parInstance;
+
+        AbonneEnregistreur(boolean accepteRejeu, boolean parInstance) {
+            this.accepteRejeu = accepteRejeu;
+            this.parInstance = parInstance;
+        }
+
+        @Override
+        public boolean accepteRejeu() {
+            return accepteRejeu;
+        }
+
+        @Override
+        public boolean parInstance() {
+            return parInstance;
+        }
+
+        @Override
+        public void surEvenementCourse(CourseEvenement evenement) {
+            recus.add(evenement);
+        }
+
+        List<TypeEvenementCourse> types(Long courseId) {
+            return recus.stream().filter(e -> e.courseId().equals(courseId)).map(CourseEvenement::type).toList();
+        }
+    }
+
+    @Autowired
+    private OutboxCoursesService outboxCoursesService;
+
+    @Autowired
+    @Qualifier("abonneEnregistreur")
+    private AbonneEnregistreur abonne;
+
+    @Autowired
+    @Qualifier("abonneSansRejeu")
+    private AbonneEnregistreur abonneSansRejeu;
+
+    @Autowired
+    @Qualifier("abonneUnique")
+    private AbonneEnregistreur abonneUnique;
+
+    @Autowired
+    private EvenementOutboxRepository evenementOutboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PresenceConducteurs presenceConducteurs;
+
+    @Autowired
+    private OdometreCourses odometreCourses;
+
+    @Autowired
+    private TracesCoursesService tracesCoursesService;
+
+    @Autowired
+    private SegmentTraceRepository segmentTraceRepository;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private Long courseId;
+    // Course en cours d'un conducteur, terminée après le test pour libérer sa trace et sa présence
+    private Course enCours;
+
+    @BeforeEach
+    void preparer() {
+        // Identifiant fictif : l'outbox ne référence pas la table des courses
+        courseId = ThreadLocalRandom.current().nextLong(1_000_000, Long.MAX_VALUE);
+    }
+
+    @AfterEach
+    void nettoyer() {
+        if (enCours != null) {
+            Long conducteurId = enCours.getConducteur().getId();
+            enCours.setStatut(StatutCourse.TERMINEE);
+            publier(TypeEvenementCourse.STATUT_MODIFIE, enCours);
+            attendreRelais();
+            presenceConducteurs.retirer(conducteurId);
+            odometreCourses.terminer(enCours);
+            attendre(() -> !segmentTraceRepository.findDonneesByCourseId(enCours.getId()).isEmpty());
+            segmentTraceRepository.deleteAll(segmentTraceRepository.findAll().stream()
+                    .filter(segment -> segment.getCourseId().equals(enCours.getId())).toList());
+        }
+        donnees.nettoyer();
+    }
+
+    @Test
+    void evenementsRelayesDansLOrdreApresValidation() {
+        publier(TypeEvenementCourse.CREEE, StatutCourse.EN_ATTENTE);
+        publier(TypeEvenementCourse.ACCEPTEE, StatutCourse.ACCEPTEE);
+        publier(TypeEvenementCourse.STATUT_MODIFIE, StatutCourse.TERMINEE);
+
+        attendre(() -> abonne.types(courseId).size() == 3);
+        assertThat(abonne.types(courseId)).containsExactly(
+                TypeEvenementCourse.CREEE, TypeEvenementCourse.ACCEPTEE, TypeEvenementCourse.STATUT_MODIFIE);
+        assertThat(abonne.recus).filteredOn(e -> e.courseId().equals(courseId)).last()
+                .satisfies(e -> assertThat(e.statut()).isEqualTo(StatutCourse.TERMINEE));
+        // Distribué avant la diffusion par instance : déjà reçu une fois, dans le même ordre
+        assertThat(abonneUnique.types(courseId)).containsExactly(
+                TypeEvenementCourse.CREEE, TypeEvenementCourse.ACCEPTEE, TypeEvenementCourse.STATUT_MODIFIE);
+    }
+
+    @Test
+    void evenementPublieParUneAutreInstanceDiffuseAuxSeulsAbonnesParInstance() throws Exception {
+        // Bail tenu par une autre instance : celle-ci ne publie plus rien
+        jdbcTemplate.update("UPDATE verrous_traitements SET detenteur = ?, expiration = ? WHERE nom = ?",
+                "autre-instance", LocalDateTime.now().plusMinutes(1), OutboxCoursesService.BAIL_RELAIS);
+        try {
+            publier(TypeEvenementCourse.CREEE, StatutCourse.EN_ATTENTE);
+            Thread.sleep(300);
+            assertThat(abonne.types(courseId)).isEmpty();
+            assertThat(abonneUnique.types(courseId)).isEmpty();
+
+            // L'autre instance a distribué l'événement à ses abonnés uniques, puis l'a publié
+            long numero = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(numero_publication), 0) + 1 FROM outbox_courses", Long.class);
+            jdbcTemplate.update("UPDATE outbox_courses SET date_publication = ?, numero_publication = ? WHERE course_id = ?",
+                    LocalDateTime.now(), numero, courseId);
+
+            attendre(() -> !abonne.types(courseId).isEmpty());
+            assertThat(abonne.types(courseId)).containsExactly(TypeEvenementCourse.CREEE);
+        } finally {
+            jdbcTemplate.update("UPDATE verrous_traitements SET detenteur = NULL, expiration = NULL WHERE nom = ?",
+                    OutboxCoursesService.BAIL_RELAIS);
+        }
+
+        // Bail repris par cette instance : l'événement déjà publié n'est pas relayé de nouveau
+        attendreRelais();
+        assertThat(abonneUnique.types(courseId)).isEmpty();
+        assertThat(abonne.types(courseId)).containsExactly(TypeEvenementCourse.CREEE);
+    }
+
+    @Test
+    void transactionAnnuleeNeLaisseAucunEvenement() {
+        long avant = evenementOutboxRepository.count();
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            eventPublisher.publishEvent(CourseEvenement.de(TypeEvenementCourse.CREEE, course(StatutCourse.EN_ATTENTE)));
+            tx.setRollbackOnly();
+        });
+
+        assertThat(evenementOutboxRepository.count()).isEqualTo(avant);
+    }
+
+    @Test
+    void rejeuRelaieDeNouveauLesEvenementsDeLaCourse() {
+        LocalDateTime debut = LocalDateTime.now().minusSeconds(1);
+        publier(TypeEvenementCourse.CREEE, StatutCourse.EN_ATTENTE);
+        publier(TypeEvenementCourse.ANNULEE, StatutCourse.ANNULEE);
+        attendre(() -> abonne.types(courseId).size() == 2 && abonneSansRejeu.types(courseId).size() == 2);
+
+        assertThat(outboxCoursesService.rejouer(debut, courseId)).isEqualTo(2);
+
+        attendre(() -> abonne.types(courseId).size() == 4);
+        assertThat(abonne.types(courseId)).containsExactly(
+                TypeEvenementCourse.CREEE, TypeEvenementCourse.ANNULEE,
+                TypeEvenementCourse.CREEE, TypeEvenementCourse.ANNULEE);
+        // Distribué dans la même boucle que le rejeu reçu ci-dessus : rien de plus pour celui qui le refuse
+        assertThat(abonneSansRejeu.types(courseId)).containsExactly(
+                TypeEvenementCourse.CREEE, TypeEvenementCourse.ANNULEE);
+    }
+
+    @Test
+    void rejeuDUneCourseTermineeLaisseIntacteLaCourseEnCoursDuConducteur() {
+        LocalDateTime debut = LocalDateTime.now().minusSeconds(1);
+        Conducteur conducteur = donnees.conducteur();
+        presenceConducteurs.definirDisponibilite(conducteur.getId(), true);
+        presenceConducteurs.signalerPresence(conducteur.getId());
+
+        // Course précédente du conducteur, menée à son terme
+        Course ancienne = donnees.course(donnees.client(), conducteur, StatutCourse.ACCEPTEE);
+        publier(TypeEvenementCourse.ACCEPTEE, ancienne);
+        ancienne.setStatut(StatutCourse.EN_COURS);
+        publier(TypeEvenementCourse.STATUT_MODIFIE, ancienne);
+        ancienne.setStatut(StatutCourse.TERMINEE);
+        publier(TypeEvenementCourse.STATUT_MODIFIE, ancienne);
+
+        // Course en cours
+        Course active = donnees.course(donnees.client(), conducteur, StatutCourse.ACCEPTEE);
+        enCours = active;
+        publier(TypeEvenementCourse.ACCEPTEE, active);
+        active.setStatut(StatutCourse.EN_COURS);
+        publier(TypeEvenementCourse.STATUT_MODIFIE, active);
+        attendreRelais();
+        assertThat(presenceConducteurs.estSollicitable(conducteur.getId())).isFalse();
+
+        assertThat(outboxCoursesService.rejouer(debut, ancienne.getId())).isEqualTo(3);
+        attendreRelais();
+
+        // Toujours occupé : aucune nouvelle course ne lui est proposée
+        assertThat(presenceConducteurs.estSollicitable(conducteur.getId())).isFalse();
+
+        long instant = System.currentTimeMillis();
+        for (int i = 0; i <= 10; i++) {
+            double latitude = 5.3167 + GeoUtils.degresLatitude(0.1 * i);
+            odometreCourses.enregistrer(conducteur.getId(), instant + i * 10_000L, latitude, -4.0333);
+            tracesCoursesService.enregistrer(conducteur.getId(), instant + i * 10_000L, latitude, -4.0333);
+        }
+        // Positions comptées et tracées pour la course en cours, pas pour celle rejouée
+        assertThat(tracesCoursesService.lire(active.getId())).hasSize(11);
+        assertThat(tracesCoursesService.lire(ancienne.getId())).isEmpty();
+        assertThat(odometreCourses.terminer(active)).hasValueSatisfying(releve ->
+                assertThat(releve.distanceKm()).isCloseTo(1.0, within(0.02)));
+    }
+
+    private void publier(TypeEvenementCourse type, StatutCourse statut) {
+        publier(type, course(statut));
+    }
+
+    private void publier(TypeEvenementCourse type, Course course) {
+        transactionTemplate.executeWithoutResult(tx -> eventPublisher.publishEvent(CourseEvenement.de(type, course)));
+    }
+
+    /**
+     * Le relais traite ses tâches une à une : un événement publié maintenant est reçu après tout ce qui
+     * le précède, rejeu compris
+     */
+    private void attendreRelais() {
+        Long marqueur = ThreadLocalRandom.current().nextLong(1_000_000, Long.MAX_VALUE);
+        Course course = course(StatutCourse.ANNULEE);
+        course.setId(marqueur);
+        publier(TypeEvenementCourse.ANNULEE, course);
+        attendre(() -> !abonne.types(marqueur).isEmpty());
+    }
+
+    private Course course(StatutCourse statut) {
+        Course course = new Course();
+        course.setId(courseId);
+        course.setTypeCourse(TypeCourse.LIVRAISON_MOTO);
+        course.setAdresseDepart("Plateau");
+        course.setAdresseArrivee("Cocody");
+        course.setStatut(statut);
+        return course;
+    }
+
+    private static void attendre(BooleanSupplier condition) {
+        long limite = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > limite) {
+                throw new AssertionError("Condition non atteinte après 5 s");
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
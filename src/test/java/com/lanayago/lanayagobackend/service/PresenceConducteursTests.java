@@ -0,0 +1,150 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
+import com.lanayago.lanayagobackend.repository.ConducteurRepository;
+import com.lanayago.lanayagobackend.repository.CourseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "lanayago.presence.delai-expiration=PT1S",
+        "lanayago.presence.roue.duree-case=PT0.1S",
+        "lanayago.presence.ecriture.intervalle=PT1H"
+})
+class PresenceConducteursTests {
+
+    @Autowired
+    private PresenceConducteurs presenceConducteurs;
+
+    @Autowired
+    private ConducteurService conducteurService;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private ConducteurRepository conducteurRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private User client;
+    private Conducteur conducteur;
+
+    @BeforeEach
+    void preparer() {
+        client = donnees.client();
+        conducteur = donnees.conducteur();
+        JeuDeDonnees.authentifier(conducteur);
+    }
+
+    @AfterEach
+    void nettoyer() {
+        presenceConducteurs.retirer(conducteur.getId());
+        donnees.nettoyer();
+    }
+
+    @Test
+    void sollicitableTantQuIlEnvoieSesPositions() {
+        Long id = conducteur.getId();
+        int avant = presenceConducteurs.nombreSollicitables();
+
+        assertThat(conducteurService.updateDisponibilite(true).getDisponible()).isTrue();
+        assertThat(presenceConducteurs.estSollicitable(id)).isTrue();
+        assertThat(adminService.getDashboard().getConducteursDisponibles()).isEqualTo(avant + 1);
+
+        // Plus de position : hors ligne à l'échéance, mais toujours déclaré disponible
+        attendre(() -> !presenceConducteurs.estSollicitable(id));
+        assertThat(presenceConducteurs.estDisponible(id)).isTrue();
+        assertThat(presenceConducteurs.nombreSollicitables()).isEqualTo(avant);
+
+        conducteurService.updatePosition(5.3167, -4.0333);
+        assertThat(presenceConducteurs.estSollicitable(id)).isTrue();
+
+        // Une position par demi-délai le garde en ligne
+        for (int i = 0; i < 4; i++) {
+            attendreMs(500);
+            conducteurService.updatePosition(5.3167, -4.0333);
+            assertThat(presenceConducteurs.estSollicitable(id)).isTrue();
+        }
+
+        conducteurService.updateDisponibilite(false);
+        assertThat(presenceConducteurs.estSollicitable(id)).isFalse();
+    }
+
+    @Test
+    void occupeDeLAcceptationALaFinDeCourse() {
+        Long id = conducteur.getId();
+        conducteurService.updateDisponibilite(true);
+
+        Course course = donnees.course(client, conducteur, StatutCourse.ACCEPTEE);
+
+        presenceConducteurs.surEvenementCourse(CourseEvenement.de(TypeEvenementCourse.ACCEPTEE, course));
+        assertThat(presenceConducteurs.estSollicitable(id)).isFalse();
+
+        course.setStatut(StatutCourse.TERMINEE);
+        presenceConducteurs.surEvenementCourse(CourseEvenement.de(TypeEvenementCourse.STATUT_MODIFIE, course));
+        assertThat(presenceConducteurs.estSollicitable(id)).isTrue();
+    }
+
+    @Test
+    void choixEcritEnDiffereEtRelu() {
+        Long id = conducteur.getId();
+
+        conducteurService.updateDisponibilite(true);
+        assertThat(conducteurRepository.findIdsDisponibles()).doesNotContain(id);
+
+        presenceConducteurs.ecrire();
+        assertThat(conducteurRepository.findIdsDisponibles()).contains(id);
+
+        // Registre reconstruit comme au démarrage : le choix est relu, la présence non
+        PresenceConducteurs rechargee = new PresenceConducteurs(conducteurRepository, courseRepository, transactionTemplate);
+        rechargee.charger();
+        assertThat(rechargee.estDisponible(id)).isTrue();
+        assertThat(rechargee.estSollicitable(id)).isFalse();
+
+        adminService.suspendreConducteur(id, "Test");
+        assertThat(presenceConducteurs.estDisponible(id)).isFalse();
+        presenceConducteurs.ecrire();
+        assertThat(conducteurRepository.findIdsDisponibles()).doesNotContain(id);
+    }
+
+    private static void attendre(BooleanSupplier condition) {
+        long limite = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > limite) {
+                throw new AssertionError("Condition non atteinte après 5 s");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void attendreMs(long millisecondes) {
+        try {
+            Thread.sleep(millisecondes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "lanayago.courses.geohash.taille-lot=2")
+class RattrapageGeohashCoursesTests {
+
+    @Autowired
+    private RattrapageGeohashCourses rattrapageGeohashCourses;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private User client;
+
+    @BeforeEach
+    void preparer() {
+        client = donnees.client();
+    }
+
+    @AfterEach
+    void nettoyer() {
+        donnees.nettoyer();
+    }
+
+    @Test
+    void coursesAnterieuresCompleteesParLots() {
+        Course plateau = creer(5.3200, -4.0200);
+        Course cocody = creer(5.3600, -3.9800);
+        Course yopougon = creer(5.3400, -4.0800);
+        Course sansCoordonnees = creer(null, null);
+        // Lignes écrites avant l'ajout de la colonne
+        jdbcTemplate.update("UPDATE courses SET geohash_depart = NULL WHERE client_id = ?", client.getId());
+
+        // Trois courses au moins sur des lots de deux
+        assertThat(rattrapageGeohashCourses.rattraper()).isGreaterThanOrEqualTo(3);
+
+        assertThat(geohash(plateau)).isEqualTo("ebvnk");
+        assertThat(geohash(cocody)).isEqualTo(cocody.getGeohashDepart());
+        assertThat(geohash(yopougon)).isEqualTo(yopougon.getGeohashDepart());
+        assertThat(geohash(sansCoordonnees)).isNull();
+        assertThat(rattrapageGeohashCourses.rattraper()).isZero();
+    }
+
+    private Course creer(Double latitude, Double longitude) {
+        Course course = JeuDeDonnees.nouvelleCourse(client, null, StatutCourse.EN_ATTENTE);
+        course.setLatitudeDepart(latitude);
+        course.setLongitudeDepart(longitude);
+        return donnees.enregistrer(course);
+    }
+
+    private String geohash(Course course) {
+        return jdbcTemplate.queryForObject("SELECT geohash_depart FROM courses WHERE id = ?", String.class, course.getId());
+    }
+}
@@ -0,0 +1,86 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.RefreshToken;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "lanayago.auth.purge-refresh-tokens.taille-lot=3")
+class RefreshTokenServiceTests {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private User client;
+
+    @BeforeEach
+    void preparer() {
+        client = donnees.client();
+    }
+
+    @AfterEach
+    void nettoyer() {
+        refreshTokenService.revoquerTout(client.getId());
+        donnees.nettoyer();
+    }
+
+    @Test
+    void echangeRemplaceLeJetonPresente() {
+        String jeton = refreshTokenService.emettre(client);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.echanger(jeton);
+
+        assertThat(rotation.utilisateur().getId()).isEqualTo(client.getId());
+        assertThat(rotation.refreshToken()).isNotEqualTo(jeton);
+        assertThat(refreshTokenService.echanger(rotation.refreshToken()).refreshToken()).isNotBlank();
+    }
+
+    @Test
+    void reutilisationRevoqueToutLaFamille() {
+        String jeton = refreshTokenService.emettre(client);
+        String suivant = refreshTokenService.echanger(jeton).refreshToken();
+
+        assertThatThrownBy(() -> refreshTokenService.echanger(jeton))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED));
+
+        // Le jeton légitime émis après le vol est révoqué avec le reste de la famille
+        assertThatThrownBy(() -> refreshTokenService.echanger(suivant))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void purgeSupprimeLesJetonsExpiresParLots() {
+        for (int i = 0; i < 7; i++) {
+            RefreshToken expire = new RefreshToken();
+            expire.setEmpreinte(UUID.randomUUID().toString().replace("-", ""));
+            expire.setFamille(UUID.randomUUID().toString());
+            expire.setUtilisateur(client);
+            expire.setDateExpiration(LocalDateTime.now().minusMinutes(1));
+            refreshTokenRepository.save(expire);
+        }
+        String valide = refreshTokenService.emettre(client);
+
+        assertThat(refreshTokenService.purgerExpires()).isEqualTo(7);
+        assertThat(refreshTokenService.echanger(valide).refreshToken()).isNotBlank();
+    }
+}
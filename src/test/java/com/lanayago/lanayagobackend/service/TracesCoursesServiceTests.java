@@ -0,0 +1,106 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import com.lanayago.lanayagobackend.event.CourseEvenement;
+import com.lanayago.lanayagobackend.event.TypeEvenementCourse;
+import com.lanayago.lanayagobackend.repository.SegmentTraceRepository;
+import com.lanayago.lanayagobackend.util.CodecTrace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "lanayago.traces.points-par-segment=3")
+class TracesCoursesServiceTests {
+
+    @Autowired
+    private TracesCoursesService tracesCoursesService;
+
+    @Autowired
+    private SegmentTraceRepository segmentTraceRepository;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private User client;
+    private Conducteur conducteur;
+    private Course course;
+
+    @BeforeEach
+    void preparer() {
+        client = donnees.client();
+        conducteur = donnees.conducteur();
+
+        // Course attribuée sans événement : le service la retrouve en base à la première position
+        course = donnees.course(client, conducteur, StatutCourse.EN_COURS);
+    }
+
+    @AfterEach
+    void nettoyer() {
+        segmentTraceRepository.deleteAll(segmentTraceRepository.findAll().stream()
+                .filter(segment -> segment.getCourseId().equals(course.getId())).toList());
+        donnees.nettoyer();
+    }
+
+    @Test
+    void positionsDeLaCourseEcritesParSegments() {
+        for (int i = 0; i < 7; i++) {
+            tracesCoursesService.enregistrer(conducteur.getId(), 5.3167 + i * 0.0001, -4.0333);
+        }
+
+        // Deux segments pleins écrits, la septième position encore en mémoire
+        attendre(() -> segmentTraceRepository.findDonneesByCourseId(course.getId()).size() == 2);
+        assertThat(tracesCoursesService.lire(course.getId()))
+                .extracting(CodecTrace.Point::latitude)
+                .containsExactly(5.3167, 5.3168, 5.3169, 5.317, 5.3171, 5.3172, 5.3173);
+
+        course.setStatut(StatutCourse.TERMINEE);
+        tracesCoursesService.surEvenementCourse(CourseEvenement.de(TypeEvenementCourse.STATUT_MODIFIE, course));
+        attendre(() -> segmentTraceRepository.findDonneesByCourseId(course.getId()).size() == 3);
+
+        // Course terminée : les positions suivantes ne sont plus rattachées à la trace
+        tracesCoursesService.enregistrer(conducteur.getId(), 5.4, -4.0);
+        assertThat(tracesCoursesService.lire(course.getId())).hasSize(7);
+    }
+
+    @Test
+    void tamponVideRetireAuPassageSuivant() {
+        // Conducteur à l'arrêt depuis dix minutes, fin de course jamais reçue
+        long ancien = System.currentTimeMillis() - Duration.ofMinutes(10).toMillis();
+        tracesCoursesService.enregistrer(conducteur.getId(), ancien, 5.3167, -4.0333);
+        assertThat(tracesCoursesService.aUnTampon(course.getId())).isTrue();
+
+        tracesCoursesService.ecrireTamponsAnciens();
+        assertThat(segmentTraceRepository.findDonneesByCourseId(course.getId())).hasSize(1);
+        assertThat(tracesCoursesService.aUnTampon(course.getId())).isTrue();
+
+        tracesCoursesService.ecrireTamponsAnciens();
+        assertThat(tracesCoursesService.aUnTampon(course.getId())).isFalse();
+
+        // Le conducteur repart : un nouveau tampon, la trace reste complète
+        tracesCoursesService.enregistrer(conducteur.getId(), 5.3168, -4.0333);
+        assertThat(tracesCoursesService.lire(course.getId()))
+                .extracting(CodecTrace.Point::latitude)
+                .containsExactly(5.3167, 5.3168);
+    }
+
+    private static void attendre(BooleanSupplier condition) {
+        long limite = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > limite) {
+                throw new AssertionError("Condition non atteinte après 5 s");
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
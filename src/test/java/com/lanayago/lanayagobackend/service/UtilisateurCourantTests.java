@@ -0,0 +1,81 @@
+package com.lanayago.lanayagobackend.service;
+
+import com.lanayago.lanayagobackend.CompteurRequetes;
+import com.lanayago.lanayagobackend.JeuDeDonnees;
+import com.lanayago.lanayagobackend.entity.Conducteur;
+import com.lanayago.lanayagobackend.entity.Course;
+import com.lanayago.lanayagobackend.entity.User;
+import com.lanayago.lanayagobackend.entity.enums.StatutCourse;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Une requête qui traverse plusieurs services ne charge l'utilisateur connecté qu'une fois
+ */
+@SpringBootTest
+class UtilisateurCourantTests {
+
+    @Autowired
+    private ConducteurService conducteurService;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JeuDeDonnees donnees;
+
+    private User client;
+    private Conducteur conducteur;
+    private Course course;
+
+    @BeforeEach
+    void preparer() {
+        client = donnees.client();
+        conducteur = donnees.conducteur();
+        course = donnees.course(client, conducteur, StatutCourse.ACCEPTEE);
+    }
+
+    @AfterEach
+    void nettoyer() {
+        RequestContextHolder.resetRequestAttributes();
+        donnees.nettoyer();
+    }
+
+    @Test
+    void auPlusUnChargementDeLUtilisateurParRequete() {
+        JeuDeDonnees.authentifier(conducteur);
+
+        // Requête HTTP simulée, avec l'EntityManager ouvert pour toute la requête comme en open-in-view
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        TransactionSynchronizationManager.bindResource(entityManagerFactory,
+                new EntityManagerHolder(entityManagerFactory.createEntityManager()));
+        try {
+            CompteurRequetes.Mesure mesure = CompteurRequetes.mesurer(() -> {
+                conducteurService.getProfile();
+                conducteurService.getMesCourses();
+                conducteurService.getStatistiques();
+                courseService.getCourseById(course.getId());
+                courseService.updateStatut(course.getId(), StatutCourse.ARRIVEE_DEPART);
+            });
+
+            assertThat(mesure.chargements(Conducteur.class)).isEqualTo(1);
+        } finally {
+            EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            holder.getEntityManager().close();
+        }
+    }
+}
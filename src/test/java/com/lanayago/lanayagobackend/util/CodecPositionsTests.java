@@ -0,0 +1,54 @@
+package com.lanayago.lanayagobackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CodecPositionsTests {
+
+    private static final List<CodecTrace.Point> POINTS = List.of(
+            new CodecTrace.Point(1_700_000_000_000L, 5.3167123, -4.0333456),
+            new CodecTrace.Point(1_700_000_005_000L, -33.8688197, 151.2092955),
+            new CodecTrace.Point(1_700_000_010_000L, 90.0, -180.0));
+
+    @Test
+    void lotAllerRetour() {
+        byte[] donnees = CodecPositions.encoder(POINTS);
+
+        assertThat(donnees).hasSize(POINTS.size() * CodecPositions.TAILLE_ENREGISTREMENT);
+        assertThat(CodecPositions.decoder(donnees)).isEqualTo(POINTS);
+    }
+
+    @Test
+    void fluxLuEnregistrementParEnregistrement() throws Exception {
+        CodecPositions.Lecteur lecteur = new CodecPositions.Lecteur(
+                new ByteArrayInputStream(CodecPositions.encoder(POINTS)));
+
+        List<CodecTrace.Point> lus = new ArrayList<>();
+        CodecTrace.Point point;
+        while ((point = lecteur.suivant()) != null) {
+            lus.add(point);
+        }
+        assertThat(lus).isEqualTo(POINTS);
+    }
+
+    @Test
+    void enregistrementIncompletRefuse() {
+        byte[] tronque = Arrays.copyOf(CodecPositions.encoder(POINTS), 40);
+
+        assertThatThrownBy(() -> CodecPositions.decoder(tronque)).isInstanceOf(IllegalArgumentException.class);
+
+        CodecPositions.Lecteur lecteur = new CodecPositions.Lecteur(new ByteArrayInputStream(tronque));
+        assertThatThrownBy(() -> {
+            while (lecteur.suivant() != null) {
+                // Les deux premiers enregistrements sont complets
+            }
+        }).isInstanceOf(IllegalArgumentException.class);
+    }
+}
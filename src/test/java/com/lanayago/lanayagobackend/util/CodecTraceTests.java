@@ -0,0 +1,89 @@
+package com.lanayago.lanayagobackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class CodecTraceTests {
+
+    @Test
+    void allerRetourAuMetrePres() {
+        List<CodecTrace.Point> points = trajet(500, 5.3167, -4.0333);
+
+        List<CodecTrace.Point> decodes = CodecTrace.decoder(CodecTrace.encoder(points));
+
+        assertThat(decodes).hasSize(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            assertThat(decodes.get(i).horodatage()).isEqualTo(points.get(i).horodatage());
+            assertThat(decodes.get(i).latitude()).isCloseTo(points.get(i).latitude(), within(0.5e-5));
+            assertThat(decodes.get(i).longitude()).isCloseTo(points.get(i).longitude(), within(0.5e-5));
+        }
+    }
+
+    @Test
+    void pointsDejaArrondisRestituesExactement() {
+        List<CodecTrace.Point> points = List.of(
+                new CodecTrace.Point(1_700_000_000_000L, 5.31672, -4.03331),
+                new CodecTrace.Point(1_700_000_004_000L, 5.31701, -4.03298),
+                // Horloge qui recule et saut de position : écarts négatifs et grands
+                new CodecTrace.Point(1_700_000_003_500L, -33.86882, 151.20929),
+                new CodecTrace.Point(1_700_000_009_500L, 89.99999, -179.99999));
+
+        assertThat(CodecTrace.decoder(CodecTrace.encoder(points))).isEqualTo(points);
+    }
+
+    @Test
+    void emissionReguliereCompacte() {
+        List<CodecTrace.Point> points = trajet(1000, 5.3167, -4.0333);
+
+        byte[] donnees = CodecTrace.encoder(points);
+
+        assertThat(donnees.length).isLessThan(points.size() * 6);
+    }
+
+    @Test
+    void segmentsDecodesALaSuite() {
+        List<CodecTrace.Point> points = trajet(10, 5.3167, -4.0333);
+        List<CodecTrace.Point> decodes = new ArrayList<>();
+
+        CodecTrace.decoder(CodecTrace.encoder(points.subList(0, 4)), decodes);
+        CodecTrace.decoder(CodecTrace.encoder(points.subList(4, 10)), decodes);
+
+        assertThat(decodes).hasSize(10);
+        assertThat(decodes.get(4).horodatage()).isEqualTo(points.get(4).horodatage());
+        assertThat(CodecTrace.decoder(CodecTrace.encoder(List.of()))).isEmpty();
+    }
+
+    @Test
+    void segmentInvalideRefuse() {
+        byte[] donnees = CodecTrace.encoder(trajet(3, 5.3167, -4.0333));
+
+        assertThatThrownBy(() -> CodecTrace.decoder(new byte[]{9, 0}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CodecTrace.decoder(Arrays.copyOf(donnees, donnees.length - 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Conducteur en ville : une position toutes les 5 s environ, déplacements de quelques dizaines de mètres
+     */
+    private static List<CodecTrace.Point> trajet(int nombre, double latitude, double longitude) {
+        Random aleatoire = new Random(42);
+        List<CodecTrace.Point> points = new ArrayList<>();
+        long horodatage = 1_700_000_000_000L;
+        for (int i = 0; i < nombre; i++) {
+            points.add(new CodecTrace.Point(horodatage, latitude, longitude));
+            horodatage += 5_000 + aleatoire.nextInt(200) - 100;
+            latitude += (aleatoire.nextDouble() - 0.5) * 0.0006;
+            longitude += (aleatoire.nextDouble() - 0.5) * 0.0006;
+        }
+        return points;
+    }
+}
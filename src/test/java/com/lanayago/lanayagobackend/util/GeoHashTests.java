@@ -0,0 +1,60 @@
+package com.lanayago.lanayagobackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeoHashTests {
+
+    @Test
+    void vecteursConnus() {
+        assertThat(GeoHash.encoder(57.64911, 10.40744, 11)).isEqualTo("u4pruydqqvj");
+        assertThat(GeoHash.encoder(42.6, -5.6, 5)).isEqualTo("ezs42");
+        assertThat(GeoHash.encoder(0, 0, 1)).isEqualTo("s");
+        assertThat(GeoHash.encoder(-90, -180, 3)).isEqualTo("000");
+    }
+
+    @Test
+    void dimensionsDesCellules() {
+        // Précision 5 : 25 bits, 13 en longitude et 12 en latitude
+        assertThat(GeoHash.hauteurCellule(5)).isEqualTo(180.0 / 4096);
+        assertThat(GeoHash.largeurCellule(5)).isEqualTo(360.0 / 8192);
+        assertThat(GeoHash.hauteurCellule(1)).isEqualTo(45.0);
+        assertThat(GeoHash.largeurCellule(1)).isEqualTo(45.0);
+    }
+
+    @Test
+    void rectangleInterieurAUneCellule() {
+        assertThat(GeoHash.cellulesCouvrantes(42.60, -5.61, 42.61, -5.60, 5)).containsExactly("ezs42");
+    }
+
+    @Test
+    void rectangleAChevalSurLesBordsDeCellule() {
+        // ezs42 s'arrête à 42,626953125 en latitude et -5,5810546875 en longitude
+        Set<String> cellules = GeoHash.cellulesCouvrantes(42.60, -5.60, 42.63, -5.575, 5);
+
+        assertThat(cellules).containsExactlyInAnyOrder("ezs42", "ezs43", "ezs48", "ezs49");
+    }
+
+    @Test
+    void couvertureCompletePourUnRayonDeCinqKilometres() {
+        double latitude = 5.32;
+        double longitude = -4.02;
+        double deltaLat = GeoUtils.degresLatitude(5);
+        double deltaLon = GeoUtils.degresLongitude(5, latitude);
+
+        Set<String> cellules = GeoHash.cellulesCouvrantes(latitude - deltaLat, longitude - deltaLon,
+                latitude + deltaLat, longitude + deltaLon, GeoHash.PRECISION_COURSES);
+
+        // Tout point du rectangle tombe dans une des cellules renvoyées
+        for (int i = 0; i <= 100; i++) {
+            for (int j = 0; j <= 100; j++) {
+                double lat = latitude - deltaLat + 2 * deltaLat * i / 100;
+                double lon = longitude - deltaLon + 2 * deltaLon * j / 100;
+                assertThat(cellules).contains(GeoHash.encoder(lat, lon, GeoHash.PRECISION_COURSES));
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.lanayago.lanayagobackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoueTemporelleTests {
+
+    private static final long ORIGINE = 1_700_000_000_000L;
+
+    @Test
+    void cleRendueAuPassageDeSaCaseEtPasAvant() {
+        RoueTemporelle<String> roue = new RoueTemporelle<>(Duration.ofSeconds(1), 8, ORIGINE);
+        List<String> echues = new ArrayList<>();
+
+        roue.planifier("a", ORIGINE + 2_500);
+        roue.planifier("b", ORIGINE + 5_000);
+
+        roue.avancer(ORIGINE + 2_000, echues::add);
+        assertThat(echues).isEmpty();
+
+        roue.avancer(ORIGINE + 3_000, echues::add);
+        assertThat(echues).containsExactly("a");
+
+        roue.avancer(ORIGINE + 10_000, echues::add);
+        assertThat(echues).containsExactly("a", "b");
+    }
+
+    @Test
+    void echeanceAuDelaDUnTourRendueEnAvance() {
+        RoueTemporelle<String> roue = new RoueTemporelle<>(Duration.ofSeconds(1), 4, ORIGINE);
+        List<String> echues = new ArrayList<>();
+
+        // Même case que ORIGINE + 2 s : le propriétaire constate que l'échéance n'est pas atteinte
+        roue.planifier("lointaine", ORIGINE + 6_000);
+        roue.avancer(ORIGINE + 2_000, echues::add);
+        assertThat(echues).containsExactly("lointaine");
+    }
+
+    @Test
+    void echeancePasseeRendueAuProchainTic() {
+        RoueTemporelle<String> roue = new RoueTemporelle<>(Duration.ofSeconds(1), 4, ORIGINE);
+        List<String> echues = new ArrayList<>();
+
+        roue.avancer(ORIGINE + 3_000, echues::add);
+        roue.planifier("en-retard", ORIGINE);
+        roue.avancer(ORIGINE + 3_500, echues::add);
+        assertThat(echues).isEmpty();
+
+        roue.avancer(ORIGINE + 4_000, echues::add);
+        assertThat(echues).containsExactly("en-retard");
+    }
+
+    @Test
+    void replanifieeDansLaCaseCouranteNEstPasRelue() {
+        RoueTemporelle<String> roue = new RoueTemporelle<>(Duration.ofSeconds(1), 4, ORIGINE);
+        List<String> echues = new ArrayList<>();
+
+        roue.planifier("a", ORIGINE + 1_000);
+        roue.avancer(ORIGINE + 1_000, cle -> {
+            echues.add(cle);
+            // Un tour plus loin : même case que celle en cours de parcours
+            roue.planifier(cle, ORIGINE + 5_000);
+        });
+        assertThat(echues).containsExactly("a");
+
+        roue.avancer(ORIGINE + 5_000, echues::add);
+        assertThat(echues).containsExactly("a", "a");
+    }
+
+    @Test
+    void planificationPendantUnTicJamaisPerdue() throws InterruptedException {
+        int cases = 1 << 16;
+        RoueTemporelle<Integer> roue = new RoueTemporelle<>(Duration.ofMillis(1), cases, ORIGINE);
+        Set<Integer> echues = ConcurrentHashMap.newKeySet();
+        AtomicLong maintenant = new AtomicLong(ORIGINE);
+        AtomicBoolean termine = new AtomicBoolean();
+
+        // Moins d'un tour : une clé rangée dans une case déjà parcourue ne serait pas rattrapée par le tour suivant
+        Thread horloge = Thread.ofPlatform().start(() -> {
+            while (!termine.get() && maintenant.get() < ORIGINE + cases - 10) {
+                roue.avancer(maintenant.incrementAndGet(), echues::add);
+            }
+        });
+        int nombre = 200_000;
+        for (int cle = 0; cle < nombre; cle++) {
+            // Échéance passée : la clé va dans la case du prochain tic, que l'horloge est peut-être en train de vider
+            roue.planifier(cle, ORIGINE);
+        }
+        termine.set(true);
+        horloge.join();
+
+        roue.avancer(maintenant.get() + 2, echues::add);
+        assertThat(echues.size()).isEqualTo(nombre);
+    }
+}